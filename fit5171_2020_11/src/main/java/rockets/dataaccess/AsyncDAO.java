@@ -0,0 +1,136 @@
+package rockets.dataaccess;
+
+import rockets.model.Entity;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+import static org.apache.commons.lang3.Validate.isTrue;
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * The non-blocking counterpart of a {@link DAO}: every call runs the DAO call on an executor
+ * and returns a future of its result, so independent calls can overlap.
+ * <p>
+ * At most {@code maxPending} calls are submitted and not yet finished at any time. A call
+ * beyond that blocks the caller until an earlier one finishes, so a fast producer is slowed
+ * down to the pace of the DAO rather than queueing without bound. Since the limit is kept
+ * here rather than by the executor's queue, any executor fits, including one that starts
+ * a thread per task.
+ * <p>
+ * Calls run concurrently, so the DAO must be safe for concurrent use unless the executor
+ * runs one task at a time.
+ */
+public class AsyncDAO implements AutoCloseable {
+    private final DAO dao;
+
+    private final Executor executor;
+
+    private final Semaphore pending;
+
+    // the executor this created, shut down on close
+    private final ExecutorService ownExecutor;
+
+    /**
+     * @param dao the DAO to call
+     * @param executor the executor to run the calls on
+     * @param maxPending the most calls submitted and not yet finished
+     */
+    public AsyncDAO(DAO dao, Executor executor, int maxPending) {
+        this(dao, executor, maxPending, null);
+    }
+
+    /**
+     * Runs the calls on a pool of its own, shut down by {@link #close()}.
+     *
+     * @param dao the DAO to call
+     * @param threads the number of threads to call the DAO on
+     * @param maxPending the most calls submitted and not yet finished
+     */
+    public AsyncDAO(DAO dao, int threads, int maxPending) {
+        this(dao, Executors.newFixedThreadPool(threads), maxPending);
+    }
+
+    private AsyncDAO(DAO dao, ExecutorService executor, int maxPending) {
+        this(dao, executor, maxPending, executor);
+    }
+
+    private AsyncDAO(DAO dao, Executor executor, int maxPending, ExecutorService ownExecutor) {
+        notNull(dao, "dao cannot be null");
+        notNull(executor, "executor cannot be null");
+        isTrue(maxPending > 0, "maxPending must be positive");
+        this.dao = dao;
+        this.executor = executor;
+        this.pending = new Semaphore(maxPending);
+        this.ownExecutor = ownExecutor;
+    }
+
+    public DAO getDAO() {
+        return dao;
+    }
+
+    public <T extends Entity> CompletableFuture<T> load(Class<T> clazz, Long id) {
+        return submit(() -> dao.load(clazz, id));
+    }
+
+    public <T extends Entity> CompletableFuture<Collection<T>> loadAll(Class<T> clazz) {
+        return submit(() -> dao.loadAll(clazz));
+    }
+
+    public <T extends Entity> CompletableFuture<T> createOrUpdate(T entity) {
+        return submit(() -> dao.createOrUpdate(entity));
+    }
+
+    public <T extends Entity> CompletableFuture<List<T>> createOrUpdateAll(Collection<T> entities) {
+        return submit(() -> dao.createOrUpdateAll(entities));
+    }
+
+    public <T extends Entity> CompletableFuture<Void> delete(T entity) {
+        return submit(() -> {
+            dao.delete(entity);
+            return null;
+        });
+    }
+
+    /**
+     * Submits a call, first waiting for a free slot if maxPending calls are already pending.
+     * The future fails with {@link InterruptedException} if the caller is interrupted while waiting.
+     */
+    private <R> CompletableFuture<R> submit(Supplier<R> call) {
+        try {
+            pending.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            CompletableFuture<R> interrupted = new CompletableFuture<>();
+            interrupted.completeExceptionally(e);
+            return interrupted;
+        }
+        try {
+            // the slot is free again before anything chained to the returned future runs
+            return CompletableFuture.supplyAsync(call, executor).whenComplete((result, error) -> pending.release());
+        } catch (RejectedExecutionException e) {
+            pending.release();
+            throw e;
+        }
+    }
+
+    /**
+     * @return the number of calls that can still be submitted without blocking.
+     */
+    public int getAvailableSlots() {
+        return pending.availablePermits();
+    }
+
+    /**
+     * Shuts down the pool this created, letting pending calls finish. An executor passed in
+     * is left to its owner.
+     */
+    @Override
+    public void close() {
+        if (null != ownExecutor) {
+            ownExecutor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package rockets.dataaccess;
+
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import rockets.model.Entity;
+
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import static org.apache.commons.lang3.Validate.isTrue;
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * A read-through cache in front of another DAO.
+ * <p>
+ * Each entity class has its own cache of entities by id, bounded in size and evicting the
+ * least recently used entries first, and the result of {@link #loadAll(Class)} is cached per
+ * class. Entries can also expire a fixed time after they were loaded. Ids that are not
+ * found are cached too, as absent.
+ * <p>
+ * Writing or deleting an entity through this DAO drops its cached entry and every cached
+ * {@code loadAll} result, since saving one entity can also save the entities it refers to.
+ * Writes made to the wrapped DAO directly are only seen once the entries expire.
+ * <p>
+ * Concurrent readers of a missing entry wait for one load rather than each loading it.
+ * {@link #stream(Class, int)}, {@link #loadProjection(Class, String...)} and {@link #find(Criteria)} are not cached.
+ */
+public class CachingDAO implements DAO {
+    public static final long DEFAULT_MAXIMUM_SIZE = 10_000;
+
+    private final DAO dao;
+
+    private final long maximumSize;
+
+    private final long expireAfterNanos;
+
+    private final Ticker ticker;
+
+    private final ConcurrentMap<Class<?>, Cache<Long, Optional<Entity>>> entityCaches = new ConcurrentHashMap<>();
+
+    private final Cache<Class<?>, List<Entity>> loadAllCache;
+
+    // counts writes, so a load that overlapped one does not leave what it read before it cached
+    private final AtomicLong writes = new AtomicLong();
+
+    /**
+     * Caches up to {@link #DEFAULT_MAXIMUM_SIZE} entities per class, until they are written.
+     *
+     * @param dao the DAO to read through
+     */
+    public CachingDAO(DAO dao) {
+        this(dao, DEFAULT_MAXIMUM_SIZE, 0, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @param dao the DAO to read through
+     * @param maximumSize the most entities to cache per class
+     * @param expireAfter how long after loading an entry expires, or 0 to keep it until it is evicted or written
+     * @param unit the unit of expireAfter
+     */
+    public CachingDAO(DAO dao, long maximumSize, long expireAfter, TimeUnit unit) {
+        this(dao, maximumSize, expireAfter, unit, Ticker.systemTicker());
+    }
+
+    CachingDAO(DAO dao, long maximumSize, long expireAfter, TimeUnit unit, Ticker ticker) {
+        notNull(dao, "dao cannot be null");
+        isTrue(maximumSize > 0, "maximum size must be positive");
+        isTrue(expireAfter >= 0, "expireAfter cannot be negative");
+        notNull(unit, "unit cannot be null");
+        this.dao = dao;
+        this.maximumSize = maximumSize;
+        this.expireAfterNanos = unit.toNanos(expireAfter);
+        this.ticker = ticker;
+        this.loadAllCache = newCache().build();
+    }
+
+    private CacheBuilder<Object, Object> newCache() {
+        CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder().ticker(ticker).recordStats();
+        if (expireAfterNanos > 0) {
+            builder.expireAfterWrite(expireAfterNanos, TimeUnit.NANOSECONDS);
+        }
+        return builder.maximumSize(maximumSize);
+    }
+
+    private Cache<Long, Optional<Entity>> entityCache(Class<?> clazz) {
+        return entityCaches.computeIfAbsent(clazz, x -> newCache().build());
+    }
+
+    @Override
+    public <T extends Entity> T load(Class<T> clazz, Long id) {
+        Optional<Entity> entity = get(entityCache(clazz), id, () -> Optional.ofNullable(dao.load(clazz, id)));
+        return clazz.cast(entity.orElse(null));
+    }
+
+    @Override
+    public <T extends Entity> Collection<T> loadAll(Class<T> clazz) {
+        List<Entity> entities = get(loadAllCache, clazz, () -> {
+            long writesBefore = writes.get();
+            List<Entity> loaded = new ArrayList<>(dao.loadAll(clazz));
+            // what a load that overlapped a write read may be older than the write, so it is not cached by id;
+            // a write while the entities are put may have been dropped before it was put, so they are dropped again
+            if (writes.get() == writesBefore) {
+                Cache<Long, Optional<Entity>> cache = entityCache(clazz);
+                for (Entity entity : loaded) {
+                    if (null != entity.getId()) {
+                        cache.put(entity.getId(), Optional.of(entity));
+                    }
+                }
+                if (writes.get() != writesBefore) {
+                    for (Entity entity : loaded) {
+                        if (null != entity.getId()) {
+                            cache.invalidate(entity.getId());
+                        }
+                    }
+                }
+            }
+            return Collections.unmodifiableList(loaded);
+        });
+        // a copy, so callers can change what they are given as they could before
+        List<T> result = new ArrayList<>(entities.size());
+        for (Entity entity : entities) {
+            result.add(clazz.cast(entity));
+        }
+        return result;
+    }
+
+    private <K, V> V get(Cache<K, V> cache, K key, Callable<V> loader) {
+        long writesBefore = writes.get();
+        try {
+            V value = cache.get(key, loader);
+            if (writes.get() != writesBefore) {
+                cache.invalidate(key);
+            }
+            return value;
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    @Override
+    public <T extends Entity> T createOrUpdate(T entity) {
+        T saved = dao.createOrUpdate(entity);
+        invalidate(saved);
+        return saved;
+    }
+
+    @Override
+    public <T extends Entity> List<T> createOrUpdateAll(Collection<T> entities) {
+        List<T> saved = dao.createOrUpdateAll(entities);
+        for (T entity : saved) {
+            invalidate(entity);
+        }
+        return saved;
+    }
+
+    @Override
+    public <T extends Entity> void delete(T entity) {
+        dao.delete(entity);
+        invalidate(entity);
+    }
+
+    private void invalidate(Entity entity) {
+        writes.incrementAndGet();
+        if (null != entity.getId()) {
+            entityCache(entity.getClass()).invalidate(entity.getId());
+        }
+        loadAllCache.invalidateAll();
+    }
+
+    @Override
+    public <T extends Entity> Stream<T> stream(Class<T> clazz, int pageSize) {
+        return dao.stream(clazz, pageSize);
+    }
+
+    @Override
+    public <T extends Entity> List<Object[]> loadProjection(Class<T> clazz, String... fields) {
+        return dao.loadProjection(clazz, fields);
+    }
+
+    @Override
+    public <T extends Entity> List<T> find(Criteria<T> criteria) {
+        return dao.find(criteria);
+    }
+
+    /**
+     * Drops every cached entity and loadAll result, e.g. after writing to the wrapped DAO directly.
+     */
+    public void invalidateAll() {
+        writes.incrementAndGet();
+        for (Cache<Long, Optional<Entity>> cache : entityCaches.values()) {
+            cache.invalidateAll();
+        }
+        loadAllCache.invalidateAll();
+    }
+
+    /**
+     * @param clazz the entity class
+     * @return the hits, misses, loads and evictions of the entity cache of the class.
+     */
+    public CacheStats getStats(Class<? extends Entity> clazz) {
+        Cache<Long, Optional<Entity>> cache = entityCaches.get(clazz);
+        return null == cache ? new CacheStats(0, 0, 0, 0, 0, 0) : cache.stats();
+    }
+
+    /**
+     * @return the hits, misses, loads and evictions of the entity caches of all classes.
+     */
+    public CacheStats getStats() {
+        CacheStats stats = new CacheStats(0, 0, 0, 0, 0, 0);
+        for (Cache<Long, Optional<Entity>> cache : entityCaches.values()) {
+            stats = stats.plus(cache.stats());
+        }
+        return stats;
+    }
+
+    /**
+     * @return the hits, misses, loads and evictions of the loadAll results.
+     */
+    public CacheStats getLoadAllStats() {
+        return loadAllCache.stats();
+    }
+}
@@ -0,0 +1,80 @@
+package rockets.dataaccess;
+
+import rockets.model.Entity;
+
+/**
+ * An entity saved or deleted through a {@link ChangePublishingDAO}, as read from its
+ * {@link ChangeLog}.
+ * <p>
+ * The entities are the objects that were saved or deleted, not copies, so they show any
+ * change made to them since.
+ */
+public final class ChangeEvent {
+    public enum Type {
+        SAVED, DELETED
+    }
+
+    private final long sequence;
+
+    private final Type type;
+
+    private final Class<? extends Entity> entityClass;
+
+    private final Long id;
+
+    private final Entity before;
+
+    private final Entity after;
+
+    ChangeEvent(long sequence, Type type, Class<? extends Entity> entityClass, Long id, Entity before, Entity after) {
+        this.sequence = sequence;
+        this.type = type;
+        this.entityClass = entityClass;
+        this.id = id;
+        this.before = before;
+        this.after = after;
+    }
+
+    /**
+     * @return the position of the event in the log, one more than that of the event before it.
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public Class<? extends Entity> getEntityClass() {
+        return entityClass;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    /**
+     * @return the entity as it was before the change, if known: the deleted entity, or null for a save.
+     */
+    public Entity getBefore() {
+        return before;
+    }
+
+    /**
+     * @return the entity as it is after the change: the saved entity, or null for a delete.
+     */
+    public Entity getAfter() {
+        return after;
+    }
+
+    @Override
+    public String toString() {
+        return "ChangeEvent{" +
+                "sequence=" + sequence +
+                ", type=" + type +
+                ", entityClass=" + entityClass.getSimpleName() +
+                ", id=" + id +
+                '}';
+    }
+}
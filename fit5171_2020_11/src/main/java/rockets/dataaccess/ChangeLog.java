@@ -0,0 +1,194 @@
+package rockets.dataaccess;
+
+import rockets.model.Entity;
+
+import java.util.Collection;
+
+import static org.apache.commons.lang3.Validate.isTrue;
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * A ring buffer of the last changes made to entities, which any number of subscribers read
+ * at their own pace.
+ * <p>
+ * The slots of the buffer are allocated up front and reused, so publishing allocates
+ * nothing and never waits for subscribers: once the buffer is full, each new event
+ * overwrites the oldest one. A subscriber that falls further behind than the capacity
+ * loses the events overwritten before it read them, and is told how many on its next
+ * drain, so it can catch up some other way, e.g. by loading all entities again.
+ * <p>
+ * Events are published by one thread at a time, under a lock only publishers take.
+ * Subscribers take no lock; each subscription is read by one thread at a time.
+ */
+public class ChangeLog {
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+
+    // marks a slot being written
+    private static final long WRITING = -1;
+
+    private final Slot[] slots;
+
+    private final int mask;
+
+    // the sequence of the last event published, -1 before the first
+    private volatile long published = -1;
+
+    public ChangeLog() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity the number of events kept, a power of two
+     */
+    public ChangeLog(int capacity) {
+        isTrue(capacity > 0 && Integer.bitCount(capacity) == 1, "capacity must be a positive power of two");
+        this.slots = new Slot[capacity];
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = new Slot();
+        }
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * Publishes a change, overwriting the oldest event if the buffer is full.
+     *
+     * @param type the kind of change
+     * @param entityClass the class of the entity changed
+     * @param id the id of the entity changed
+     * @param before the entity before the change, if known
+     * @param after the entity after the change, if any
+     * @return the sequence of the event.
+     */
+    public synchronized long publish(ChangeEvent.Type type, Class<? extends Entity> entityClass, Long id, Entity before, Entity after) {
+        notNull(type, "type cannot be null");
+        notNull(entityClass, "entity class cannot be null");
+        long sequence = published + 1;
+        Slot slot = slots[(int) sequence & mask];
+        // readers that see the slot marked, or a later sequence, after copying it know it changed under them
+        slot.sequence = WRITING;
+        slot.type = type;
+        slot.entityClass = entityClass;
+        slot.id = id;
+        slot.before = before;
+        slot.after = after;
+        slot.sequence = sequence;
+        published = sequence;
+        return sequence;
+    }
+
+    /**
+     * @return the sequence of the last event published, or -1 if there is none.
+     */
+    public long getPublished() {
+        return published;
+    }
+
+    public int getCapacity() {
+        return slots.length;
+    }
+
+    /**
+     * @return a subscription to the events published from now on.
+     */
+    public Subscription subscribe() {
+        return new Subscription(published + 1);
+    }
+
+    private static final class Slot {
+        // every field is volatile, so a reader's copy lies between its two reads of the sequence
+        private volatile long sequence = WRITING;
+
+        private volatile ChangeEvent.Type type;
+
+        private volatile Class<? extends Entity> entityClass;
+
+        private volatile Long id;
+
+        private volatile Entity before;
+
+        private volatile Entity after;
+
+        // A copy of the event with the sequence, or null if the slot holds another one
+        private ChangeEvent read(long expected) {
+            if (sequence != expected) {
+                return null;
+            }
+            ChangeEvent event = new ChangeEvent(expected, type, entityClass, id, before, after);
+            return sequence == expected ? event : null;
+        }
+    }
+
+    /**
+     * One subscriber's position in the log.
+     */
+    public final class Subscription {
+        // the sequence of the next event to read
+        private long next;
+
+        private Subscription(long next) {
+            this.next = next;
+        }
+
+        /**
+         * Moves up to the given number of events, in order, to the sink.
+         *
+         * @param sink the collection to add the events to
+         * @param max the most events to move
+         * @return the number of events moved.
+         * @throws OverflowException if events were overwritten before they were read; the events
+         * read before them are in the sink, and the next drain starts from the oldest event kept.
+         */
+        public int drainTo(Collection<? super ChangeEvent> sink, int max) {
+            notNull(sink, "sink cannot be null");
+            isTrue(max >= 0, "max cannot be negative");
+            long last = published;
+            int drained = 0;
+            while (drained < max && next <= last) {
+                ChangeEvent event = next > last - slots.length ? slots[(int) next & mask].read(next) : null;
+                if (null == event) {
+                    // overwritten; the slot after the last one published may be being overwritten too
+                    long oldest = Math.max(next + 1, published + 2 - slots.length);
+                    long missed = oldest - next;
+                    next = oldest;
+                    throw new OverflowException(missed);
+                }
+                sink.add(event);
+                next++;
+                drained++;
+            }
+            return drained;
+        }
+
+        /**
+         * @return the sequence of the next event to read.
+         */
+        public long getNext() {
+            return next;
+        }
+
+        /**
+         * @return the number of events published and not read yet, including any overwritten.
+         */
+        public long getLag() {
+            return published + 1 - next;
+        }
+    }
+
+    /**
+     * Thrown to a subscriber that fell too far behind, with the number of events it missed.
+     */
+    public static class OverflowException extends IllegalStateException {
+        private static final long serialVersionUID = 1L;
+
+        private final long missed;
+
+        OverflowException(long missed) {
+            super(missed + " change events were overwritten before they were read");
+            this.missed = missed;
+        }
+
+        public long getMissed() {
+            return missed;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package rockets.dataaccess;
+
+import rockets.model.Entity;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * A DAO decorator that publishes each entity saved or deleted through it to a
+ * {@link ChangeLog}, once the wrapped DAO has written it, so caches, indexes and
+ * aggregates can follow the changes instead of reloading all entities. Failed writes
+ * publish nothing. All other calls go straight to the wrapped DAO.
+ * <p>
+ * Only the entities passed in are published, not the entities they refer to that the
+ * wrapped DAO saves with them. Events of concurrent writes are in the order they were
+ * published, which may differ from the order the writes were made in.
+ */
+public class ChangePublishingDAO implements DAO {
+    private final DAO dao;
+
+    private final ChangeLog changeLog;
+
+    public ChangePublishingDAO(DAO dao) {
+        this(dao, new ChangeLog());
+    }
+
+    public ChangePublishingDAO(DAO dao, ChangeLog changeLog) {
+        notNull(dao, "dao cannot be null");
+        notNull(changeLog, "change log cannot be null");
+        this.dao = dao;
+        this.changeLog = changeLog;
+    }
+
+    public ChangeLog getChangeLog() {
+        return changeLog;
+    }
+
+    @Override
+    public <T extends Entity> T load(Class<T> clazz, Long id) {
+        return dao.load(clazz, id);
+    }
+
+    @Override
+    public <T extends Entity> T createOrUpdate(T entity) {
+        T saved = dao.createOrUpdate(entity);
+        publishSaved(saved);
+        return saved;
+    }
+
+    @Override
+    public <T extends Entity> List<T> createOrUpdateAll(Collection<T> entities) {
+        List<T> saved = dao.createOrUpdateAll(entities);
+        for (T entity : saved) {
+            publishSaved(entity);
+        }
+        return saved;
+    }
+
+    private void publishSaved(Entity saved) {
+        changeLog.publish(ChangeEvent.Type.SAVED, saved.getClass(), saved.getId(), null, saved);
+    }
+
+    @Override
+    public <T extends Entity> Collection<T> loadAll(Class<T> clazz) {
+        return dao.loadAll(clazz);
+    }
+
+    @Override
+    public <T extends Entity> Stream<T> stream(Class<T> clazz, int pageSize) {
+        return dao.stream(clazz, pageSize);
+    }
+
+    @Override
+    public <T extends Entity> List<Object[]> loadProjection(Class<T> clazz, String... fields) {
+        return dao.loadProjection(clazz, fields);
+    }
+
+    @Override
+    public <T extends Entity> List<T> find(Criteria<T> criteria) {
+        return dao.find(criteria);
+    }
+
+    @Override
+    public <T extends Entity> void delete(T entity) {
+        // the id as it was, in case deleting clears it
+        Long id = entity.getId();
+        dao.delete(entity);
+        changeLog.publish(ChangeEvent.Type.DELETED, entity.getClass(), id, entity, null);
+    }
+}
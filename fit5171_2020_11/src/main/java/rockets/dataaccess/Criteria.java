@@ -0,0 +1,264 @@
+package rockets.dataaccess;
+
+import rockets.model.Entity;
+
+import java.math.BigDecimal;
+import java.util.*;
+
+import static org.apache.commons.lang3.Validate.isTrue;
+import static org.apache.commons.lang3.Validate.notEmpty;
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * Which entities of a class {@link DAO#find(Criteria)} returns, and in what order.
+ * <p>
+ * Conditions are on fields named as in {@link DAO#loadProjection(Class, String...)}: a
+ * field of the entity, such as {@code "launchDate"}, or a field of a single entity it
+ * refers to, such as {@code "launchServiceProvider.id"}. An entity matches if it meets all
+ * conditions; a field that is null meets none. Numbers are compared by value, so
+ * {@code 62.5} equals {@code 62.50}.
+ * <p>
+ * Entities are sorted by the given fields in turn, then by id. As in Cypher, nulls come
+ * last in ascending order and first in descending order.
+ *
+ * @param <T> the class of the entities
+ */
+public final class Criteria<T extends Entity> {
+    public enum Operator {
+        EQUAL, IN, GREATER_THAN, AT_LEAST, LESS_THAN, AT_MOST
+    }
+
+    /**
+     * A condition on one field. The value of an {@link Operator#IN} condition is the collection of values allowed.
+     */
+    public static final class Condition {
+        private final String field;
+
+        private final Operator operator;
+
+        private final Object value;
+
+        private Condition(String field, Operator operator, Object value) {
+            notEmpty(field, "field cannot be empty");
+            notNull(value, "value cannot be null");
+            this.field = field;
+            this.operator = operator;
+            this.value = value;
+        }
+
+        public String getField() {
+            return field;
+        }
+
+        public Operator getOperator() {
+            return operator;
+        }
+
+        public Object getValue() {
+            return value;
+        }
+
+        boolean test(Object actual) {
+            if (null == actual) {
+                return false;
+            }
+            switch (operator) {
+                case EQUAL:
+                    return compare(actual, value) == 0;
+                case IN:
+                    for (Object allowed : (Collection<?>) value) {
+                        if (null != allowed && compare(actual, allowed) == 0) {
+                            return true;
+                        }
+                    }
+                    return false;
+                case GREATER_THAN:
+                    return compare(actual, value) > 0;
+                case AT_LEAST:
+                    return compare(actual, value) >= 0;
+                case LESS_THAN:
+                    return compare(actual, value) < 0;
+                default:
+                    return compare(actual, value) <= 0;
+            }
+        }
+    }
+
+    public static final class Order {
+        private final String field;
+
+        private final boolean descending;
+
+        private Order(String field, boolean descending) {
+            notEmpty(field, "field cannot be empty");
+            this.field = field;
+            this.descending = descending;
+        }
+
+        public String getField() {
+            return field;
+        }
+
+        public boolean isDescending() {
+            return descending;
+        }
+    }
+
+    private final Class<T> entityClass;
+
+    private final List<Condition> conditions = new ArrayList<>();
+
+    private final List<Order> orders = new ArrayList<>();
+
+    // no limit if negative
+    private int limit = -1;
+
+    private Criteria(Class<T> entityClass) {
+        notNull(entityClass, "entity class cannot be null");
+        this.entityClass = entityClass;
+    }
+
+    /**
+     * @param entityClass the class of the entities
+     * @return criteria that match every entity of the class, in id order.
+     */
+    public static <T extends Entity> Criteria<T> of(Class<T> entityClass) {
+        return new Criteria<>(entityClass);
+    }
+
+    public Criteria<T> equalTo(String field, Object value) {
+        conditions.add(new Condition(field, Operator.EQUAL, value));
+        return this;
+    }
+
+    public Criteria<T> in(String field, Collection<?> values) {
+        conditions.add(new Condition(field, Operator.IN, Collections.unmodifiableList(new ArrayList<>(values))));
+        return this;
+    }
+
+    public Criteria<T> greaterThan(String field, Comparable<?> value) {
+        conditions.add(new Condition(field, Operator.GREATER_THAN, value));
+        return this;
+    }
+
+    public Criteria<T> atLeast(String field, Comparable<?> value) {
+        conditions.add(new Condition(field, Operator.AT_LEAST, value));
+        return this;
+    }
+
+    public Criteria<T> lessThan(String field, Comparable<?> value) {
+        conditions.add(new Condition(field, Operator.LESS_THAN, value));
+        return this;
+    }
+
+    public Criteria<T> atMost(String field, Comparable<?> value) {
+        conditions.add(new Condition(field, Operator.AT_MOST, value));
+        return this;
+    }
+
+    /**
+     * Matches values from one bound to the other, both inclusive.
+     */
+    public Criteria<T> between(String field, Comparable<?> from, Comparable<?> to) {
+        return atLeast(field, from).atMost(field, to);
+    }
+
+    public Criteria<T> orderBy(String field) {
+        orders.add(new Order(field, false));
+        return this;
+    }
+
+    public Criteria<T> orderByDescending(String field) {
+        orders.add(new Order(field, true));
+        return this;
+    }
+
+    /**
+     * @param limit the most entities to return
+     */
+    public Criteria<T> limit(int limit) {
+        isTrue(limit >= 0, "limit cannot be negative");
+        this.limit = limit;
+        return this;
+    }
+
+    public Class<T> getEntityClass() {
+        return entityClass;
+    }
+
+    public List<Condition> getConditions() {
+        return Collections.unmodifiableList(conditions);
+    }
+
+    public List<Order> getOrders() {
+        return Collections.unmodifiableList(orders);
+    }
+
+    public boolean hasLimit() {
+        return limit >= 0;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * @param entity the entity
+     * @return whether the entity meets all conditions.
+     * @throws IllegalArgumentException if a field does not exist.
+     */
+    public boolean matches(T entity) {
+        for (Condition condition : conditions) {
+            if (!condition.test(EntityFields.read(entity, condition.field)[0])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Finds the matching entities among the given ones.
+     *
+     * @param entities the entities to look in
+     * @return the matching entities, sorted and limited.
+     * @throws IllegalArgumentException if a field does not exist.
+     */
+    public List<T> apply(Collection<T> entities) {
+        List<T> matching = new ArrayList<>();
+        for (T entity : entities) {
+            if (matches(entity)) {
+                matching.add(entity);
+            }
+        }
+        matching.sort(comparator());
+        return hasLimit() && matching.size() > limit ? new ArrayList<>(matching.subList(0, limit)) : matching;
+    }
+
+    private Comparator<T> comparator() {
+        Comparator<T> comparator = (a, b) -> 0;
+        for (Order order : orders) {
+            Comparator<T> byField = (a, b) -> compareNullsLast(EntityFields.read(a, order.field)[0], EntityFields.read(b, order.field)[0]);
+            comparator = comparator.thenComparing(order.descending ? byField.reversed() : byField);
+        }
+        return comparator.thenComparing((a, b) -> compareNullsLast(a.getId(), b.getId()));
+    }
+
+    private static int compareNullsLast(Object a, Object b) {
+        if (null == a || null == b) {
+            return null == a ? (null == b ? 0 : 1) : -1;
+        }
+        return compare(a, b);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static int compare(Object a, Object b) {
+        if (a instanceof Number && b instanceof Number && a.getClass() != b.getClass()) {
+            return new BigDecimal(a.toString()).compareTo(new BigDecimal(b.toString()));
+        }
+        if (a instanceof Comparable && a.getClass().isInstance(b)) {
+            return ((Comparable<Object>) a).compareTo(b);
+        }
+        isTrue(a.equals(b) || a.getClass().isInstance(b), "Cannot compare %s with %s", a, b);
+        return a.equals(b) ? 0 : 1;
+    }
+}
@@ -2,14 +2,58 @@ package rockets.dataaccess;
 
 import rockets.model.Entity;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
 
-public interface DAO {
+public interface DAO extends EntitySink {
     <T extends Entity> T load(Class<T> clazz, Long id);
 
-    <T extends Entity> T createOrUpdate(T entity);
-
     <T extends Entity> Collection<T> loadAll(Class<T> clazz);
 
+    /**
+     * Streams all entities of a class. Implementations that can fetch lazily do so a page
+     * at a time, so only the current page needs to be in memory; this one loads them all.
+     *
+     * @param clazz the class of the entities
+     * @param pageSize the number of entities to fetch at a time
+     * @return the entities.
+     */
+    default <T extends Entity> Stream<T> stream(Class<T> clazz, int pageSize) {
+        return loadAll(clazz).stream();
+    }
+
+    /**
+     * Loads only the given fields of each entity of a class, for queries that need a few
+     * values rather than whole entities. A field is either a field of the entity, such as
+     * {@code "price"}, or a field of a single entity it refers to, such as
+     * {@code "launchServiceProvider.id"}. Implementations may read the fields without
+     * building the entities; this one loads them all.
+     *
+     * @param clazz the class of the entities
+     * @param fields the fields to load
+     * @return one row per entity, holding the values of the fields in the given order.
+     */
+    default <T extends Entity> List<Object[]> loadProjection(Class<T> clazz, String... fields) {
+        List<Object[]> rows = new ArrayList<>();
+        for (T entity : loadAll(clazz)) {
+            rows.add(EntityFields.read(entity, fields));
+        }
+        return rows;
+    }
+
+    /**
+     * Finds the entities that meet the criteria, sorted and limited as the criteria say.
+     * Implementations may only read the matching entities; this one loads them all.
+     *
+     * @param criteria the conditions, order and limit
+     * @return the matching entities.
+     * @throws IllegalArgumentException if a field of the criteria does not exist.
+     */
+    default <T extends Entity> List<T> find(Criteria<T> criteria) {
+        return criteria.apply(loadAll(criteria.getEntityClass()));
+    }
+
     <T extends Entity> void delete(T entity);
 }
@@ -0,0 +1,51 @@
+package rockets.dataaccess;
+
+import rockets.model.Entity;
+
+import java.lang.reflect.Field;
+
+/**
+ * Reads the fields named in a projection from an entity in memory. A field is either a
+ * field of the entity, such as {@code "price"}, or a field of an entity it refers to,
+ * such as {@code "launchServiceProvider.id"}.
+ */
+final class EntityFields {
+    private EntityFields() {
+    }
+
+    /**
+     * @param entity the entity
+     * @param fields the fields to read
+     * @return the values of the fields, in the given order; null where a referred entity is missing.
+     * @throws IllegalArgumentException if a field does not exist.
+     */
+    static Object[] read(Entity entity, String... fields) {
+        Object[] row = new Object[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            Object value = entity;
+            for (String name : fields[i].split("\\.")) {
+                if (null == value) {
+                    break;
+                }
+                value = readField(value, name, fields[i]);
+            }
+            row[i] = value;
+        }
+        return row;
+    }
+
+    private static Object readField(Object object, String name, String path) {
+        for (Class<?> clazz = object.getClass(); null != clazz; clazz = clazz.getSuperclass()) {
+            try {
+                Field field = clazz.getDeclaredField(name);
+                field.setAccessible(true);
+                return field.get(object);
+            } catch (NoSuchFieldException e) {
+                // look in the superclass
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException("Cannot read " + path, e);
+            }
+        }
+        throw new IllegalArgumentException("No field " + path + " in " + object.getClass().getSimpleName());
+    }
+}
@@ -0,0 +1,31 @@
+package rockets.dataaccess;
+
+import rockets.model.Entity;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Somewhere entities can be saved to, without being read back: a {@link DAO}, or a target
+ * that can only be written to, such as the import files of a
+ * {@link rockets.dataaccess.neo4j.AdminImportDAO}.
+ */
+public interface EntitySink {
+    <T extends Entity> T createOrUpdate(T entity);
+
+    /**
+     * Creates or updates each entity as {@link #createOrUpdate(Entity)} would, in order.
+     * Implementations may write in batches.
+     *
+     * @param entities the entities to save
+     * @return the saved entities, in the given order.
+     */
+    default <T extends Entity> List<T> createOrUpdateAll(Collection<T> entities) {
+        List<T> saved = new ArrayList<>(entities.size());
+        for (T entity : entities) {
+            saved.add(createOrUpdate(entity));
+        }
+        return saved;
+    }
+}
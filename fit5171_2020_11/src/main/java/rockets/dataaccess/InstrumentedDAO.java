@@ -0,0 +1,100 @@
+package rockets.dataaccess;
+
+import rockets.metrics.Metrics;
+import rockets.model.Entity;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * Records every call to another DAO in {@link Metrics}, by method and entity class, e.g.
+ * {@code "loadAll:Launch"}: the number of calls and failures, their latencies and the
+ * number of entities or rows returned.
+ * <p>
+ * Writes of several entities are recorded under their common class, or under
+ * {@link Entity} if they are of several classes. Only the opening of a stream is timed, as
+ * its entities are fetched while the caller reads it.
+ */
+public class InstrumentedDAO implements DAO {
+    private final DAO dao;
+
+    private final Metrics metrics;
+
+    public InstrumentedDAO(DAO dao) {
+        this(dao, new Metrics());
+    }
+
+    /**
+     * @param dao the DAO to record the calls of
+     * @param metrics the metrics to record them in, which may be shared, e.g. with a miner
+     */
+    public InstrumentedDAO(DAO dao, Metrics metrics) {
+        notNull(dao, "dao cannot be null");
+        notNull(metrics, "metrics cannot be null");
+        this.dao = dao;
+        this.metrics = metrics;
+    }
+
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    public <T extends Entity> T load(Class<T> clazz, Long id) {
+        return metrics.measure("load", clazz, () -> dao.load(clazz, id));
+    }
+
+    @Override
+    public <T extends Entity> T createOrUpdate(T entity) {
+        return metrics.measure("createOrUpdate", null == entity ? null : entity.getClass(), () -> dao.createOrUpdate(entity));
+    }
+
+    @Override
+    public <T extends Entity> List<T> createOrUpdateAll(Collection<T> entities) {
+        return metrics.measure("createOrUpdateAll", classOf(entities), () -> dao.createOrUpdateAll(entities));
+    }
+
+    // The class all the entities are of, or Entity if there are none or they are of several classes
+    private static Class<?> classOf(Collection<? extends Entity> entities) {
+        Class<?> clazz = null;
+        if (null != entities) {
+            for (Entity entity : entities) {
+                Class<?> entityClass = null == entity ? null : entity.getClass();
+                if (null == clazz) {
+                    clazz = entityClass;
+                } else if (clazz != entityClass) {
+                    return Entity.class;
+                }
+            }
+        }
+        return null == clazz ? Entity.class : clazz;
+    }
+
+    @Override
+    public <T extends Entity> Collection<T> loadAll(Class<T> clazz) {
+        return metrics.measure("loadAll", clazz, () -> dao.loadAll(clazz));
+    }
+
+    @Override
+    public <T extends Entity> Stream<T> stream(Class<T> clazz, int pageSize) {
+        return metrics.measure("stream", clazz, () -> dao.stream(clazz, pageSize));
+    }
+
+    @Override
+    public <T extends Entity> List<Object[]> loadProjection(Class<T> clazz, String... fields) {
+        return metrics.measure("loadProjection", clazz, () -> dao.loadProjection(clazz, fields));
+    }
+
+    @Override
+    public <T extends Entity> List<T> find(Criteria<T> criteria) {
+        return metrics.measure("find", null == criteria ? null : criteria.getEntityClass(), () -> dao.find(criteria));
+    }
+
+    @Override
+    public <T extends Entity> void delete(T entity) {
+        metrics.measure("delete", null == entity ? null : entity.getClass(), () -> dao.delete(entity));
+    }
+}
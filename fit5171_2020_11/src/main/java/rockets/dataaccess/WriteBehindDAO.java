@@ -0,0 +1,318 @@
+package rockets.dataaccess;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import rockets.model.Entity;
+
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.apache.commons.lang3.Validate.isTrue;
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * Buffers writes in memory and writes them to another DAO in batches, in the background.
+ * <p>
+ * Writing an entity with the id of one already buffered replaces it, as does writing an
+ * entity without an id equal to one buffered without an id, so an entity written several
+ * times before the next flush is written once, as last written. Buffered entities
+ * are flushed with {@link DAO#createOrUpdateAll(Collection)} once a batch is full, at a
+ * fixed interval, on {@link #flush()} and on {@link #close()}. When the buffer holds its
+ * capacity, writers of entities not yet buffered wait for the next flush.
+ * <p>
+ * {@link #load(Class, Long)} and {@link #loadAll(Class)} see the buffered entities in place
+ * of those they replace, matched the same way. Streams, projections and criteria queries are read after a flush.
+ * A delete drops the buffered write of the entity and is made at once.
+ * <p>
+ * A failed background flush is logged and the entities of the batches it did not write are
+ * buffered again, ahead of newer writes, to be retried at the next interval. Until a flush
+ * succeeds, full batches and full buffers do not trigger flushes of their own, so writers
+ * waiting for room wait for the interval rather than retrying against a failing DAO. Buffered
+ * entities without an id must not have the fields their equality depends on changed.
+ */
+public class WriteBehindDAO implements DAO, AutoCloseable {
+    private static Logger logger = LoggerFactory.getLogger(WriteBehindDAO.class);
+
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+
+    public static final int DEFAULT_CAPACITY = 10_000;
+
+    public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 1000;
+
+    private final DAO dao;
+
+    private final int batchSize;
+
+    private final int capacity;
+
+    private final ScheduledExecutorService flusher;
+
+    // the entities last written, by key, in order of first write
+    private LinkedHashMap<Object, Entity> pending = new LinkedHashMap<>();
+
+    // the entities being flushed, still read from here until written
+    private Map<Object, Entity> flushing = Collections.emptyMap();
+
+    // one flush at a time, so entities are written in the order they were first buffered
+    private final Object flushLock = new Object();
+
+    private boolean flushRequested;
+
+    // whether the last flush failed, which leaves retrying to the interval
+    private boolean flushFailed;
+
+    private boolean closed;
+
+    public WriteBehindDAO(DAO dao) {
+        this(dao, DEFAULT_BATCH_SIZE, DEFAULT_CAPACITY, DEFAULT_FLUSH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @param dao the DAO to write to
+     * @param batchSize the number of buffered entities that triggers a flush, and the most written per call
+     * @param capacity the most entities buffered before writers wait
+     * @param flushInterval how often buffered entities are flushed
+     * @param unit the unit of flushInterval
+     */
+    public WriteBehindDAO(DAO dao, int batchSize, int capacity, long flushInterval, TimeUnit unit) {
+        notNull(dao, "dao cannot be null");
+        isTrue(batchSize > 0, "batch size must be positive");
+        isTrue(capacity >= batchSize, "capacity cannot be smaller than the batch size");
+        isTrue(flushInterval > 0, "flush interval must be positive");
+        notNull(unit, "unit cannot be null");
+        this.dao = dao;
+        this.batchSize = batchSize;
+        this.capacity = capacity;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "write-behind-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushInBackground, flushInterval, flushInterval, unit);
+    }
+
+    /**
+     * Buffers the entity and returns it at once. Unlike the DAO written to, an entity without
+     * an id is given its id only when it is flushed; call {@link #flush()} first to have it.
+     */
+    @Override
+    public <T extends Entity> T createOrUpdate(T entity) {
+        notNull(entity, "entity cannot be null");
+        buffer(entity);
+        return entity;
+    }
+
+    /**
+     * Buffers the entities one by one, as {@link #createOrUpdate(Entity)} does.
+     */
+    @Override
+    public <T extends Entity> List<T> createOrUpdateAll(Collection<T> entities) {
+        notNull(entities, "entities cannot be null");
+        List<T> all = new ArrayList<>(entities);
+        for (T entity : all) {
+            createOrUpdate(entity);
+        }
+        return all;
+    }
+
+    private synchronized void buffer(Entity entity) {
+        checkOpen();
+        while (pending.size() >= capacity && !pending.containsKey(keyOf(entity))) {
+            requestFlush();
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for buffered writes to be flushed", e);
+            }
+            checkOpen();
+        }
+        pending.put(keyOf(entity), entity);
+        if (pending.size() >= batchSize) {
+            requestFlush();
+        }
+    }
+
+    // The class and id of an entity, or the entity itself, compared by equality, if it has no id
+    private static Object keyOf(Entity entity) {
+        return null == entity.getId() ? entity : Arrays.asList(entity.getClass(), entity.getId());
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("Cannot write after the DAO is closed");
+        }
+    }
+
+    private void requestFlush() {
+        if (!flushRequested && !flushFailed) {
+            flushRequested = true;
+            flusher.execute(this::flushInBackground);
+        }
+    }
+
+    private void flushInBackground() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            logger.error("flush of buffered writes failed, retrying at the next interval", e);
+        }
+    }
+
+    /**
+     * Writes the entities buffered so far, in batches, and waits until they are written.
+     * If a batch fails, the entities not yet known to be written are buffered again.
+     */
+    public void flush() {
+        synchronized (flushLock) {
+            synchronized (this) {
+                flushRequested = false;
+                if (pending.isEmpty()) {
+                    return;
+                }
+                flushing = pending;
+                pending = new LinkedHashMap<>();
+            }
+            List<Entity> entities = new ArrayList<>(flushing.values());
+            int written = 0;
+            try {
+                for (; written < entities.size(); written += batchSize) {
+                    dao.createOrUpdateAll(new ArrayList<>(entities.subList(written, Math.min(entities.size(), written + batchSize))));
+                }
+            } catch (RuntimeException e) {
+                synchronized (this) {
+                    // those of the failed batch and after, ahead of the writes buffered meanwhile, which replace them
+                    LinkedHashMap<Object, Entity> retry = new LinkedHashMap<>();
+                    int position = 0;
+                    for (Map.Entry<Object, Entity> entry : flushing.entrySet()) {
+                        if (position++ >= written) {
+                            retry.put(entry.getKey(), entry.getValue());
+                        }
+                    }
+                    retry.putAll(pending);
+                    pending = retry;
+                    flushing = Collections.emptyMap();
+                    flushFailed = true;
+                    notifyAll();
+                }
+                throw e;
+            }
+            synchronized (this) {
+                flushing = Collections.emptyMap();
+                flushFailed = false;
+                notifyAll();
+            }
+        }
+    }
+
+    // The buffered entities of a class, those being flushed before those written since
+    private synchronized <T extends Entity> List<T> buffered(Class<T> clazz) {
+        List<T> entities = new ArrayList<>();
+        for (Map<Object, Entity> buffer : Arrays.asList(flushing, pending)) {
+            for (Entity entity : buffer.values()) {
+                if (clazz.isInstance(entity)) {
+                    entities.add(clazz.cast(entity));
+                }
+            }
+        }
+        return entities;
+    }
+
+    @Override
+    public <T extends Entity> T load(Class<T> clazz, Long id) {
+        T found = null;
+        for (T entity : buffered(clazz)) {
+            if (Objects.equals(id, entity.getId())) {
+                found = entity;
+            }
+        }
+        return null != found ? found : dao.load(clazz, id);
+    }
+
+    /**
+     * Loads the entities from the DAO, with each buffered entity in place of the loaded one
+     * with the same id, or equal to it if the buffered one has no id, and those new to the
+     * DAO after them.
+     */
+    @Override
+    public <T extends Entity> Collection<T> loadAll(Class<T> clazz) {
+        // buffered ones first, so one flushed in between is still loaded from the DAO
+        List<T> buffered = buffered(clazz);
+        List<T> entities = new ArrayList<>(dao.loadAll(clazz));
+        Map<Long, Integer> positionsById = new HashMap<>();
+        Map<T, Integer> positions = new HashMap<>();
+        for (int i = 0; i < entities.size(); i++) {
+            T entity = entities.get(i);
+            if (null != entity.getId()) {
+                positionsById.putIfAbsent(entity.getId(), i);
+            }
+            positions.putIfAbsent(entity, i);
+        }
+        for (T entity : buffered) {
+            Integer position = null == entity.getId() ? positions.get(entity) : positionsById.get(entity.getId());
+            if (null != position) {
+                entities.set(position, entity);
+            } else if (null != entity.getId()) {
+                positionsById.put(entity.getId(), entities.size());
+                entities.add(entity);
+            } else {
+                positions.put(entity, entities.size());
+                entities.add(entity);
+            }
+        }
+        return entities;
+    }
+
+    @Override
+    public <T extends Entity> void delete(T entity) {
+        synchronized (this) {
+            pending.remove(keyOf(entity));
+            notifyAll();
+        }
+        // waits for a flush in progress, which may be writing the entity
+        flush();
+        dao.delete(entity);
+    }
+
+    @Override
+    public <T extends Entity> Stream<T> stream(Class<T> clazz, int pageSize) {
+        flush();
+        return dao.stream(clazz, pageSize);
+    }
+
+    @Override
+    public <T extends Entity> List<Object[]> loadProjection(Class<T> clazz, String... fields) {
+        flush();
+        return dao.loadProjection(clazz, fields);
+    }
+
+    @Override
+    public <T extends Entity> List<T> find(Criteria<T> criteria) {
+        flush();
+        return dao.find(criteria);
+    }
+
+    /**
+     * @return the number of entities buffered and not yet being flushed.
+     */
+    public synchronized int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Stops the background flushes and flushes what is buffered. Writers still waiting for
+     * room in the buffer fail.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+            notifyAll();
+        }
+        flusher.shutdown();
+        flush();
+    }
+}
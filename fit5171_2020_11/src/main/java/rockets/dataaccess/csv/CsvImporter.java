@@ -0,0 +1,380 @@
+package rockets.dataaccess.csv;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import rockets.dataaccess.DAO;
+import rockets.dataaccess.EntitySink;
+import rockets.model.Entity;
+import rockets.model.Launch;
+import rockets.model.LaunchServiceProvider;
+import rockets.model.Rocket;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import static org.apache.commons.lang3.Validate.isTrue;
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * Imports launch service providers, rockets and launches from CSV files with a header row,
+ * reading each file as a stream so it never has to fit in memory.
+ * <p>
+ * The rows are read on the calling thread, parsed and validated in chunks on a pool of
+ * threads, and written to a DAO, or any other {@link EntitySink}, in batches by a writer
+ * thread. Parsing is at most a few chunks ahead of reading, and the parsed batches wait in
+ * a bounded queue, so when the sink is slower than the file, reading waits for it. Rows are accepted or rejected in file
+ * order; a rejected row is counted and reported with its reason, and the rest of the file
+ * is still imported. A failed write stops the import.
+ * <p>
+ * Rockets and launches refer to providers and rockets by name, which are looked up among
+ * those imported, or loaded with {@link #loadReferences(DAO)}, before. The columns are:
+ * <ul>
+ * <li>providers: name, yearFounded, country, and optionally headquarters;</li>
+ * <li>rockets: name, country, manufacturer, and optionally massToLEO, massToGTO and massToOther;</li>
+ * <li>launches: launchDate (as 2020-05-30), rocket, launchSite, orbit, and optionally
+ * provider (the rocket's manufacturer if left out), function, price and launchOutcome.</li>
+ * </ul>
+ * An importer runs one import at a time.
+ */
+public class CsvImporter {
+    private static Logger logger = LoggerFactory.getLogger(CsvImporter.class);
+
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+
+    public static final int DEFAULT_QUEUE_CAPACITY = 4;
+
+    public static final int DEFAULT_MAX_REJECTIONS = 1000;
+
+    // rows parsed per task
+    private static final int CHUNK_SIZE = 512;
+
+    private static final CSVFormat FORMAT = CSVFormat.DEFAULT
+            .withFirstRecordAsHeader()
+            .withIgnoreSurroundingSpaces()
+            .withIgnoreEmptyLines();
+
+    private static final String[] PROVIDER_COLUMNS = {"name", "yearFounded", "country"};
+
+    private static final String[] ROCKET_COLUMNS = {"name", "country", "manufacturer"};
+
+    private static final String[] LAUNCH_COLUMNS = {"launchDate", "rocket", "launchSite", "orbit"};
+
+    // tells the writer there are no more batches
+    private static final List<Entity> END = Collections.unmodifiableList(new ArrayList<>());
+
+    private final EntitySink sink;
+
+    private final int parallelism;
+
+    private final int batchSize;
+
+    private final int queueCapacity;
+
+    private final int maxRejections;
+
+    private final Map<String, LaunchServiceProvider> providersByName = new ConcurrentHashMap<>();
+
+    private final Map<String, Rocket> rocketsByName = new ConcurrentHashMap<>();
+
+    private volatile ImportReport progress;
+
+    public CsvImporter(EntitySink sink) {
+        this(sink, Runtime.getRuntime().availableProcessors(), DEFAULT_BATCH_SIZE, DEFAULT_QUEUE_CAPACITY, DEFAULT_MAX_REJECTIONS);
+    }
+
+    /**
+     * @param sink the DAO, or other sink, to write to
+     * @param parallelism the number of threads to parse rows on
+     * @param batchSize the number of entities written per call to the sink
+     * @param queueCapacity the most parsed batches waiting to be written
+     * @param maxRejections the most rejected rows reported with their reason
+     */
+    public CsvImporter(EntitySink sink, int parallelism, int batchSize, int queueCapacity, int maxRejections) {
+        notNull(sink, "sink cannot be null");
+        isTrue(parallelism > 0, "parallelism must be positive");
+        isTrue(batchSize > 0, "batch size must be positive");
+        isTrue(queueCapacity > 0, "queue capacity must be positive");
+        isTrue(maxRejections >= 0, "max rejections cannot be negative");
+        this.sink = sink;
+        this.parallelism = parallelism;
+        this.batchSize = batchSize;
+        this.queueCapacity = queueCapacity;
+        this.maxRejections = maxRejections;
+    }
+
+    /**
+     * Loads the providers and rockets already in a DAO, typically the one written to, so
+     * imported rows can refer to them.
+     *
+     * @param source the DAO to load them from
+     */
+    public void loadReferences(DAO source) {
+        notNull(source, "source cannot be null");
+        for (LaunchServiceProvider provider : source.loadAll(LaunchServiceProvider.class)) {
+            providersByName.put(provider.getName(), provider);
+        }
+        for (Rocket rocket : source.loadAll(Rocket.class)) {
+            rocketsByName.put(rocket.getName(), rocket);
+        }
+    }
+
+    /**
+     * @return the progress of the import running, or of the last one if none is.
+     */
+    public ImportReport getProgress() {
+        return progress;
+    }
+
+    public ImportReport importProviders(Reader reader) {
+        return run(reader, PROVIDER_COLUMNS, CsvImporter::parseProvider,
+                provider -> providersByName.put(provider.getName(), provider));
+    }
+
+    public ImportReport importRockets(Reader reader) {
+        return run(reader, ROCKET_COLUMNS, this::parseRocket, rocket -> rocketsByName.put(rocket.getName(), rocket));
+    }
+
+    public ImportReport importLaunches(Reader reader) {
+        return run(reader, LAUNCH_COLUMNS, this::parseLaunch, launch -> {
+        });
+    }
+
+    private static LaunchServiceProvider parseProvider(CSVRecord record) {
+        LaunchServiceProvider provider = new LaunchServiceProvider(required(record, "name"),
+                Integer.parseInt(required(record, "yearFounded")), required(record, "country"));
+        String headquarters = optional(record, "headquarters");
+        if (null != headquarters) {
+            provider.setHeadquarters(headquarters);
+        }
+        return provider;
+    }
+
+    private Rocket parseRocket(CSVRecord record) {
+        Rocket rocket = new Rocket(required(record, "name"), required(record, "country"),
+                provider(required(record, "manufacturer")));
+        String massToLEO = optional(record, "massToLEO");
+        if (null != massToLEO) {
+            rocket.setMassToLEO(massToLEO);
+        }
+        String massToGTO = optional(record, "massToGTO");
+        if (null != massToGTO) {
+            rocket.setMassToGTO(massToGTO);
+        }
+        String massToOther = optional(record, "massToOther");
+        if (null != massToOther) {
+            rocket.setMassToOther(massToOther);
+        }
+        return rocket;
+    }
+
+    private Launch parseLaunch(CSVRecord record) {
+        Launch launch = new Launch();
+        launch.setLaunchDate(LocalDate.parse(required(record, "launchDate")));
+        Rocket rocket = rocketsByName.get(required(record, "rocket"));
+        isTrue(null != rocket, "unknown rocket %s", record.get("rocket"));
+        launch.setLaunchVehicle(rocket);
+        String provider = optional(record, "provider");
+        launch.setLaunchServiceProvider(null == provider ? rocket.getManufacturer() : provider(provider));
+        launch.setLaunchSite(required(record, "launchSite"));
+        launch.setOrbit(required(record, "orbit"));
+        String function = optional(record, "function");
+        if (null != function) {
+            launch.setFunction(function);
+        }
+        String price = optional(record, "price");
+        if (null != price) {
+            BigDecimal value = new BigDecimal(price);
+            isTrue(value.signum() >= 0, "price cannot be negative");
+            launch.setPrice(value);
+        }
+        String outcome = optional(record, "launchOutcome");
+        if (null != outcome) {
+            launch.setLaunchOutcome(Launch.LaunchOutcome.valueOf(outcome.toUpperCase(Locale.ROOT)));
+        }
+        return launch;
+    }
+
+    private LaunchServiceProvider provider(String name) {
+        LaunchServiceProvider provider = providersByName.get(name);
+        isTrue(null != provider, "unknown provider %s", name);
+        return provider;
+    }
+
+    private static String required(CSVRecord record, String column) {
+        String value = optional(record, column);
+        isTrue(null != value, "%s is missing", column);
+        return value;
+    }
+
+    // The value of the column, or null if the row has none
+    private static String optional(CSVRecord record, String column) {
+        String value = record.isSet(column) ? record.get(column) : null;
+        return null == value || value.isEmpty() ? null : value;
+    }
+
+    // A row parsed into an entity, or the reason it could not be
+    private static final class Row<E> {
+        private final long number;
+
+        private final E entity;
+
+        private final String rejection;
+
+        private Row(long number, E entity, String rejection) {
+            this.number = number;
+            this.entity = entity;
+            this.rejection = rejection;
+        }
+    }
+
+    private <E extends Entity> ImportReport run(Reader reader, String[] columns, Function<CSVRecord, E> parse, Consumer<E> register) {
+        notNull(reader, "reader cannot be null");
+        ImportReport report = new ImportReport(maxRejections);
+        progress = report;
+        ExecutorService parsers = Executors.newFixedThreadPool(parallelism, daemon("csv-parser"));
+        ExecutorService writer = Executors.newSingleThreadExecutor(daemon("csv-writer"));
+        BlockingQueue<List<Entity>> batches = new ArrayBlockingQueue<>(queueCapacity);
+        AtomicReference<RuntimeException> writeFailure = new AtomicReference<>();
+        Future<?> writing = writer.submit(() -> {
+            write(batches, report, writeFailure);
+            return null;
+        });
+        try (CSVParser parser = FORMAT.parse(reader)) {
+            for (String column : columns) {
+                isTrue(parser.getHeaderMap().containsKey(column), "The file has no column %s", column);
+            }
+            Deque<Future<List<Row<E>>>> parsing = new ArrayDeque<>();
+            List<Entity> batch = new ArrayList<>(batchSize);
+            List<CSVRecord> chunk = new ArrayList<>(CHUNK_SIZE);
+            long rows = 0;
+            for (CSVRecord record : parser) {
+                report.rowRead();
+                chunk.add(record);
+                if (chunk.size() == CHUNK_SIZE) {
+                    parsing.add(parsers.submit(parseChunk(chunk, rows + 1, parse)));
+                    rows += chunk.size();
+                    chunk = new ArrayList<>(CHUNK_SIZE);
+                    // a few chunks ahead of the oldest being parsed, so reading waits for parsing
+                    if (parsing.size() > 2 * parallelism) {
+                        batch = accept(parsing.poll(), register, batch, batches, report, writeFailure);
+                    }
+                }
+            }
+            if (!chunk.isEmpty()) {
+                parsing.add(parsers.submit(parseChunk(chunk, rows + 1, parse)));
+            }
+            while (!parsing.isEmpty()) {
+                batch = accept(parsing.poll(), register, batch, batches, report, writeFailure);
+            }
+            if (!batch.isEmpty()) {
+                enqueue(batch, batches, writeFailure);
+            }
+            enqueue(END, batches, writeFailure);
+            await(writing);
+            if (null != writeFailure.get()) {
+                throw new IllegalStateException("Import stopped, as writing to the sink failed", writeFailure.get());
+            }
+            logger.info("imported " + report);
+            return report;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            parsers.shutdownNow();
+            writer.shutdownNow();
+            report.finish();
+        }
+    }
+
+    private static ThreadFactory daemon(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static <E> Callable<List<Row<E>>> parseChunk(List<CSVRecord> chunk, long firstRow, Function<CSVRecord, E> parse) {
+        return () -> {
+            List<Row<E>> rows = new ArrayList<>(chunk.size());
+            for (int i = 0; i < chunk.size(); i++) {
+                try {
+                    rows.add(new Row<>(firstRow + i, parse.apply(chunk.get(i)), null));
+                } catch (RuntimeException e) {
+                    rows.add(new Row<>(firstRow + i, null, null == e.getMessage() ? e.toString() : e.getMessage()));
+                }
+            }
+            return rows;
+        };
+    }
+
+    // Takes the rows of a parsed chunk in order, queueing the batch for writing whenever it is full
+    private <E extends Entity> List<Entity> accept(Future<List<Row<E>>> chunk, Consumer<E> register, List<Entity> batch,
+                                                   BlockingQueue<List<Entity>> batches, ImportReport report,
+                                                   AtomicReference<RuntimeException> writeFailure) {
+        for (Row<E> row : await(chunk)) {
+            if (null == row.entity) {
+                report.rowRejected(row.number, row.rejection);
+                continue;
+            }
+            register.accept(row.entity);
+            report.rowAccepted();
+            batch.add(row.entity);
+            if (batch.size() == batchSize) {
+                enqueue(batch, batches, writeFailure);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        return batch;
+    }
+
+    private static void enqueue(List<Entity> batch, BlockingQueue<List<Entity>> batches, AtomicReference<RuntimeException> writeFailure) {
+        try {
+            // the writer keeps taking batches after a failure, so this never waits for good
+            batches.put(batch);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting to write", e);
+        }
+        if (null != writeFailure.get() && END != batch) {
+            throw new IllegalStateException("Import stopped, as writing to the sink failed", writeFailure.get());
+        }
+    }
+
+    private void write(BlockingQueue<List<Entity>> batches, ImportReport report, AtomicReference<RuntimeException> writeFailure)
+            throws InterruptedException {
+        for (List<Entity> batch = batches.take(); END != batch; batch = batches.take()) {
+            if (null != writeFailure.get()) {
+                continue;
+            }
+            try {
+                sink.createOrUpdateAll(batch);
+                report.written(batch.size());
+            } catch (RuntimeException e) {
+                logger.error("writing a batch of " + batch.size() + " imported entities failed", e);
+                writeFailure.set(e);
+            }
+        }
+    }
+
+    private static <R> R await(Future<R> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while importing", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Import failed", e.getCause());
+        }
+    }
+}
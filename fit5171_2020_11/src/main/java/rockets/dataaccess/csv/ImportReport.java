@@ -0,0 +1,142 @@
+package rockets.dataaccess.csv;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The progress of one CSV import, updated while it runs and final once it returns: rows
+ * read, rows accepted and rejected, entities written, and why each rejected row was
+ * rejected, up to a limit.
+ */
+public class ImportReport {
+    /**
+     * A row that could not be imported.
+     */
+    public static final class Rejection {
+        private final long row;
+
+        private final String reason;
+
+        Rejection(long row, String reason) {
+            this.row = row;
+            this.reason = reason;
+        }
+
+        /**
+         * @return the number of the row, the first after the header being 1.
+         */
+        public long getRow() {
+            return row;
+        }
+
+        public String getReason() {
+            return reason;
+        }
+
+        @Override
+        public String toString() {
+            return "row " + row + ": " + reason;
+        }
+    }
+
+    private final int maxRejections;
+
+    private final long startNanos = System.nanoTime();
+
+    private volatile long endNanos;
+
+    private volatile boolean finished;
+
+    private final AtomicLong rowsRead = new AtomicLong();
+
+    private final AtomicLong rowsAccepted = new AtomicLong();
+
+    private final AtomicLong rowsRejected = new AtomicLong();
+
+    private final AtomicLong entitiesWritten = new AtomicLong();
+
+    private final List<Rejection> rejections = new ArrayList<>();
+
+    ImportReport(int maxRejections) {
+        this.maxRejections = maxRejections;
+    }
+
+    void rowRead() {
+        rowsRead.incrementAndGet();
+    }
+
+    void rowAccepted() {
+        rowsAccepted.incrementAndGet();
+    }
+
+    void rowRejected(long row, String reason) {
+        rowsRejected.incrementAndGet();
+        synchronized (rejections) {
+            if (rejections.size() < maxRejections) {
+                rejections.add(new Rejection(row, reason));
+            }
+        }
+    }
+
+    void written(int entities) {
+        entitiesWritten.addAndGet(entities);
+    }
+
+    void finish() {
+        endNanos = System.nanoTime();
+        finished = true;
+    }
+
+    public long getRowsRead() {
+        return rowsRead.get();
+    }
+
+    public long getRowsAccepted() {
+        return rowsAccepted.get();
+    }
+
+    public long getRowsRejected() {
+        return rowsRejected.get();
+    }
+
+    public long getEntitiesWritten() {
+        return entitiesWritten.get();
+    }
+
+    /**
+     * @return the first rejected rows, in the order they were read, up to the limit the
+     * importer was given; {@link #getRowsRejected()} counts them all.
+     */
+    public List<Rejection> getRejections() {
+        synchronized (rejections) {
+            return new ArrayList<>(rejections);
+        }
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * @return the time the import has taken so far, or took, in milliseconds.
+     */
+    public long getElapsedMillis() {
+        long end = isFinished() ? endNanos : System.nanoTime();
+        return (end - startNanos) / 1_000_000;
+    }
+
+    /**
+     * @return the rows read per second so far.
+     */
+    public double getRowsPerSecond() {
+        long end = isFinished() ? endNanos : System.nanoTime();
+        return end == startNanos ? 0 : getRowsRead() * 1e9 / (end - startNanos);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("read %d rows, accepted %d, rejected %d, wrote %d entities in %d ms (%.0f rows/s)",
+                getRowsRead(), getRowsAccepted(), getRowsRejected(), getEntitiesWritten(), getElapsedMillis(), getRowsPerSecond());
+    }
+}
@@ -0,0 +1,150 @@
+package rockets.dataaccess.memory;
+
+import rockets.dataaccess.DAO;
+import rockets.dataaccess.neo4j.Neo4jDAO;
+import rockets.model.*;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import static org.apache.commons.lang3.Validate.isTrue;
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * A DAO that keeps the entities themselves in memory, for simulations and for pinning data
+ * that is read often.
+ * <p>
+ * Entities are stored per class by id, in id order, and ids are handed out by one counter
+ * across all classes. Saving an entity saves the entities it refers to first, as the
+ * mapper does. An entity without an id that has the natural key of a stored one replaces
+ * it and takes its id. The keys are those of {@link Neo4jDAO#naturalKey(Entity)}: the name
+ * and country of a rocket, the name, year founded and country of a launch service provider,
+ * and the email of a user. Launches have none, so each new launch saved is a new one, as in
+ * the Neo4j DAO.
+ * <p>
+ * Reads take no lock and see every write completed before they start. Writes are made
+ * one at a time, so the natural keys stay unique. A stream sees the writes made while it
+ * is read only where it has not passed them yet.
+ */
+public class InMemoryDAO implements DAO {
+    private final ConcurrentMap<Class<?>, ConcurrentNavigableMap<Long, Entity>> entities = new ConcurrentHashMap<>();
+
+    private final AtomicLong lastId = new AtomicLong();
+
+    // ids by natural key, and the natural key each id is stored under; only changed while writing
+    private final ConcurrentMap<List<Object>, Long> idsByKey = new ConcurrentHashMap<>();
+
+    private final Map<Long, List<Object>> keysById = new HashMap<>();
+
+    private ConcurrentNavigableMap<Long, Entity> entities(Class<?> clazz) {
+        return entities.computeIfAbsent(clazz, x -> new ConcurrentSkipListMap<>());
+    }
+
+    @Override
+    public <T extends Entity> T load(Class<T> clazz, Long id) {
+        return clazz.cast(entities(clazz).get(id));
+    }
+
+    @Override
+    public <T extends Entity> Collection<T> loadAll(Class<T> clazz) {
+        List<T> all = new ArrayList<>();
+        for (Entity entity : entities(clazz).values()) {
+            all.add(clazz.cast(entity));
+        }
+        return all;
+    }
+
+    @Override
+    public synchronized <T extends Entity> T createOrUpdate(T entity) {
+        notNull(entity, "entity cannot be null");
+        save(entity, Collections.newSetFromMap(new IdentityHashMap<>()));
+        return entity;
+    }
+
+    @Override
+    public synchronized <T extends Entity> List<T> createOrUpdateAll(Collection<T> entities) {
+        notNull(entities, "entities cannot be null");
+        List<T> all = new ArrayList<>(entities);
+        Set<Entity> saved = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (T entity : all) {
+            save(entity, saved);
+        }
+        return all;
+    }
+
+    // Saves the entities the entity refers to, then the entity, each once per call
+    private void save(Entity entity, Set<Entity> saved) {
+        if (!saved.add(entity)) {
+            return;
+        }
+        for (Entity reference : references(entity)) {
+            save(reference, saved);
+        }
+        ConcurrentNavigableMap<Long, Entity> stored = entities(entity.getClass());
+        if (null == entity.getId() || !stored.containsKey(entity.getId())) {
+            List<Object> key = Neo4jDAO.naturalKey(entity);
+            Long existingId = null == key ? null : idsByKey.get(key);
+            entity.setId(null != existingId ? existingId : lastId.incrementAndGet());
+        }
+        index(entity.getId(), Neo4jDAO.naturalKey(entity));
+        stored.put(entity.getId(), entity);
+    }
+
+    private static List<Entity> references(Entity entity) {
+        List<Entity> references = new ArrayList<>();
+        if (entity instanceof Rocket) {
+            references.add(((Rocket) entity).getManufacturer());
+        } else if (entity instanceof Launch) {
+            Launch launch = (Launch) entity;
+            references.add(launch.getLaunchVehicle());
+            references.add(launch.getLaunchServiceProvider());
+        } else if (entity instanceof LaunchServiceProvider) {
+            references.addAll(((LaunchServiceProvider) entity).getRockets());
+        }
+        references.removeIf(Objects::isNull);
+        return references;
+    }
+
+    // Records the natural key the id is stored under, dropping the one it had before
+    private void index(Long id, List<Object> key) {
+        List<Object> oldKey = null == key ? keysById.remove(id) : keysById.put(id, key);
+        if (null != oldKey && !oldKey.equals(key)) {
+            idsByKey.remove(oldKey, id);
+        }
+        if (null != key) {
+            idsByKey.put(key, id);
+        }
+    }
+
+    @Override
+    public synchronized <T extends Entity> void delete(T entity) {
+        Long id = entity.getId();
+        if (null != id && null != entities(entity.getClass()).remove(id)) {
+            index(id, null);
+        }
+    }
+
+    /**
+     * Streams the entities in id order. The page size is checked but not needed, as the
+     * entities are in memory already.
+     */
+    @Override
+    public <T extends Entity> Stream<T> stream(Class<T> clazz, int pageSize) {
+        isTrue(pageSize > 0, "page size must be positive");
+        return entities(clazz).values().stream().map(clazz::cast);
+    }
+
+    /**
+     * Removes all entities. Ids are not handed out again.
+     */
+    public synchronized void clear() {
+        entities.clear();
+        idsByKey.clear();
+        keysById.clear();
+    }
+}
@@ -0,0 +1,393 @@
+package rockets.dataaccess.neo4j;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+import org.neo4j.ogm.annotation.Relationship;
+import org.neo4j.ogm.metadata.ClassInfo;
+import org.neo4j.ogm.metadata.FieldInfo;
+import org.neo4j.ogm.metadata.MetaData;
+import rockets.dataaccess.DAO;
+import rockets.dataaccess.EntitySink;
+import rockets.model.Entity;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.stream.Stream;
+
+import static org.apache.commons.lang3.Validate.isTrue;
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * A write-only {@link EntitySink} that writes the entities saved through it to node and relationship CSV
+ * files for {@code neo4j-admin import}, for a first load of more launches than
+ * transactional writes can store in reasonable time. Importing the files into an empty
+ * database gives the graph {@link Neo4jDAO} would have written, with the labels,
+ * relationship types and property values of the OGM mapping of the model.
+ * <p>
+ * Source data is exported by importing it into this DAO, e.g. with a
+ * {@link rockets.dataaccess.csv.CsvImporter}, and the entities of another DAO with
+ * {@link #exportAll(DAO, int)}. Once closed, the files are imported with
+ * <pre>
+ * neo4j-admin import --mode=csv --database=graph.db &lt;the arguments of {@link #getImportArguments()}&gt;
+ * </pre>
+ * and {@link #verify(DAO)} checks a {@link Neo4jDAO} on the imported database against what
+ * was written.
+ * <p>
+ * Saving an entity also writes the entities it refers to that were not written yet.
+ * Entities with a natural key are written once per key, as first saved; saving one again
+ * only adds the relationships it has gained. Launches have no natural key, so each launch
+ * saved is a new node. The ids of the entities are neither read nor set: nodes are
+ * numbered in the files in the order they are written. Only the natural keys are kept in
+ * memory, not the entities.
+ */
+public class AdminImportDAO implements EntitySink, AutoCloseable {
+    private final File directory;
+
+    private final MetaData metaData;
+
+    // the file of each label and of each relationship type, in order of first write
+    private final Map<String, ImportFile> nodeFiles = new LinkedHashMap<>();
+
+    private final Map<String, ImportFile> relationshipFiles = new LinkedHashMap<>();
+
+    // the number in the files of each entity with a natural key written, by natural key
+    private final Map<List<Object>, Long> idsByNaturalKey = new HashMap<>();
+
+    // the relationships written from entities with a natural key, which may be saved again
+    private final Set<List<Object>> keyedRelationships = new HashSet<>();
+
+    private long nextId;
+
+    private boolean closed;
+
+    /**
+     * @param directory the directory to write the files to, created if it does not exist
+     */
+    public AdminImportDAO(File directory) {
+        notNull(directory, "directory cannot be null");
+        try {
+            Files.createDirectories(directory.toPath());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.directory = directory;
+        this.metaData = new MetaData(Entity.class.getPackage().getName());
+    }
+
+    @Override
+    public synchronized <T extends Entity> T createOrUpdate(T entity) {
+        notNull(entity, "entity cannot be null");
+        if (closed) {
+            throw new IllegalStateException("The import files are closed");
+        }
+        Long id = idsByNaturalKey.get(Neo4jDAO.naturalKey(entity));
+        if (null == id) {
+            write(entity);
+        } else {
+            writeRelationships(entity, id);
+        }
+        return entity;
+    }
+
+    @Override
+    public synchronized <T extends Entity> List<T> createOrUpdateAll(Collection<T> entities) {
+        notNull(entities, "entities cannot be null");
+        List<T> saved = new ArrayList<>(entities.size());
+        for (T entity : entities) {
+            saved.add(createOrUpdate(entity));
+        }
+        return saved;
+    }
+
+    /**
+     * Writes all entities of another DAO, reading each class a page at a time.
+     *
+     * @param source the DAO to read from
+     * @param pageSize the number of entities read at a time
+     */
+    public void exportAll(DAO source, int pageSize) {
+        notNull(source, "source cannot be null");
+        for (ClassInfo classInfo : metaData.persistentEntities()) {
+            if (!classInfo.isAbstract() && Entity.class.isAssignableFrom(classInfo.getUnderlyingClass())) {
+                Class<? extends Entity> clazz = classInfo.getUnderlyingClass().asSubclass(Entity.class);
+                try (Stream<? extends Entity> entities = source.stream(clazz, pageSize)) {
+                    entities.forEach(this::createOrUpdate);
+                }
+            }
+        }
+    }
+
+    // Writes the node of an entity not written yet, then its relationships, and returns its number
+    private long write(Entity entity) {
+        ClassInfo classInfo = metaData.classInfo(entity);
+        isTrue(null != classInfo, "%s is not mapped", entity.getClass().getSimpleName());
+        long id = nextId++;
+        List<Object> naturalKey = Neo4jDAO.naturalKey(entity);
+        if (null != naturalKey) {
+            // known before the relationships are followed, as they may lead back to it
+            idsByNaturalKey.put(naturalKey, id);
+        }
+        ImportFile file = nodeFile(classInfo);
+        List<Object> row = new ArrayList<>(file.properties.size() + 2);
+        row.add(id);
+        for (FieldInfo property : file.properties) {
+            row.add(property.readProperty(entity));
+        }
+        row.add(file.labels);
+        file.print(row);
+        writeRelationships(entity, id);
+        return id;
+    }
+
+    private void writeRelationships(Entity entity, long id) {
+        boolean keyed = null != Neo4jDAO.naturalKey(entity);
+        for (FieldInfo relationship : metaData.classInfo(entity).relationshipFields()) {
+            Object value = relationship.read(entity);
+            Iterable<?> related = value instanceof Iterable ? (Iterable<?>) value : Collections.singleton(value);
+            for (Object other : related) {
+                if (other instanceof Entity) {
+                    writeRelationship(relationship, id, idOf((Entity) other), keyed);
+                }
+            }
+        }
+    }
+
+    private void writeRelationship(FieldInfo relationship, long from, long to, boolean keyed) {
+        String type = relationship.relationshipType();
+        boolean incoming = Relationship.INCOMING.equals(relationship.relationshipDirection(Relationship.OUTGOING));
+        long start = incoming ? to : from;
+        long end = incoming ? from : to;
+        if (keyed && !keyedRelationships.add(Arrays.asList(type, start, end))) {
+            return;
+        }
+        ImportFile file = relationshipFiles.get(type);
+        if (null == file) {
+            file = new ImportFile(type, Arrays.asList(":START_ID", ":END_ID", ":TYPE"), Collections.emptyList(), type);
+            relationshipFiles.put(type, file);
+        }
+        file.print(Arrays.asList(start, end, type));
+    }
+
+    // The number of a related entity, writing it first if it is not written yet
+    private long idOf(Entity entity) {
+        Long id = idsByNaturalKey.get(Neo4jDAO.naturalKey(entity));
+        return null == id ? write(entity) : id;
+    }
+
+    private ImportFile nodeFile(ClassInfo classInfo) {
+        ImportFile file = nodeFiles.get(classInfo.neo4jName());
+        if (null == file) {
+            List<FieldInfo> properties = properties(classInfo);
+            List<String> header = new ArrayList<>(properties.size() + 2);
+            header.add(":ID");
+            for (FieldInfo property : properties) {
+                header.add(property.property() + ":" + importType(property));
+            }
+            header.add(":LABEL");
+            file = new ImportFile(classInfo.neo4jName(), header, properties, String.join(";", classInfo.staticLabels()));
+            nodeFiles.put(classInfo.neo4jName(), file);
+        }
+        return file;
+    }
+
+    // The fields stored as properties, in a fixed order
+    private static List<FieldInfo> properties(ClassInfo classInfo) {
+        List<FieldInfo> properties = new ArrayList<>();
+        for (FieldInfo field : classInfo.propertyFields()) {
+            if (field != classInfo.identityFieldOrNull()) {
+                properties.add(field);
+            }
+        }
+        properties.sort(Comparator.comparing(FieldInfo::property));
+        return properties;
+    }
+
+    // The type of the property as the Java driver stores it: converted values are strings, integers are longs
+    private static String importType(FieldInfo property) {
+        Class<?> type = property.type();
+        if (property.hasPropertyConverter()) {
+            return "string";
+        }
+        if (type == int.class || type == Integer.class || type == long.class || type == Long.class
+                || type == short.class || type == Short.class || type == byte.class || type == Byte.class) {
+            return "long";
+        }
+        if (type == double.class || type == Double.class || type == float.class || type == Float.class) {
+            return "double";
+        }
+        if (type == boolean.class || type == Boolean.class) {
+            return "boolean";
+        }
+        return "string";
+    }
+
+    /**
+     * @return the number of nodes written per label.
+     */
+    public synchronized Map<String, Long> getNodeCounts() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        nodeFiles.forEach((label, file) -> counts.put(label, file.rows));
+        return counts;
+    }
+
+    /**
+     * @return the number of relationships written per type.
+     */
+    public synchronized Map<String, Long> getRelationshipCounts() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        relationshipFiles.forEach((type, file) -> counts.put(type, file.rows));
+        return counts;
+    }
+
+    /**
+     * @return the arguments naming the files written, and how they are written, to pass to
+     * {@code neo4j-admin import} after the database to import into.
+     */
+    public synchronized List<String> getImportArguments() {
+        List<String> arguments = new ArrayList<>();
+        arguments.add("--id-type=INTEGER");
+        arguments.add("--multiline-fields=true");
+        for (ImportFile file : nodeFiles.values()) {
+            arguments.add("--nodes=" + file.file.getAbsolutePath());
+        }
+        for (ImportFile file : relationshipFiles.values()) {
+            arguments.add("--relationships=" + file.file.getAbsolutePath());
+        }
+        return arguments;
+    }
+
+    /**
+     * Checks that a DAO on the imported database holds the entities written: as many of each
+     * class, each natural key written exactly once, and as many relationships of each type.
+     *
+     * @param imported the DAO to check, typically a {@link Neo4jDAO}
+     * @return a description of each difference found; empty if there is none.
+     */
+    public synchronized List<String> verify(DAO imported) {
+        notNull(imported, "imported cannot be null");
+        List<String> differences = new ArrayList<>();
+        Map<String, Long> relationships = new HashMap<>();
+        for (ClassInfo classInfo : metaData.persistentEntities()) {
+            ImportFile file = nodeFiles.get(classInfo.neo4jName());
+            if (null == file || classInfo.isAbstract()) {
+                continue;
+            }
+            Class<? extends Entity> clazz = classInfo.getUnderlyingClass().asSubclass(Entity.class);
+            long count = 0;
+            Map<List<Object>, Integer> naturalKeys = new HashMap<>();
+            try (Stream<? extends Entity> entities = imported.stream(clazz, Neo4jDAO.DEFAULT_BATCH_SIZE)) {
+                for (Iterator<? extends Entity> it = entities.iterator(); it.hasNext(); ) {
+                    Entity entity = it.next();
+                    count++;
+                    List<Object> naturalKey = Neo4jDAO.naturalKey(entity);
+                    if (null != naturalKey) {
+                        naturalKeys.merge(naturalKey, 1, Integer::sum);
+                    }
+                    countRelationships(classInfo, entity, relationships);
+                }
+            }
+            if (count != file.rows) {
+                differences.add(String.format("%d %s nodes written, %d imported", file.rows, file.name, count));
+            }
+            naturalKeys.forEach((key, found) -> {
+                if (!idsByNaturalKey.containsKey(key)) {
+                    differences.add(String.format("%s %s imported but not written", file.name, key.subList(1, key.size())));
+                } else if (found > 1) {
+                    differences.add(String.format("%s %s imported %d times", file.name, key.subList(1, key.size()), found));
+                }
+            });
+            for (List<Object> key : idsByNaturalKey.keySet()) {
+                if (clazz.equals(key.get(0)) && !naturalKeys.containsKey(key)) {
+                    differences.add(String.format("%s %s written but not imported", file.name, key.subList(1, key.size())));
+                }
+            }
+        }
+        relationshipFiles.forEach((type, file) -> {
+            long count = relationships.getOrDefault(type, 0L);
+            if (count != file.rows) {
+                differences.add(String.format("%d %s relationships written, %d imported", file.rows, type, count));
+            }
+        });
+        return differences;
+    }
+
+    // Counts the relationships of the entity to others, each from the entity at the end it is read from
+    private static void countRelationships(ClassInfo classInfo, Entity entity, Map<String, Long> counts) {
+        for (FieldInfo relationship : classInfo.relationshipFields()) {
+            Object value = relationship.read(entity);
+            long related = value instanceof Collection ? ((Collection<?>) value).size() : null == value ? 0 : 1;
+            counts.merge(relationship.relationshipType(), related, Long::sum);
+        }
+    }
+
+    /**
+     * Flushes and closes the files. Nothing can be written after.
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        IOException failure = null;
+        for (ImportFile file : allFiles()) {
+            try {
+                file.printer.close();
+            } catch (IOException e) {
+                failure = null == failure ? e : failure;
+            }
+        }
+        if (null != failure) {
+            throw new UncheckedIOException(failure);
+        }
+    }
+
+    private List<ImportFile> allFiles() {
+        List<ImportFile> files = new ArrayList<>(nodeFiles.values());
+        files.addAll(relationshipFiles.values());
+        return files;
+    }
+
+    // A CSV file with a header row, what its rows hold, and the number of rows written to it
+    private final class ImportFile {
+        private final String name;
+
+        private final File file;
+
+        // the properties of a node file, in the order of its columns
+        private final List<FieldInfo> properties;
+
+        // the labels of a node file, or the type of a relationship file
+        private final String labels;
+
+        private final CSVPrinter printer;
+
+        private long rows;
+
+        private ImportFile(String name, List<String> header, List<FieldInfo> properties, String labels) {
+            this.name = name;
+            this.file = new File(directory, name + ".csv");
+            this.properties = properties;
+            this.labels = labels;
+            try {
+                this.printer = new CSVPrinter(Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8), CSVFormat.DEFAULT);
+                printer.printRecord(header);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void print(List<?> row) {
+            try {
+                printer.printRecord(row);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            rows++;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package rockets.dataaccess.neo4j;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.apache.commons.lang3.Validate.isTrue;
+
+/**
+ * The node ids by natural key of the entities loaded or saved, and the reverse, shared by
+ * the DAOs of a {@link PooledNeo4jDAO} so an id any of them has seen saves the others a lookup.
+ * <p>
+ * Holds at most a given number of keys, dropping the least recently used one beyond that;
+ * a key dropped is looked up again the next time it is saved.
+ */
+final class NaturalKeyCache {
+    static final int DEFAULT_CAPACITY = 100_000;
+
+    private final int capacity;
+
+    // in order of use, least recent first
+    private final LinkedHashMap<List<Object>, Long> idsByKey;
+
+    private final Map<Long, List<Object>> keysById = new HashMap<>();
+
+    NaturalKeyCache() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    NaturalKeyCache(int capacity) {
+        isTrue(capacity > 0, "capacity must be positive");
+        this.capacity = capacity;
+        this.idsByKey = new LinkedHashMap<List<Object>, Long>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<List<Object>, Long> eldest) {
+                if (size() <= NaturalKeyCache.this.capacity) {
+                    return false;
+                }
+                keysById.remove(eldest.getValue(), eldest.getKey());
+                return true;
+            }
+        };
+    }
+
+    synchronized Long idOf(List<Object> key) {
+        return idsByKey.get(key);
+    }
+
+    // Records the natural key the node is stored under, dropping the one it had before; a null key only drops it
+    synchronized void remember(Long id, List<Object> key) {
+        List<Object> oldKey = null == key ? keysById.remove(id) : keysById.put(id, key);
+        if (null != oldKey && !oldKey.equals(key)) {
+            idsByKey.remove(oldKey, id);
+        }
+        if (null != key) {
+            Long oldId = idsByKey.put(key, id);
+            // a key is the key of one node only, so the node that had it before no longer does
+            if (null != oldId && !oldId.equals(id)) {
+                keysById.remove(oldId, key);
+            }
+        }
+    }
+
+    synchronized int size() {
+        return idsByKey.size();
+    }
+
+    synchronized void forget(Long id) {
+        List<Object> key = keysById.remove(id);
+        if (null != key) {
+            idsByKey.remove(key, id);
+        }
+    }
+
+    synchronized void clear() {
+        idsByKey.clear();
+        keysById.clear();
+    }
+}
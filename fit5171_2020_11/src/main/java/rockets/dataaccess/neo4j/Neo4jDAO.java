@@ -2,41 +2,138 @@ package rockets.dataaccess.neo4j;
 
 import com.google.common.collect.Sets;
 import org.neo4j.ogm.cypher.Filter;
+import org.neo4j.ogm.annotation.Relationship;
+import org.neo4j.ogm.context.MappingContext;
 import org.neo4j.ogm.cypher.Filters;
+import org.neo4j.ogm.metadata.ClassInfo;
+import org.neo4j.ogm.metadata.FieldInfo;
+import org.neo4j.ogm.metadata.MetaData;
+import org.neo4j.ogm.session.Neo4jSession;
 import org.neo4j.ogm.session.Session;
 import org.neo4j.ogm.transaction.Transaction;
+import org.neo4j.ogm.typeconversion.AttributeConverter;
+import rockets.dataaccess.Criteria;
 import rockets.dataaccess.DAO;
 import rockets.model.*;
 
-import java.util.Collection;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.LongFunction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
+import static org.apache.commons.lang3.Validate.isTrue;
+import static org.apache.commons.lang3.Validate.notNull;
 import static org.neo4j.ogm.cypher.ComparisonOperator.EQUALS;
 
 public class Neo4jDAO implements DAO {
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+
     private static final int DEPTH_ENTITY = 1;
 
+    // looks up the ids of existing nodes for a list of natural keys, one row per key found
+    private static final String FIND_EXISTING_IDS =
+            "UNWIND $keys AS key MATCH (n:%s) WHERE %s RETURN key.i AS i, min(id(n)) AS id";
+
+    // the ids of the next page of nodes of a label, after the last id of the previous page
+    private static final String FIND_PAGE_IDS =
+            "MATCH (n:%s) WHERE id(n) > $after RETURN id(n) AS id ORDER BY id LIMIT $limit";
+
+    private static final String CREATE_INDEX = "CREATE INDEX ON :%s(%s)";
+
+    // the properties findExistingEntity matches on; launches have none, so a launch without an id is always new
+    private static final Map<Class<?>, String[]> NATURAL_KEYS = new HashMap<>();
+
+    // the properties indexed on construction: the natural keys, and the launch date launches are looked up by
+    private static final Map<Class<?>, String[]> INDEXED_PROPERTIES = new LinkedHashMap<>();
+
+    static {
+        NATURAL_KEYS.put(Rocket.class, new String[]{"name", "country"});
+        NATURAL_KEYS.put(User.class, new String[]{"email"});
+        NATURAL_KEYS.put(LaunchServiceProvider.class, new String[]{"name", "yearFounded", "country"});
+
+        INDEXED_PROPERTIES.putAll(NATURAL_KEYS);
+        INDEXED_PROPERTIES.put(Launch.class, new String[]{"launchDate"});
+    }
+
     private Session session;
 
+    private int batchSize;
+
+    // node ids by natural key of the entities this DAO has loaded or saved
+    private final NaturalKeyCache naturalKeys;
+
     public Neo4jDAO(Session session) {
+        this(session, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Creates the indexes on the natural keys of the entities, if they do not exist yet, so
+     * that finding an existing entity is an index seek however large the graph is.
+     * <p>
+     * The DAO also remembers the node id of each natural key it loads or saves, so upserting
+     * an entity it has seen before needs no lookup at all. The ids are only valid as long as
+     * nodes are deleted through this DAO; call {@link #clearCache()} after deleting them any
+     * other way.
+     *
+     * @param session the session to read and write with
+     * @param batchSize the number of entities {@link #createOrUpdateAll(Collection)} writes per transaction
+     */
+    public Neo4jDAO(Session session, int batchSize) {
+        this(session, batchSize, new NaturalKeyCache());
+        createIndexes();
+    }
+
+    // A DAO sharing the node ids it knows with other DAOs, that leaves creating the indexes to them
+    Neo4jDAO(Session session, int batchSize, NaturalKeyCache naturalKeys) {
+        isTrue(batchSize > 0, "batch size must be positive");
         this.session = session;
+        this.batchSize = batchSize;
+        this.naturalKeys = naturalKeys;
+    }
+
+    void createIndexes() {
+        for (Map.Entry<Class<?>, String[]> entry : INDEXED_PROPERTIES.entrySet()) {
+            String cypher = String.format(CREATE_INDEX, entry.getKey().getSimpleName(), String.join(", ", entry.getValue()));
+            session.query(cypher, Collections.emptyMap());
+        }
     }
 
     @Override
     public <T extends Entity> T load(Class<T> clazz, Long id) {
-        return session.load(clazz, id, DEPTH_ENTITY);
+        T entity = session.load(clazz, id, DEPTH_ENTITY);
+        if (null != entity) {
+            remember(entity);
+        }
+        return entity;
     }
 
     @Override
     public <T extends Entity> T createOrUpdate(T entity) {
         Class clazz = entity.getClass();
 
-        T existingEntity = findExistingEntity(entity, clazz);
-        if (null != existingEntity) {
-            entity.setId(existingEntity.getId());
+        List<Object> key = naturalKey(entity);
+        Long cachedId = null == key ? null : naturalKeys.idOf(key);
+        if (null != cachedId) {
+            entity.setId(cachedId);
+        } else if (NATURAL_KEYS.containsKey(clazz)) {
+            T existingEntity = findExistingEntity(entity, clazz);
+            if (null != existingEntity) {
+                entity.setId(existingEntity.getId());
+            }
         }
         Transaction tx = session.beginTransaction();
-        session.save(entity);
-        tx.commit();
+        try {
+            session.save(entity);
+            tx.commit();
+        } catch (RuntimeException e) {
+            tx.rollback();
+            throw e;
+        } finally {
+            tx.close();
+        }
+        remember(entity);
         return entity;
     }
 
@@ -53,14 +150,6 @@ public class Neo4jDAO implements DAO {
             User user = (User) entity;
             filters.add(new Filter("email", EQUALS, user.getEmail()));
             collection = session.loadAll(User.class, filters);
-        } else if (clazz.equals(Launch.class)) {
-            Launch launch = (Launch) entity;
-            filters.add(new Filter("launchDate", EQUALS, launch.getLaunchDate()))
-                    .and(new Filter("launchVehicle", EQUALS, launch.getLaunchVehicle()))
-                    .and(new Filter("launchSite", EQUALS, launch.getLaunchSite()))
-                    .and(new Filter("launchPrice", EQUALS,launch.getPrice()))
-                    .and(new Filter("launchOutcome", EQUALS, launch.getLaunchOutcome()));
-            collection = session.loadAll(Launch.class, filters);
         } else if (clazz.equals(LaunchServiceProvider.class)) {
             LaunchServiceProvider lsp = (LaunchServiceProvider) entity;
             filters.add(new Filter("name", EQUALS, lsp.getName()))
@@ -74,14 +163,552 @@ public class Neo4jDAO implements DAO {
         return (T) existingEntity;
     }
 
+    /**
+     * Saves the entities in chunks of the batch size, one transaction per chunk. The ids of
+     * existing entities in a chunk are found with one query per class, matching the same
+     * natural keys as {@link #createOrUpdate(Entity)}, and the chunk is saved with one call
+     * to the session, which writes new and changed nodes with batched UNWIND statements.
+     * <p>
+     * Entities with the same natural key end up as one node, the later one overwriting the
+     * earlier one, as if saved one by one.
+     */
+    @Override
+    public <T extends Entity> List<T> createOrUpdateAll(Collection<T> entities) {
+        notNull(entities, "entities cannot be null");
+        List<T> all = new ArrayList<>(entities);
+        for (int from = 0; from < all.size(); from += batchSize) {
+            saveChunk(all.subList(from, Math.min(all.size(), from + batchSize)));
+        }
+        return all;
+    }
+
+    private <T extends Entity> void saveChunk(List<T> chunk) {
+        Transaction tx = session.beginTransaction();
+        try {
+            Map<List<Object>, Long> existingIds = findExistingIds(chunk);
+            List<T> pending = new ArrayList<>();
+            Set<List<Object>> pendingKeys = new HashSet<>();
+            for (T entity : chunk) {
+                List<Object> key = naturalKey(entity);
+                if (null != key) {
+                    if (pendingKeys.contains(key)) {
+                        // an earlier entity with the same key must be saved first, to give this one its id
+                        saveAll(pending, existingIds);
+                        pending.clear();
+                        pendingKeys.clear();
+                    }
+                    Long id = existingIds.get(key);
+                    if (null != id) {
+                        entity.setId(id);
+                    }
+                    pendingKeys.add(key);
+                }
+                pending.add(entity);
+            }
+            saveAll(pending, existingIds);
+            tx.commit();
+        } catch (RuntimeException e) {
+            tx.rollback();
+            throw e;
+        } finally {
+            tx.close();
+        }
+        // only once committed, so a rolled back chunk leaves no ids behind
+        for (T entity : chunk) {
+            remember(entity);
+        }
+    }
+
+    private <T extends Entity> void saveAll(List<T> entities, Map<List<Object>, Long> existingIds) {
+        session.save(entities);
+        for (T entity : entities) {
+            List<Object> key = naturalKey(entity);
+            if (null != key) {
+                existingIds.putIfAbsent(key, entity.getId());
+            }
+        }
+    }
+
+    // Ids of the existing nodes matching the natural keys of the entities, from the cache or with one query per class
+    private Map<List<Object>, Long> findExistingIds(List<? extends Entity> entities) {
+        Map<List<Object>, Long> ids = new HashMap<>();
+        Map<Class<?>, List<List<Object>>> keysPerClass = new LinkedHashMap<>();
+        for (Entity entity : entities) {
+            List<Object> key = naturalKey(entity);
+            if (null != key && !ids.containsKey(key)) {
+                Long cachedId = naturalKeys.idOf(key);
+                if (null != cachedId) {
+                    ids.put(key, cachedId);
+                } else {
+                    List<List<Object>> keys = keysPerClass.computeIfAbsent(entity.getClass(), x -> new ArrayList<>());
+                    if (!keys.contains(key)) {
+                        keys.add(key);
+                    }
+                }
+            }
+        }
+
+        for (Map.Entry<Class<?>, List<List<Object>>> entry : keysPerClass.entrySet()) {
+            String[] properties = NATURAL_KEYS.get(entry.getKey());
+            List<List<Object>> keys = entry.getValue();
+            List<Map<String, Object>> rows = new ArrayList<>(keys.size());
+            for (int i = 0; i < keys.size(); i++) {
+                Map<String, Object> row = new HashMap<>();
+                row.put("i", i);
+                for (int p = 0; p < properties.length; p++) {
+                    row.put(properties[p], keys.get(i).get(p + 1));
+                }
+                rows.add(row);
+            }
+            StringJoiner where = new StringJoiner(" AND ");
+            for (String property : properties) {
+                where.add("n." + property + " = key." + property);
+            }
+            String cypher = String.format(FIND_EXISTING_IDS, entry.getKey().getSimpleName(), where);
+            for (Map<String, Object> row : session.query(cypher, Collections.singletonMap("keys", rows))) {
+                ids.put(keys.get(((Number) row.get("i")).intValue()), ((Number) row.get("id")).longValue());
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * The natural key an entity is looked up by when it is saved without an id, shared by
+     * the DAOs that match entities by key. Launches have none.
+     *
+     * @param entity the entity
+     * @return the class and natural key values of the entity, or null if it has no complete natural key.
+     */
+    public static List<Object> naturalKey(Entity entity) {
+        Object[] values;
+        if (entity instanceof Rocket) {
+            Rocket rocket = (Rocket) entity;
+            values = new Object[]{Rocket.class, rocket.getName(), rocket.getCountry()};
+        } else if (entity instanceof User) {
+            values = new Object[]{User.class, ((User) entity).getEmail()};
+        } else if (entity instanceof LaunchServiceProvider) {
+            LaunchServiceProvider lsp = (LaunchServiceProvider) entity;
+            values = new Object[]{LaunchServiceProvider.class, lsp.getName(), lsp.getYearFounded(), lsp.getCountry()};
+        } else {
+            return null;
+        }
+        for (Object value : values) {
+            if (null == value) {
+                return null;
+            }
+        }
+        return Arrays.asList(values);
+    }
+
+    // Records the natural key the entity is stored under, dropping the one it had before
+    private void remember(Entity entity) {
+        if (null != entity.getId()) {
+            naturalKeys.remember(entity.getId(), naturalKey(entity));
+        }
+    }
+
+    private void forget(Entity entity) {
+        if (null != entity.getId()) {
+            naturalKeys.forget(entity.getId());
+        }
+    }
+
+    /**
+     * Forgets the node ids of all natural keys, so the next upserts look them up again.
+     */
+    public void clearCache() {
+        naturalKeys.clear();
+    }
+
+    // Detaches everything loaded or saved, so the session does not grow between units of work
+    void clearSession() {
+        session.clear();
+    }
+
     @Override
     public <T extends Entity> Collection<T> loadAll(Class<T> clazz) {
-        return session.loadAll(clazz);
+        Collection<T> entities = session.loadAll(clazz);
+        for (T entity : entities) {
+            remember(entity);
+        }
+        return entities;
     }
 
+    /**
+     * Streams the entities a page at a time, in the order of their node ids. Each page is
+     * found by the ids following the last id of the previous page, so paging does not slow
+     * down as it goes the way SKIP does, and is loaded at the same depth as {@link #loadAll(Class)}.
+     * <p>
+     * The session is cleared before each page is loaded, so the entities of earlier pages can
+     * be garbage collected once the consumer lets go of them. Entities loaded or saved through
+     * the session before streaming are detached from it too.
+     */
+    @Override
+    public <T extends Entity> Stream<T> stream(Class<T> clazz, int pageSize) {
+        isTrue(pageSize > 0, "page size must be positive");
+        Iterator<T> entities = new PageIterator<>(after -> loadPage(clazz, after, pageSize));
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(entities, Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    // The page of entities following the node id after, loaded once the session is cleared
+    <T extends Entity> Page<T> loadPage(Class<T> clazz, long after, int pageSize) {
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("after", after);
+        parameters.put("limit", pageSize);
+        List<Long> ids = new ArrayList<>(pageSize);
+        for (Map<String, Object> row : session.query(String.format(FIND_PAGE_IDS, clazz.getSimpleName()), parameters)) {
+            ids.add(((Number) row.get("id")).longValue());
+        }
+        if (ids.isEmpty()) {
+            return new Page<>(Collections.emptyList(), after, true);
+        }
+        session.clear();
+        return new Page<>(loadAllById(clazz, ids), ids.get(ids.size() - 1), ids.size() < pageSize);
+    }
+
+    // One page of a stream: its entities, the last node id it found, and whether it is the last page
+    static final class Page<T> {
+        private final List<T> entities;
+
+        private final long lastId;
+
+        private final boolean last;
+
+        private Page(List<T> entities, long lastId, boolean last) {
+            this.entities = entities;
+            this.lastId = lastId;
+            this.last = last;
+        }
+    }
+
+    // Iterates over the entities of one page after another, loading the next page when the current one is read
+    static final class PageIterator<T> implements Iterator<T> {
+        private final LongFunction<Page<T>> nextPage;
+
+        private long after = -1;
+
+        private Iterator<T> page = Collections.emptyIterator();
+
+        private boolean last;
+
+        PageIterator(LongFunction<Page<T>> nextPage) {
+            this.nextPage = nextPage;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!page.hasNext() && !last) {
+                Page<T> loaded = nextPage.apply(after);
+                page = loaded.entities.iterator();
+                after = loaded.lastId;
+                last = loaded.last;
+            }
+            return page.hasNext();
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return page.next();
+        }
+    }
+
+    /**
+     * Reads the fields straight from the nodes with one Cypher query, following each referred
+     * entity with an OPTIONAL MATCH, so no entities are built. Values are converted the way the
+     * mapper converts them when it loads an entity. Rows are in the order of the node ids.
+     *
+     * @throws IllegalArgumentException if a field is not a property of the entity or of a single entity it refers to.
+     */
+    @Override
+    public <T extends Entity> List<Object[]> loadProjection(Class<T> clazz, String... fields) {
+        notNull(fields, "fields cannot be null");
+        Fields resolved = new Fields(clazz);
+        StringJoiner columns = new StringJoiner(", ");
+        FieldInfo[] properties = new FieldInfo[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            columns.add(resolved.expression(fields[i]) + " AS c" + i);
+            properties[i] = resolved.property(fields[i]);
+        }
+        String cypher = "MATCH (n:" + clazz.getSimpleName() + ")" + resolved.optionalMatches()
+                + " RETURN " + columns + " ORDER BY id(n)";
+
+        List<Object[]> rows = new ArrayList<>();
+        for (Map<String, Object> result : session.query(cypher, Collections.emptyMap())) {
+            Object[] row = new Object[fields.length];
+            for (int i = 0; i < fields.length; i++) {
+                row[i] = toEntityValue(properties[i], result.get("c" + i));
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    /**
+     * Finds the ids of the matching nodes with one Cypher query and loads only those. Conditions
+     * on the entity's own properties are in the WHERE of its MATCH, so that an indexed property,
+     * such as the launch date, is looked up in its index. Conditions on referred entities are
+     * checked after following them.
+     * <p>
+     * Dates are stored as ISO strings, which sort as the dates do, and ids and unconverted
+     * properties are compared as they are. Other converted properties, such as enums, are only
+     * compared for equality in Cypher, and decimals, stored as strings, by their nearest double.
+     * Every condition is checked again on the loaded entities, and the limit is only applied in
+     * Cypher when all conditions and orders are exact there.
+     *
+     * @throws IllegalArgumentException if a field is not a property of the entity or of a single entity it refers to.
+     */
+    @Override
+    public <T extends Entity> List<T> find(Criteria<T> criteria) {
+        notNull(criteria, "criteria cannot be null");
+        Class<T> clazz = criteria.getEntityClass();
+        Fields resolved = new Fields(clazz);
+        Map<String, Object> parameters = new HashMap<>();
+        StringJoiner own = new StringJoiner(" AND ");
+        StringJoiner related = new StringJoiner(" AND ");
+        boolean exact = true;
+        for (Criteria.Condition condition : criteria.getConditions()) {
+            String predicate = predicate(resolved, condition, parameters);
+            if (null == predicate) {
+                exact = false;
+            } else {
+                (condition.getField().contains(".") ? related : own).add(predicate);
+                exact &= isExact(resolved.property(condition.getField()));
+            }
+        }
+        StringJoiner orders = new StringJoiner(", ");
+        for (Criteria.Order order : criteria.getOrders()) {
+            orders.add(resolved.expression(order.getField()) + (order.isDescending() ? " DESC" : ""));
+            exact &= isExact(resolved.property(order.getField()));
+        }
+        orders.add("id(n)");
+
+        StringBuilder cypher = new StringBuilder("MATCH (n:").append(clazz.getSimpleName()).append(")");
+        if (own.length() > 0) {
+            cypher.append(" WHERE ").append(own);
+        }
+        cypher.append(resolved.optionalMatches());
+        if (related.length() > 0) {
+            cypher.append(" WITH ").append(resolved.nodes()).append(" WHERE ").append(related);
+        }
+        cypher.append(" RETURN id(n) AS id ORDER BY ").append(orders);
+        if (exact && criteria.hasLimit()) {
+            cypher.append(" LIMIT $limit");
+            parameters.put("limit", criteria.getLimit());
+        }
+
+        Set<Long> ids = new LinkedHashSet<>();
+        for (Map<String, Object> row : session.query(cypher.toString(), parameters)) {
+            ids.add(((Number) row.get("id")).longValue());
+        }
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return criteria.apply(loadAllById(clazz, ids));
+    }
+
+    /**
+     * Loads the entities with the ids, in the order of the ids, leaving out ids of no entity of
+     * the class. The mapper returns what it loads as a set, which drops entities equal to
+     * another one, such as two launches of a rocket on the same day, so they are read back from
+     * the session by id instead.
+     *
+     * @param clazz the class of the entities
+     * @param ids the node ids of the entities
+     * @return the entities with the ids.
+     */
+    public <T extends Entity> List<T> loadAllById(Class<T> clazz, Collection<Long> ids) {
+        notNull(ids, "ids cannot be null");
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        session.loadAll(clazz, ids, DEPTH_ENTITY);
+        MappingContext context = ((Neo4jSession) session).context();
+        List<T> entities = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Object entity = context.getNodeEntity(id);
+            if (clazz.isInstance(entity)) {
+                T loaded = clazz.cast(entity);
+                remember(loaded);
+                entities.add(loaded);
+            }
+        }
+        return entities;
+    }
+
+    // The Cypher predicate for a condition, with its value added to the parameters, or null if it cannot be checked in Cypher
+    private static String predicate(Fields resolved, Criteria.Condition condition, Map<String, Object> parameters) {
+        String expression = resolved.expression(condition.getField());
+        FieldInfo property = resolved.property(condition.getField());
+        boolean decimal = null != property && BigDecimal.class.equals(property.type());
+        Criteria.Operator operator = condition.getOperator();
+        if (!decimal && !isExact(property) && operator != Criteria.Operator.EQUAL && operator != Criteria.Operator.IN) {
+            return null;
+        }
+        Object value;
+        if (operator == Criteria.Operator.IN) {
+            List<Object> values = new ArrayList<>();
+            for (Object allowed : (Collection<?>) condition.getValue()) {
+                Object graphValue = toGraphValue(property, allowed);
+                if (null == graphValue) {
+                    return null;
+                }
+                values.add(graphValue);
+            }
+            value = values;
+        } else {
+            value = toGraphValue(property, condition.getValue());
+            if (null == value) {
+                return null;
+            }
+        }
+        String name = "p" + parameters.size();
+        parameters.put(name, value);
+        if (decimal) {
+            // the nearest doubles of two decimals can be equal, so the bounds are not strict
+            expression = "toFloat(" + expression + ")";
+        }
+        switch (operator) {
+            case EQUAL:
+                return expression + " = $" + name;
+            case IN:
+                return expression + " IN $" + name;
+            case GREATER_THAN:
+                return expression + (decimal ? " >= $" : " > $") + name;
+            case AT_LEAST:
+                return expression + " >= $" + name;
+            case LESS_THAN:
+                return expression + (decimal ? " <= $" : " < $") + name;
+            default:
+                return expression + " <= $" + name;
+        }
+    }
+
+    // Whether Cypher compares and sorts the stored values of the property as Java does the field values
+    private static boolean isExact(FieldInfo property) {
+        return null == property || !property.hasPropertyConverter() || LocalDate.class.equals(property.type());
+    }
+
+    // The value as stored for the property, or null if it is not of the type of the property
+    private static Object toGraphValue(FieldInfo property, Object value) {
+        if (null == value) {
+            return null;
+        }
+        if (null == property) {
+            return value instanceof Number ? ((Number) value).longValue() : null;
+        }
+        if (BigDecimal.class.equals(property.type())) {
+            return value instanceof Number ? new BigDecimal(value.toString()).doubleValue() : null;
+        }
+        if (property.hasPropertyConverter()) {
+            return property.type().isInstance(value) ? converterOf(property).toGraphProperty(value) : null;
+        }
+        return value;
+    }
+
+    // The converter of a property, typed to take any value: callers pass values of the property type or as stored
+    @SuppressWarnings("unchecked")
+    private static AttributeConverter<Object, Object> converterOf(FieldInfo property) {
+        return (AttributeConverter<Object, Object>) property.getPropertyConverter();
+    }
+
+    // Resolves field names to Cypher expressions on n and on the nodes of the entities it refers to
+    private final class Fields {
+        private final Class<?> clazz;
+
+        private final MetaData metaData;
+
+        private final ClassInfo classInfo;
+
+        private final Map<String, String> nodePerRelationship = new LinkedHashMap<>();
+
+        private final StringBuilder optionalMatches = new StringBuilder();
+
+        private Fields(Class<?> clazz) {
+            this.clazz = clazz;
+            this.metaData = ((Neo4jSession) session).metaData();
+            this.classInfo = metaData.classInfo(clazz.getName());
+        }
+
+        // The expression of a field, following the entity it refers to on first use
+        private String expression(String field) {
+            String[] path = path(field);
+            String node = "n";
+            if (path.length == 2) {
+                FieldInfo relationship = relationship(path[0]);
+                node = nodePerRelationship.get(path[0]);
+                if (null == node) {
+                    node = "r" + nodePerRelationship.size();
+                    nodePerRelationship.put(path[0], node);
+                    boolean incoming = Relationship.INCOMING.equals(relationship.relationshipDirection(Relationship.OUTGOING));
+                    optionalMatches.append(" OPTIONAL MATCH (n)").append(incoming ? "<-[:" : "-[:")
+                            .append(relationship.relationshipType()).append(incoming ? "]-(" : "]->(")
+                            .append(node).append(")");
+                }
+            }
+            FieldInfo property = property(field);
+            return null == property ? "id(" + node + ")" : node + ".`" + property.property() + "`";
+        }
+
+        // The property of a field, or null for an id
+        private FieldInfo property(String field) {
+            String[] path = path(field);
+            ClassInfo owner = path.length == 2 ? metaData.classInfo(relationship(path[0]).type().getName()) : classInfo;
+            String name = path[path.length - 1];
+            if ("id".equals(name)) {
+                return null;
+            }
+            FieldInfo property = owner.propertyFieldByName(name);
+            isTrue(null != property, "No field %s in %s", field, clazz.getSimpleName());
+            return property;
+        }
+
+        private String[] path(String field) {
+            String[] path = field.split("\\.");
+            isTrue(path.length <= 2, "Cannot read %s, only fields of the entity or of one it refers to", field);
+            return path;
+        }
+
+        private FieldInfo relationship(String name) {
+            FieldInfo relationship = classInfo.relationshipFieldByName(name);
+            isTrue(null != relationship && !relationship.isIterable(),
+                    "No single related entity %s in %s", name, clazz.getSimpleName());
+            return relationship;
+        }
+
+        private String optionalMatches() {
+            return optionalMatches.toString();
+        }
+
+        // n and the nodes of the entities followed so far
+        private String nodes() {
+            StringJoiner nodes = new StringJoiner(", ");
+            nodes.add("n");
+            nodePerRelationship.values().forEach(nodes::add);
+            return nodes.toString();
+        }
+    }
+
+    // The value as the entity field holds it, e.g. a date rather than the string stored
+    private static Object toEntityValue(FieldInfo property, Object value) {
+        if (null == value || null == property) {
+            return value;
+        }
+        if (property.hasPropertyConverter()) {
+            return converterOf(property).toEntityAttribute(value);
+        }
+        Class<?> type = property.type();
+        if ((int.class.equals(type) || Integer.class.equals(type)) && value instanceof Number) {
+            return ((Number) value).intValue();
+        }
+        return value;
+    }
 
     @Override
     public <T extends Entity> void delete(T entity) {
+        forget(entity);
         session.delete(entity);
     }
 }
@@ -0,0 +1,189 @@
+package rockets.dataaccess.neo4j;
+
+import org.neo4j.ogm.session.SessionFactory;
+import rockets.dataaccess.Criteria;
+import rockets.dataaccess.DAO;
+import rockets.model.Entity;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import static org.apache.commons.lang3.Validate.isTrue;
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * A {@link Neo4jDAO} that any number of threads can call at once.
+ * <p>
+ * OGM sessions are not safe for concurrent use, so each call borrows a session of its own
+ * from a pool, opened from the session factory as needed up to the pool size. A call made
+ * while every session is in use waits for one to be returned. A session is cleared when it
+ * is returned, so no session keeps what earlier calls loaded. A thread that is already
+ * using a session, e.g. within {@link #inSession(Function)}, uses the same one again.
+ * <p>
+ * The node ids of natural keys are shared by all sessions. Two threads saving new entities
+ * with the same natural key at the same time can still create two nodes, as there is no
+ * unique constraint on the keys.
+ */
+public class PooledNeo4jDAO implements DAO {
+    private final SessionFactory sessionFactory;
+
+    private final int batchSize;
+
+    private final int poolSize;
+
+    private final NaturalKeyCache naturalKeys = new NaturalKeyCache();
+
+    private final BlockingQueue<Neo4jDAO> idle;
+
+    private final AtomicInteger opened = new AtomicInteger();
+
+    private final ThreadLocal<Neo4jDAO> current = new ThreadLocal<>();
+
+    public PooledNeo4jDAO(SessionFactory sessionFactory, int poolSize) {
+        this(sessionFactory, poolSize, Neo4jDAO.DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Creates the indexes on the natural keys of the entities, if they do not exist yet.
+     *
+     * @param sessionFactory the factory to open sessions from
+     * @param poolSize the most sessions open at once
+     * @param batchSize the number of entities {@link #createOrUpdateAll(Collection)} writes per transaction
+     */
+    public PooledNeo4jDAO(SessionFactory sessionFactory, int poolSize, int batchSize) {
+        notNull(sessionFactory, "session factory cannot be null");
+        isTrue(poolSize > 0, "pool size must be positive");
+        isTrue(batchSize > 0, "batch size must be positive");
+        this.sessionFactory = sessionFactory;
+        this.poolSize = poolSize;
+        this.batchSize = batchSize;
+        this.idle = new ArrayBlockingQueue<>(poolSize);
+        withSession(dao -> {
+            dao.createIndexes();
+            return null;
+        });
+    }
+
+    /**
+     * Runs a unit of work on one session, borrowed for the whole unit and cleared afterwards,
+     * so the entities it loads are the same objects throughout.
+     *
+     * @param work the work, given a DAO on the borrowed session
+     * @return the result of the work.
+     */
+    public <R> R inSession(Function<DAO, R> work) {
+        return withSession(work::apply);
+    }
+
+    private <R> R withSession(Function<Neo4jDAO, R> work) {
+        Neo4jDAO dao = current.get();
+        if (null != dao) {
+            return work.apply(dao);
+        }
+        dao = borrow();
+        current.set(dao);
+        try {
+            return work.apply(dao);
+        } finally {
+            current.remove();
+            giveBack(dao);
+        }
+    }
+
+    private Neo4jDAO borrow() {
+        Neo4jDAO dao = idle.poll();
+        if (null != dao) {
+            return dao;
+        }
+        for (int count = opened.get(); count < poolSize; count = opened.get()) {
+            if (opened.compareAndSet(count, count + 1)) {
+                return new Neo4jDAO(sessionFactory.openSession(), batchSize, naturalKeys);
+            }
+        }
+        try {
+            return idle.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a session", e);
+        }
+    }
+
+    private void giveBack(Neo4jDAO dao) {
+        dao.clearSession();
+        idle.add(dao);
+    }
+
+    @Override
+    public <T extends Entity> T load(Class<T> clazz, Long id) {
+        return inSession(dao -> dao.load(clazz, id));
+    }
+
+    @Override
+    public <T extends Entity> Collection<T> loadAll(Class<T> clazz) {
+        return inSession(dao -> dao.loadAll(clazz));
+    }
+
+    @Override
+    public <T extends Entity> T createOrUpdate(T entity) {
+        return inSession(dao -> dao.createOrUpdate(entity));
+    }
+
+    @Override
+    public <T extends Entity> List<T> createOrUpdateAll(Collection<T> entities) {
+        return inSession(dao -> dao.createOrUpdateAll(entities));
+    }
+
+    @Override
+    public <T extends Entity> void delete(T entity) {
+        inSession(dao -> {
+            dao.delete(entity);
+            return null;
+        });
+    }
+
+    @Override
+    public <T extends Entity> List<Object[]> loadProjection(Class<T> clazz, String... fields) {
+        return inSession(dao -> dao.loadProjection(clazz, fields));
+    }
+
+    @Override
+    public <T extends Entity> List<T> find(Criteria<T> criteria) {
+        return inSession(dao -> dao.find(criteria));
+    }
+
+    /**
+     * Streams the entities as {@link Neo4jDAO#stream(Class, int)} does. Each page is loaded
+     * on a session borrowed for that page alone, or on the session of the unit of work the
+     * stream is read in, so the stream holds no session between pages: it can be left
+     * unread, and read on another thread, without keeping a session from the pool.
+     */
+    @Override
+    public <T extends Entity> Stream<T> stream(Class<T> clazz, int pageSize) {
+        isTrue(pageSize > 0, "page size must be positive");
+        Iterator<T> entities = new Neo4jDAO.PageIterator<>(after -> withSession(dao -> dao.loadPage(clazz, after, pageSize)));
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(entities, Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    /**
+     * Forgets the node ids of all natural keys, so the next upserts look them up again.
+     */
+    public void clearCache() {
+        naturalKeys.clear();
+    }
+
+    /**
+     * @return the number of sessions opened so far, at most the pool size.
+     */
+    public int getOpenSessions() {
+        return opened.get();
+    }
+}
@@ -0,0 +1,77 @@
+package rockets.dataaccess.snapshot;
+
+import rockets.dataaccess.EntitySink;
+import rockets.model.Entity;
+import rockets.model.Launch;
+import rockets.model.LaunchServiceProvider;
+import rockets.model.Rocket;
+import rockets.model.User;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * The entities rebuilt from a snapshot, in the order they were written.
+ * <p>
+ * They are loaded into an in-memory DAO with {@link #loadInto(EntitySink)}, for a
+ * {@link rockets.mining.RocketMiner} on it; or the miner's indexes are built from them
+ * directly, e.g. a {@link rockets.mining.LaunchSnapshot} from the launches and providers.
+ */
+public final class Snapshot {
+    private final List<LaunchServiceProvider> launchServiceProviders;
+
+    private final List<Rocket> rockets;
+
+    private final List<Launch> launches;
+
+    private final List<User> users;
+
+    Snapshot(List<LaunchServiceProvider> launchServiceProviders, List<Rocket> rockets, List<Launch> launches, List<User> users) {
+        this.launchServiceProviders = Collections.unmodifiableList(launchServiceProviders);
+        this.rockets = Collections.unmodifiableList(rockets);
+        this.launches = Collections.unmodifiableList(launches);
+        this.users = Collections.unmodifiableList(users);
+    }
+
+    public List<LaunchServiceProvider> getLaunchServiceProviders() {
+        return launchServiceProviders;
+    }
+
+    public List<Rocket> getRockets() {
+        return rockets;
+    }
+
+    public List<Launch> getLaunches() {
+        return launches;
+    }
+
+    /**
+     * @return the users, without their passwords.
+     */
+    public List<User> getUsers() {
+        return users;
+    }
+
+    /**
+     * Saves all entities to a DAO, or other sink, as new entities. Their ids, which are those
+     * of the store the snapshot was written from, are cleared first, and the DAO gives them
+     * its own.
+     *
+     * @param sink the DAO, or other sink, to save to
+     */
+    public void loadInto(EntitySink sink) {
+        notNull(sink, "sink cannot be null");
+        for (List<? extends Entity> entities : Arrays.asList(launchServiceProviders, rockets, launches, users)) {
+            for (Entity entity : entities) {
+                entity.setId(null);
+            }
+        }
+        sink.createOrUpdateAll(launchServiceProviders);
+        sink.createOrUpdateAll(rockets);
+        sink.createOrUpdateAll(launches);
+        sink.createOrUpdateAll(users);
+    }
+}
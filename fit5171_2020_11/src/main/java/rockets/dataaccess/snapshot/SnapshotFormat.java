@@ -0,0 +1,50 @@
+package rockets.dataaccess.snapshot;
+
+/**
+ * The layout of a snapshot file, version 1.
+ * <p>
+ * The file starts with {@link #MAGIC} and the version byte, followed by records, each a tag
+ * byte and its fields, and ends with an {@link #END} record holding the number of records
+ * of each kind, so a truncated file is told from a complete one.
+ * <p>
+ * Integers are variable-length, seven bits a byte, low bits first, and signed ones are
+ * zigzag-encoded first. A string is the number of the string in the file plus one, 0 for
+ * null; the first time a string appears, its number is followed by its length and UTF-8
+ * bytes. An entity refers to another by the number of its record among the records of its
+ * kind plus one, 0 for none, and the record referred to comes first. An id is the id of
+ * the entity plus one, 0 for none. Dates are epoch days, and prices their unscaled value
+ * and scale.
+ */
+final class SnapshotFormat {
+    static final int MAGIC = 0x524B5453;
+
+    static final byte VERSION = 1;
+
+    static final byte END = 0;
+
+    // id, name, yearFounded (signed), country, headquarters, wikilink
+    static final byte PROVIDER = 1;
+
+    // id, name, country, manufacturer, massToLEO, massToGTO, massToOther, wikilink
+    static final byte ROCKET = 2;
+
+    // provider, number of rockets, rockets; after the rockets, as they refer to the provider
+    static final byte PROVIDER_ROCKETS = 3;
+
+    // id, flags, launchDate if flagged (signed), launchVehicle, launchServiceProvider,
+    // launchSite, orbit, function, price unscaled (signed) and scale (signed) if flagged, wikilink
+    static final byte LAUNCH = 4;
+
+    // id, firstName, lastName, email, wikilink; never the password
+    static final byte USER = 5;
+
+    // the flags of a launch: whether it has a date and a price, and its outcome's ordinal plus one
+    static final int HAS_DATE = 1;
+
+    static final int HAS_PRICE = 2;
+
+    static final int OUTCOME_SHIFT = 2;
+
+    private SnapshotFormat() {
+    }
+}
@@ -0,0 +1,278 @@
+package rockets.dataaccess.snapshot;
+
+import rockets.model.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.apache.commons.lang3.Validate.isTrue;
+import static org.apache.commons.lang3.Validate.notNull;
+import static rockets.dataaccess.snapshot.SnapshotFormat.*;
+
+/**
+ * Rebuilds the entities of a snapshot written by a {@link SnapshotWriter}.
+ * <p>
+ * The file is mapped into memory and decoded in one pass: numbers are read as they are
+ * stored, each distinct string is decoded once, and references are resolved by position,
+ * so no field is parsed from text and nothing is looked up by key. The entities are built
+ * through their constructors and setters, with the ids they were written with, and refer
+ * to each other as they did when written.
+ * <p>
+ * Snapshots of up to 2 GB can be read.
+ */
+public final class SnapshotReader {
+    private static final Launch.LaunchOutcome[] OUTCOMES = Launch.LaunchOutcome.values();
+
+    private final ByteBuffer buffer;
+
+    private final List<String> strings = new ArrayList<>();
+
+    private final List<LaunchServiceProvider> providers = new ArrayList<>();
+
+    private final List<Rocket> rockets = new ArrayList<>();
+
+    private final List<Launch> launches = new ArrayList<>();
+
+    private final List<User> users = new ArrayList<>();
+
+    private SnapshotReader(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    /**
+     * @param file the snapshot
+     * @return the entities of the snapshot.
+     * @throws IllegalArgumentException if the file is not a snapshot, or of a version this reader does not know.
+     * @throws IllegalStateException if the snapshot is incomplete or inconsistent.
+     */
+    public static Snapshot read(File file) {
+        notNull(file, "file cannot be null");
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            isTrue(size <= Integer.MAX_VALUE, "%s is too large to map", file);
+            return read(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @param buffer the snapshot, from its position to its limit
+     * @return the entities of the snapshot.
+     */
+    public static Snapshot read(ByteBuffer buffer) {
+        notNull(buffer, "buffer cannot be null");
+        try {
+            return new SnapshotReader(buffer.slice()).readAll();
+        } catch (BufferUnderflowException e) {
+            throw new IllegalStateException("The snapshot ends before its last record", e);
+        }
+    }
+
+    private Snapshot readAll() {
+        isTrue(buffer.remaining() >= 5 && buffer.getInt() == MAGIC, "Not a snapshot");
+        byte version = buffer.get();
+        isTrue(version == VERSION, "Cannot read snapshots of version %d, only of version %d", version, VERSION);
+        while (true) {
+            byte tag = buffer.get();
+            switch (tag) {
+                case PROVIDER:
+                    readProvider();
+                    break;
+                case ROCKET:
+                    readRocket();
+                    break;
+                case PROVIDER_ROCKETS:
+                    readProviderRockets();
+                    break;
+                case LAUNCH:
+                    readLaunch();
+                    break;
+                case USER:
+                    readUser();
+                    break;
+                case END:
+                    checkCount("providers", providers.size());
+                    checkCount("rockets", rockets.size());
+                    checkCount("launches", launches.size());
+                    checkCount("users", users.size());
+                    return new Snapshot(providers, rockets, launches, users);
+                default:
+                    throw new IllegalStateException("Unknown record " + tag + " at byte " + (buffer.position() - 1));
+            }
+        }
+    }
+
+    private void checkCount(String records, int read) {
+        long written = readUnsigned();
+        if (written != read) {
+            throw new IllegalStateException(String.format("The snapshot has %d %s, %d written", read, records, written));
+        }
+    }
+
+    private void readProvider() {
+        Long id = readId();
+        String name = readString();
+        int yearFounded = (int) readSigned();
+        LaunchServiceProvider provider = new LaunchServiceProvider(name, yearFounded, readString());
+        provider.setId(id);
+        String headquarters = readString();
+        if (null != headquarters) {
+            provider.setHeadquarters(headquarters);
+        }
+        provider.setWikilink(readString());
+        providers.add(provider);
+    }
+
+    private void readRocket() {
+        Long id = readId();
+        String name = readString();
+        String country = readString();
+        Rocket rocket = new Rocket(name, country, reference(providers, "provider"));
+        rocket.setId(id);
+        String mass = readString();
+        if (null != mass) {
+            rocket.setMassToLEO(mass);
+        }
+        mass = readString();
+        if (null != mass) {
+            rocket.setMassToGTO(mass);
+        }
+        mass = readString();
+        if (null != mass) {
+            rocket.setMassToOther(mass);
+        }
+        rocket.setWikilink(readString());
+        rockets.add(rocket);
+    }
+
+    private void readProviderRockets() {
+        LaunchServiceProvider provider = reference(providers, "provider");
+        int count = (int) readUnsigned();
+        for (int i = 0; i < count; i++) {
+            provider.getRockets().add(reference(rockets, "rocket"));
+        }
+    }
+
+    private void readLaunch() {
+        Launch launch = new Launch();
+        launch.setId(readId());
+        int flags = buffer.get();
+        if ((flags & HAS_DATE) != 0) {
+            launch.setLaunchDate(LocalDate.ofEpochDay(readSigned()));
+        }
+        Rocket vehicle = reference(rockets, "rocket");
+        if (null != vehicle) {
+            launch.setLaunchVehicle(vehicle);
+        }
+        LaunchServiceProvider provider = reference(providers, "provider");
+        if (null != provider) {
+            launch.setLaunchServiceProvider(provider);
+        }
+        String value = readString();
+        if (null != value) {
+            launch.setLaunchSite(value);
+        }
+        value = readString();
+        if (null != value) {
+            launch.setOrbit(value);
+        }
+        value = readString();
+        if (null != value) {
+            launch.setFunction(value);
+        }
+        if ((flags & HAS_PRICE) != 0) {
+            long unscaled = readSigned();
+            launch.setPrice(BigDecimal.valueOf(unscaled, (int) readSigned()));
+        }
+        int outcome = flags >>> OUTCOME_SHIFT;
+        if (outcome > 0) {
+            launch.setLaunchOutcome(OUTCOMES[outcome - 1]);
+        }
+        launch.setWikilink(readString());
+        launches.add(launch);
+    }
+
+    private void readUser() {
+        User user = new User();
+        user.setId(readId());
+        String value = readString();
+        if (null != value) {
+            user.setFirstName(value);
+        }
+        value = readString();
+        if (null != value) {
+            user.setLastName(value);
+        }
+        value = readString();
+        if (null != value) {
+            user.setEmail(value);
+        }
+        user.setWikilink(readString());
+        users.add(user);
+    }
+
+    // The entity a reference is to, or null for none
+    private <T> T reference(List<T> written, String kind) {
+        long number = readUnsigned();
+        if (number == 0) {
+            return null;
+        }
+        if (number > written.size()) {
+            throw new IllegalStateException("Reference to " + kind + " " + (number - 1) + " before it is written");
+        }
+        return written.get((int) number - 1);
+    }
+
+    private Long readId() {
+        long id = readUnsigned();
+        return id == 0 ? null : id - 1;
+    }
+
+    private String readString() {
+        long number = readUnsigned();
+        if (number == 0) {
+            return null;
+        }
+        if (number <= strings.size()) {
+            return strings.get((int) number - 1);
+        }
+        if (number != strings.size() + 1) {
+            throw new IllegalStateException("String " + (number - 1) + " used before it is written");
+        }
+        byte[] bytes = new byte[(int) readUnsigned()];
+        buffer.get(bytes);
+        String value = new String(bytes, StandardCharsets.UTF_8);
+        strings.add(value);
+        return value;
+    }
+
+    private long readSigned() {
+        long value = readUnsigned();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private long readUnsigned() {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+            if (shift > 56) {
+                throw new IllegalStateException("Malformed number at byte " + buffer.position());
+            }
+        }
+    }
+}
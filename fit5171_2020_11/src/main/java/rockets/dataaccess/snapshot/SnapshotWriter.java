@@ -0,0 +1,304 @@
+package rockets.dataaccess.snapshot;
+
+import rockets.dataaccess.DAO;
+import rockets.model.*;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.stream.Stream;
+
+import static org.apache.commons.lang3.Validate.isTrue;
+import static org.apache.commons.lang3.Validate.notNull;
+import static rockets.dataaccess.snapshot.SnapshotFormat.*;
+
+/**
+ * Writes launches, rockets, launch service providers and users to a compact binary
+ * snapshot, one record at a time, for a {@link SnapshotReader} to rebuild them from. The
+ * layout is described in {@link SnapshotFormat}; passwords are never written.
+ * <p>
+ * Writing an entity writes the entities it refers to first, if they are not written yet.
+ * Providers, rockets and users are written once each, told apart by id, or by identity if
+ * they have none. Launches are not referred to, so they are not remembered: each launch
+ * written is a record. The strings written are kept to encode each one once, and the
+ * entities only by their number.
+ */
+public class SnapshotWriter implements AutoCloseable {
+    private final DataOutputStream out;
+
+    // the number of each string written, in order of first appearance
+    private final Map<String, Integer> strings = new HashMap<>();
+
+    // the number of each entity written that others may refer to, by class and id
+    private final Map<List<Object>, Integer> numbersById = new HashMap<>();
+
+    // the same for entities without an id
+    private final Map<Entity, Integer> numbersByIdentity = new IdentityHashMap<>();
+
+    private int providers;
+
+    private int rockets;
+
+    private long launches;
+
+    private int users;
+
+    private boolean closed;
+
+    /**
+     * @param out the stream to write to, closed with the writer
+     */
+    public SnapshotWriter(OutputStream out) {
+        notNull(out, "out cannot be null");
+        this.out = new DataOutputStream(new BufferedOutputStream(out, 1 << 16));
+        try {
+            this.out.writeInt(MAGIC);
+            this.out.writeByte(VERSION);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes the snapshot of all entities of a DAO to a file, reading each class a page at a time.
+     *
+     * @param source the DAO to read from
+     * @param file the file to write to, replaced if it exists
+     * @param pageSize the number of entities read at a time
+     */
+    public static void write(DAO source, File file, int pageSize) {
+        notNull(source, "source cannot be null");
+        notNull(file, "file cannot be null");
+        try (SnapshotWriter writer = new SnapshotWriter(new FileOutputStream(file))) {
+            writer.writeAll(source, pageSize);
+        } catch (FileNotFoundException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes all entities of a DAO, reading each class a page at a time.
+     *
+     * @param source the DAO to read from
+     * @param pageSize the number of entities read at a time
+     */
+    public void writeAll(DAO source, int pageSize) {
+        notNull(source, "source cannot be null");
+        isTrue(pageSize > 0, "page size must be positive");
+        for (Class<? extends Entity> clazz : Arrays.asList(LaunchServiceProvider.class, Rocket.class, Launch.class, User.class)) {
+            try (Stream<? extends Entity> entities = source.stream(clazz, pageSize)) {
+                entities.forEach(this::write);
+            }
+        }
+    }
+
+    /**
+     * Writes an entity, after the entities it refers to that were not written yet.
+     *
+     * @param entity the launch, rocket, launch service provider or user to write
+     */
+    public synchronized void write(Entity entity) {
+        notNull(entity, "entity cannot be null");
+        if (closed) {
+            throw new IllegalStateException("The snapshot is closed");
+        }
+        try {
+            if (entity instanceof Launch) {
+                writeLaunch((Launch) entity);
+            } else {
+                numberOf(entity);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // The number of the record of a provider, rocket or user, writing it first if it is not written yet
+    private int numberOf(Entity entity) throws IOException {
+        Integer number = written(entity);
+        if (null != number) {
+            return number;
+        }
+        if (entity instanceof LaunchServiceProvider) {
+            return writeProvider((LaunchServiceProvider) entity);
+        }
+        if (entity instanceof Rocket) {
+            return writeRocket((Rocket) entity);
+        }
+        if (entity instanceof User) {
+            return writeUser((User) entity);
+        }
+        throw new IllegalArgumentException("Cannot write a " + entity.getClass().getSimpleName() + " to a snapshot");
+    }
+
+    // The number of the record of an entity, or null if it is not written yet
+    private Integer written(Entity entity) {
+        return null == entity.getId()
+                ? numbersByIdentity.get(entity)
+                : numbersById.get(Arrays.asList(entity.getClass(), entity.getId()));
+    }
+
+    private void remember(Entity entity, int number) {
+        if (null == entity.getId()) {
+            numbersByIdentity.put(entity, number);
+        } else {
+            numbersById.put(Arrays.asList(entity.getClass(), entity.getId()), number);
+        }
+    }
+
+    private int writeProvider(LaunchServiceProvider provider) throws IOException {
+        int number = providers++;
+        // known before its rockets are written, as they refer back to it
+        remember(provider, number);
+        out.writeByte(PROVIDER);
+        writeId(provider);
+        writeString(provider.getName());
+        writeSigned(provider.getYearFounded());
+        writeString(provider.getCountry());
+        writeString(provider.getHeadquarters());
+        writeString(provider.getWikilink());
+        Set<Rocket> providerRockets = null == provider.getRockets() ? Collections.emptySet() : provider.getRockets();
+        int[] rocketNumbers = new int[providerRockets.size()];
+        int i = 0;
+        for (Rocket rocket : providerRockets) {
+            rocketNumbers[i++] = numberOf(rocket);
+        }
+        if (rocketNumbers.length > 0) {
+            out.writeByte(PROVIDER_ROCKETS);
+            writeUnsigned(number + 1);
+            writeUnsigned(rocketNumbers.length);
+            for (int rocketNumber : rocketNumbers) {
+                writeUnsigned(rocketNumber + 1);
+            }
+        }
+        return number;
+    }
+
+    private int writeRocket(Rocket rocket) throws IOException {
+        // a rocket cannot be rebuilt without one
+        notNull(rocket.getManufacturer(), "Rocket %s has no manufacturer", rocket.getName());
+        int manufacturer = numberOf(rocket.getManufacturer());
+        // the manufacturer writes its rockets, which may include this one
+        Integer written = written(rocket);
+        if (null != written) {
+            return written;
+        }
+        int number = rockets++;
+        remember(rocket, number);
+        out.writeByte(ROCKET);
+        writeId(rocket);
+        writeString(rocket.getName());
+        writeString(rocket.getCountry());
+        writeUnsigned(manufacturer + 1);
+        writeString(rocket.getMassToLEO());
+        writeString(rocket.getMassToGTO());
+        writeString(rocket.getMassToOther());
+        writeString(rocket.getWikilink());
+        return number;
+    }
+
+    private void writeLaunch(Launch launch) throws IOException {
+        int vehicle = null == launch.getLaunchVehicle() ? -1 : numberOf(launch.getLaunchVehicle());
+        int provider = null == launch.getLaunchServiceProvider() ? -1 : numberOf(launch.getLaunchServiceProvider());
+        BigDecimal price = launch.getPrice();
+        if (null != price && price.unscaledValue().bitLength() > 63) {
+            price = price.stripTrailingZeros();
+            isTrue(price.unscaledValue().bitLength() <= 63, "Price %s has too many digits for a snapshot", launch.getPrice());
+        }
+        int flags = (null == launch.getLaunchDate() ? 0 : HAS_DATE)
+                | (null == price ? 0 : HAS_PRICE)
+                | (null == launch.getLaunchOutcome() ? 0 : launch.getLaunchOutcome().ordinal() + 1) << OUTCOME_SHIFT;
+        launches++;
+        out.writeByte(LAUNCH);
+        writeId(launch);
+        out.writeByte(flags);
+        if (null != launch.getLaunchDate()) {
+            writeSigned(launch.getLaunchDate().toEpochDay());
+        }
+        writeUnsigned(vehicle + 1);
+        writeUnsigned(provider + 1);
+        writeString(launch.getLaunchSite());
+        writeString(launch.getOrbit());
+        writeString(launch.getFunction());
+        if (null != price) {
+            writeSigned(price.unscaledValue().longValue());
+            writeSigned(price.scale());
+        }
+        writeString(launch.getWikilink());
+    }
+
+    private int writeUser(User user) throws IOException {
+        int number = users++;
+        remember(user, number);
+        out.writeByte(USER);
+        writeId(user);
+        writeString(user.getFirstName());
+        writeString(user.getLastName());
+        writeString(user.getEmail());
+        writeString(user.getWikilink());
+        return number;
+    }
+
+    private void writeId(Entity entity) throws IOException {
+        writeUnsigned(null == entity.getId() ? 0 : entity.getId() + 1);
+    }
+
+    private void writeString(String value) throws IOException {
+        if (null == value) {
+            writeUnsigned(0);
+            return;
+        }
+        Integer number = strings.get(value);
+        if (null != number) {
+            writeUnsigned(number + 1);
+            return;
+        }
+        number = strings.size();
+        strings.put(value, number);
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeUnsigned(number + 1);
+        writeUnsigned(bytes.length);
+        out.write(bytes);
+    }
+
+    private void writeSigned(long value) throws IOException {
+        writeUnsigned((value << 1) ^ (value >> 63));
+    }
+
+    private void writeUnsigned(long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    /**
+     * @return the number of launches written so far.
+     */
+    public synchronized long getLaunchesWritten() {
+        return launches;
+    }
+
+    /**
+     * Ends the snapshot and closes the stream. Nothing can be written after.
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            out.writeByte(END);
+            writeUnsigned(providers);
+            writeUnsigned(rockets);
+            writeUnsigned(launches);
+            writeUnsigned(users);
+            out.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package rockets.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.apache.commons.lang3.Validate.isTrue;
+
+/**
+ * Counts non-negative values, such as latencies in nanoseconds, in buckets whose width
+ * grows with the value, as HdrHistogram does. Values below 128 have a bucket each; above,
+ * each power of two is split into 64 buckets, so a value is known to within 1/64 of
+ * itself, about two significant digits, over the whole range of a long.
+ * <p>
+ * Recording takes no lock: it increments one counter of an atomic array and updates the
+ * sum and the extremes, which are striped across threads. A value recorded while a
+ * snapshot is taken may be in it or not, and the sum and extremes of a snapshot may be a
+ * value ahead of or behind its counts.
+ */
+public class Histogram {
+    private static final int SUB_BUCKET_BITS = 7;
+
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private static final int HALF_SUB_BUCKETS = SUB_BUCKETS / 2;
+
+    // the bucket of Long.MAX_VALUE is the last one
+    static final int BUCKETS = bucketOf(Long.MAX_VALUE) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    private final LongAdder sum = new LongAdder();
+
+    private final LongAccumulator min = new LongAccumulator(Math::min, Long.MAX_VALUE);
+
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * @param value the value to count
+     * @throws IllegalArgumentException if the value is negative.
+     */
+    public void record(long value) {
+        isTrue(value >= 0, "value cannot be negative");
+        counts.incrementAndGet(bucketOf(value));
+        sum.add(value);
+        min.accumulate(value);
+        max.accumulate(value);
+    }
+
+    /**
+     * @return the values counted so far.
+     */
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            copy[i] = counts.get(i);
+        }
+        return new Snapshot(copy, sum.sum(), min.get(), max.get());
+    }
+
+    /**
+     * Takes the values counted so far and starts counting from none, so each value
+     * recorded is in exactly one snapshot.
+     *
+     * @return the values counted since the last reset.
+     */
+    public Snapshot snapshotAndReset() {
+        long[] copy = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            copy[i] = counts.getAndSet(i, 0);
+        }
+        return new Snapshot(copy, sum.sumThenReset(), min.getThenReset(), max.getThenReset());
+    }
+
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 64 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        int top = (int) (value >>> shift);
+        return SUB_BUCKETS + (shift - 1) * HALF_SUB_BUCKETS + (top - HALF_SUB_BUCKETS);
+    }
+
+    // The largest value counted in a bucket
+    static long highestValueIn(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = (bucket - SUB_BUCKETS) / HALF_SUB_BUCKETS + 1;
+        long top = (bucket - SUB_BUCKETS) % HALF_SUB_BUCKETS + HALF_SUB_BUCKETS;
+        return ((top + 1) << shift) - 1;
+    }
+
+    /**
+     * The values counted up to a point in time.
+     */
+    public static final class Snapshot {
+        private final long[] counts;
+
+        private final long count;
+
+        private final long sum;
+
+        private final long min;
+
+        private final long max;
+
+        private Snapshot(long[] counts, long sum, long min, long max) {
+            long count = 0;
+            for (long bucketCount : counts) {
+                count += bucketCount;
+            }
+            this.counts = counts;
+            this.count = count;
+            this.sum = sum;
+            this.min = count == 0 ? 0 : min;
+            this.max = count == 0 ? 0 : max;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getMin() {
+            return min;
+        }
+
+        public long getMax() {
+            return max;
+        }
+
+        /**
+         * @return the mean of the values, or 0 if there are none.
+         */
+        public double getMean() {
+            return count == 0 ? 0 : (double) sum / count;
+        }
+
+        /**
+         * @param percentile the percentage of values, from 0 to 100
+         * @return the value that the given percentage of values is at or below, to within
+         * the width of its bucket, or 0 if there are no values.
+         */
+        public long getValueAtPercentile(double percentile) {
+            isTrue(percentile >= 0 && percentile <= 100, "percentile must be between 0 and 100");
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.max(min, Math.min(max, highestValueIn(i)));
+                }
+            }
+            return max;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("count=%d min=%d p50=%d p90=%d p99=%d p999=%d max=%d mean=%.1f", count, min,
+                    getValueAtPercentile(50), getValueAtPercentile(90), getValueAtPercentile(99),
+                    getValueAtPercentile(99.9), max, getMean());
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package rockets.metrics;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Objects;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.stream.BaseStream;
+
+import static org.apache.commons.lang3.Validate.notEmpty;
+
+/**
+ * Records the calls of operations, split by operation and entity class: how many there
+ * were, how many failed, how long they took and how many results they returned.
+ * <p>
+ * Operations are named by the caller, and reported as the name alone or, with an entity
+ * class, as {@code "loadAll:Launch"}. Recording takes no lock once an operation has been
+ * recorded before. Latencies are in nanoseconds, and include failed calls.
+ */
+public class Metrics {
+    private final ConcurrentMap<Key, OperationMetrics> operations = new ConcurrentHashMap<>();
+
+    /**
+     * Calls an operation and records it. The result size is that of a collection or map,
+     * 1 for any other result and 0 for none; streams are not counted, as that would
+     * consume them.
+     *
+     * @param operation the name of the operation
+     * @param entityClass the class of the entities the operation is on, or null if none
+     * @param call the operation
+     * @return the result of the operation.
+     */
+    public <R> R measure(String operation, Class<?> entityClass, Supplier<R> call) {
+        OperationMetrics metrics = forOperation(operation, entityClass);
+        long start = System.nanoTime();
+        R result;
+        try {
+            result = call.get();
+        } catch (RuntimeException | Error e) {
+            metrics.recordFailure(System.nanoTime() - start);
+            throw e;
+        }
+        metrics.recordSuccess(System.nanoTime() - start, sizeOf(result));
+        return result;
+    }
+
+    /**
+     * Calls an operation without a result and records it.
+     *
+     * @see #measure(String, Class, Supplier)
+     */
+    public void measure(String operation, Class<?> entityClass, Runnable call) {
+        measure(operation, entityClass, () -> {
+            call.run();
+            return null;
+        });
+    }
+
+    private OperationMetrics forOperation(String operation, Class<?> entityClass) {
+        Key key = new Key(operation, entityClass);
+        // a get first, as computeIfAbsent locks even when present
+        OperationMetrics metrics = operations.get(key);
+        return null != metrics ? metrics : operations.computeIfAbsent(key, x -> new OperationMetrics());
+    }
+
+    private static long sizeOf(Object result) {
+        if (null == result) {
+            return 0;
+        } else if (result instanceof Collection) {
+            return ((Collection<?>) result).size();
+        } else if (result instanceof Map) {
+            return ((Map<?, ?>) result).size();
+        } else if (result instanceof BaseStream) {
+            return -1;
+        }
+        return 1;
+    }
+
+    /**
+     * @return what has been recorded of each operation, by name.
+     */
+    public SortedMap<String, OperationMetrics.Snapshot> snapshot() {
+        SortedMap<String, OperationMetrics.Snapshot> snapshots = new TreeMap<>();
+        for (Map.Entry<Key, OperationMetrics> entry : operations.entrySet()) {
+            snapshots.put(entry.getKey().toString(), entry.getValue().snapshot(false));
+        }
+        return snapshots;
+    }
+
+    /**
+     * Takes what has been recorded of each operation and starts recording from nothing, so
+     * each call is in exactly one snapshot.
+     *
+     * @return what has been recorded of each operation since the last reset, by name.
+     */
+    public SortedMap<String, OperationMetrics.Snapshot> snapshotAndReset() {
+        SortedMap<String, OperationMetrics.Snapshot> snapshots = new TreeMap<>();
+        for (Map.Entry<Key, OperationMetrics> entry : operations.entrySet()) {
+            snapshots.put(entry.getKey().toString(), entry.getValue().snapshot(true));
+        }
+        return snapshots;
+    }
+
+    /**
+     * The calls of one operation on one entity class.
+     */
+    public static final class OperationMetrics {
+        private final LongAdder calls = new LongAdder();
+
+        private final LongAdder failures = new LongAdder();
+
+        private final Histogram latencies = new Histogram();
+
+        private final Histogram resultSizes = new Histogram();
+
+        private OperationMetrics() {
+        }
+
+        private void recordSuccess(long nanos, long resultSize) {
+            calls.increment();
+            latencies.record(Math.max(0, nanos));
+            if (resultSize >= 0) {
+                resultSizes.record(resultSize);
+            }
+        }
+
+        private void recordFailure(long nanos) {
+            calls.increment();
+            failures.increment();
+            latencies.record(Math.max(0, nanos));
+        }
+
+        private Snapshot snapshot(boolean reset) {
+            if (reset) {
+                return new Snapshot(calls.sumThenReset(), failures.sumThenReset(),
+                        latencies.snapshotAndReset(), resultSizes.snapshotAndReset());
+            }
+            return new Snapshot(calls.sum(), failures.sum(), latencies.snapshot(), resultSizes.snapshot());
+        }
+
+        /**
+         * What has been recorded of an operation up to a point in time.
+         */
+        public static final class Snapshot {
+            private final long calls;
+
+            private final long failures;
+
+            private final Histogram.Snapshot latencies;
+
+            private final Histogram.Snapshot resultSizes;
+
+            private Snapshot(long calls, long failures, Histogram.Snapshot latencies, Histogram.Snapshot resultSizes) {
+                this.calls = calls;
+                this.failures = failures;
+                this.latencies = latencies;
+                this.resultSizes = resultSizes;
+            }
+
+            public long getCalls() {
+                return calls;
+            }
+
+            public long getFailures() {
+                return failures;
+            }
+
+            /**
+             * @return the latencies of the calls, in nanoseconds.
+             */
+            public Histogram.Snapshot getLatencies() {
+                return latencies;
+            }
+
+            /**
+             * @return the result sizes of the successful calls.
+             */
+            public Histogram.Snapshot getResultSizes() {
+                return resultSizes;
+            }
+
+            @Override
+            public String toString() {
+                return "calls=" + calls + " failures=" + failures
+                        + " latencyNanos=[" + latencies + "] resultSizes=[" + resultSizes + "]";
+            }
+        }
+    }
+
+    private static final class Key {
+        private final String operation;
+
+        private final Class<?> entityClass;
+
+        private Key(String operation, Class<?> entityClass) {
+            notEmpty(operation, "operation cannot be empty");
+            this.operation = operation;
+            this.entityClass = entityClass;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            return operation.equals(key.operation) && Objects.equals(entityClass, key.entityClass);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(operation, entityClass);
+        }
+
+        @Override
+        public String toString() {
+            return null == entityClass ? operation : operation + ":" + entityClass.getSimpleName();
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package rockets.mining;
+
+import rockets.dataaccess.Criteria;
+import rockets.dataaccess.DAO;
+import rockets.model.Entity;
+import rockets.model.Launch;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * A DAO decorator that keeps {@link LaunchAggregates} up to date with every launch
+ * written or deleted through it. All other calls go straight to the wrapped DAO.
+ */
+public class AggregatingDAO implements DAO {
+    private final DAO dao;
+
+    private final LaunchAggregates aggregates;
+
+    public AggregatingDAO(DAO dao, LaunchAggregates aggregates) {
+        notNull(dao, "dao cannot be null");
+        notNull(aggregates, "aggregates cannot be null");
+        this.dao = dao;
+        this.aggregates = aggregates;
+    }
+
+    public LaunchAggregates getAggregates() {
+        return aggregates;
+    }
+
+    @Override
+    public <T extends Entity> T load(Class<T> clazz, Long id) {
+        return dao.load(clazz, id);
+    }
+
+    @Override
+    public <T extends Entity> T createOrUpdate(T entity) {
+        T saved = dao.createOrUpdate(entity);
+        if (saved instanceof Launch) {
+            aggregates.onSaved((Launch) saved);
+        }
+        return saved;
+    }
+
+    @Override
+    public <T extends Entity> List<T> createOrUpdateAll(Collection<T> entities) {
+        List<T> saved = dao.createOrUpdateAll(entities);
+        for (T entity : saved) {
+            if (entity instanceof Launch) {
+                aggregates.onSaved((Launch) entity);
+            }
+        }
+        return saved;
+    }
+
+    @Override
+    public <T extends Entity> Collection<T> loadAll(Class<T> clazz) {
+        return dao.loadAll(clazz);
+    }
+
+    @Override
+    public <T extends Entity> Stream<T> stream(Class<T> clazz, int pageSize) {
+        return dao.stream(clazz, pageSize);
+    }
+
+    @Override
+    public <T extends Entity> List<Object[]> loadProjection(Class<T> clazz, String... fields) {
+        return dao.loadProjection(clazz, fields);
+    }
+
+    @Override
+    public <T extends Entity> List<T> find(Criteria<T> criteria) {
+        return dao.find(criteria);
+    }
+
+    @Override
+    public <T extends Entity> void delete(T entity) {
+        dao.delete(entity);
+        if (entity instanceof Launch) {
+            aggregates.onDeleted((Launch) entity);
+        }
+    }
+}
@@ -0,0 +1,279 @@
+package rockets.mining;
+
+import rockets.model.Launch;
+import rockets.model.LaunchServiceProvider;
+import rockets.model.Rocket;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.stream.Stream;
+
+import static org.apache.commons.lang3.Validate.isTrue;
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * Live per-group counters for the miner queries, updated in O(1) per launch.
+ * <p>
+ * Keeps launch counts per rocket, success and total counts per launch service provider,
+ * revenue per (year, launch service provider) and launch counts per (orbit, country).
+ * Each saved launch is remembered by id, so saving it again retracts its old contribution
+ * before adding the new one, and deleting it retracts it. Launches without an id are
+ * counted but cannot be retracted.
+ * <p>
+ * All methods are synchronized, so one instance can be shared by writers and miners.
+ */
+public class LaunchAggregates {
+    private final Map<Rocket, Integer> launchesPerRocket = new LinkedHashMap<>();
+
+    private final Map<LaunchServiceProvider, Tally> tallyPerLsp = new LinkedHashMap<>();
+
+    // by year in order, so rankings over a range of years break ties the same way every time
+    private final NavigableMap<Integer, Map<LaunchServiceProvider, Revenue>> revenuePerYearAndLsp = new TreeMap<>();
+
+    private final Map<String, Map<String, Integer>> launchesPerOrbitAndCountry = new HashMap<>();
+
+    private final Map<Long, Contribution> contributions = new HashMap<>();
+
+    // one instance of each rocket and provider, so contributions do not keep every copy loaded alive;
+    // dropped once no launch counted refers to them
+    private final Map<Rocket, Rocket> rockets = new HashMap<>();
+
+    private final Map<LaunchServiceProvider, LaunchServiceProvider> lsps = new HashMap<>();
+
+    /**
+     * @param launches the launches to start from
+     * @return aggregates over the given launches.
+     */
+    public static LaunchAggregates of(Collection<Launch> launches) {
+        notNull(launches, "launches cannot be null");
+        LaunchAggregates aggregates = new LaunchAggregates();
+        for (Launch launch : launches) {
+            aggregates.onSaved(launch);
+        }
+        return aggregates;
+    }
+
+    /**
+     * Builds the aggregates in one pass over a stream, such as {@link rockets.dataaccess.DAO#stream(Class, int)}.
+     * Only the counters and what each launch contributed are kept, not the launches.
+     *
+     * @param launches the launches to start from
+     * @return aggregates over the given launches.
+     */
+    public static LaunchAggregates of(Stream<Launch> launches) {
+        notNull(launches, "launches cannot be null");
+        LaunchAggregates aggregates = new LaunchAggregates();
+        launches.forEachOrdered(aggregates::onSaved);
+        return aggregates;
+    }
+
+    /**
+     * Records a created or updated launch, replacing what it contributed when last saved.
+     *
+     * @param launch the saved launch
+     */
+    public synchronized void onSaved(Launch launch) {
+        notNull(launch, "launch cannot be null");
+        Contribution contribution = new Contribution(launch,
+                intern(rockets, launch.getLaunchVehicle()), intern(lsps, launch.getLaunchServiceProvider()));
+        // add before retracting, so groups the launch stays in keep their position
+        apply(contribution, 1);
+        if (null != launch.getId()) {
+            Contribution old = contributions.put(launch.getId(), contribution);
+            if (null != old) {
+                apply(old, -1);
+                release(old);
+            }
+        }
+    }
+
+    /**
+     * Retracts what a deleted launch contributed when last saved.
+     *
+     * @param launch the deleted launch
+     */
+    public synchronized void onDeleted(Launch launch) {
+        notNull(launch, "launch cannot be null");
+        if (null != launch.getId()) {
+            Contribution old = contributions.remove(launch.getId());
+            if (null != old) {
+                apply(old, -1);
+                release(old);
+            }
+        }
+    }
+
+    // Drops the rocket and provider of a retracted contribution once no launch counted refers to them
+    private void release(Contribution c) {
+        if (null != c.rocket && !launchesPerRocket.containsKey(c.rocket)) {
+            rockets.remove(c.rocket);
+        }
+        if (null != c.lsp && !tallyPerLsp.containsKey(c.lsp)) {
+            lsps.remove(c.lsp);
+        }
+    }
+
+    private void apply(Contribution c, int sign) {
+        if (null != c.rocket) {
+            addCount(launchesPerRocket, c.rocket, sign);
+        }
+        if (null != c.lsp) {
+            Tally tally = tallyPerLsp.computeIfAbsent(c.lsp, x -> new Tally());
+            tally.total += sign;
+            if (c.successful) {
+                tally.successful += sign;
+            }
+            if (tally.total == 0) {
+                tallyPerLsp.remove(c.lsp);
+            }
+        }
+        if (null != c.year && null != c.lsp && null != c.price) {
+            Map<LaunchServiceProvider, Revenue> revenue = revenuePerYearAndLsp.computeIfAbsent(c.year, x -> new LinkedHashMap<>());
+            Revenue cell = revenue.computeIfAbsent(c.lsp, x -> new Revenue());
+            cell.launches += sign;
+            cell.sum = sign > 0 ? cell.sum.add(c.price) : cell.sum.subtract(c.price);
+            if (cell.launches == 0) {
+                revenue.remove(c.lsp);
+            }
+            if (revenue.isEmpty()) {
+                revenuePerYearAndLsp.remove(c.year);
+            }
+        }
+        if (null != c.orbit && null != c.country) {
+            Map<String, Integer> countries = launchesPerOrbitAndCountry.computeIfAbsent(c.orbit, x -> new LinkedHashMap<>());
+            addCount(countries, c.country, sign);
+            if (countries.isEmpty()) {
+                launchesPerOrbitAndCountry.remove(c.orbit);
+            }
+        }
+    }
+
+    private static <T> T intern(Map<T, T> instances, T instance) {
+        return null == instance ? null : instances.computeIfAbsent(instance, x -> instance);
+    }
+
+    private static <K> void addCount(Map<K, Integer> counts, K key, int delta) {
+        int count = counts.getOrDefault(key, 0) + delta;
+        if (count == 0) {
+            counts.remove(key);
+        } else {
+            counts.put(key, count);
+        }
+    }
+
+    public synchronized List<Rocket> mostLaunchedRockets(int k) {
+        return TopK.selectKeysByValue(launchesPerRocket, k, Comparator.naturalOrder());
+    }
+
+    public synchronized List<LaunchServiceProvider> mostReliableLaunchServiceProviders(int k) {
+        return TopK.selectKeysByValue(tallyPerLsp, k, Comparator.comparingDouble(Tally::ratio));
+    }
+
+    public synchronized List<LaunchServiceProvider> highestRevenueLaunchServiceProviders(int k, int year) {
+        return TopK.selectKeysByValue(revenuePerYearAndLsp.getOrDefault(year, Collections.emptyMap()),
+                k, Comparator.comparing((Revenue r) -> r.sum));
+    }
+
+    /**
+     * Ranks providers by their revenue over a range of years, summing the revenue of each
+     * year in the range, so it takes time in the number of years and providers only. Ties go
+     * to the provider with revenue in the earliest year.
+     */
+    public synchronized List<LaunchServiceProvider> highestRevenueLaunchServiceProviders(int k, int fromYear, int toYear) {
+        isTrue(fromYear <= toYear, "fromYear cannot be after toYear");
+        Map<LaunchServiceProvider, BigDecimal> revenuePerLsp = new LinkedHashMap<>();
+        for (Map<LaunchServiceProvider, Revenue> year : revenuePerYearAndLsp.subMap(fromYear, true, toYear, true).values()) {
+            for (Map.Entry<LaunchServiceProvider, Revenue> entry : year.entrySet()) {
+                revenuePerLsp.merge(entry.getKey(), entry.getValue().sum, BigDecimal::add);
+            }
+        }
+        return TopK.selectKeysByValue(revenuePerLsp, k, Comparator.naturalOrder());
+    }
+
+    /**
+     * @param orbit the orbit
+     * @return the country with the most launches to the orbit.
+     * @throws NoSuchElementException if there is no launch to the orbit.
+     */
+    public synchronized String dominantCountry(String orbit) {
+        List<String> top = TopK.selectKeysByValue(
+                launchesPerOrbitAndCountry.getOrDefault(orbit, Collections.emptyMap()), 1, Comparator.naturalOrder());
+        if (top.isEmpty()) {
+            throw new NoSuchElementException("No launches in orbit " + orbit);
+        }
+        return top.get(0);
+    }
+
+    /**
+     * @param orbits the orbits
+     * @return the dominant country of each of the orbits with launches, in the order the orbits are given.
+     */
+    public synchronized Map<String, String> dominantCountries(Collection<String> orbits) {
+        notNull(orbits, "orbits cannot be null");
+        Map<String, String> result = new LinkedHashMap<>();
+        for (String orbit : orbits) {
+            List<String> top = TopK.selectKeysByValue(
+                    launchesPerOrbitAndCountry.getOrDefault(orbit, Collections.emptyMap()), 1, Comparator.naturalOrder());
+            if (!top.isEmpty()) {
+                result.put(orbit, top.get(0));
+            }
+        }
+        return result;
+    }
+
+    public synchronized int getLaunchCount(Rocket rocket) {
+        return launchesPerRocket.getOrDefault(rocket, 0);
+    }
+
+    public synchronized BigDecimal getRevenue(int year, LaunchServiceProvider lsp) {
+        Revenue revenue = revenuePerYearAndLsp.getOrDefault(year, Collections.emptyMap()).get(lsp);
+        return null == revenue ? BigDecimal.ZERO : revenue.sum;
+    }
+
+    public synchronized int getLaunchCount(String orbit, String country) {
+        return launchesPerOrbitAndCountry.getOrDefault(orbit, Collections.emptyMap()).getOrDefault(country, 0);
+    }
+
+    private static final class Tally {
+        private int successful;
+
+        private int total;
+
+        private double ratio() {
+            return (double) successful / total;
+        }
+    }
+
+    private static final class Revenue {
+        private BigDecimal sum = BigDecimal.ZERO;
+
+        private int launches;
+    }
+
+    // What one launch added to the aggregates, frozen at the time it was saved
+    private static final class Contribution {
+        private final Rocket rocket;
+
+        private final LaunchServiceProvider lsp;
+
+        private final Integer year;
+
+        private final BigDecimal price;
+
+        private final boolean successful;
+
+        private final String orbit;
+
+        private final String country;
+
+        private Contribution(Launch launch, Rocket rocket, LaunchServiceProvider lsp) {
+            this.rocket = rocket;
+            this.lsp = lsp;
+            this.year = null == launch.getLaunchDate() ? null : launch.getLaunchDate().getYear();
+            this.price = launch.getPrice();
+            this.successful = Launch.LaunchOutcome.SUCCESSFUL.equals(launch.getLaunchOutcome());
+            this.orbit = launch.getOrbit();
+            this.country = null == rocket ? null : rocket.getCountry();
+        }
+    }
+}
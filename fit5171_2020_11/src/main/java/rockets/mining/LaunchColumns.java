@@ -0,0 +1,430 @@
+package rockets.mining;
+
+import rockets.dataaccess.DAO;
+import rockets.model.Launch;
+import rockets.model.LaunchServiceProvider;
+import rockets.model.Rocket;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.LocalDate;
+import java.util.*;
+
+import static org.apache.commons.lang3.Validate.isTrue;
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * A read-only, column-oriented copy of the launches for analytics.
+ * <p>
+ * Each launch is a row. Dates are stored as epoch days, prices as longs unscaled to
+ * the largest scale of any price, so every price is kept exactly, outcomes as a bit set,
+ * and rockets, launch service providers, orbits, launch sites and countries as ids into
+ * dictionaries. Dictionary ids are given in order of first appearance, and missing values
+ * are stored as {@link #MISSING}.
+ * <p>
+ * Prices too large, or of too fine a scale, to add up as unscaled longs are stored as their
+ * rank among the prices instead, and revenues are then added up as {@link BigDecimal}.
+ * <p>
+ * The queries scan the primitive columns without allocating per row. They follow the
+ * contract of {@link RocketMiner}: ties are broken by row, or by first appearance for groups.
+ * A {@link RocketMiner} answers its rankings from the columns when created with them.
+ */
+public class LaunchColumns {
+    public static final int MISSING = -1;
+
+    private static final long NO_DATE = Long.MIN_VALUE;
+
+    private static final long NO_PRICE = Long.MIN_VALUE;
+
+    private final int size;
+
+    private final long[] epochDay;
+
+    private final int priceScale;
+
+    private final long[] unscaledPrice;
+
+    private final BitSet successful;
+
+    private final int[] rocketId;
+
+    private final int[] lspId;
+
+    private final int[] orbitId;
+
+    private final int[] launchSiteId;
+
+    private final int[] countryId;
+
+    private final Dictionary<Rocket> rockets = new Dictionary<>();
+
+    private final Dictionary<LaunchServiceProvider> lsps = new Dictionary<>();
+
+    private final Dictionary<String> orbits = new Dictionary<>();
+
+    private final Dictionary<String> launchSites = new Dictionary<>();
+
+    private final Dictionary<String> countries = new Dictionary<>();
+
+    // only used to hand back the launches a query selects
+    private final Launch[] launches;
+
+    /**
+     * @param launches the launches to copy
+     */
+    public LaunchColumns(Collection<Launch> launches) {
+        notNull(launches, "launches cannot be null");
+        size = launches.size();
+        priceScale = priceScaleOf(launches);
+        long[] priceRank = MISSING == priceScale ? priceRanksOf(launches) : null;
+        epochDay = new long[size];
+        unscaledPrice = new long[size];
+        successful = new BitSet(size);
+        rocketId = new int[size];
+        lspId = new int[size];
+        orbitId = new int[size];
+        launchSiteId = new int[size];
+        countryId = new int[size];
+        this.launches = new Launch[size];
+
+        int row = 0;
+        for (Launch launch : launches) {
+            this.launches[row] = launch;
+            epochDay[row] = null == launch.getLaunchDate() ? NO_DATE : launch.getLaunchDate().toEpochDay();
+            if (null == launch.getPrice()) {
+                unscaledPrice[row] = NO_PRICE;
+            } else {
+                unscaledPrice[row] = null == priceRank ? launch.getPrice().setScale(priceScale).unscaledValue().longValue() : priceRank[row];
+            }
+            successful.set(row, Launch.LaunchOutcome.SUCCESSFUL.equals(launch.getLaunchOutcome()));
+            Rocket rocket = launch.getLaunchVehicle();
+            rocketId[row] = rockets.idOf(rocket);
+            lspId[row] = lsps.idOf(launch.getLaunchServiceProvider());
+            orbitId[row] = orbits.idOf(launch.getOrbit());
+            launchSiteId[row] = launchSites.idOf(launch.getLaunchSite());
+            countryId[row] = countries.idOf(null == rocket ? null : rocket.getCountry());
+            row++;
+        }
+    }
+
+    public static LaunchColumns load(DAO dao) {
+        return new LaunchColumns(dao.loadAll(Launch.class));
+    }
+
+    // The largest scale of the prices, if the sum of their magnitudes at that scale fits in a long,
+    // so that each price and every revenue added up from them is a long without rounding, or MISSING
+    private static int priceScaleOf(Collection<Launch> launches) {
+        int scale = 0;
+        for (Launch launch : launches) {
+            if (null != launch.getPrice()) {
+                scale = Math.max(scale, launch.getPrice().scale());
+            }
+        }
+        BigInteger total = BigInteger.ZERO;
+        for (Launch launch : launches) {
+            if (null != launch.getPrice()) {
+                total = total.add(launch.getPrice().setScale(scale).unscaledValue().abs());
+            }
+        }
+        return total.bitLength() < Long.SIZE - 1 ? scale : MISSING;
+    }
+
+    private static long[] priceRanksOf(Collection<Launch> launches) {
+        List<BigDecimal> prices = new ArrayList<>(launches.size());
+        for (Launch launch : launches) {
+            prices.add(launch.getPrice());
+        }
+        return ranksOf(prices);
+    }
+
+    // The rank of each value among the distinct values, equal ones ranked the same, and NO_PRICE for null
+    private static long[] ranksOf(List<BigDecimal> values) {
+        BigDecimal[] distinct = values.stream().filter(Objects::nonNull).distinct().sorted().toArray(BigDecimal[]::new);
+        long[] ranks = new long[values.size()];
+        for (int i = 0; i < ranks.length; i++) {
+            BigDecimal value = values.get(i);
+            ranks[i] = null == value ? NO_PRICE : Arrays.binarySearch(distinct, value);
+        }
+        return ranks;
+    }
+
+    public List<Rocket> mostLaunchedRockets(int k) {
+        int[] counts = new int[rockets.size()];
+        for (int row = 0; row < size; row++) {
+            if (rocketId[row] != MISSING) {
+                counts[rocketId[row]]++;
+            }
+        }
+        return rockets.valuesOf(topIds(counts.length, k, id -> counts[id] == 0 ? Long.MIN_VALUE : counts[id]));
+    }
+
+    /**
+     * Ranks launch service providers by the share of their own launches that were successful.
+     */
+    public List<LaunchServiceProvider> mostReliableLaunchServiceProviders(int k) {
+        int[] total = new int[lsps.size()];
+        int[] succeeded = new int[lsps.size()];
+        for (int row = 0; row < size; row++) {
+            int lsp = lspId[row];
+            if (lsp != MISSING) {
+                total[lsp]++;
+                if (successful.get(row)) {
+                    succeeded[lsp]++;
+                }
+            }
+        }
+        // ratios as doubles keep their order as raw long bits, since they are never negative
+        return lsps.valuesOf(topIds(total.length, k,
+                id -> total[id] == 0 ? Long.MIN_VALUE : Double.doubleToLongBits((double) succeeded[id] / total[id])));
+    }
+
+    public List<Launch> mostRecentLaunches(int k) {
+        return launchesOf(topIds(size, k, row -> epochDay[row] == NO_DATE ? Long.MIN_VALUE : epochDay[row]));
+    }
+
+    public List<Launch> mostExpensiveLaunches(int k) {
+        return launchesOf(topIds(size, k, row -> unscaledPrice[row] == NO_PRICE ? Long.MIN_VALUE : unscaledPrice[row]));
+    }
+
+    /**
+     * @throws NoSuchElementException if there is no launch to the orbit.
+     */
+    public String dominantCountry(String orbit) {
+        int orbitToFind = orbits.find(orbit);
+        int[] counts = new int[countries.size()];
+        if (orbitToFind != MISSING) {
+            for (int row = 0; row < size; row++) {
+                if (orbitId[row] == orbitToFind && countryId[row] != MISSING) {
+                    counts[countryId[row]]++;
+                }
+            }
+        }
+        int[] top = topIds(counts.length, 1, id -> counts[id] == 0 ? Long.MIN_VALUE : counts[id]);
+        if (top.length == 0) {
+            throw new NoSuchElementException("No launches in orbit " + orbit);
+        }
+        return countries.valueOf(top[0]);
+    }
+
+    public List<LaunchServiceProvider> highestRevenueLaunchServiceProviders(int k, int year) {
+        long from = LocalDate.of(year, 1, 1).toEpochDay();
+        long to = LocalDate.of(year, 12, 31).toEpochDay();
+        if (MISSING == priceScale) {
+            return highestDecimalRevenueLaunchServiceProviders(k, from, to);
+        }
+        long[] revenue = new long[lsps.size()];
+        boolean[] launched = new boolean[lsps.size()];
+        for (int row = 0; row < size; row++) {
+            long day = epochDay[row];
+            int lsp = lspId[row];
+            if (day >= from && day <= to && lsp != MISSING && unscaledPrice[row] != NO_PRICE) {
+                revenue[lsp] += unscaledPrice[row];
+                launched[lsp] = true;
+            }
+        }
+        return lsps.valuesOf(topIds(revenue.length, k, id -> launched[id] ? revenue[id] : Long.MIN_VALUE));
+    }
+
+    // Adds up the prices of the launches themselves, for prices that do not add up as longs, and ranks the revenues
+    private List<LaunchServiceProvider> highestDecimalRevenueLaunchServiceProviders(int k, long from, long to) {
+        BigDecimal[] revenue = new BigDecimal[lsps.size()];
+        for (int row = 0; row < size; row++) {
+            long day = epochDay[row];
+            int lsp = lspId[row];
+            if (day >= from && day <= to && lsp != MISSING && unscaledPrice[row] != NO_PRICE) {
+                BigDecimal price = launches[row].getPrice();
+                revenue[lsp] = null == revenue[lsp] ? price : revenue[lsp].add(price);
+            }
+        }
+        long[] ranks = ranksOf(Arrays.asList(revenue));
+        return lsps.valuesOf(topIds(ranks.length, k, id -> ranks[id]));
+    }
+
+    /**
+     * Selects the k ids with the highest keys with a bounded min-heap of ints, lower ids first
+     * on equal keys. Ids keyed {@code Long.MIN_VALUE} are left out.
+     */
+    private static int[] topIds(int count, int k, RowKey key) {
+        isTrue(k >= 0, "k cannot be negative");
+        int[] heap = new int[Math.min(k, count)];
+        int heapSize = 0;
+        for (int id = 0; id < count; id++) {
+            long value = key.of(id);
+            if (value == Long.MIN_VALUE) {
+                continue;
+            }
+            if (heapSize < heap.length) {
+                heap[heapSize] = id;
+                siftUp(heap, heapSize++, key);
+            } else if (heapSize > 0 && value > key.of(heap[0])) {
+                // a later id only displaces the worst kept one with a strictly higher key
+                heap[0] = id;
+                siftDown(heap, heapSize, key);
+            }
+        }
+        int[] top = new int[heapSize];
+        for (int i = heapSize - 1; i >= 0; i--) {
+            top[i] = heap[0];
+            heap[0] = heap[i];
+            siftDown(heap, i, key);
+        }
+        return top;
+    }
+
+    // true if id a ranks below id b: lower key, or a later id with the same key
+    private static boolean worse(int a, int b, RowKey key) {
+        long ka = key.of(a);
+        long kb = key.of(b);
+        return ka < kb || (ka == kb && a > b);
+    }
+
+    private static void siftUp(int[] heap, int i, RowKey key) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!worse(heap[i], heap[parent], key)) {
+                return;
+            }
+            swap(heap, i, parent);
+            i = parent;
+        }
+    }
+
+    private static void siftDown(int[] heap, int size, RowKey key) {
+        int i = 0;
+        while (true) {
+            int left = 2 * i + 1;
+            if (left >= size) {
+                return;
+            }
+            int child = left + 1 < size && worse(heap[left + 1], heap[left], key) ? left + 1 : left;
+            if (!worse(heap[child], heap[i], key)) {
+                return;
+            }
+            swap(heap, i, child);
+            i = child;
+        }
+    }
+
+    private static void swap(int[] heap, int i, int j) {
+        int tmp = heap[i];
+        heap[i] = heap[j];
+        heap[j] = tmp;
+    }
+
+    private List<Launch> launchesOf(int[] rows) {
+        List<Launch> result = new ArrayList<>(rows.length);
+        for (int row : rows) {
+            result.add(launches[row]);
+        }
+        return result;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long getEpochDay(int row) {
+        return epochDay[row];
+    }
+
+    /**
+     * @return the scale of the unscaled prices, the largest scale of any price, or {@link #MISSING}
+     * if the prices are stored as their ranks.
+     */
+    public int getPriceScale() {
+        return priceScale;
+    }
+
+    public long getUnscaledPrice(int row) {
+        return unscaledPrice[row];
+    }
+
+    public boolean isSuccessful(int row) {
+        return successful.get(row);
+    }
+
+    public int getRocketId(int row) {
+        return rocketId[row];
+    }
+
+    public int getLspId(int row) {
+        return lspId[row];
+    }
+
+    public int getOrbitId(int row) {
+        return orbitId[row];
+    }
+
+    public int getLaunchSiteId(int row) {
+        return launchSiteId[row];
+    }
+
+    public int getCountryId(int row) {
+        return countryId[row];
+    }
+
+    public Rocket getRocket(int id) {
+        return rockets.valueOf(id);
+    }
+
+    public LaunchServiceProvider getLaunchServiceProvider(int id) {
+        return lsps.valueOf(id);
+    }
+
+    public String getOrbit(int id) {
+        return orbits.valueOf(id);
+    }
+
+    public String getLaunchSite(int id) {
+        return launchSites.valueOf(id);
+    }
+
+    public String getCountry(int id) {
+        return countries.valueOf(id);
+    }
+
+    private interface RowKey {
+        long of(int id);
+    }
+
+    // Assigns dense ids to distinct values in order of first appearance
+    private static final class Dictionary<V> {
+        private final Map<V, Integer> ids = new HashMap<>();
+
+        private final List<V> values = new ArrayList<>();
+
+        private int idOf(V value) {
+            if (null == value) {
+                return MISSING;
+            }
+            Integer id = ids.get(value);
+            if (null == id) {
+                id = values.size();
+                ids.put(value, id);
+                values.add(value);
+            }
+            return id;
+        }
+
+        private int find(V value) {
+            Integer id = null == value ? null : ids.get(value);
+            return null == id ? MISSING : id;
+        }
+
+        private V valueOf(int id) {
+            return values.get(id);
+        }
+
+        private List<V> valuesOf(int[] ids) {
+            List<V> result = new ArrayList<>(ids.length);
+            for (int id : ids) {
+                result.add(values.get(id));
+            }
+            return result;
+        }
+
+        private int size() {
+            return values.size();
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package rockets.mining;
+
+import rockets.dataaccess.AsyncDAO;
+import rockets.dataaccess.DAO;
+import rockets.model.Launch;
+import rockets.model.LaunchServiceProvider;
+import rockets.model.Rocket;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * An immutable, point-in-time view of the launch graph that the miner queries run against.
+ * <p>
+ * A snapshot is built from a single scan of the DAO and keeps the launches pre-grouped
+ * by rocket, launch service provider, orbit and year. Groups are kept in order of first
+ * appearance in the scan, so rankings over them break ties deterministically.
+ */
+public class LaunchSnapshot {
+    private final long version;
+
+    private final List<Launch> launches;
+
+    private final List<LaunchServiceProvider> launchServiceProviders;
+
+    private final Map<Rocket, List<Launch>> launchesByRocket;
+
+    private final Map<LaunchServiceProvider, List<Launch>> launchesByLsp;
+
+    private final Map<String, List<Launch>> launchesByOrbit;
+
+    private final Map<Integer, List<Launch>> launchesByYear;
+
+    /**
+     * @param version the version of this snapshot, increasing on every refresh
+     * @param launches all launches
+     * @param launchServiceProviders all launch service providers, including those without launches
+     */
+    public LaunchSnapshot(long version, Collection<Launch> launches, Collection<LaunchServiceProvider> launchServiceProviders) {
+        this(version, launches, launchServiceProviders, null);
+    }
+
+    /**
+     * Builds the snapshot, grouping the launches in parallel on the given pool. The groups
+     * are identical to those built sequentially, including their order.
+     *
+     * @param version the version of this snapshot, increasing on every refresh
+     * @param launches all launches
+     * @param launchServiceProviders all launch service providers, including those without launches
+     * @param pool the pool to group on, or null to group on the calling thread
+     */
+    public LaunchSnapshot(long version, Collection<Launch> launches, Collection<LaunchServiceProvider> launchServiceProviders,
+                          ForkJoinPool pool) {
+        notNull(launches, "launches cannot be null");
+        notNull(launchServiceProviders, "launch service providers cannot be null");
+
+        this.version = version;
+        this.launches = Collections.unmodifiableList(new ArrayList<>(launches));
+        this.launchServiceProviders = Collections.unmodifiableList(new ArrayList<>(launchServiceProviders));
+        this.launchesByRocket = groupBy(this.launches, Launch::getLaunchVehicle, pool);
+        this.launchesByLsp = groupBy(this.launches, Launch::getLaunchServiceProvider, pool);
+        this.launchesByOrbit = groupBy(this.launches, Launch::getOrbit, pool);
+        this.launchesByYear = groupBy(this.launches, l -> null == l.getLaunchDate() ? null : l.getLaunchDate().getYear(), pool);
+    }
+
+    /**
+     * Scans the DAO once and builds a snapshot from its launches and launch service providers.
+     *
+     * @param dao the DAO to scan
+     * @param version the version of the new snapshot
+     * @return the new snapshot
+     */
+    public static LaunchSnapshot load(DAO dao, long version) {
+        return new LaunchSnapshot(version, dao.loadAll(Launch.class), dao.loadAll(LaunchServiceProvider.class));
+    }
+
+    public static LaunchSnapshot load(DAO dao, long version, ForkJoinPool pool) {
+        return new LaunchSnapshot(version, dao.loadAll(Launch.class), dao.loadAll(LaunchServiceProvider.class), pool);
+    }
+
+    /**
+     * Loads the launches and the launch service providers at the same time and builds a
+     * snapshot from them once both are loaded.
+     *
+     * @param dao the DAO to scan
+     * @param version the version of the new snapshot
+     * @param pool the pool to group on, or null to group on the thread that finishes loading
+     * @return the new snapshot, when loaded.
+     */
+    public static CompletableFuture<LaunchSnapshot> loadAsync(AsyncDAO dao, long version, ForkJoinPool pool) {
+        CompletableFuture<Collection<Launch>> launches = dao.loadAll(Launch.class);
+        CompletableFuture<Collection<LaunchServiceProvider>> lsps = dao.loadAll(LaunchServiceProvider.class);
+        return launches.thenCombine(lsps, (l, p) -> new LaunchSnapshot(version, l, p, pool));
+    }
+
+    private static <K> Map<K, List<Launch>> groupBy(List<Launch> launches, Function<Launch, K> key, ForkJoinPool pool) {
+        Map<K, List<Launch>> groups;
+        if (null == pool) {
+            groups = groupBy(launches, key);
+        } else {
+            // partitions are merged left to right, so groups and the launches in them keep scan order
+            groups = pool.invoke(new PartitionTask<>(launches, PartitionTask.partitionSize(launches.size(), pool), partition -> groupBy(partition, key),
+                    (left, right) -> {
+                        for (Map.Entry<K, List<Launch>> entry : right.entrySet()) {
+                            left.merge(entry.getKey(), entry.getValue(), (a, b) -> {
+                                a.addAll(b);
+                                return a;
+                            });
+                        }
+                        return left;
+                    }));
+        }
+        for (Map.Entry<K, List<Launch>> entry : groups.entrySet()) {
+            entry.setValue(Collections.unmodifiableList(entry.getValue()));
+        }
+        return Collections.unmodifiableMap(groups);
+    }
+
+    // Launches with a null key are left out of the group, but are still part of the snapshot
+    private static <K> Map<K, List<Launch>> groupBy(List<Launch> launches, Function<Launch, K> key) {
+        Map<K, List<Launch>> groups = new LinkedHashMap<>();
+        for (Launch launch : launches) {
+            K k = key.apply(launch);
+            if (null != k) {
+                groups.computeIfAbsent(k, x -> new ArrayList<>()).add(launch);
+            }
+        }
+        return groups;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public List<Launch> getLaunches() {
+        return launches;
+    }
+
+    public List<LaunchServiceProvider> getLaunchServiceProviders() {
+        return launchServiceProviders;
+    }
+
+    public Map<Rocket, List<Launch>> getLaunchesByRocket() {
+        return launchesByRocket;
+    }
+
+    public Map<LaunchServiceProvider, List<Launch>> getLaunchesByLsp() {
+        return launchesByLsp;
+    }
+
+    public Map<String, List<Launch>> getLaunchesByOrbit() {
+        return launchesByOrbit;
+    }
+
+    public Map<Integer, List<Launch>> getLaunchesByYear() {
+        return launchesByYear;
+    }
+
+    public List<Launch> getLaunchesInOrbit(String orbit) {
+        return launchesByOrbit.getOrDefault(orbit, Collections.emptyList());
+    }
+
+    public List<Launch> getLaunchesInYear(int year) {
+        return launchesByYear.getOrDefault(year, Collections.emptyList());
+    }
+}
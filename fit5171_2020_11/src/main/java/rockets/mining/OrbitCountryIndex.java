@@ -0,0 +1,81 @@
+package rockets.mining;
+
+import rockets.model.Launch;
+import rockets.model.Rocket;
+
+import java.util.*;
+
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * Launch counts per (orbit, country of the launch vehicle), with the dominant country of
+ * each orbit worked out once when the index is built.
+ * <p>
+ * Countries with the same number of launches to an orbit are ranked by their first
+ * launch to it. Launches without an orbit, vehicle or country are left out.
+ */
+public class OrbitCountryIndex {
+    private final Map<String, Map<String, Integer>> launchesPerOrbitAndCountry = new LinkedHashMap<>();
+
+    private final Map<String, String> dominantCountryPerOrbit = new LinkedHashMap<>();
+
+    public OrbitCountryIndex(Collection<Launch> launches) {
+        notNull(launches, "launches cannot be null");
+        for (Launch launch : launches) {
+            Rocket rocket = launch.getLaunchVehicle();
+            if (null != launch.getOrbit() && null != rocket && null != rocket.getCountry()) {
+                launchesPerOrbitAndCountry.computeIfAbsent(launch.getOrbit(), x -> new LinkedHashMap<>())
+                        .merge(rocket.getCountry(), 1, Integer::sum);
+            }
+        }
+        for (Map.Entry<String, Map<String, Integer>> orbit : launchesPerOrbitAndCountry.entrySet()) {
+            String dominant = null;
+            int most = 0;
+            for (Map.Entry<String, Integer> country : orbit.getValue().entrySet()) {
+                // strictly more launches, so the first of equal countries is kept
+                if (country.getValue() > most) {
+                    dominant = country.getKey();
+                    most = country.getValue();
+                }
+            }
+            dominantCountryPerOrbit.put(orbit.getKey(), dominant);
+        }
+    }
+
+    /**
+     * @param orbit the orbit
+     * @return the country with the most launches to the orbit.
+     * @throws NoSuchElementException if there is no launch to the orbit.
+     */
+    public String dominantCountry(String orbit) {
+        String country = dominantCountryPerOrbit.get(orbit);
+        if (null == country) {
+            throw new NoSuchElementException("No launches in orbit " + orbit);
+        }
+        return country;
+    }
+
+    /**
+     * @param orbits the orbits
+     * @return the dominant country of each of the orbits with launches, in the order the orbits are given.
+     */
+    public Map<String, String> dominantCountries(Collection<String> orbits) {
+        notNull(orbits, "orbits cannot be null");
+        Map<String, String> result = new LinkedHashMap<>();
+        for (String orbit : orbits) {
+            String country = dominantCountryPerOrbit.get(orbit);
+            if (null != country) {
+                result.put(orbit, country);
+            }
+        }
+        return result;
+    }
+
+    public int getLaunchCount(String orbit, String country) {
+        return launchesPerOrbitAndCountry.getOrDefault(orbit, Collections.emptyMap()).getOrDefault(country, 0);
+    }
+
+    public Set<String> getOrbits() {
+        return Collections.unmodifiableSet(dominantCountryPerOrbit.keySet());
+    }
+}
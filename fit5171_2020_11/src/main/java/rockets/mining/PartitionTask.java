@@ -0,0 +1,67 @@
+package rockets.mining;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+
+/**
+ * Splits a list into consecutive partitions, computes a partial result for each one
+ * and merges the partial results left to right, so the merge sees partitions in list order.
+ */
+class PartitionTask<T, R> extends RecursiveTask<R> {
+    private static final long serialVersionUID = 1L;
+
+    private static final int MIN_PARTITION_SIZE = 4096;
+
+    private static final int PARTITIONS_PER_THREAD = 4;
+
+    private final List<T> items;
+
+    private final int from;
+
+    private final int to;
+
+    private final int threshold;
+
+    private final Function<List<T>, R> partial;
+
+    private final BinaryOperator<R> merge;
+
+    PartitionTask(List<T> items, int threshold, Function<List<T>, R> partial, BinaryOperator<R> merge) {
+        this(items, 0, items.size(), threshold, partial, merge);
+    }
+
+    private PartitionTask(List<T> items, int from, int to, int threshold,
+                          Function<List<T>, R> partial, BinaryOperator<R> merge) {
+        this.items = items;
+        this.from = from;
+        this.to = to;
+        this.threshold = Math.max(1, threshold);
+        this.partial = partial;
+        this.merge = merge;
+    }
+
+    /**
+     * @param items the number of items to partition
+     * @param pool the pool the partitions run on
+     * @return a few partitions per thread of the pool, but none too small to be worth forking.
+     */
+    static int partitionSize(int items, ForkJoinPool pool) {
+        return Math.max(MIN_PARTITION_SIZE, items / (pool.getParallelism() * PARTITIONS_PER_THREAD));
+    }
+
+    @Override
+    protected R compute() {
+        if (to - from <= threshold) {
+            return partial.apply(items.subList(from, to));
+        }
+        int middle = (from + to) >>> 1;
+        PartitionTask<T, R> left = new PartitionTask<>(items, from, middle, threshold, partial, merge);
+        PartitionTask<T, R> right = new PartitionTask<>(items, middle, to, threshold, partial, merge);
+        right.fork();
+        R leftResult = left.compute();
+        return merge.apply(leftResult, right.join());
+    }
+}
@@ -0,0 +1,240 @@
+package rockets.mining;
+
+import rockets.model.Launch;
+import rockets.model.LaunchServiceProvider;
+
+import java.util.*;
+
+import static org.apache.commons.lang3.Validate.isTrue;
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * Success counts per launch service provider over a sliding window, updated in O(1) as
+ * launches are recorded.
+ * <p>
+ * The window is either the last N launches of each provider, kept in a ring buffer of
+ * outcomes, or the last N years, kept as one bucket per year that is retracted when the
+ * window moves past it. The window of years ends at the latest year recorded; launches
+ * older than the window are ignored. Moving the window to a new year retracts the expired
+ * buckets of every provider, once per year.
+ * <p>
+ * Providers are ranked by the lower bound of the Wilson score interval of their success
+ * ratio, so a short perfect record does not outrank a long, nearly perfect one. Ranking
+ * takes O(|providers| log k). Providers are ranked in order of first launch on equal scores.
+ * <p>
+ * All methods are synchronized, so one instance can be shared by writers and miners.
+ */
+public class ReliabilityTracker {
+    // z for a 95% confidence interval
+    public static final double DEFAULT_Z = 1.96;
+
+    private final int lastLaunches;
+
+    private final int lastYears;
+
+    private final double z;
+
+    private final Map<LaunchServiceProvider, Window> windows = new LinkedHashMap<>();
+
+    private int latestYear = Integer.MIN_VALUE;
+
+    private ReliabilityTracker(int lastLaunches, int lastYears, double z) {
+        isTrue(z > 0, "z must be positive");
+        this.lastLaunches = lastLaunches;
+        this.lastYears = lastYears;
+        this.z = z;
+    }
+
+    /**
+     * @param launches the number of most recent launches of each provider to keep
+     * @return a tracker over the last launches of each provider.
+     */
+    public static ReliabilityTracker overLastLaunches(int launches) {
+        isTrue(launches > 0, "launches must be positive");
+        return new ReliabilityTracker(launches, 0, DEFAULT_Z);
+    }
+
+    /**
+     * @param years the number of most recent years to keep, including the latest year recorded
+     * @return a tracker over the launches of the last years.
+     */
+    public static ReliabilityTracker overLastYears(int years) {
+        isTrue(years > 0, "years must be positive");
+        return new ReliabilityTracker(0, years, DEFAULT_Z);
+    }
+
+    /**
+     * @param z the number of standard deviations of the confidence interval
+     * @return a tracker over the same window, ranking with the given confidence.
+     */
+    public ReliabilityTracker withZ(double z) {
+        return new ReliabilityTracker(lastLaunches, lastYears, z);
+    }
+
+    /**
+     * Records a launch as the latest one of its provider. Launches without a provider, or
+     * without a date when the window is in years, are ignored.
+     *
+     * @param launch the launch
+     */
+    public synchronized void record(Launch launch) {
+        notNull(launch, "launch cannot be null");
+        LaunchServiceProvider lsp = launch.getLaunchServiceProvider();
+        if (null == lsp) {
+            return;
+        }
+        boolean successful = Launch.LaunchOutcome.SUCCESSFUL.equals(launch.getLaunchOutcome());
+        if (lastLaunches > 0) {
+            windows.computeIfAbsent(lsp, x -> new LaunchWindow(lastLaunches)).add(successful, 0);
+        } else if (null != launch.getLaunchDate()) {
+            int year = launch.getLaunchDate().getYear();
+            if (year > latestYear) {
+                latestYear = year;
+                for (Window window : windows.values()) {
+                    window.expire(latestYear - lastYears + 1);
+                }
+            }
+            if (year > latestYear - lastYears) {
+                windows.computeIfAbsent(lsp, x -> new YearWindow(lastYears, latestYear - lastYears + 1)).add(successful, year);
+            }
+        }
+    }
+
+    /**
+     * Records launches in the given order, which should be the order they took place in.
+     *
+     * @param launches the launches
+     */
+    public synchronized void recordAll(Iterable<Launch> launches) {
+        notNull(launches, "launches cannot be null");
+        for (Launch launch : launches) {
+            record(launch);
+        }
+    }
+
+    /**
+     * @param k the number of launch service providers to be returned
+     * @param minSamples the fewest launches in the window for a provider to be ranked
+     * @return the k providers with the highest Wilson lower bound of their success ratio.
+     */
+    public synchronized List<LaunchServiceProvider> mostReliableLaunchServiceProviders(int k, int minSamples) {
+        isTrue(minSamples > 0, "minSamples must be positive");
+        Map<LaunchServiceProvider, Double> scores = new LinkedHashMap<>();
+        for (Map.Entry<LaunchServiceProvider, Window> entry : windows.entrySet()) {
+            Window window = entry.getValue();
+            if (window.total >= minSamples) {
+                scores.put(entry.getKey(), wilsonLowerBound(window.successful, window.total, z));
+            }
+        }
+        return TopK.selectKeysByValue(scores, k, Comparator.naturalOrder());
+    }
+
+    /**
+     * @param successful the number of successes
+     * @param total the number of trials
+     * @param z the number of standard deviations of the confidence interval
+     * @return the lower bound of the Wilson score interval of the success ratio, or 0 without trials.
+     */
+    public static double wilsonLowerBound(int successful, int total, double z) {
+        if (total == 0) {
+            return 0;
+        }
+        double p = (double) successful / total;
+        double z2 = z * z;
+        double centre = p + z2 / (2 * total);
+        double spread = z * Math.sqrt(p * (1 - p) / total + z2 / (4.0 * total * total));
+        return (centre - spread) / (1 + z2 / total);
+    }
+
+    public synchronized int getSuccessful(LaunchServiceProvider lsp) {
+        Window window = windows.get(lsp);
+        return null == window ? 0 : window.successful;
+    }
+
+    public synchronized int getTotal(LaunchServiceProvider lsp) {
+        Window window = windows.get(lsp);
+        return null == window ? 0 : window.total;
+    }
+
+    public synchronized double getLowerBound(LaunchServiceProvider lsp) {
+        return wilsonLowerBound(getSuccessful(lsp), getTotal(lsp), z);
+    }
+
+    private abstract static class Window {
+        int successful;
+
+        int total;
+
+        abstract void add(boolean success, int year);
+
+        void expire(int firstYear) {
+        }
+    }
+
+    // The outcomes of the last launches, the oldest overwritten first
+    private static final class LaunchWindow extends Window {
+        private final boolean[] outcomes;
+
+        private int next;
+
+        private LaunchWindow(int size) {
+            outcomes = new boolean[size];
+        }
+
+        @Override
+        void add(boolean success, int year) {
+            if (total == outcomes.length) {
+                if (outcomes[next]) {
+                    successful--;
+                }
+            } else {
+                total++;
+            }
+            outcomes[next] = success;
+            if (success) {
+                successful++;
+            }
+            next = (next + 1) % outcomes.length;
+        }
+    }
+
+    // One bucket of counts per year, the bucket of a year reused once it leaves the window
+    private static final class YearWindow extends Window {
+        private final int[] successfulInYear;
+
+        private final int[] totalInYear;
+
+        private int firstYear;
+
+        private YearWindow(int years, int firstYear) {
+            successfulInYear = new int[years];
+            totalInYear = new int[years];
+            this.firstYear = firstYear;
+        }
+
+        @Override
+        void add(boolean success, int year) {
+            int bucket = Math.floorMod(year, totalInYear.length);
+            totalInYear[bucket]++;
+            total++;
+            if (success) {
+                successfulInYear[bucket]++;
+                successful++;
+            }
+        }
+
+        // retracts the years before the new first year of the window, at most one pass over the buckets
+        @Override
+        void expire(int newFirstYear) {
+            int years = (int) Math.min(totalInYear.length, (long) newFirstYear - firstYear);
+            for (int i = 0; i < years; i++) {
+                int bucket = Math.floorMod(firstYear + i, totalInYear.length);
+                successful -= successfulInYear[bucket];
+                total -= totalInYear[bucket];
+                successfulInYear[bucket] = 0;
+                totalInYear[bucket] = 0;
+            }
+            firstYear = Math.max(firstYear, newFirstYear);
+        }
+    }
+}
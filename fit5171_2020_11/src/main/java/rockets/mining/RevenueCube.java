@@ -0,0 +1,156 @@
+package rockets.mining;
+
+import rockets.model.Launch;
+import rockets.model.LaunchServiceProvider;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.apache.commons.lang3.Validate.isTrue;
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * Revenue per (year, launch service provider), with prefix sums across years.
+ * <p>
+ * Built once from the launches, it answers the revenue of a provider over any range of
+ * years in O(1), and the top-k providers over a range in time that depends on the number
+ * of providers and years only, however many launches there are. Providers with equal
+ * revenue are ranked by their first launch within the range, which is how
+ * {@link RocketMiner} ranks a single year.
+ */
+public class RevenueCube {
+    private static final int NONE = Integer.MAX_VALUE;
+
+    private final List<LaunchServiceProvider> lsps = new ArrayList<>();
+
+    private final Map<LaunchServiceProvider, Integer> lspIds = new HashMap<>();
+
+    private final int minYear;
+
+    private final int years;
+
+    // prefixRevenue[lsp][i] is the revenue of the years before minYear + i
+    private final BigDecimal[][] prefixRevenue;
+
+    private final int[][] prefixLaunches;
+
+    // firstLaunch[lsp][i] is the position of its first launch in minYear + i, or NONE
+    private final int[][] firstLaunch;
+
+    public RevenueCube(Collection<Launch> launches) {
+        notNull(launches, "launches cannot be null");
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        for (Launch launch : launches) {
+            if (counts(launch)) {
+                int year = launch.getLaunchDate().getYear();
+                min = Math.min(min, year);
+                max = Math.max(max, year);
+                if (!lspIds.containsKey(launch.getLaunchServiceProvider())) {
+                    lspIds.put(launch.getLaunchServiceProvider(), lsps.size());
+                    lsps.add(launch.getLaunchServiceProvider());
+                }
+            }
+        }
+        minYear = lsps.isEmpty() ? 0 : min;
+        years = lsps.isEmpty() ? 0 : max - min + 1;
+
+        BigDecimal[][] revenue = new BigDecimal[lsps.size()][years];
+        int[][] launchCount = new int[lsps.size()][years];
+        firstLaunch = new int[lsps.size()][years];
+        for (int[] row : firstLaunch) {
+            Arrays.fill(row, NONE);
+        }
+        int position = 0;
+        for (Launch launch : launches) {
+            if (counts(launch)) {
+                int lsp = lspIds.get(launch.getLaunchServiceProvider());
+                int year = launch.getLaunchDate().getYear() - minYear;
+                revenue[lsp][year] = null == revenue[lsp][year] ? launch.getPrice() : revenue[lsp][year].add(launch.getPrice());
+                launchCount[lsp][year]++;
+                firstLaunch[lsp][year] = Math.min(firstLaunch[lsp][year], position);
+            }
+            position++;
+        }
+
+        prefixRevenue = new BigDecimal[lsps.size()][years + 1];
+        prefixLaunches = new int[lsps.size()][years + 1];
+        for (int lsp = 0; lsp < lsps.size(); lsp++) {
+            prefixRevenue[lsp][0] = BigDecimal.ZERO;
+            for (int year = 0; year < years; year++) {
+                BigDecimal inYear = null == revenue[lsp][year] ? BigDecimal.ZERO : revenue[lsp][year];
+                prefixRevenue[lsp][year + 1] = prefixRevenue[lsp][year].add(inYear);
+                prefixLaunches[lsp][year + 1] = prefixLaunches[lsp][year] + launchCount[lsp][year];
+            }
+        }
+    }
+
+    private static boolean counts(Launch launch) {
+        return null != launch.getLaunchDate() && null != launch.getLaunchServiceProvider() && null != launch.getPrice();
+    }
+
+    /**
+     * @param lsp the launch service provider
+     * @param fromYear the first year, inclusive
+     * @param toYear the last year, inclusive
+     * @return the revenue of the provider over the years.
+     */
+    public BigDecimal getRevenue(LaunchServiceProvider lsp, int fromYear, int toYear) {
+        isTrue(fromYear <= toYear, "fromYear cannot be after toYear");
+        Integer id = lspIds.get(lsp);
+        return null == id ? BigDecimal.ZERO : revenue(id, from(fromYear), to(toYear));
+    }
+
+    /**
+     * @param k the number of launch service providers
+     * @param fromYear the first year, inclusive
+     * @param toYear the last year, inclusive
+     * @return the k providers with the highest revenue over the years.
+     */
+    public List<LaunchServiceProvider> highestRevenueLaunchServiceProviders(int k, int fromYear, int toYear) {
+        isTrue(fromYear <= toYear, "fromYear cannot be after toYear");
+        int from = from(fromYear);
+        int to = to(toYear);
+        BigDecimal[] revenue = new BigDecimal[lsps.size()];
+        int[] first = new int[lsps.size()];
+        for (int lsp = 0; lsp < lsps.size(); lsp++) {
+            if (from < to && prefixLaunches[lsp][to] > prefixLaunches[lsp][from]) {
+                revenue[lsp] = revenue(lsp, from, to);
+                first[lsp] = NONE;
+                for (int year = from; year < to; year++) {
+                    first[lsp] = Math.min(first[lsp], firstLaunch[lsp][year]);
+                }
+            }
+        }
+        Comparator<Integer> byRevenue = (a, b) -> {
+            int c = revenue[b].compareTo(revenue[a]);
+            return c != 0 ? c : Integer.compare(first[a], first[b]);
+        };
+        List<Integer> top = TopK.select(IntStream.range(0, lsps.size()).filter(lsp -> null != revenue[lsp]).boxed(), k, byRevenue);
+        return top.stream().map(lsps::get).collect(Collectors.toList());
+    }
+
+    private BigDecimal revenue(int lsp, int from, int to) {
+        return from < to ? prefixRevenue[lsp][to].subtract(prefixRevenue[lsp][from]) : BigDecimal.ZERO;
+    }
+
+    // index of the first year of the range in the prefix arrays, clamped to the years covered
+    private int from(int fromYear) {
+        return (int) Math.max(0, Math.min(years, (long) fromYear - minYear));
+    }
+
+    // index just past the last year of the range in the prefix arrays, clamped to the years covered
+    private int to(int toYear) {
+        return (int) Math.max(0, Math.min(years, (long) toYear - minYear + 1));
+    }
+
+    public int getMinYear() {
+        return minYear;
+    }
+
+    public int getMaxYear() {
+        return minYear + years - 1;
+    }
+}
@@ -2,164 +2,585 @@ package rockets.mining;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import rockets.dataaccess.AsyncDAO;
+import rockets.dataaccess.Criteria;
 import rockets.dataaccess.DAO;
+import rockets.metrics.Metrics;
 import rockets.model.*;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BinaryOperator;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
-public class RocketMiner {
+import static org.apache.commons.lang3.Validate.isTrue;
+import static org.apache.commons.lang3.Validate.notNull;
+
+public class RocketMiner implements AutoCloseable {
     private static Logger logger = LoggerFactory.getLogger(RocketMiner.class);
 
+    // the most windows of reliability kept between refreshes
+    static final int MAX_RELIABILITY_TRACKERS = 4;
+
     private DAO dao;
 
+    private LaunchSnapshot snapshot;
+
+    private long lastVersion;
+
+    // loads snapshots with the launches and providers loaded at the same time, if set
+    private AsyncDAO asyncDao;
+
+    private CompletableFuture<LaunchSnapshot> pendingSnapshot;
+
+    private volatile LaunchAggregates aggregates;
+
+    // a columnar copy of the snapshot's launches that the rankings scan instead, if set
+    private volatile LaunchColumns columns;
+
+    private ForkJoinPool pool;
+
+    // whether the pool was created by this miner, and is shut down with it
+    private boolean ownsPool;
+
+    // streams launches a page at a time instead of loading a snapshot, if positive
+    private int pageSize;
+
+    private RevenueCube revenueCube;
+
+    private long revenueCubeVersion;
+
+    private OrbitCountryIndex orbitCountryIndex;
+
+    private long orbitCountryIndexVersion;
+
+    // the trackers of the windows last asked for, the least recently used one dropped beyond the limit
+    private final Map<String, ReliabilityTracker> reliabilityTrackers = new LinkedHashMap<String, ReliabilityTracker>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, ReliabilityTracker> eldest) {
+            return size() > MAX_RELIABILITY_TRACKERS;
+        }
+    };
+
+    private long reliabilityTrackersVersion;
+
+    // records each query, if set
+    private volatile Metrics metrics;
+
     public RocketMiner(DAO dao) {
         this.dao = dao;
     }
 
     /**
-     * TODO: to be implemented & tested!
+     * Creates a miner that scans the launches in parallel on the given pool. Each partition
+     * of the launches is aggregated on its own and the partial results are merged in order,
+     * so results, including the order of ties, are identical to the sequential miner.
+     *
+     * @param dao the DAO to load launches from
+     * @param pool the pool to run the scans on
+     */
+    public RocketMiner(DAO dao, ForkJoinPool pool) {
+        notNull(pool, "pool cannot be null");
+        this.dao = dao;
+        this.pool = pool;
+    }
+
+    /**
+     * Creates a miner that scans the launches in parallel on a pool of its own, which is
+     * shut down when the miner is closed.
+     *
+     * @param dao the DAO to load launches from
+     * @param parallelism the number of threads to scan with
+     */
+    public RocketMiner(DAO dao, int parallelism) {
+        this(dao, new ForkJoinPool(parallelism));
+        this.ownsPool = true;
+    }
+
+    /**
+     * Creates a miner that answers the rocket, provider and country rankings from live
+     * aggregates, e.g. ones kept up to date by an {@link AggregatingDAO}, instead of rescanning.
+     *
+     * @param dao the DAO to load launches from
+     * @param aggregates the live aggregates
+     */
+    public RocketMiner(DAO dao, LaunchAggregates aggregates) {
+        this.dao = dao;
+        this.aggregates = aggregates;
+    }
+
+    /**
+     * Creates a miner that answers the rankings over all launches from a columnar copy of
+     * them, scanning arrays of primitives rather than the launches. Each refresh copies the
+     * launches of the new snapshot into new columns.
+     *
+     * @param dao the DAO to load launches from
+     * @param columns the columns of the launches in the DAO
+     */
+    public RocketMiner(DAO dao, LaunchColumns columns) {
+        notNull(columns, "columns cannot be null");
+        this.dao = dao;
+        this.columns = columns;
+    }
+
+    /**
+     * Creates a miner whose asynchronous queries load their snapshot through the given
+     * AsyncDAO, loading the launches and the launch service providers at the same time.
+     * Its other queries load their snapshot through the DAO the AsyncDAO wraps.
+     *
+     * @param asyncDao the AsyncDAO to load launches from
+     */
+    public RocketMiner(AsyncDAO asyncDao) {
+        notNull(asyncDao, "asyncDao cannot be null");
+        this.dao = asyncDao.getDAO();
+        this.asyncDao = asyncDao;
+    }
+
+    /**
+     * Creates a miner that never holds all launches at once. The launches are streamed from
+     * the DAO a page at a time into aggregates that answer the rocket, provider, country and
+     * revenue rankings, and streamed again for each approximate rocket count. The most
+     * expensive launches are ranked from a projection of just the ids and prices, which a
+     * Neo4j DAO reads without building the launches, and only the k winners are loaded.
+     * The rankings over recent windows need the launches in date order, so they still load
+     * a snapshot, on first use. {@link #refresh()} streams the launches into new aggregates
+     * and drops that snapshot, without loading another.
+     *
+     * @param dao the DAO to stream launches from
+     * @param pageSize the number of launches to fetch at a time
+     * @return the streaming miner.
+     */
+    public static RocketMiner streaming(DAO dao, int pageSize) {
+        notNull(dao, "dao cannot be null");
+        isTrue(pageSize > 0, "page size must be positive");
+        RocketMiner miner = new RocketMiner(dao, LaunchAggregates.of(dao.stream(Launch.class, pageSize)));
+        miner.pageSize = pageSize;
+        return miner;
+    }
+
+    /**
+     * Records each public query from now on, by name and parameters, e.g.
+     * {@code "mostRecentLaunches(k)"}, in the given metrics, which may be shared with an
+     * {@link rockets.dataaccess.InstrumentedDAO} to see the loads each query causes.
+     * Asynchronous queries are recorded once loaded, while they are answered. Subclasses
+     * answer the queries in the protected {@code compute} methods, so theirs are recorded too.
+     *
+     * @param metrics the metrics to record the queries in, or null to stop recording
+     */
+    public void setMetrics(Metrics metrics) {
+        this.metrics = metrics;
+    }
+
+    // Runs a query, recording it if there are metrics
+    private <R> R measure(String query, Supplier<R> call) {
+        Metrics current = metrics;
+        return null == current ? call.get() : current.measure(query, null, call);
+    }
+
+    /**
+     * Shuts down the pool the miner created for itself, if any; a pool given to the miner
+     * is left to its owner. The miner cannot scan in parallel once closed.
+     */
+    @Override
+    public void close() {
+        if (ownsPool) {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Returns the snapshot the queries run against, scanning the DAO on first use.
+     * The snapshot is kept until {@link #refresh()} is called.
+     *
+     * @return the current snapshot.
+     */
+    public synchronized LaunchSnapshot getSnapshot() {
+        if (null == snapshot) {
+            if (pageSize > 0) {
+                // the aggregates of this version are streamed already
+                snapshot = LaunchSnapshot.load(dao, lastVersion);
+            } else {
+                refresh();
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * Rescans the DAO and replaces the current snapshot with a newer version. A streaming
+     * miner streams the launches into new aggregates instead, and drops its snapshot, which
+     * is loaded again only if a query needs it.
+     *
+     * @return the new snapshot, or null for a streaming miner.
+     */
+    public synchronized LaunchSnapshot refresh() {
+        long version = ++lastVersion;
+        if (pageSize > 0) {
+            logger.info("refresh streamed launch aggregates to version " + version);
+            try (Stream<Launch> launches = dao.stream(Launch.class, pageSize)) {
+                aggregates = LaunchAggregates.of(launches);
+            }
+            snapshot = null;
+            return null;
+        }
+        logger.info("refresh launch snapshot to version " + version);
+        snapshot = null == pool ? LaunchSnapshot.load(dao, version) : LaunchSnapshot.load(dao, version, pool);
+        if (null != columns) {
+            columns = new LaunchColumns(snapshot.getLaunches());
+        }
+        return snapshot;
+    }
+
+    /**
+     * Returns the snapshot the queries run against without waiting for it to load. Concurrent
+     * calls before the first snapshot is loaded share one load.
+     *
+     * @return the current snapshot, when loaded.
+     */
+    public synchronized CompletableFuture<LaunchSnapshot> getSnapshotAsync() {
+        if (null != snapshot) {
+            return CompletableFuture.completedFuture(snapshot);
+        }
+        CompletableFuture<LaunchSnapshot> pending = pendingSnapshot;
+        if (null == pending) {
+            pending = refreshAsync();
+            pendingSnapshot = pending;
+            // cleared once done, so a failed load is retried by the next call; a load already
+            // done clears it right here, which is why the local copy is returned
+            pending.whenComplete((loaded, error) -> clearPendingSnapshot());
+        }
+        return pending;
+    }
+
+    private synchronized void clearPendingSnapshot() {
+        pendingSnapshot = null;
+    }
+
+    /**
+     * Rescans the DAO without waiting for it, loading the launches and the launch service
+     * providers at the same time. Without an AsyncDAO, rescans on the calling thread.
+     * A snapshot loaded after a newer one is dropped.
+     *
+     * @return the new snapshot, or a newer one, when loaded; null for a streaming miner, once
+     * its aggregates are streamed.
+     */
+    public CompletableFuture<LaunchSnapshot> refreshAsync() {
+        if (null == asyncDao) {
+            return CompletableFuture.completedFuture(refresh());
+        }
+        long version;
+        synchronized (this) {
+            version = ++lastVersion;
+        }
+        logger.info("refresh launch snapshot to version " + version);
+        // loaded outside the lock, as the queries holding it may wait for the DAO
+        return LaunchSnapshot.loadAsync(asyncDao, version, pool).thenApply(this::install);
+    }
+
+    private synchronized LaunchSnapshot install(LaunchSnapshot loaded) {
+        if (null == snapshot || snapshot.getVersion() < loaded.getVersion()) {
+            snapshot = loaded;
+        }
+        return snapshot;
+    }
+
+    /**
+     * Returns the revenue cube of the current snapshot, building it on first use after a refresh.
+     *
+     * @return the revenue cube.
+     */
+    public synchronized RevenueCube getRevenueCube() {
+        LaunchSnapshot current = getSnapshot();
+        if (null == revenueCube || revenueCubeVersion != current.getVersion()) {
+            revenueCube = new RevenueCube(current.getLaunches());
+            revenueCubeVersion = current.getVersion();
+        }
+        return revenueCube;
+    }
+
+    /**
+     * Returns the orbit and country index of the current snapshot, building it on first use after a refresh.
+     *
+     * @return the orbit and country index.
+     */
+    public synchronized OrbitCountryIndex getOrbitCountryIndex() {
+        LaunchSnapshot current = getSnapshot();
+        if (null == orbitCountryIndex || orbitCountryIndexVersion != current.getVersion()) {
+            orbitCountryIndex = new OrbitCountryIndex(current.getLaunches());
+            orbitCountryIndexVersion = current.getVersion();
+        }
+        return orbitCountryIndex;
+    }
+
+    /**
      * Returns the top-k most active rockets, as measured by number of completed launches.
      *
      * @param k the number of rockets to be returned.
      * @return the list of k most active rockets.
      */
-    public List<Rocket> mostLaunchedRockets(int k) {
-        Collection<Launch> launches = dao.loadAll(Launch.class);
-        List<Launch> launchList = new ArrayList<>(launches);
-        List<Rocket> sortedRockets = getSortedRocketsByLaunches(launchList);
-        List<Rocket> topRockets = new ArrayList<>();
-        int i = 0;
-        for (Rocket rocket : sortedRockets){
-            topRockets.add(rocket);
-            i++;
-            if(i >= k)
-                break;
+    public final List<Rocket> mostLaunchedRockets(int k) {
+        return measure("mostLaunchedRockets(k)", () -> computeMostLaunchedRockets(k));
+    }
+
+    /**
+     * Answers {@link #mostLaunchedRockets(int)}.
+     */
+    protected List<Rocket> computeMostLaunchedRockets(int k) {
+        if (null != aggregates) {
+            return aggregates.mostLaunchedRockets(k);
+        }
+        if (null != columns) {
+            return columns.mostLaunchedRockets(k);
         }
-        return topRockets;
+        return getSortedRocketsByLaunches(getSnapshot().getLaunchesByRocket(), k);
+    }
+
+    /**
+     * Returns an approximation of the top-k most launched rockets, counted in memory bounded
+     * by the error allowed rather than by the number of rockets.
+     *
+     * @param k the number of rockets to be returned.
+     * @param epsilon the largest overestimate of a count allowed, as a fraction of all launches
+     * @return the k rockets with the highest estimated launch counts, with their error.
+     */
+    public final List<SpaceSavingSketch.Estimate<Rocket>> mostLaunchedRockets(int k, double epsilon) {
+        return measure("mostLaunchedRockets(k, epsilon)", () -> computeMostLaunchedRockets(k, epsilon));
+    }
+
+    /**
+     * Answers {@link #mostLaunchedRockets(int, double)}.
+     */
+    protected List<SpaceSavingSketch.Estimate<Rocket>> computeMostLaunchedRockets(int k, double epsilon) {
+        logger.info("find approximately most launched " + k + " rockets");
+        if (pageSize > 0) {
+            return sketchRocketLaunches(dao.stream(Launch.class, pageSize)::iterator, epsilon).top(k);
+        }
+        List<Launch> launches = getSnapshot().getLaunches();
+        SpaceSavingSketch<Rocket> sketch = null != pool
+                ? pool.invoke(new PartitionTask<>(launches, partitionSize(launches),
+                        partition -> sketchRocketLaunches(partition, epsilon), SpaceSavingSketch::merge))
+                : sketchRocketLaunches(launches, epsilon);
+        return sketch.top(k);
     }
 
     /**
-     * TODO: to be implemented & tested!
-     * <p>
      * Returns the top-k most reliable launch service providers as measured
      * by percentage of successful launches.
      *
      * @param k the number of launch service providers to be returned.
      * @return the list of k most reliable ones.
      */
-    public List<LaunchServiceProvider> mostReliableLaunchServiceProviders(int k) {
+    public final List<LaunchServiceProvider> mostReliableLaunchServiceProviders(int k) {
+        return measure("mostReliableLaunchServiceProviders(k)", () -> computeMostReliableLaunchServiceProviders(k));
+    }
+
+    /**
+     * Answers {@link #mostReliableLaunchServiceProviders(int)}.
+     */
+    protected List<LaunchServiceProvider> computeMostReliableLaunchServiceProviders(int k) {
         logger.info("find most Reliable LaunchServiceProviders  " + k + " launches");
-        Collection<LaunchServiceProvider> lsps = dao.loadAll(LaunchServiceProvider.class);
-        Collection<Launch> launches = dao.loadAll(Launch.class);
-        List<Launch> launchList = new ArrayList<>(launches);
-        List<LaunchServiceProvider> lspList = new ArrayList<>(lsps);
-        Map<LaunchServiceProvider, Double> lspMap = new LinkedHashMap<>();
-        double successfulLaunches=0.0;
-        double allLaunches=0.0;
-        // double failedLaunches=0;
-        for(LaunchServiceProvider launchServiceProvider : lspList)
-        {
-            for(Launch launch : launchList)
-            {
-                if(launch.getLaunchOutcome().equals(Launch.LaunchOutcome.SUCCESSFUL))
-                {
-                    successfulLaunches++;
-                }
-                allLaunches++;
-            }
-            if(allLaunches!=0) {
-                double ratio = successfulLaunches / allLaunches;
-                lspMap.put(launchServiceProvider, ratio);
+        if (null != aggregates) {
+            return aggregates.mostReliableLaunchServiceProviders(k);
+        }
+        if (null != columns) {
+            return columns.mostReliableLaunchServiceProviders(k);
+        }
+        Map<LaunchServiceProvider, int[]> tallyPerLsp;
+        if (null != pool) {
+            List<Launch> launchList = getSnapshot().getLaunches();
+            tallyPerLsp = pool.invoke(new PartitionTask<>(launchList, partitionSize(launchList),
+                    RocketMiner::countSuccessfulPerLsp,
+                    (left, right) -> mergeInto(left, right, (a, b) -> new int[]{a[0] + b[0], a[1] + b[1]})));
+        } else {
+            tallyPerLsp = new LinkedHashMap<>();
+            for (Map.Entry<LaunchServiceProvider, List<Launch>> entry : getSnapshot().getLaunchesByLsp().entrySet()) {
+                tallyPerLsp.put(entry.getKey(), countSuccessful(entry.getValue()));
             }
+        }
+        // each provider is rated against its own launches; providers without launches are not rated
+        Map<LaunchServiceProvider, Double> lspMap = new LinkedHashMap<>();
+        for (Map.Entry<LaunchServiceProvider, int[]> entry : tallyPerLsp.entrySet()) {
+            lspMap.put(entry.getKey(), (double) entry.getValue()[0] / entry.getValue()[1]);
+        }
+        return TopK.selectKeysByValue(lspMap, k, Comparator.naturalOrder());
+    }
 
+    /**
+     * Returns the top-k most reliable launch service providers over their last launches,
+     * ranked by the Wilson lower bound of their success ratio.
+     *
+     * @param k the number of launch service providers to be returned.
+     * @param lastLaunches the number of most recent launches of each provider to rate it on
+     * @param minSamples the fewest launches for a provider to be ranked
+     * @return the list of k most reliable ones.
+     */
+    public final List<LaunchServiceProvider> mostReliableLaunchServiceProvidersOverLastLaunches(int k, int lastLaunches, int minSamples) {
+        return measure("mostReliableLaunchServiceProvidersOverLastLaunches(k, lastLaunches, minSamples)", () -> computeMostReliableLaunchServiceProvidersOverLastLaunches(k, lastLaunches, minSamples));
+    }
+
+    /**
+     * Answers {@link #mostReliableLaunchServiceProvidersOverLastLaunches(int, int, int)}.
+     */
+    protected List<LaunchServiceProvider> computeMostReliableLaunchServiceProvidersOverLastLaunches(int k, int lastLaunches, int minSamples) {
+        logger.info("find most reliable " + k + " launch service providers over their last " + lastLaunches + " launches");
+        return getReliabilityTracker("launches:" + lastLaunches, () -> ReliabilityTracker.overLastLaunches(lastLaunches))
+                .mostReliableLaunchServiceProviders(k, minSamples);
+    }
+
+    /**
+     * Returns the top-k most reliable launch service providers over the last years up to
+     * the latest launch, ranked by the Wilson lower bound of their success ratio.
+     *
+     * @param k the number of launch service providers to be returned.
+     * @param lastYears the number of most recent years to rate providers on
+     * @param minSamples the fewest launches for a provider to be ranked
+     * @return the list of k most reliable ones.
+     */
+    public final List<LaunchServiceProvider> mostReliableLaunchServiceProvidersOverLastYears(int k, int lastYears, int minSamples) {
+        return measure("mostReliableLaunchServiceProvidersOverLastYears(k, lastYears, minSamples)", () -> computeMostReliableLaunchServiceProvidersOverLastYears(k, lastYears, minSamples));
+    }
+
+    /**
+     * Answers {@link #mostReliableLaunchServiceProvidersOverLastYears(int, int, int)}.
+     */
+    protected List<LaunchServiceProvider> computeMostReliableLaunchServiceProvidersOverLastYears(int k, int lastYears, int minSamples) {
+        logger.info("find most reliable " + k + " launch service providers over the last " + lastYears + " years");
+        return getReliabilityTracker("years:" + lastYears, () -> ReliabilityTracker.overLastYears(lastYears))
+                .mostReliableLaunchServiceProviders(k, minSamples);
+    }
+
+    // Trackers are fed the dated launches of the snapshot in date order, and kept until the next
+    // refresh, or until trackers of more recently asked windows push them out
+    private synchronized ReliabilityTracker getReliabilityTracker(String window, Supplier<ReliabilityTracker> create) {
+        LaunchSnapshot current = getSnapshot();
+        if (reliabilityTrackersVersion != current.getVersion()) {
+            reliabilityTrackers.clear();
+            reliabilityTrackersVersion = current.getVersion();
         }
-        Map<LaunchServiceProvider,Double> sortedLsp = lspMap.entrySet().stream()
-                .sorted(Collections.reverseOrder(Map.Entry.comparingByValue())).limit(k)
-                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (e1, e2) -> e2,
-                        LinkedHashMap::new));
-        List<LaunchServiceProvider> topLSP = new ArrayList<>();
-        for (LaunchServiceProvider lsp : sortedLsp.keySet()){
-            topLSP.add(lsp);
+        ReliabilityTracker tracker = reliabilityTrackers.get(window);
+        if (null == tracker) {
+            tracker = create.get();
+            tracker.recordAll(current.getLaunches().stream()
+                    .filter(launch -> null != launch.getLaunchDate())
+                    .sorted(Comparator.comparing(Launch::getLaunchDate))
+                    .collect(Collectors.toList()));
+            reliabilityTrackers.put(window, tracker);
         }
-        return topLSP;
+        return tracker;
+    }
+
+    synchronized int getReliabilityTrackerCount() {
+        return reliabilityTrackers.size();
     }
+
     /**
      * <p>
-     * Returns the top-k most recent launches.
+     * Returns the top-k most recent launches. A streaming miner asks the DAO for just those,
+     * so only k launches are loaded.
      *
      * @param k the number of launches to be returned.
      * @return the list of k most recent launches.
      */
-    public List<Launch> mostRecentLaunches(int k) {
+    public final List<Launch> mostRecentLaunches(int k) {
+        return measure("mostRecentLaunches(k)", () -> computeMostRecentLaunches(k));
+    }
+
+    /**
+     * Answers {@link #mostRecentLaunches(int)}.
+     */
+    protected List<Launch> computeMostRecentLaunches(int k) {
         logger.info("find most recent " + k + " launches");
-        Collection<Launch> launches = dao.loadAll(Launch.class);
         Comparator<Launch> launchDateComparator = (a, b) -> -a.getLaunchDate().compareTo(b.getLaunchDate());
-        return launches.stream().sorted(launchDateComparator).limit(k).collect(Collectors.toList());
+        if (pageSize > 0) {
+            // launches without a date would come first in descending order
+            return dao.find(Criteria.of(Launch.class)
+                    .atLeast("launchDate", LocalDate.MIN)
+                    .orderByDescending("launchDate")
+                    .limit(k));
+        }
+        if (null != columns) {
+            return columns.mostRecentLaunches(k);
+        }
+        return select(getSnapshot().getLaunches(), k, launchDateComparator);
     }
     /**
-     * TODO: to be implemented & tested!
-     * <p>
      * Returns the dominant country who has the most launched rockets in an orbit.
      *
      * @param orbit the orbit
      * @return the country who sends the most payload to the orbit
      */
-    public String dominantCountry(String orbit) {
-        Collection<Launch> launches = dao.loadAll(Launch.class);
-        Collection<Rocket> rockets = dao.loadAll(Rocket.class);
-        List<Launch> launchList = new ArrayList<>(launches);
-        List<Rocket> rocketList = new ArrayList<>(rockets);
-        Map<String, Integer> countryMap = new HashMap<>();
-        for(Launch launch: launchList) {
-            if (launch.getOrbit().equals(orbit)) {
-                Rocket rocket = launch.getLaunchVehicle();
-                if (countryMap.containsKey(launch.getLaunchVehicle().getCountry())) {
-                    String country = rocket.getCountry();
-                    int   number_launches = countryMap.get(country);
-                    countryMap.put(country, ++number_launches);
-                }
-                else
-                {
-                    countryMap.put(rocket.getCountry(),1);
-                }
-            }
+    public final String dominantCountry(String orbit) {
+        return measure("dominantCountry(orbit)", () -> computeDominantCountry(orbit));
+    }
+
+    /**
+     * Answers {@link #dominantCountry(String)}.
+     */
+    protected String computeDominantCountry(String orbit) {
+        logger.info("find dominant country in orbit " + orbit);
+        if (null != aggregates) {
+            return aggregates.dominantCountry(orbit);
         }
-        Map<String, Integer> sortedRocket = countryMap
-                .entrySet()
-                .stream()
-                .sorted(Collections.reverseOrder(Map.Entry.comparingByValue()))
-                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (e1, e2) -> e2,
-                        LinkedHashMap::new));
-        String topRockets = sortedRocket.toString();
-        System.out.println(topRockets);
-        //for (String country : sortedRocket.keySet()){
-        //topRockets.valueOf(country);
-        //}
-        Map.Entry<String,Integer> entry = countryMap.entrySet().iterator().next();
-        String country = entry.getKey();
-        return country;
-    }
-    /**
-     * TODO: to be implemented & tested!
-     * <p>
+        if (null != columns) {
+            return columns.dominantCountry(orbit);
+        }
+        return getOrbitCountryIndex().dominantCountry(orbit);
+    }
+
+    /**
+     * Returns the dominant country of each of the given orbits, answered together from one index.
+     * Orbits without launches are left out.
+     *
+     * @param orbits the orbits
+     * @return the country who sends the most payload to each orbit, in the order the orbits are given
+     */
+    public final Map<String, String> dominantCountries(Collection<String> orbits) {
+        return measure("dominantCountries(orbits)", () -> computeDominantCountries(orbits));
+    }
+
+    /**
+     * Answers {@link #dominantCountries(Collection)}.
+     */
+    protected Map<String, String> computeDominantCountries(Collection<String> orbits) {
+        logger.info("find dominant countries in orbits " + orbits);
+        if (null != aggregates) {
+            return aggregates.dominantCountries(orbits);
+        }
+        return getOrbitCountryIndex().dominantCountries(orbits);
+    }
+
+    /**
      * Returns the top-k most expensive launches.
      *
      * @param k the number of launches to be returned.
      * @return the list of k most expensive launches.
      */
-    public List<Launch> mostExpensiveLaunches(int k) {
+    public final List<Launch> mostExpensiveLaunches(int k) {
+        return measure("mostExpensiveLaunches(k)", () -> computeMostExpensiveLaunches(k));
+    }
+
+    /**
+     * Answers {@link #mostExpensiveLaunches(int)}.
+     */
+    protected List<Launch> computeMostExpensiveLaunches(int k) {
         logger.info("find most expensive " + k + " launches");
-        Collection<Launch> launches = dao.loadAll(Launch.class);
         Comparator<Launch> launchPriceComparator = (a, b) -> -a.getPrice().compareTo(b.getPrice());
-        return launches.stream().sorted(launchPriceComparator).limit(k).collect(Collectors.toList());
+        if (pageSize > 0) {
+            return mostExpensiveLaunchesByProjection(k);
+        }
+        if (null != columns) {
+            return columns.mostExpensiveLaunches(k);
+        }
+        return select(getSnapshot().getLaunches(), k, launchPriceComparator);
     }
 
 
     /**
-     * TODO: to be implemented & tested!
-     * <p>
      * Returns a list of launch service provider that has the top-k highest
      * sales revenue in a year.
      *
@@ -167,31 +588,224 @@ public class RocketMiner {
      * @param year the year in request
      * @return the list of k launch service providers who has the highest sales revenue.
      */
-    public List<LaunchServiceProvider> highestRevenueLaunchServiceProviders(int k, int year) {
+    public final List<LaunchServiceProvider> highestRevenueLaunchServiceProviders(int k, int year) {
+        return measure("highestRevenueLaunchServiceProviders(k, year)", () -> computeHighestRevenueLaunchServiceProviders(k, year));
+    }
+
+    /**
+     * Answers {@link #highestRevenueLaunchServiceProviders(int, int)}.
+     */
+    protected List<LaunchServiceProvider> computeHighestRevenueLaunchServiceProviders(int k, int year) {
         logger.info("find top " + k + " highest sales in the year "+year);
-        Collection<Launch> launches = dao.loadAll(Launch.class);
+        if (null != aggregates) {
+            return aggregates.highestRevenueLaunchServiceProviders(k, year);
+        }
+        if (null != columns) {
+            return columns.highestRevenueLaunchServiceProviders(k, year);
+        }
+        if (null == pool) {
+            return getRevenueCube().highestRevenueLaunchServiceProviders(k, year, year);
+        }
+        List<Launch> launches = getSnapshot().getLaunchesInYear(year);
         // GROUP BY LAUNCH SERVICE PROVIDER WITH REVENUE AMOUNT
-        Map<LaunchServiceProvider, BigDecimal> mapByLsp = getRevenuePerLspInYear(launches,year);
-        // GET SORTED LIST OF LSPs
-        List<LaunchServiceProvider> sortedLsps = getSortedLspByRevenue(mapByLsp);
-        int i = 0;
-        List<LaunchServiceProvider> topKlsps = new ArrayList<>();
-        for (LaunchServiceProvider lsp : sortedLsps){
-            i++;
-            topKlsps.add(lsp);
-            if(i >= k)
-            { break;}
+        Map<LaunchServiceProvider, BigDecimal> mapByLsp = pool.invoke(new PartitionTask<>(launches, partitionSize(launches),
+                partition -> getRevenuePerLspInYear(partition, year),
+                (left, right) -> mergeInto(left, right, BigDecimal::add)));
+        // GET TOP K LSPs BY REVENUE
+        return getSortedLspByRevenue(mapByLsp, k);
+    }
+
+    /**
+     * <p>
+     * Returns a list of launch service provider that has the top-k highest
+     * sales revenue between two years, both inclusive.
+     *
+     * @param k the number of launch service provider.
+     * @param fromYear the first year in request
+     * @param toYear the last year in request
+     * @return the list of k launch service providers who has the highest sales revenue.
+     */
+    public final List<LaunchServiceProvider> highestRevenueLaunchServiceProviders(int k, int fromYear, int toYear) {
+        return measure("highestRevenueLaunchServiceProviders(k, fromYear, toYear)", () -> computeHighestRevenueLaunchServiceProviders(k, fromYear, toYear));
+    }
+
+    /**
+     * Answers {@link #highestRevenueLaunchServiceProviders(int, int, int)}.
+     */
+    protected List<LaunchServiceProvider> computeHighestRevenueLaunchServiceProviders(int k, int fromYear, int toYear) {
+        logger.info("find top " + k + " highest sales between the years " + fromYear + " and " + toYear);
+        if (null != aggregates) {
+            return aggregates.highestRevenueLaunchServiceProviders(k, fromYear, toYear);
         }
+        return getRevenueCube().highestRevenueLaunchServiceProviders(k, fromYear, toYear);
+    }
 
-        return topKlsps;
+    /**
+     * Answers {@link #mostLaunchedRockets(int)} once the snapshot is loaded, without waiting for
+     * it on the calling thread. The future completes on the thread that finished loading the
+     * snapshot, exceptionally if the query throws. A miner with aggregates or columns, or whose
+     * {@link #needsSnapshot()} is false, answers at once on the calling thread instead, and
+     * returns a future already completed.
+     *
+     * @param k the number of rockets to be returned.
+     * @return a future of the list of k most launched rockets.
+     */
+    public CompletableFuture<List<Rocket>> mostLaunchedRocketsAsync(int k) {
+        return whenLoaded(() -> mostLaunchedRockets(k));
+    }
+
+    /**
+     * Answers {@link #mostReliableLaunchServiceProviders(int)} the way
+     * {@link #mostLaunchedRocketsAsync(int)} answers its query.
+     *
+     * @param k the number of launch service providers to be returned.
+     * @return a future of the list of k most reliable ones.
+     */
+    public CompletableFuture<List<LaunchServiceProvider>> mostReliableLaunchServiceProvidersAsync(int k) {
+        return whenLoaded(() -> mostReliableLaunchServiceProviders(k));
+    }
+
+    /**
+     * Answers {@link #mostRecentLaunches(int)} the way {@link #mostLaunchedRocketsAsync(int)}
+     * answers its query.
+     *
+     * @param k the number of launches to be returned.
+     * @return a future of the list of k most recent launches.
+     */
+    public CompletableFuture<List<Launch>> mostRecentLaunchesAsync(int k) {
+        return whenLoaded(() -> mostRecentLaunches(k));
+    }
+
+    /**
+     * Answers {@link #dominantCountry(String)} the way {@link #mostLaunchedRocketsAsync(int)}
+     * answers its query.
+     *
+     * @param orbit the orbit
+     * @return a future of the country with the most launches to the orbit, completed with a
+     * {@link NoSuchElementException} if there is no launch to it.
+     */
+    public CompletableFuture<String> dominantCountryAsync(String orbit) {
+        return whenLoaded(() -> dominantCountry(orbit));
+    }
+
+    /**
+     * Answers {@link #mostExpensiveLaunches(int)} the way {@link #mostLaunchedRocketsAsync(int)}
+     * answers its query.
+     *
+     * @param k the number of launches to be returned.
+     * @return a future of the list of k most expensive launches.
+     */
+    public CompletableFuture<List<Launch>> mostExpensiveLaunchesAsync(int k) {
+        return whenLoaded(() -> mostExpensiveLaunches(k));
+    }
+
+    /**
+     * Answers {@link #highestRevenueLaunchServiceProviders(int, int)} the way
+     * {@link #mostLaunchedRocketsAsync(int)} answers its query.
+     *
+     * @param k the number of launch service providers to be returned.
+     * @param year the year in request
+     * @return a future of the list of k launch service providers with the highest sales revenue.
+     */
+    public CompletableFuture<List<LaunchServiceProvider>> highestRevenueLaunchServiceProvidersAsync(int k, int year) {
+        return whenLoaded(() -> highestRevenueLaunchServiceProviders(k, year));
+    }
+
+    /**
+     * Whether the asynchronous queries wait for the snapshot to load before they run. A
+     * subclass that answers them without it, e.g. in the database, returns false, so they
+     * are answered on the calling thread without loading every launch first.
+     *
+     * @return true, unless overridden.
+     */
+    protected boolean needsSnapshot() {
+        return true;
+    }
+
+    // Runs a query once the snapshot is loaded, on the thread that finished loading it, or at once if it needs none
+    private <R> CompletableFuture<R> whenLoaded(Supplier<R> query) {
+        if (null != aggregates || null != columns || !needsSnapshot()) {
+            CompletableFuture<R> answer = new CompletableFuture<>();
+            try {
+                answer.complete(query.get());
+            } catch (RuntimeException e) {
+                answer.completeExceptionally(e);
+            }
+            return answer;
+        }
+        return getSnapshotAsync().thenApply(loaded -> query.get());
     }
 
+    // Ranks the prices projected from the DAO, ties in the order of the rows, then loads the k launches
+    private List<Launch> mostExpensiveLaunchesByProjection(int k) {
+        Comparator<Object[]> pricesDescending = (a, b) -> ((BigDecimal) b[1]).compareTo((BigDecimal) a[1]);
+        List<Object[]> top = TopK.select(dao.loadProjection(Launch.class, "id", "price").stream()
+                .filter(row -> null != row[1]), k, pricesDescending);
+        if (top.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<Long> ids = top.stream().map(row -> (Long) row[0]).collect(Collectors.toList());
+        Map<Long, Launch> launchesById = new HashMap<>();
+        for (Launch launch : dao.find(Criteria.of(Launch.class).in("id", ids))) {
+            launchesById.put(launch.getId(), launch);
+        }
+        return ids.stream().map(launchesById::get).filter(Objects::nonNull).collect(Collectors.toList());
+    }
 
+    private static Map<LaunchServiceProvider, int[]> countSuccessfulPerLsp(List<Launch> launches) {
+        Map<LaunchServiceProvider, int[]> tallyPerLsp = new LinkedHashMap<>();
+        for (Launch launch : launches) {
+            if (null != launch.getLaunchServiceProvider()) {
+                int[] tally = tallyPerLsp.computeIfAbsent(launch.getLaunchServiceProvider(), x -> new int[2]);
+                if (Launch.LaunchOutcome.SUCCESSFUL.equals(launch.getLaunchOutcome())) {
+                    tally[0]++;
+                }
+                tally[1]++;
+            }
+        }
+        return tallyPerLsp;
+    }
+
+    private static int[] countSuccessful(List<Launch> launches) {
+        int[] tally = new int[2];
+        for (Launch launch : launches) {
+            if (Launch.LaunchOutcome.SUCCESSFUL.equals(launch.getLaunchOutcome())) {
+                tally[0]++;
+            }
+            tally[1]++;
+        }
+        return tally;
+    }
+
+    // Adds the right partial into the left one; keys new to the left one go after its own keys
+    private static <K, V> Map<K, V> mergeInto(Map<K, V> left, Map<K, V> right, BinaryOperator<V> add) {
+        for (Map.Entry<K, V> entry : right.entrySet()) {
+            left.merge(entry.getKey(), entry.getValue(), add);
+        }
+        return left;
+    }
+
+    // Selects the top k launches, in parallel when a pool is set: the top k of each partition, then of those
+    private List<Launch> select(List<Launch> launches, int k, Comparator<Launch> order) {
+        if (null == pool) {
+            return TopK.select(launches, k, order);
+        }
+        return pool.invoke(new PartitionTask<>(launches, partitionSize(launches),
+                partition -> TopK.select(partition, k, order),
+                (left, right) -> {
+                    left.addAll(right);
+                    return TopK.select(left, k, order);
+                }));
+    }
+
+    private int partitionSize(List<Launch> launches) {
+        return PartitionTask.partitionSize(launches.size(), pool);
+    }
 
     public static Map<LaunchServiceProvider, BigDecimal> getRevenuePerLspInYear(Collection<Launch> launches, int year){
         // FILTER LAUNCHES PER YEAR
         List<Launch> filteredLaunchList = launches.stream().filter(Launch -> Launch.getLaunchDate().getYear() == year).collect(Collectors.toList());
-        Map<LaunchServiceProvider, BigDecimal> mapByLsp = new HashMap<>();
+        Map<LaunchServiceProvider, BigDecimal> mapByLsp = new LinkedHashMap<>();
         for (Launch l : filteredLaunchList) {
             if (mapByLsp.containsKey(l.getLaunchServiceProvider())){
                 BigDecimal bd = mapByLsp.get(l.getLaunchServiceProvider()).add(l.getPrice());
@@ -207,36 +821,42 @@ public class RocketMiner {
 
     // Get List of LSP Sorted (descending) by the Revenue Amount
     public static List<LaunchServiceProvider> getSortedLspByRevenue(Map<LaunchServiceProvider,BigDecimal> mapUnsorted){
-        Map<LaunchServiceProvider, BigDecimal> sortedLSP = mapUnsorted
-                .entrySet()
-                .stream()
-                .sorted(Collections.reverseOrder(Map.Entry.comparingByValue()))
-                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (e1, e2) -> e2,
-                        LinkedHashMap::new));
-        return new ArrayList<>(sortedLSP.keySet());
+        return getSortedLspByRevenue(mapUnsorted, mapUnsorted.size());
+    }
+
+    // Get the k LSPs with the highest Revenue Amount, ties in map order
+    public static List<LaunchServiceProvider> getSortedLspByRevenue(Map<LaunchServiceProvider,BigDecimal> mapUnsorted, int k){
+        return TopK.selectKeysByValue(mapUnsorted, k, Comparator.naturalOrder());
+    }
+
+    // Get the k Rockets with the most Launches in each group, ties in map order
+    public static List<Rocket> getSortedRocketsByLaunches(Map<Rocket, List<Launch>> launchesByRocket, int k){
+        return TopK.selectKeysByValue(launchesByRocket, k, Comparator.comparingInt(List::size));
+    }
+
+    /**
+     * Feeds the launch vehicle of each launch to a new heavy-hitter sketch; further launches
+     * can be offered to the sketch as they arrive.
+     *
+     * @param launches the launches
+     * @param epsilon the largest overestimate of a count allowed, as a fraction of all launches
+     * @return a sketch of the launches per rocket.
+     */
+    public static SpaceSavingSketch<Rocket> sketchRocketLaunches(Iterable<Launch> launches, double epsilon) {
+        SpaceSavingSketch<Rocket> sketch = SpaceSavingSketch.withError(epsilon);
+        for (Launch launch : launches) {
+            if (null != launch.getLaunchVehicle()) {
+                sketch.offer(launch.getLaunchVehicle());
+            }
+        }
+        return sketch;
     }
 
     public static List<Rocket> getSortedRocketsByLaunches (List<Launch> listLaunches){
-        Map<Rocket,Integer> mapRockets = new HashMap<>();
+        Map<Rocket,Integer> mapRockets = new LinkedHashMap<>();
         for (Launch launch: listLaunches){
-            Rocket rocket = launch.getLaunchVehicle();
-            if (mapRockets.containsKey(rocket)){
-                int number_launches = mapRockets.get(rocket);
-                mapRockets.put(rocket,++number_launches);
-            } else {
-                mapRockets.put(rocket,1);
-            }
+            mapRockets.merge(launch.getLaunchVehicle(), 1, Integer::sum);
         }
-        Map<Rocket, Integer> sortedRocket = mapRockets
-                .entrySet()
-                .stream()
-                .sorted(Collections.reverseOrder(Map.Entry.comparingByValue()))
-                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (e1, e2) -> e2,
-                        LinkedHashMap::new));
-        List<Rocket> topRockets = new ArrayList<>();
-        for (Rocket rocket : sortedRocket.keySet()){
-            topRockets.add(rocket);
-        }
-        return topRockets;
+        return TopK.selectKeysByValue(mapRockets, mapRockets.size(), Comparator.naturalOrder());
     }
 }
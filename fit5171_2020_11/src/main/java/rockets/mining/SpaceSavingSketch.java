@@ -0,0 +1,270 @@
+package rockets.mining;
+
+import java.util.*;
+
+import static org.apache.commons.lang3.Validate.isTrue;
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * Approximate counts of the most frequent items of an unbounded stream, kept in fixed
+ * memory with the Space-Saving algorithm.
+ * <p>
+ * The sketch tracks at most {@code capacity} items. When a new item arrives and the
+ * sketch is full, it takes over the counter with the lowest count and inherits that
+ * count as its error. Every count is therefore an overestimate by at most
+ * {@link #getErrorBound()}, which never exceeds {@code total / capacity}, and any item
+ * seen more often than that is guaranteed to be tracked.
+ * <p>
+ * Sketches of disjoint parts of a stream can be merged, keeping the same bound over the
+ * whole stream. A sketch is not thread safe; feed one sketch per thread and merge them.
+ */
+public class SpaceSavingSketch<T> {
+    private final int capacity;
+
+    private final Map<T, Counter<T>> counters = new HashMap<>();
+
+    // min-heap on count, the oldest counter first among equal counts
+    private final List<Counter<T>> heap = new ArrayList<>();
+
+    private long total;
+
+    private long sequence;
+
+    // whether an item has ever been dropped; until then every count is exact
+    private boolean overflowed;
+
+    /**
+     * @param capacity the maximum number of items tracked
+     */
+    public SpaceSavingSketch(int capacity) {
+        isTrue(capacity > 0, "capacity must be positive");
+        this.capacity = capacity;
+    }
+
+    /**
+     * @param epsilon the largest overestimate allowed, as a fraction of the stream length
+     * @return a sketch whose counts are overestimated by at most {@code epsilon * total}.
+     */
+    public static <T> SpaceSavingSketch<T> withError(double epsilon) {
+        isTrue(epsilon > 0 && epsilon <= 1, "epsilon must be in (0, 1]");
+        return new SpaceSavingSketch<>((int) Math.ceil(1 / epsilon));
+    }
+
+    public void offer(T item) {
+        offer(item, 1);
+    }
+
+    /**
+     * @param item the item seen
+     * @param count how many times it was seen
+     */
+    public void offer(T item, long count) {
+        notNull(item, "item cannot be null");
+        isTrue(count > 0, "count must be positive");
+        total += count;
+        Counter<T> counter = counters.get(item);
+        if (null != counter) {
+            counter.count += count;
+            siftDown(counter.index);
+        } else if (heap.size() < capacity) {
+            track(item, count, 0);
+        } else {
+            // take over the counter of the least frequent item
+            Counter<T> min = heap.get(0);
+            counters.remove(min.item);
+            overflowed = true;
+            min.item = item;
+            min.error = min.count;
+            min.count += count;
+            min.sequence = sequence++;
+            counters.put(item, min);
+            siftDown(0);
+        }
+    }
+
+    private void track(T item, long count, long error) {
+        Counter<T> counter = new Counter<>(item, count, error, sequence++);
+        counter.index = heap.size();
+        heap.add(counter);
+        counters.put(item, counter);
+        siftUp(counter.index);
+    }
+
+    /**
+     * Merges two sketches of the same capacity over disjoint parts of a stream into a new
+     * sketch. An item missing from a full sketch is counted as that sketch's lowest count,
+     * all of it error, so the merged counts remain upper bounds.
+     *
+     * @param other the sketch of the other part of the stream
+     * @return a sketch of both parts.
+     */
+    public SpaceSavingSketch<T> merge(SpaceSavingSketch<T> other) {
+        notNull(other, "other cannot be null");
+        isTrue(capacity == other.capacity, "sketches must have the same capacity");
+        long thisMissing = getErrorBound();
+        long otherMissing = other.getErrorBound();
+        List<Counter<T>> merged = new ArrayList<>();
+        for (Counter<T> counter : inTrackedOrder()) {
+            Counter<T> match = other.counters.get(counter.item);
+            merged.add(null == match
+                    ? new Counter<>(counter.item, counter.count + otherMissing, counter.error + otherMissing, 0)
+                    : new Counter<>(counter.item, counter.count + match.count, counter.error + match.error, 0));
+        }
+        for (Counter<T> counter : other.inTrackedOrder()) {
+            if (!counters.containsKey(counter.item)) {
+                merged.add(new Counter<>(counter.item, counter.count + thisMissing, counter.error + thisMissing, 0));
+            }
+        }
+
+        SpaceSavingSketch<T> result = new SpaceSavingSketch<>(capacity);
+        for (Counter<T> counter : TopK.select(merged, capacity, Comparator.comparingLong((Counter<T> c) -> c.count).reversed())) {
+            result.track(counter.item, counter.count, counter.error);
+        }
+        result.total = total + other.total;
+        result.overflowed = thisMissing > 0 || otherMissing > 0 || merged.size() > capacity;
+        return result;
+    }
+
+    /**
+     * @param k the maximum number of items to be returned
+     * @return the k items with the highest estimated counts, highest first.
+     */
+    public List<Estimate<T>> top(int k) {
+        List<Estimate<T>> top = new ArrayList<>();
+        for (Counter<T> counter : TopK.select(inTrackedOrder(), k, Comparator.comparingLong((Counter<T> c) -> c.count).reversed())) {
+            top.add(new Estimate<>(counter.item, counter.count, counter.error));
+        }
+        return top;
+    }
+
+    /**
+     * @param item the item
+     * @return the estimated count of the item; an untracked item has been seen at most {@link #getErrorBound()} times.
+     */
+    public long estimate(T item) {
+        Counter<T> counter = counters.get(item);
+        return null == counter ? 0 : counter.count;
+    }
+
+    // counters in the order they were first tracked, so merges and rankings break ties alike
+    private List<Counter<T>> inTrackedOrder() {
+        List<Counter<T>> ordered = new ArrayList<>(heap);
+        ordered.sort(Comparator.comparingLong(c -> c.sequence));
+        return ordered;
+    }
+
+    /**
+     * @return the most any tracked count overestimates by, and the most any untracked item has been seen.
+     */
+    public long getErrorBound() {
+        return overflowed ? heap.get(0).count : 0;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int size() {
+        return heap.size();
+    }
+
+    private boolean less(Counter<T> a, Counter<T> b) {
+        return a.count < b.count || (a.count == b.count && a.sequence < b.sequence);
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!less(heap.get(i), heap.get(parent))) {
+                return;
+            }
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int left = 2 * i + 1;
+            if (left >= heap.size()) {
+                return;
+            }
+            int child = left + 1 < heap.size() && less(heap.get(left + 1), heap.get(left)) ? left + 1 : left;
+            if (!less(heap.get(child), heap.get(i))) {
+                return;
+            }
+            swap(i, child);
+            i = child;
+        }
+    }
+
+    private void swap(int i, int j) {
+        Counter<T> a = heap.get(i);
+        Counter<T> b = heap.get(j);
+        heap.set(i, b);
+        heap.set(j, a);
+        a.index = j;
+        b.index = i;
+    }
+
+    /**
+     * An estimated count. The true count lies between {@link #getLowerBound()} and {@link #getCount()}.
+     */
+    public static final class Estimate<T> {
+        private final T item;
+
+        private final long count;
+
+        private final long error;
+
+        private Estimate(T item, long count, long error) {
+            this.item = item;
+            this.count = count;
+            this.error = error;
+        }
+
+        public T getItem() {
+            return item;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getError() {
+            return error;
+        }
+
+        public long getLowerBound() {
+            return count - error;
+        }
+
+        @Override
+        public String toString() {
+            return item + "=" + count + " (error " + error + ")";
+        }
+    }
+
+    private static final class Counter<T> {
+        private T item;
+
+        private long count;
+
+        private long error;
+
+        private long sequence;
+
+        private int index;
+
+        private Counter(T item, long count, long error, long sequence) {
+            this.item = item;
+            this.count = count;
+            this.error = error;
+            this.sequence = sequence;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package rockets.mining;
+
+import java.util.*;
+import java.util.stream.Stream;
+
+import static org.apache.commons.lang3.Validate.isTrue;
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * Selects the k highest ranked items of a sequence with a bounded min-heap.
+ * <p>
+ * Selection takes O(n log k) time and O(k) extra memory, and consumes its input
+ * lazily. The result is exactly what a stable sort by {@code order} followed by
+ * {@code limit(k)} would return: items that rank equally are kept in encounter order.
+ */
+public final class TopK {
+    private TopK() {
+    }
+
+    /**
+     * @param items the items to select from
+     * @param k the maximum number of items to be returned
+     * @param order the ranking, best items first
+     * @return the k best items, best first.
+     */
+    public static <T> List<T> select(Iterator<? extends T> items, int k, Comparator<? super T> order) {
+        notNull(items, "items cannot be null");
+        notNull(order, "order cannot be null");
+        isTrue(k >= 0, "k cannot be negative");
+        if (k == 0) {
+            return new ArrayList<>();
+        }
+
+        // the head of the heap is the worst item kept so far: lowest rank, and latest among equals
+        Comparator<Ranked<T>> worstFirst = (a, b) -> {
+            int c = order.compare(b.item, a.item);
+            return c != 0 ? c : Long.compare(b.sequence, a.sequence);
+        };
+        PriorityQueue<Ranked<T>> heap = new PriorityQueue<>(Math.min(k, 1024), worstFirst);
+        long sequence = 0;
+        while (items.hasNext()) {
+            T item = items.next();
+            if (heap.size() < k) {
+                heap.add(new Ranked<>(item, sequence));
+            } else if (order.compare(item, heap.peek().item) < 0) {
+                heap.poll();
+                heap.add(new Ranked<>(item, sequence));
+            }
+            sequence++;
+        }
+
+        LinkedList<T> top = new LinkedList<>();
+        while (!heap.isEmpty()) {
+            top.addFirst(heap.poll().item);
+        }
+        return new ArrayList<>(top);
+    }
+
+    public static <T> List<T> select(Stream<? extends T> items, int k, Comparator<? super T> order) {
+        notNull(items, "items cannot be null");
+        return select(items.iterator(), k, order);
+    }
+
+    public static <T> List<T> select(Iterable<? extends T> items, int k, Comparator<? super T> order) {
+        notNull(items, "items cannot be null");
+        return select(items.iterator(), k, order);
+    }
+
+    /**
+     * Ranks the keys of a map by their values, highest value first.
+     *
+     * @param values the value of each key
+     * @param k the maximum number of keys to be returned
+     * @param valueOrder the natural order of the values
+     * @return the k keys with the highest values.
+     */
+    public static <K, V> List<K> selectKeysByValue(Map<K, V> values, int k, Comparator<? super V> valueOrder) {
+        notNull(values, "values cannot be null");
+        notNull(valueOrder, "value order cannot be null");
+        Comparator<Map.Entry<K, V>> order = (a, b) -> valueOrder.compare(b.getValue(), a.getValue());
+        List<Map.Entry<K, V>> top = select(values.entrySet().iterator(), k, order);
+        List<K> keys = new ArrayList<>(top.size());
+        for (Map.Entry<K, V> entry : top) {
+            keys.add(entry.getKey());
+        }
+        return keys;
+    }
+
+    private static final class Ranked<T> {
+        private final T item;
+
+        private final long sequence;
+
+        private Ranked(T item, long sequence) {
+            this.item = item;
+            this.sequence = sequence;
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package rockets.mining.neo4j;
+
+import com.google.common.collect.ImmutableMap;
+import org.neo4j.ogm.session.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import rockets.dataaccess.neo4j.Neo4jDAO;
+import rockets.mining.RocketMiner;
+import rockets.mining.TopK;
+import rockets.model.Entity;
+import rockets.model.Launch;
+import rockets.model.LaunchServiceProvider;
+import rockets.model.Rocket;
+
+import java.math.BigDecimal;
+import java.util.*;
+
+import static org.apache.commons.lang3.Validate.isTrue;
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * A {@link RocketMiner} that pushes each query down to Neo4j as a single aggregating
+ * Cypher statement. The rankings by count, ratio and date return just the ids of the
+ * k winners, so only those entities are loaded into the JVM.
+ * <p>
+ * Ties are broken by the lowest node id, which is the order in which entities were first
+ * saved, where the in-memory miner breaks them by first appearance in the loaded launches.
+ * The two agree when the launches are loaded in the order they were saved.
+ * <p>
+ * Prices are stored as strings by the OGM, so Cypher cannot compare or add them exactly.
+ * The most expensive launches are narrowed in Cypher to those priced, as doubles, at least
+ * the k-th highest, and ranked in Java as decimals. The revenue queries are not pushed down
+ * to the k winners: they collect the price of every launch in the years asked for, add them
+ * up in Java as decimals and load just the top k providers.
+ */
+public class Neo4jRocketMiner extends RocketMiner {
+    private static Logger logger = LoggerFactory.getLogger(Neo4jRocketMiner.class);
+
+    private static final String MOST_LAUNCHED_ROCKETS =
+            "MATCH (l:Launch)-[:LAUNCH_VEHICLE]->(r:Rocket) " +
+            "WITH r, count(l) AS launches " +
+            "RETURN id(r) AS id ORDER BY launches DESC, id(r) LIMIT $k";
+
+    private static final String MOST_RELIABLE_LSPS =
+            "MATCH (l:Launch)-[:LAUNCH_SERVICE_PROVIDER]->(p:LaunchServiceProvider) " +
+            "WITH p, toFloat(sum(CASE l.launchOutcome WHEN 'SUCCESSFUL' THEN 1 ELSE 0 END)) / count(l) AS ratio " +
+            "RETURN id(p) AS id ORDER BY ratio DESC, id(p) LIMIT $k";
+
+    private static final String MOST_RECENT_LAUNCHES =
+            "MATCH (l:Launch) WHERE exists(l.launchDate) " +
+            "RETURN id(l) AS id ORDER BY l.launchDate DESC, id(l) LIMIT $k";
+
+    private static final String DOMINANT_COUNTRY =
+            "MATCH (l:Launch)-[:LAUNCH_VEHICLE]->(r:Rocket) WHERE l.orbit = $orbit " +
+            "WITH r.country AS country, count(l) AS launches, min(id(l)) AS first " +
+            "RETURN country ORDER BY launches DESC, first LIMIT 1";
+
+    // ordered before collecting, so the head of each orbit's list is its dominant country
+    private static final String DOMINANT_COUNTRIES =
+            "MATCH (l:Launch)-[:LAUNCH_VEHICLE]->(r:Rocket) WHERE l.orbit IN $orbits " +
+            "WITH l.orbit AS orbit, r.country AS country, count(l) AS launches, min(id(l)) AS first " +
+            "ORDER BY launches DESC, first " +
+            "WITH orbit, collect(country)[0] AS country " +
+            "RETURN orbit, country";
+
+    // the nearest double of a price never ranks it above a higher price, so the k most expensive
+    // launches are among those whose double is at least the k-th highest double
+    private static final String MOST_EXPENSIVE_CANDIDATES =
+            "MATCH (l:Launch) WHERE exists(l.price) " +
+            "WITH toFloat(l.price) AS price ORDER BY price DESC LIMIT $k " +
+            "WITH min(price) AS threshold " +
+            "MATCH (l:Launch) WHERE toFloat(l.price) >= threshold " +
+            "RETURN id(l) AS id, l.price AS price";
+
+    private static final String PRICES_PER_LSP =
+            "MATCH (l:Launch)-[:LAUNCH_SERVICE_PROVIDER]->(p:LaunchServiceProvider) " +
+            "WHERE l.launchDate STARTS WITH $year AND exists(l.price) " +
+            "RETURN id(p) AS id, collect(l.price) AS prices";
+
+    // ISO-8601 dates compare as strings, so a range of years is a range of date prefixes
+    private static final String PRICES_PER_LSP_BETWEEN =
+            "MATCH (l:Launch)-[:LAUNCH_SERVICE_PROVIDER]->(p:LaunchServiceProvider) " +
+            "WHERE l.launchDate >= $from AND l.launchDate < $to AND exists(l.price) " +
+            "RETURN id(p) AS id, collect(l.price) AS prices";
+
+    private Session session;
+
+    private Neo4jDAO dao;
+
+    public Neo4jRocketMiner(Session session) {
+        this(session, new Neo4jDAO(session));
+    }
+
+    private Neo4jRocketMiner(Session session, Neo4jDAO dao) {
+        super(dao);
+        this.session = session;
+        this.dao = dao;
+    }
+
+    // every query with an asynchronous variant is answered in Cypher, so no snapshot is loaded for them
+    @Override
+    protected boolean needsSnapshot() {
+        return false;
+    }
+
+    @Override
+    protected List<Rocket> computeMostLaunchedRockets(int k) {
+        logger.info("find most launched " + k + " rockets");
+        return queryTopK(Rocket.class, MOST_LAUNCHED_ROCKETS, k, Collections.emptyMap());
+    }
+
+    @Override
+    protected List<LaunchServiceProvider> computeMostReliableLaunchServiceProviders(int k) {
+        logger.info("find most reliable " + k + " launch service providers");
+        return queryTopK(LaunchServiceProvider.class, MOST_RELIABLE_LSPS, k, Collections.emptyMap());
+    }
+
+    @Override
+    protected List<Launch> computeMostRecentLaunches(int k) {
+        logger.info("find most recent " + k + " launches");
+        return queryTopK(Launch.class, MOST_RECENT_LAUNCHES, k, Collections.emptyMap());
+    }
+
+    @Override
+    protected String computeDominantCountry(String orbit) {
+        logger.info("find dominant country in orbit " + orbit);
+        Iterator<Map<String, Object>> rows = session.query(DOMINANT_COUNTRY,
+                ImmutableMap.of("orbit", orbit)).queryResults().iterator();
+        if (!rows.hasNext()) {
+            throw new NoSuchElementException("No launches in orbit " + orbit);
+        }
+        return (String) rows.next().get("country");
+    }
+
+    @Override
+    protected Map<String, String> computeDominantCountries(Collection<String> orbits) {
+        logger.info("find dominant countries in orbits " + orbits);
+        notNull(orbits, "orbits cannot be null");
+        Map<String, String> countryPerOrbit = new HashMap<>();
+        for (Map<String, Object> row : session.query(DOMINANT_COUNTRIES,
+                ImmutableMap.of("orbits", new ArrayList<>(orbits))).queryResults()) {
+            countryPerOrbit.put((String) row.get("orbit"), (String) row.get("country"));
+        }
+        Map<String, String> result = new LinkedHashMap<>();
+        for (String orbit : orbits) {
+            if (countryPerOrbit.containsKey(orbit)) {
+                result.put(orbit, countryPerOrbit.get(orbit));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    protected List<Launch> computeMostExpensiveLaunches(int k) {
+        logger.info("find most expensive " + k + " launches");
+        isTrue(k >= 0, "k cannot be negative");
+        if (k == 0) {
+            return new ArrayList<>();
+        }
+        Map<Long, BigDecimal> pricePerLaunch = new TreeMap<>();
+        for (Map<String, Object> row : session.query(MOST_EXPENSIVE_CANDIDATES, ImmutableMap.of("k", k))) {
+            pricePerLaunch.put(((Number) row.get("id")).longValue(), new BigDecimal((String) row.get("price")));
+        }
+        return dao.loadAllById(Launch.class, TopK.selectKeysByValue(pricePerLaunch, k, Comparator.naturalOrder()));
+    }
+
+    @Override
+    protected List<LaunchServiceProvider> computeHighestRevenueLaunchServiceProviders(int k, int year) {
+        logger.info("find top " + k + " highest sales in the year " + year);
+        // launch dates are stored as ISO-8601 strings
+        return rankByRevenue(PRICES_PER_LSP, k, ImmutableMap.of("year", String.format("%04d-", year)));
+    }
+
+    @Override
+    protected List<LaunchServiceProvider> computeHighestRevenueLaunchServiceProviders(int k, int fromYear, int toYear) {
+        logger.info("find top " + k + " highest sales between the years " + fromYear + " and " + toYear);
+        isTrue(fromYear <= toYear, "fromYear cannot be after toYear");
+        return rankByRevenue(PRICES_PER_LSP_BETWEEN, k,
+                ImmutableMap.of("from", String.format("%04d-", fromYear), "to", String.format("%04d-", toYear + 1)));
+    }
+
+    // Runs a query returning the prices of each provider's launches, adds them up as decimals and loads the top k providers
+    private List<LaunchServiceProvider> rankByRevenue(String cypher, int k, Map<String, ?> parameters) {
+        isTrue(k >= 0, "k cannot be negative");
+        if (k == 0) {
+            return new ArrayList<>();
+        }
+        Map<Long, BigDecimal> revenuePerLsp = new TreeMap<>();
+        for (Map<String, Object> row : session.query(cypher, parameters)) {
+            BigDecimal revenue = BigDecimal.ZERO;
+            // the driver returns collected values as an array or as a list
+            Object prices = row.get("prices");
+            for (Object price : prices instanceof Object[] ? Arrays.asList((Object[]) prices) : (Iterable<?>) prices) {
+                revenue = revenue.add(new BigDecimal((String) price));
+            }
+            revenuePerLsp.put(((Number) row.get("id")).longValue(), revenue);
+        }
+        return dao.loadAllById(LaunchServiceProvider.class, TopK.selectKeysByValue(revenuePerLsp, k, Comparator.naturalOrder()));
+    }
+
+    // Runs a query returning the ids of the top k entities in rank order, then loads just those entities
+    private <T extends Entity> List<T> queryTopK(Class<T> clazz, String cypher, int k, Map<String, ?> parameters) {
+        isTrue(k >= 0, "k cannot be negative");
+        if (k == 0) {
+            return new ArrayList<>();
+        }
+        Map<String, Object> params = new HashMap<>(parameters);
+        params.put("k", k);
+        List<Long> ids = new ArrayList<>();
+        for (Map<String, Object> row : session.query(cypher, params)) {
+            ids.add(((Number) row.get("id")).longValue());
+        }
+        return dao.loadAllById(clazz, ids);
+    }
+}
@@ -21,6 +21,11 @@ public class LaunchServiceProvider extends Entity {
 
     private Set<Rocket> rockets;
 
+    // for the object-graph mapper, which sets the fields itself when it loads a provider
+    private LaunchServiceProvider() {
+        rockets = Sets.newLinkedHashSet();
+    }
+
     /**
      * All parameters shouldn't be null.
      *
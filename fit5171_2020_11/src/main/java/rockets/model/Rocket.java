@@ -20,6 +20,10 @@ public class Rocket extends Entity {
 
     private String massToOther;
 
+    // for the object-graph mapper, which sets the fields itself when it loads a rocket
+    private Rocket() {
+    }
+
     /**
      * All parameters shouldn't be null.
      *
@@ -0,0 +1,448 @@
+package rockets.dataaccess;
+
+import com.google.common.collect.Sets;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import rockets.model.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The behaviour every DAO backend shares. A subclass per backend runs these tests, with
+ * {@link #dao} set to a DAO on an empty store before each test.
+ */
+public abstract class AbstractDAOUnitTest<D extends DAO> {
+    protected D dao;
+
+    protected LaunchServiceProvider longMarch;
+    protected LaunchServiceProvider spacex;
+    protected Rocket rocket;
+    protected Launch launch;
+    protected User user;
+
+    @BeforeEach
+    public void setup() {
+        longMarch = new LaunchServiceProvider("LongMarch", 1970, "China");
+        spacex = new LaunchServiceProvider("SpaceX", 2002, "USA");
+        rocket = new Rocket("ShenZhou5", "China", longMarch);
+        launch = new Launch();
+        launch.setLaunchVehicle(rocket);
+        user = new User();
+    }
+
+    @Test
+    public void shouldCreateARocketSuccessfully() {
+        rocket.setWikilink("https://en.wikipedia.org/wiki/Shenzhou_5");
+        Rocket graphRocket = dao.createOrUpdate(rocket);
+        assertNotNull(graphRocket.getId());
+        assertEquals(rocket, graphRocket);
+        assertNotNull(graphRocket.getManufacturer().getId());
+        assertEquals(rocket.getWikilink(), graphRocket.getWikilink());
+        assertEquals(rocket.getManufacturer(), graphRocket.getManufacturer());
+    }
+
+    @Test
+    public void shouldUpdateRocketAttributeSuccessfully() {
+        rocket.setWikilink("https://en.wikipedia.org/wiki/Falcon_9");
+
+        Rocket graphRocket = dao.createOrUpdate(rocket);
+        assertNotNull(graphRocket.getId());
+        assertEquals(rocket, graphRocket);
+
+        String newLink = "http://adifferentlink.com";
+        rocket.setWikilink(newLink);
+        dao.createOrUpdate(rocket);
+        graphRocket = dao.load(Rocket.class, rocket.getId());
+        assertEquals(newLink, graphRocket.getWikilink());
+    }
+
+    @Test
+    public void shouldNotSaveTwoSameRockets() {
+        assertNull(spacex.getId());
+
+        Rocket rocket1 = new Rocket("CN1", "CN", spacex);
+        Rocket rocket2 = new Rocket("CN1", "CN", spacex);
+        assertEquals(rocket1, rocket2);
+        dao.createOrUpdate(rocket1);
+        assertNotNull(spacex.getId());
+        Collection<Rocket> rockets = dao.loadAll(Rocket.class);
+        assertEquals(1, rockets.size());
+        Collection<LaunchServiceProvider> manufacturers = dao.loadAll(LaunchServiceProvider.class);
+        assertEquals(1, manufacturers.size());
+        dao.createOrUpdate(rocket2);
+        manufacturers = dao.loadAll(LaunchServiceProvider.class);
+        assertEquals(1, manufacturers.size());
+        rockets = dao.loadAll(Rocket.class);
+        assertEquals(1, rockets.size());
+    }
+
+    @Test
+    public void shouldLoadAllRockets() {
+        Set<Rocket> rockets = Sets.newHashSet(
+                new Rocket("ShenZhou5", "China", longMarch),
+                new Rocket("Falcon9", "USA", spacex)
+        );
+
+        for (Rocket r : rockets) {
+            dao.createOrUpdate(r);
+        }
+
+        Collection<Rocket> loadedRockets = dao.loadAll(Rocket.class);
+        assertEquals(rockets.size(), loadedRockets.size());
+        for (Rocket r : rockets) {
+            assertTrue(loadedRockets.contains(r));
+        }
+    }
+
+    @Test
+    public void shouldCreateALaunchSuccessfully() {
+        Launch launch = new Launch();
+        launch.setLaunchDate(LocalDate.of(2016, 6, 1));
+        launch.setLaunchVehicle(rocket);
+        launch.setLaunchSite("VAFB");
+        launch.setOrbit("LEO");
+        dao.createOrUpdate(launch);
+
+        Collection<Launch> launches = dao.loadAll(Launch.class);
+        assertFalse(launches.isEmpty());
+        assertTrue(launches.contains(launch));
+    }
+
+    @Test
+    public void shouldUpdateLaunchAttributesSuccessfully() {
+        Launch launch = new Launch();
+        launch.setLaunchDate(LocalDate.of(2016, 6, 1));
+        launch.setLaunchVehicle(rocket);
+        launch.setLaunchSite("VAFB");
+        launch.setOrbit("LEO");
+        dao.createOrUpdate(launch);
+
+        Collection<Launch> launches = dao.loadAll(Launch.class);
+
+        Launch loadedLaunch = launches.iterator().next();
+        assertNull(loadedLaunch.getFunction());
+
+        launch.setFunction("experimental");
+        dao.createOrUpdate(launch);
+        launches = dao.loadAll(Launch.class);
+        assertEquals(1, launches.size());
+        loadedLaunch = launches.iterator().next();
+        assertEquals("experimental", loadedLaunch.getFunction());
+    }
+
+    @Test
+    public void shouldDeleteRocketWithoutDeleteLSP() {
+        dao.createOrUpdate(rocket);
+        assertNotNull(rocket.getId());
+        assertNotNull(rocket.getManufacturer().getId());
+        assertFalse(dao.loadAll(Rocket.class).isEmpty());
+        assertFalse(dao.loadAll(LaunchServiceProvider.class).isEmpty());
+        dao.delete(rocket);
+        assertTrue(dao.loadAll(Rocket.class).isEmpty());
+        assertFalse(dao.loadAll(LaunchServiceProvider.class).isEmpty());
+    }
+
+    //be able to delete launch without deleting rocket
+    @Test
+    public void shouldDeleteLaunchWithoutDeleteRocket(){
+        dao.createOrUpdate(launch);
+        assertNotNull(launch.getId());
+        assertNotNull(launch.getLaunchVehicle().getId());
+        assertFalse(dao.loadAll(Launch.class).isEmpty());
+        assertFalse(dao.loadAll(Rocket.class).isEmpty());
+        dao.delete(launch);
+        assertTrue(dao.loadAll(Launch.class).isEmpty());
+        assertFalse(dao.loadAll(Rocket.class).isEmpty());
+
+    }
+
+    //be able to delete the rocket
+    @Test
+    public void shouldDeleteRocket(){
+        dao.createOrUpdate(rocket);
+        assertNotNull(rocket.getId());
+        assertFalse(dao.loadAll(Rocket.class).isEmpty());
+        dao.delete(rocket);
+        assertTrue(dao.loadAll(Rocket.class).isEmpty());
+    }
+
+    //be able to delete the user
+    @Test
+    public void shouldDeleteUser(){
+        User user = new User();
+        dao.createOrUpdate(user);
+        assertNotNull(user.getId());
+        assertFalse(dao.loadAll(User.class).isEmpty());
+        dao.delete(user);
+        assertTrue(dao.loadAll(User.class).isEmpty());
+    }
+
+    //be able to delete the Launch
+    @Test
+    public void shouldDeleteLaunch()
+    {
+        dao.createOrUpdate(launch);
+        assertNotNull(launch.getId());
+        assertFalse( dao.loadAll(Launch.class).isEmpty());
+        dao.delete(launch);
+        assertTrue( dao.loadAll(Launch.class).isEmpty());
+    }
+
+    //be able to delete the LaunchServiceProvider
+    @Test
+    public void shouldDeleteLSP()
+    {
+        dao.createOrUpdate(spacex);
+        assertNotNull(spacex.getId());
+        assertFalse( dao.loadAll(LaunchServiceProvider.class).isEmpty());
+        dao.delete(spacex);
+        assertTrue( dao.loadAll(LaunchServiceProvider.class).isEmpty());
+    }
+
+    @Test
+    public void shouldUpdateExistingEntitiesFoundByNaturalKey() {
+        dao.createOrUpdate(rocket);
+        Rocket sameRocket = new Rocket("ShenZhou5", "China", longMarch);
+        sameRocket.setWikilink("https://en.wikipedia.org/wiki/Shenzhou_5");
+        dao.createOrUpdateAll(Arrays.asList(sameRocket, new Rocket("Falcon9", "USA", spacex)));
+
+        assertEquals(rocket.getId(), sameRocket.getId());
+        assertEquals(2, dao.loadAll(Rocket.class).size());
+        assertEquals(sameRocket.getWikilink(), dao.load(Rocket.class, rocket.getId()).getWikilink());
+    }
+
+    @Test
+    public void shouldSaveEntitiesWithSameKeyInOneBatchAsOneNode() {
+        Rocket first = new Rocket("CN1", "CN", spacex);
+        Rocket second = new Rocket("CN1", "CN", spacex);
+        second.setWikilink("http://second.com");
+        dao.createOrUpdateAll(Arrays.asList(first, second));
+
+        assertEquals(first.getId(), second.getId());
+        Collection<Rocket> rockets = dao.loadAll(Rocket.class);
+        assertEquals(1, rockets.size());
+        assertEquals("http://second.com", rockets.iterator().next().getWikilink());
+    }
+
+    @Test
+    public void shouldLookUpKeyAgainAfterDelete() {
+        dao.createOrUpdate(rocket);
+        dao.delete(rocket);
+        Rocket sameRocket = new Rocket("ShenZhou5", "China", longMarch);
+        dao.createOrUpdate(sameRocket);
+
+        Collection<Rocket> rockets = dao.loadAll(Rocket.class);
+        assertEquals(1, rockets.size());
+        assertEquals(sameRocket.getId(), rockets.iterator().next().getId());
+    }
+
+    @Test
+    public void shouldForgetOldKeyOfRenamedEntity() {
+        user.setEmail("old@example.com");
+        dao.createOrUpdate(user);
+        user.setEmail("new@example.com");
+        dao.createOrUpdate(user);
+        User oldEmail = new User();
+        oldEmail.setEmail("old@example.com");
+        dao.createOrUpdateAll(Collections.singletonList(oldEmail));
+
+        assertNotEquals(user.getId(), oldEmail.getId());
+        assertEquals(2, dao.loadAll(User.class).size());
+    }
+
+    @Test
+    public void shouldStreamAllEntitiesPageByPage() {
+        List<Launch> launches = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Launch l = new Launch();
+            l.setLaunchDate(LocalDate.of(2016 + i, 6, 1));
+            l.setLaunchVehicle(rocket);
+            l.setLaunchServiceProvider(longMarch);
+            launches.add(l);
+        }
+        dao.createOrUpdateAll(launches);
+
+        List<Launch> streamed = dao.stream(Launch.class, 2).collect(Collectors.toList());
+        Map<Long, LocalDate> dates = new HashMap<>();
+        for (Launch l : launches) {
+            dates.put(l.getId(), l.getLaunchDate());
+        }
+        assertEquals(launches.size(), streamed.size());
+        for (int i = 0; i < streamed.size(); i++) {
+            Launch l = streamed.get(i);
+            assertTrue(i == 0 || streamed.get(i - 1).getId() < l.getId());
+            assertEquals(dates.get(l.getId()), l.getLaunchDate());
+            assertEquals("ShenZhou5", l.getLaunchVehicle().getName());
+            assertEquals(longMarch, l.getLaunchServiceProvider());
+        }
+    }
+
+    @Test
+    public void shouldStreamAndFindLaunchesEqualToEachOther() {
+        List<Launch> launches = new ArrayList<>();
+        for (String site : Arrays.asList("Jiuquan", "Xichang")) {
+            Launch l = new Launch();
+            l.setLaunchDate(LocalDate.of(2016, 6, 1));
+            l.setLaunchVehicle(rocket);
+            l.setLaunchServiceProvider(longMarch);
+            l.setLaunchSite(site);
+            launches.add(l);
+        }
+        assertEquals(launches.get(0), launches.get(1));
+        dao.createOrUpdateAll(launches);
+
+        assertEquals(2, dao.stream(Launch.class, 10).count());
+        assertEquals(2, dao.find(Criteria.of(Launch.class).equalTo("launchDate", LocalDate.of(2016, 6, 1))).size());
+    }
+
+    @Test
+    public void shouldSaveEachNewLaunchAsANewOne() {
+        Launch first = new Launch();
+        first.setLaunchDate(LocalDate.of(2016, 6, 1));
+        first.setLaunchVehicle(rocket);
+        first.setLaunchServiceProvider(longMarch);
+        first.setLaunchSite("Jiuquan");
+        first.setOrbit("LEO");
+        first.setPrice(new BigDecimal("62.5"));
+        first.setLaunchOutcome(Launch.LaunchOutcome.SUCCESSFUL);
+        Launch same = new Launch();
+        same.setLaunchDate(first.getLaunchDate());
+        same.setLaunchVehicle(rocket);
+        same.setLaunchServiceProvider(longMarch);
+        same.setLaunchSite("Jiuquan");
+        same.setOrbit("LEO");
+        same.setPrice(new BigDecimal("62.5"));
+        same.setLaunchOutcome(Launch.LaunchOutcome.SUCCESSFUL);
+        dao.createOrUpdate(first);
+        dao.createOrUpdate(same);
+
+        assertNotEquals(first.getId(), same.getId());
+        assertEquals(2, dao.loadAll(Launch.class).size());
+    }
+
+    @Test
+    public void shouldStreamNothingWithoutEntities() {
+        assertEquals(0, dao.stream(Launch.class, 10).count());
+    }
+
+    @Test
+    public void shouldRejectNonPositivePageSize() {
+        assertThrows(IllegalArgumentException.class, () -> dao.stream(Launch.class, 0));
+    }
+
+    @Test
+    public void shouldProjectFieldsOfEntitiesAndEntitiesTheyReferTo() {
+        launch.setLaunchDate(LocalDate.of(2016, 6, 1));
+        launch.setPrice(new BigDecimal("62.5"));
+        launch.setLaunchOutcome(Launch.LaunchOutcome.SUCCESSFUL);
+        launch.setLaunchServiceProvider(longMarch);
+        dao.createOrUpdate(launch);
+
+        List<Object[]> rows = dao.loadProjection(Launch.class,
+                "id", "launchDate", "price", "launchOutcome", "launchServiceProvider.id", "launchVehicle.country");
+        assertEquals(1, rows.size());
+        assertArrayEquals(new Object[]{launch.getId(), LocalDate.of(2016, 6, 1), new BigDecimal("62.5"),
+                Launch.LaunchOutcome.SUCCESSFUL, longMarch.getId(), "China"}, rows.get(0));
+    }
+
+    @Test
+    public void shouldProjectNullsForMissingValues() {
+        dao.createOrUpdate(launch);
+        List<Object[]> rows = dao.loadProjection(Launch.class, "orbit", "launchServiceProvider.id", "launchVehicle.name");
+        assertArrayEquals(new Object[]{null, null, "ShenZhou5"}, rows.get(0));
+    }
+
+    @Test
+    public void shouldProjectFieldsAsTheEntityTypesThem() {
+        dao.createOrUpdate(longMarch);
+        List<Object[]> rows = dao.loadProjection(LaunchServiceProvider.class, "name", "yearFounded");
+        assertArrayEquals(new Object[]{"LongMarch", 1970}, rows.get(0));
+    }
+
+    // Three launches by two providers, in date order
+    private List<Launch> saveLaunches() {
+        Rocket falcon9 = new Rocket("Falcon9", "USA", spacex);
+        List<Launch> launches = new ArrayList<>();
+        Object[][] values = {
+                {LocalDate.of(2016, 6, 1), "62.5", "LEO", rocket, longMarch},
+                {LocalDate.of(2017, 3, 1), "50", "GTO", falcon9, spacex},
+                {LocalDate.of(2018, 1, 1), "62.50", "SSO", falcon9, spacex},
+        };
+        for (Object[] value : values) {
+            Launch launch = new Launch();
+            launch.setLaunchDate((LocalDate) value[0]);
+            launch.setPrice(new BigDecimal((String) value[1]));
+            launch.setOrbit((String) value[2]);
+            launch.setLaunchVehicle((Rocket) value[3]);
+            launch.setLaunchServiceProvider((LaunchServiceProvider) value[4]);
+            launch.setLaunchOutcome(Launch.LaunchOutcome.SUCCESSFUL);
+            launches.add(launch);
+        }
+        dao.createOrUpdateAll(launches);
+        return launches;
+    }
+
+    @Test
+    public void shouldFindLaunchesInADateRange() {
+        List<Launch> launches = saveLaunches();
+        List<Launch> found = dao.find(Criteria.of(Launch.class)
+                .between("launchDate", LocalDate.of(2017, 1, 1), LocalDate.of(2018, 1, 1))
+                .orderBy("launchDate"));
+        assertEquals(launches.subList(1, 3), found);
+    }
+
+    @Test
+    public void shouldFindLaunchesByPriceAndOrbit() {
+        List<Launch> launches = saveLaunches();
+        assertEquals(Arrays.asList(launches.get(0), launches.get(2)),
+                dao.find(Criteria.of(Launch.class).greaterThan("price", new BigDecimal("50.1")).orderBy("launchDate")));
+        assertEquals(Arrays.asList(launches.get(0), launches.get(2)),
+                dao.find(Criteria.of(Launch.class).equalTo("price", 62.5).orderBy("launchDate")));
+        assertEquals(Collections.singletonList(launches.get(1)),
+                dao.find(Criteria.of(Launch.class).lessThan("price", new BigDecimal("62.5"))));
+        assertEquals(Arrays.asList(launches.get(0), launches.get(2)),
+                dao.find(Criteria.of(Launch.class).in("orbit", Arrays.asList("LEO", "SSO", "MEO")).orderBy("launchDate")));
+    }
+
+    @Test
+    public void shouldFindLaunchesByFieldsOfEntitiesTheyReferTo() {
+        List<Launch> launches = saveLaunches();
+        assertEquals(launches.subList(1, 3), dao.find(Criteria.of(Launch.class)
+                .equalTo("launchServiceProvider.id", spacex.getId())
+                .equalTo("launchOutcome", Launch.LaunchOutcome.SUCCESSFUL)
+                .orderBy("launchDate")));
+        assertEquals(Collections.singletonList(launches.get(0)), dao.find(Criteria.of(Launch.class)
+                .equalTo("launchVehicle.name", "ShenZhou5")));
+    }
+
+    @Test
+    public void shouldFindLaunchesInOrderUpToTheLimit() {
+        List<Launch> launches = saveLaunches();
+        assertEquals(Arrays.asList(launches.get(2), launches.get(1)),
+                dao.find(Criteria.of(Launch.class).orderByDescending("launchDate").limit(2)));
+        // equal prices by the next order
+        assertEquals(Arrays.asList(launches.get(1), launches.get(2), launches.get(0)),
+                dao.find(Criteria.of(Launch.class).orderBy("price").orderByDescending("launchDate")));
+        assertEquals(Collections.singletonList(launches.get(1)), dao.find(Criteria.of(Launch.class)
+                .equalTo("launchServiceProvider.name", "SpaceX").orderBy("orbit").limit(1)));
+        assertTrue(dao.find(Criteria.of(Launch.class).limit(0)).isEmpty());
+    }
+
+    @Test
+    public void shouldFindNothingWhenNothingMatches() {
+        saveLaunches();
+        assertTrue(dao.find(Criteria.of(Launch.class).atLeast("launchDate", LocalDate.of(2019, 1, 1))).isEmpty());
+        assertTrue(dao.find(Criteria.of(Launch.class).equalTo("function", "Cargo")).isEmpty());
+    }
+
+    @Test
+    public void shouldRejectCriteriaOnUnknownField() {
+        saveLaunches();
+        assertThrows(IllegalArgumentException.class, () -> dao.find(Criteria.of(Launch.class).equalTo("payload", 1)));
+    }
+}
@@ -0,0 +1,134 @@
+package rockets.dataaccess;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import rockets.model.LaunchServiceProvider;
+import rockets.model.Rocket;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class AsyncDAOUnitTest {
+    private DAO dao;
+    private AsyncDAO asyncDao;
+    private LaunchServiceProvider spacex;
+    private Rocket falcon9;
+
+    @BeforeEach
+    public void setUp() {
+        dao = mock(DAO.class);
+        asyncDao = new AsyncDAO(dao, 2, 4);
+        spacex = new LaunchServiceProvider("SpaceX", 2002, "USA");
+        falcon9 = new Rocket("Falcon 9", "USA", spacex);
+        falcon9.setId(1L);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        asyncDao.close();
+    }
+
+    @Test
+    public void shouldCompleteWithTheResultsOfTheDAO() throws Exception {
+        when(dao.load(Rocket.class, 1L)).thenReturn(falcon9);
+        when(dao.loadAll(Rocket.class)).thenReturn(Collections.singletonList(falcon9));
+        when(dao.createOrUpdate(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(dao.createOrUpdateAll(any())).thenAnswer(invocation -> new ArrayList<>((Collection<?>) invocation.getArgument(0)));
+
+        assertSame(falcon9, asyncDao.load(Rocket.class, 1L).get(5, TimeUnit.SECONDS));
+        assertEquals(Collections.singletonList(falcon9), asyncDao.loadAll(Rocket.class).get(5, TimeUnit.SECONDS));
+        assertSame(falcon9, asyncDao.createOrUpdate(falcon9).get(5, TimeUnit.SECONDS));
+        assertEquals(Collections.singletonList(falcon9), asyncDao.createOrUpdateAll(Collections.singletonList(falcon9)).get(5, TimeUnit.SECONDS));
+        assertNull(asyncDao.delete(falcon9).get(5, TimeUnit.SECONDS));
+        verify(dao).delete(falcon9);
+    }
+
+    @Test
+    public void shouldRunIndependentCallsAtTheSameTime() throws Exception {
+        // each load waits for the other to start, so running them one after the other times out
+        CyclicBarrier bothLoading = new CyclicBarrier(2);
+        when(dao.loadAll(Rocket.class)).thenAnswer(invocation -> {
+            bothLoading.await(5, TimeUnit.SECONDS);
+            return Collections.singletonList(falcon9);
+        });
+        when(dao.loadAll(LaunchServiceProvider.class)).thenAnswer(invocation -> {
+            bothLoading.await(5, TimeUnit.SECONDS);
+            return Collections.singletonList(spacex);
+        });
+        CompletableFuture<Collection<Rocket>> rockets = asyncDao.loadAll(Rocket.class);
+        CompletableFuture<Collection<LaunchServiceProvider>> lsps = asyncDao.loadAll(LaunchServiceProvider.class);
+        assertEquals(2, rockets.thenCombine(lsps, (r, l) -> r.size() + l.size()).get(5, TimeUnit.SECONDS).intValue());
+    }
+
+    @Test
+    public void shouldCompleteExceptionallyWhenTheDAOFails() {
+        when(dao.load(Rocket.class, 2L)).thenThrow(new IllegalStateException("down"));
+        CompletableFuture<Rocket> rocket = asyncDao.load(Rocket.class, 2L);
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> rocket.get(5, TimeUnit.SECONDS));
+        assertTrue(exception.getCause() instanceof IllegalStateException);
+        assertEquals(4, asyncDao.getAvailableSlots());
+    }
+
+    @Test
+    public void shouldBlockCallersWhileMaxPendingCallsAreRunning() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        when(dao.load(Rocket.class, 1L)).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return falcon9;
+        });
+        asyncDao.close();
+        asyncDao = new AsyncDAO(dao, 4, 1);
+        CompletableFuture<Rocket> first = asyncDao.load(Rocket.class, 1L);
+        assertEquals(0, asyncDao.getAvailableSlots());
+
+        ExecutorService caller = Executors.newSingleThreadExecutor();
+        try {
+            Future<CompletableFuture<Rocket>> second = caller.submit(() -> asyncDao.load(Rocket.class, 1L));
+            assertThrows(TimeoutException.class, () -> second.get(200, TimeUnit.MILLISECONDS));
+            release.countDown();
+            assertSame(falcon9, first.get(5, TimeUnit.SECONDS));
+            assertSame(falcon9, second.get(5, TimeUnit.SECONDS).get(5, TimeUnit.SECONDS));
+        } finally {
+            caller.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldFailTheCallOfAnInterruptedCaller() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        when(dao.load(Rocket.class, 1L)).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return falcon9;
+        });
+        asyncDao.close();
+        asyncDao = new AsyncDAO(dao, 1, 1);
+        asyncDao.load(Rocket.class, 1L);
+        Thread.currentThread().interrupt();
+        try {
+            CompletableFuture<Rocket> interrupted = asyncDao.load(Rocket.class, 1L);
+            assertTrue(interrupted.isCompletedExceptionally());
+            assertTrue(Thread.interrupted());
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    public void shouldRunOnTheGivenExecutor() throws Exception {
+        when(dao.load(Rocket.class, 1L)).thenReturn(falcon9);
+        // a direct executor runs each call on the caller, as a thread-per-task executor would on a new thread
+        AsyncDAO direct = new AsyncDAO(dao, Runnable::run, 1);
+        assertSame(falcon9, direct.load(Rocket.class, 1L).get());
+        assertEquals(1, direct.getAvailableSlots());
+    }
+
+    @Test
+    public void shouldRejectNonPositiveMaxPending() {
+        assertThrows(IllegalArgumentException.class, () -> new AsyncDAO(dao, Runnable::run, 0));
+    }
+}
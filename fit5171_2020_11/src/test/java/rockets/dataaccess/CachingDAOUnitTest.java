@@ -0,0 +1,186 @@
+package rockets.dataaccess;
+
+import com.google.common.base.Ticker;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import rockets.model.LaunchServiceProvider;
+import rockets.model.Rocket;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class CachingDAOUnitTest {
+    private DAO dao;
+    private CachingDAO cachingDAO;
+    private LaunchServiceProvider spacex;
+    private Rocket falcon9;
+    private Rocket falconHeavy;
+
+    @BeforeEach
+    public void setUp() {
+        dao = mock(DAO.class);
+        cachingDAO = new CachingDAO(dao);
+        spacex = new LaunchServiceProvider("SpaceX", 2002, "USA");
+        falcon9 = new Rocket("Falcon 9", "USA", spacex);
+        falcon9.setId(1L);
+        falconHeavy = new Rocket("Falcon Heavy", "USA", spacex);
+        falconHeavy.setId(2L);
+        when(dao.load(Rocket.class, 1L)).thenReturn(falcon9);
+        when(dao.load(Rocket.class, 2L)).thenReturn(falconHeavy);
+        when(dao.loadAll(Rocket.class)).thenReturn(Arrays.asList(falcon9, falconHeavy));
+        when(dao.createOrUpdate(any())).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @Test
+    public void shouldLoadEachEntityOnce() {
+        assertSame(falcon9, cachingDAO.load(Rocket.class, 1L));
+        assertSame(falcon9, cachingDAO.load(Rocket.class, 1L));
+        verify(dao, times(1)).load(Rocket.class, 1L);
+        assertEquals(1, cachingDAO.getStats(Rocket.class).hitCount());
+        assertEquals(1, cachingDAO.getStats(Rocket.class).missCount());
+    }
+
+    @Test
+    public void shouldCacheMissingEntitiesAsAbsent() {
+        assertNull(cachingDAO.load(Rocket.class, 3L));
+        assertNull(cachingDAO.load(Rocket.class, 3L));
+        verify(dao, times(1)).load(Rocket.class, 3L);
+    }
+
+    @Test
+    public void shouldKeepClassesApart() {
+        spacex.setId(1L);
+        when(dao.load(LaunchServiceProvider.class, 1L)).thenReturn(spacex);
+        assertSame(falcon9, cachingDAO.load(Rocket.class, 1L));
+        assertSame(spacex, cachingDAO.load(LaunchServiceProvider.class, 1L));
+        assertEquals(2, cachingDAO.getStats().missCount());
+    }
+
+    @Test
+    public void shouldLoadAllOnceAndServeEntitiesFromIt() {
+        Collection<Rocket> rockets = cachingDAO.loadAll(Rocket.class);
+        assertEquals(Arrays.asList(falcon9, falconHeavy), new ArrayList<>(rockets));
+        rockets.clear();
+        assertEquals(2, cachingDAO.loadAll(Rocket.class).size());
+        assertSame(falconHeavy, cachingDAO.load(Rocket.class, 2L));
+        verify(dao, times(1)).loadAll(Rocket.class);
+        verify(dao, never()).load(Rocket.class, 2L);
+        assertEquals(1, cachingDAO.getLoadAllStats().hitCount());
+    }
+
+    @Test
+    public void shouldInvalidateOnWrite() {
+        cachingDAO.load(Rocket.class, 1L);
+        cachingDAO.loadAll(Rocket.class);
+        cachingDAO.createOrUpdate(falcon9);
+        cachingDAO.load(Rocket.class, 1L);
+        cachingDAO.loadAll(Rocket.class);
+        verify(dao, times(2)).load(Rocket.class, 1L);
+        verify(dao, times(2)).loadAll(Rocket.class);
+    }
+
+    @Test
+    public void shouldNotCacheEntitiesByIdFromALoadAllThatOverlappedAWrite() {
+        Rocket updated = new Rocket("Falcon 9", "USA", spacex);
+        updated.setId(1L);
+        updated.setWikilink("https://en.wikipedia.org/wiki/Falcon_9");
+        // the write lands while the old falcon9 is being read
+        when(dao.loadAll(Rocket.class)).thenAnswer(invocation -> {
+            cachingDAO.createOrUpdate(updated);
+            return Arrays.asList(falcon9, falconHeavy);
+        });
+        when(dao.load(Rocket.class, 1L)).thenReturn(updated);
+
+        cachingDAO.loadAll(Rocket.class);
+        assertSame(updated, cachingDAO.load(Rocket.class, 1L));
+        verify(dao, times(1)).load(Rocket.class, 1L);
+    }
+
+    @Test
+    public void shouldInvalidateOnBatchWrite() {
+        when(dao.createOrUpdateAll(any())).thenAnswer(invocation -> new ArrayList<>((Collection<?>) invocation.getArgument(0)));
+        cachingDAO.load(Rocket.class, 1L);
+        cachingDAO.load(Rocket.class, 2L);
+        cachingDAO.createOrUpdateAll(Collections.singletonList(falconHeavy));
+        cachingDAO.load(Rocket.class, 1L);
+        cachingDAO.load(Rocket.class, 2L);
+        verify(dao, times(1)).load(Rocket.class, 1L);
+        verify(dao, times(2)).load(Rocket.class, 2L);
+    }
+
+    @Test
+    public void shouldInvalidateOnDelete() {
+        cachingDAO.load(Rocket.class, 1L);
+        cachingDAO.delete(falcon9);
+        when(dao.load(Rocket.class, 1L)).thenReturn(null);
+        assertNull(cachingDAO.load(Rocket.class, 1L));
+        verify(dao).delete(falcon9);
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsedBeyondMaximumSize() {
+        cachingDAO = new CachingDAO(dao, 1, 0, TimeUnit.SECONDS);
+        cachingDAO.load(Rocket.class, 1L);
+        cachingDAO.load(Rocket.class, 2L);
+        cachingDAO.load(Rocket.class, 1L);
+        verify(dao, times(2)).load(Rocket.class, 1L);
+        assertEquals(2, cachingDAO.getStats(Rocket.class).evictionCount());
+    }
+
+    @Test
+    public void shouldExpireEntriesAfterTimeToLive() {
+        AtomicLong nanos = new AtomicLong();
+        Ticker ticker = new Ticker() {
+            @Override
+            public long read() {
+                return nanos.get();
+            }
+        };
+        cachingDAO = new CachingDAO(dao, 10, 1, TimeUnit.MINUTES, ticker);
+        cachingDAO.load(Rocket.class, 1L);
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(59));
+        cachingDAO.load(Rocket.class, 1L);
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        cachingDAO.load(Rocket.class, 1L);
+        verify(dao, times(2)).load(Rocket.class, 1L);
+    }
+
+    @Test
+    public void shouldLoadOnceForConcurrentReaders() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        when(dao.load(Rocket.class, 1L)).thenAnswer(invocation -> {
+            loading.await(1, TimeUnit.SECONDS);
+            return falcon9;
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Rocket>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(() -> cachingDAO.load(Rocket.class, 1L)));
+            }
+            loading.countDown();
+            for (Future<Rocket> result : results) {
+                assertSame(falcon9, result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        verify(dao, times(1)).load(Rocket.class, 1L);
+    }
+
+    @Test
+    public void shouldPassOnErrorsOfTheWrappedDAO() {
+        when(dao.load(Rocket.class, 3L)).thenThrow(new IllegalStateException("down"));
+        assertThrows(IllegalStateException.class, () -> cachingDAO.load(Rocket.class, 3L));
+    }
+
+    @Test
+    public void shouldRejectNonPositiveMaximumSize() {
+        assertThrows(IllegalArgumentException.class, () -> new CachingDAO(dao, 0, 0, TimeUnit.SECONDS));
+    }
+}
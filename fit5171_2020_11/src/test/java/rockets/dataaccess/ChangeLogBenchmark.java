@@ -0,0 +1,71 @@
+package rockets.dataaccess;
+
+import rockets.model.Launch;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Measures how fast one writer publishes to a change log while several subscribers drain
+ * it in batches, and how many events each subscriber reads or misses. Run the main method
+ * with the test classpath. Arguments: [events] [capacity] [batch size] [rounds].
+ */
+public class ChangeLogBenchmark {
+    public static void main(String[] args) throws Exception {
+        int eventCount = args.length > 0 ? Integer.parseInt(args[0]) : 5_000_000;
+        int capacity = args.length > 1 ? Integer.parseInt(args[1]) : ChangeLog.DEFAULT_CAPACITY;
+        int batchSize = args.length > 2 ? Integer.parseInt(args[2]) : 256;
+        int rounds = args.length > 3 ? Integer.parseInt(args[3]) : 3;
+        Launch launch = new Launch();
+
+        for (int round = 0; round < rounds; round++) {
+            for (int subscribers : new int[]{0, 1, 2, 4}) {
+                run(eventCount, capacity, batchSize, subscribers, launch);
+            }
+        }
+    }
+
+    private static void run(int eventCount, int capacity, int batchSize, int subscribers, Launch launch) throws Exception {
+        ChangeLog log = new ChangeLog(capacity);
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, subscribers));
+        List<Future<long[]>> readers = new ArrayList<>();
+        for (int i = 0; i < subscribers; i++) {
+            ChangeLog.Subscription subscription = log.subscribe();
+            readers.add(executor.submit(() -> {
+                List<ChangeEvent> batch = new ArrayList<>(batchSize);
+                long read = 0;
+                long missed = 0;
+                while (read + missed < eventCount) {
+                    batch.clear();
+                    try {
+                        read += subscription.drainTo(batch, batchSize);
+                    } catch (ChangeLog.OverflowException e) {
+                        read += batch.size();
+                        missed += e.getMissed();
+                    }
+                }
+                return new long[]{read, missed};
+            }));
+        }
+
+        long start = System.nanoTime();
+        for (long id = 0; id < eventCount; id++) {
+            log.publish(ChangeEvent.Type.SAVED, Launch.class, id, null, launch);
+        }
+        double publishMillis = (System.nanoTime() - start) / 1e6;
+        long read = 0;
+        long missed = 0;
+        for (Future<long[]> reader : readers) {
+            long[] counts = reader.get();
+            read += counts[0];
+            missed += counts[1];
+        }
+        double totalMillis = (System.nanoTime() - start) / 1e6;
+        executor.shutdown();
+        System.out.printf("%d subscribers: published %,d events in %8.1f ms (%,6.1f M/s), drained in %8.1f ms, read %,d missed %,d%n",
+                subscribers, eventCount, publishMillis, eventCount / publishMillis / 1e3, totalMillis, read, missed);
+    }
+}
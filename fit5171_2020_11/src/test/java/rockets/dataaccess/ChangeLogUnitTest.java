@@ -0,0 +1,106 @@
+package rockets.dataaccess;
+
+import org.junit.jupiter.api.Test;
+import rockets.model.Rocket;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ChangeLogUnitTest {
+    private static void publish(ChangeLog log, long id) {
+        log.publish(ChangeEvent.Type.SAVED, Rocket.class, id, null, null);
+    }
+
+    @Test
+    public void shouldDeliverEventsInOrderToEachSubscriber() {
+        ChangeLog log = new ChangeLog(8);
+        publish(log, 0);
+        ChangeLog.Subscription first = log.subscribe();
+        publish(log, 1);
+        ChangeLog.Subscription second = log.subscribe();
+        publish(log, 2);
+        publish(log, 3);
+
+        List<ChangeEvent> events = new ArrayList<>();
+        assertEquals(2, first.drainTo(events, 2));
+        assertEquals(1, first.drainTo(events, 10));
+        assertEquals(0, first.drainTo(events, 10));
+        assertEquals(3, events.size());
+        for (int i = 0; i < events.size(); i++) {
+            assertEquals(i + 1, events.get(i).getSequence());
+            assertEquals(Long.valueOf(i + 1), events.get(i).getId());
+            assertEquals(Rocket.class, events.get(i).getEntityClass());
+        }
+        assertEquals(2, second.getLag());
+        assertEquals(0, first.getLag());
+    }
+
+    @Test
+    public void shouldSignalOverflowAndResumeFromTheOldestEventKept() {
+        ChangeLog log = new ChangeLog(4);
+        ChangeLog.Subscription subscription = log.subscribe();
+        for (int id = 0; id < 10; id++) {
+            publish(log, id);
+        }
+        assertEquals(10, subscription.getLag());
+        List<ChangeEvent> events = new ArrayList<>();
+        ChangeLog.OverflowException overflow = assertThrows(ChangeLog.OverflowException.class, () -> subscription.drainTo(events, 10));
+        // the oldest slot is left alone, as the next publish would overwrite it
+        assertEquals(7, overflow.getMissed());
+        assertTrue(events.isEmpty());
+        assertEquals(3, subscription.drainTo(events, 10));
+        assertEquals(7, events.get(0).getSequence());
+    }
+
+    @Test
+    public void shouldRejectCapacityThatIsNotAPowerOfTwo() {
+        assertThrows(IllegalArgumentException.class, () -> new ChangeLog(12));
+        assertThrows(IllegalArgumentException.class, () -> new ChangeLog(0));
+    }
+
+    @Test
+    public void shouldNeverDeliverATornEventToConcurrentSubscribers() throws Exception {
+        ChangeLog log = new ChangeLog(64);
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            List<Future<long[]>> readers = new ArrayList<>();
+            for (int reader = 0; reader < 2; reader++) {
+                ChangeLog.Subscription subscription = log.subscribe();
+                readers.add(executor.submit(() -> {
+                    List<ChangeEvent> events = new ArrayList<>();
+                    long read = 0;
+                    long missed = 0;
+                    while (read + missed < 200_000) {
+                        events.clear();
+                        try {
+                            subscription.drainTo(events, 32);
+                        } catch (ChangeLog.OverflowException e) {
+                            missed += e.getMissed();
+                        }
+                        for (ChangeEvent event : events) {
+                            // each event carries its own sequence as id
+                            assertEquals(Long.valueOf(event.getSequence()), event.getId());
+                            read++;
+                        }
+                    }
+                    return new long[]{read, missed};
+                }));
+            }
+            for (int id = 0; id < 200_000; id++) {
+                publish(log, id);
+            }
+            for (Future<long[]> reader : readers) {
+                long[] counts = reader.get(30, TimeUnit.SECONDS);
+                assertEquals(200_000, counts[0] + counts[1]);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
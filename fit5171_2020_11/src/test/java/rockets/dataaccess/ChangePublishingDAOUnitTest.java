@@ -0,0 +1,77 @@
+package rockets.dataaccess;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import rockets.dataaccess.memory.InMemoryDAO;
+import rockets.model.LaunchServiceProvider;
+import rockets.model.Rocket;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class ChangePublishingDAOUnitTest {
+    private ChangePublishingDAO dao;
+    private ChangeLog.Subscription subscription;
+    private LaunchServiceProvider spacex;
+
+    @BeforeEach
+    public void setUp() {
+        dao = new ChangePublishingDAO(new InMemoryDAO());
+        subscription = dao.getChangeLog().subscribe();
+        spacex = new LaunchServiceProvider("SpaceX", 2002, "USA");
+    }
+
+    private List<ChangeEvent> drain() {
+        List<ChangeEvent> events = new ArrayList<>();
+        subscription.drainTo(events, Integer.MAX_VALUE);
+        return events;
+    }
+
+    @Test
+    public void shouldPublishSavedAndDeletedEntities() {
+        Rocket falcon9 = new Rocket("Falcon 9", "USA", spacex);
+        dao.createOrUpdate(falcon9);
+        dao.delete(falcon9);
+
+        List<ChangeEvent> events = drain();
+        assertEquals(2, events.size());
+        ChangeEvent saved = events.get(0);
+        assertEquals(ChangeEvent.Type.SAVED, saved.getType());
+        assertEquals(Rocket.class, saved.getEntityClass());
+        assertEquals(falcon9.getId(), saved.getId());
+        assertNull(saved.getBefore());
+        assertSame(falcon9, saved.getAfter());
+        ChangeEvent deleted = events.get(1);
+        assertEquals(ChangeEvent.Type.DELETED, deleted.getType());
+        assertEquals(falcon9.getId(), deleted.getId());
+        assertSame(falcon9, deleted.getBefore());
+        assertNull(deleted.getAfter());
+    }
+
+    @Test
+    public void shouldPublishEachEntityOfABatchInOrder() {
+        Rocket falcon9 = new Rocket("Falcon 9", "USA", spacex);
+        Rocket electron = new Rocket("Electron", "USA", spacex);
+        dao.createOrUpdateAll(Arrays.asList(falcon9, electron));
+        List<ChangeEvent> events = drain();
+        assertEquals(2, events.size());
+        assertSame(falcon9, events.get(0).getAfter());
+        assertSame(electron, events.get(1).getAfter());
+    }
+
+    @Test
+    public void shouldPublishNothingWhenTheWriteFails() {
+        DAO failing = mock(DAO.class);
+        doThrow(new IllegalStateException("down")).when(failing).createOrUpdate(any());
+        doThrow(new IllegalStateException("down")).when(failing).delete(any());
+        ChangePublishingDAO publishing = new ChangePublishingDAO(failing);
+        assertThrows(IllegalStateException.class, () -> publishing.createOrUpdate(spacex));
+        assertThrows(IllegalStateException.class, () -> publishing.delete(spacex));
+        assertEquals(-1, publishing.getChangeLog().getPublished());
+    }
+}
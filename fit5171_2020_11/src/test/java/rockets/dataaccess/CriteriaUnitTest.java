@@ -0,0 +1,77 @@
+package rockets.dataaccess;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import rockets.model.Launch;
+import rockets.model.LaunchServiceProvider;
+import rockets.model.Rocket;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CriteriaUnitTest {
+    private List<Launch> launches;
+
+    @BeforeEach
+    public void setUp() {
+        LaunchServiceProvider spacex = new LaunchServiceProvider("SpaceX", 2002, "USA");
+        spacex.setId(7L);
+        Rocket falcon9 = new Rocket("Falcon9", "USA", spacex);
+        launches = Arrays.asList(launch(3L, LocalDate.of(2017, 3, 1), "62.5"), launch(1L, null, "50"),
+                launch(2L, LocalDate.of(2018, 1, 1), null));
+        for (Launch launch : launches) {
+            launch.setLaunchVehicle(falcon9);
+            launch.setLaunchServiceProvider(spacex);
+        }
+    }
+
+    private static Launch launch(Long id, LocalDate launchDate, String price) {
+        Launch launch = new Launch();
+        launch.setId(id);
+        if (null != launchDate) {
+            launch.setLaunchDate(launchDate);
+        }
+        if (null != price) {
+            launch.setPrice(new BigDecimal(price));
+        }
+        return launch;
+    }
+
+    @Test
+    public void shouldMatchEveryEntityInIdOrderWithoutConditions() {
+        assertEquals(Arrays.asList(launches.get(1), launches.get(2), launches.get(0)), Criteria.of(Launch.class).apply(launches));
+    }
+
+    @Test
+    public void shouldNotMatchNullFields() {
+        assertEquals(Collections.singletonList(launches.get(0)),
+                Criteria.of(Launch.class).atMost("launchDate", LocalDate.of(2017, 12, 31)).apply(launches));
+        assertFalse(Criteria.of(Launch.class).lessThan("price", 100).matches(launches.get(2)));
+    }
+
+    @Test
+    public void shouldCompareNumbersByValue() {
+        Criteria<Launch> criteria = Criteria.of(Launch.class).equalTo("price", 62.50).in("launchServiceProvider.id", Arrays.asList(1, 7));
+        assertEquals(Collections.singletonList(launches.get(0)), criteria.apply(launches));
+    }
+
+    @Test
+    public void shouldSortNullsLastAscendingAndFirstDescending() {
+        assertEquals(Arrays.asList(launches.get(0), launches.get(2), launches.get(1)),
+                Criteria.of(Launch.class).orderBy("launchDate").apply(launches));
+        assertEquals(Arrays.asList(launches.get(1), launches.get(2)),
+                Criteria.of(Launch.class).orderByDescending("launchDate").limit(2).apply(launches));
+    }
+
+    @Test
+    public void shouldRejectInvalidCriteria() {
+        assertThrows(IllegalArgumentException.class, () -> Criteria.of(Launch.class).limit(-1));
+        assertThrows(NullPointerException.class, () -> Criteria.of(Launch.class).equalTo("price", null));
+        assertThrows(IllegalArgumentException.class, () -> Criteria.of(Launch.class).equalTo("payload", 1).apply(launches));
+    }
+}
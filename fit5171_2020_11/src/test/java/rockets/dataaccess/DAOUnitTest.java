@@ -0,0 +1,53 @@
+package rockets.dataaccess;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import rockets.model.Launch;
+import rockets.model.LaunchServiceProvider;
+import rockets.model.Rocket;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class DAOUnitTest {
+    private DAO dao;
+
+    private Launch launch;
+
+    @BeforeEach
+    public void setUp() {
+        dao = mock(DAO.class, CALLS_REAL_METHODS);
+        LaunchServiceProvider spacex = new LaunchServiceProvider("SpaceX", 2002, "USA");
+        spacex.setId(7L);
+        launch = new Launch();
+        launch.setId(1L);
+        launch.setLaunchDate(LocalDate.of(2017, 3, 1));
+        launch.setPrice(new BigDecimal("62.5"));
+        launch.setLaunchVehicle(new Rocket("Falcon9", "USA", spacex));
+        launch.setLaunchServiceProvider(spacex);
+        doReturn(Arrays.asList(launch, new Launch())).when(dao).loadAll(Launch.class);
+    }
+
+    @Test
+    public void shouldProjectFieldsFromLoadedEntities() {
+        List<Object[]> rows = dao.loadProjection(Launch.class, "id", "launchDate", "price", "launchServiceProvider.id", "launchVehicle.name");
+        assertEquals(2, rows.size());
+        assertArrayEquals(new Object[]{1L, LocalDate.of(2017, 3, 1), new BigDecimal("62.5"), 7L, "Falcon9"}, rows.get(0));
+        assertArrayEquals(new Object[]{null, null, null, null, null}, rows.get(1));
+    }
+
+    @Test
+    public void shouldRejectUnknownField() {
+        assertThrows(IllegalArgumentException.class, () -> dao.loadProjection(Launch.class, "payload"));
+    }
+
+    @Test
+    public void shouldStreamLoadedEntities() {
+        assertEquals(2, dao.stream(Launch.class, 1).count());
+    }
+}
@@ -0,0 +1,83 @@
+package rockets.dataaccess;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import rockets.metrics.Metrics;
+import rockets.model.Launch;
+import rockets.model.LaunchServiceProvider;
+import rockets.model.Rocket;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class InstrumentedDAOUnitTest {
+    private DAO dao;
+    private InstrumentedDAO instrumentedDAO;
+    private LaunchServiceProvider spacex;
+    private Rocket falcon9;
+
+    @BeforeEach
+    public void setUp() {
+        dao = mock(DAO.class);
+        instrumentedDAO = new InstrumentedDAO(dao);
+        spacex = new LaunchServiceProvider("SpaceX", 2002, "USA");
+        falcon9 = new Rocket("Falcon 9", "USA", spacex);
+    }
+
+    @Test
+    public void shouldRecordCallsAndResultSizesByOperationAndClass() {
+        when(dao.loadAll(Launch.class)).thenReturn(Arrays.asList(new Launch(), new Launch(), new Launch()));
+        when(dao.load(Rocket.class, 1L)).thenReturn(falcon9);
+        instrumentedDAO.loadAll(Launch.class);
+        instrumentedDAO.loadAll(Launch.class);
+        instrumentedDAO.load(Rocket.class, 1L);
+        instrumentedDAO.load(Rocket.class, 2L);
+
+        Map<String, Metrics.OperationMetrics.Snapshot> snapshot = instrumentedDAO.getMetrics().snapshot();
+        assertEquals(Arrays.asList("load:Rocket", "loadAll:Launch"), Arrays.asList(snapshot.keySet().toArray()));
+        Metrics.OperationMetrics.Snapshot loadAll = snapshot.get("loadAll:Launch");
+        assertEquals(2, loadAll.getCalls());
+        assertEquals(0, loadAll.getFailures());
+        assertEquals(2, loadAll.getLatencies().getCount());
+        assertEquals(3, loadAll.getResultSizes().getMax());
+        Metrics.OperationMetrics.Snapshot load = snapshot.get("load:Rocket");
+        assertEquals(0, load.getResultSizes().getMin());
+        assertEquals(1, load.getResultSizes().getMax());
+    }
+
+    @Test
+    public void shouldRecordFailuresAndRethrow() {
+        IllegalStateException failure = new IllegalStateException("down");
+        doThrow(failure).when(dao).delete(any());
+        assertSame(failure, assertThrows(IllegalStateException.class, () -> instrumentedDAO.delete(falcon9)));
+        Metrics.OperationMetrics.Snapshot delete = instrumentedDAO.getMetrics().snapshot().get("delete:Rocket");
+        assertEquals(1, delete.getCalls());
+        assertEquals(1, delete.getFailures());
+        assertEquals(1, delete.getLatencies().getCount());
+        assertEquals(0, delete.getResultSizes().getCount());
+    }
+
+    @Test
+    public void shouldRecordWritesUnderTheClassOfTheirEntities() {
+        when(dao.createOrUpdateAll(any())).thenReturn(Collections.emptyList());
+        instrumentedDAO.createOrUpdateAll(Arrays.asList(falcon9, new Rocket("Electron", "USA", spacex)));
+        instrumentedDAO.createOrUpdateAll(Arrays.asList(falcon9, spacex));
+        instrumentedDAO.createOrUpdate(spacex);
+        assertEquals(Arrays.asList("createOrUpdate:LaunchServiceProvider", "createOrUpdateAll:Entity", "createOrUpdateAll:Rocket"),
+                Arrays.asList(instrumentedDAO.getMetrics().snapshot().keySet().toArray()));
+        verify(dao, times(2)).createOrUpdateAll(any());
+        verify(dao).createOrUpdate(spacex);
+    }
+
+    @Test
+    public void shouldStartFromNothingAfterReset() {
+        instrumentedDAO.find(Criteria.of(Launch.class));
+        assertEquals(1, instrumentedDAO.getMetrics().snapshotAndReset().get("find:Launch").getCalls());
+        assertEquals(0, instrumentedDAO.getMetrics().snapshot().get("find:Launch").getCalls());
+    }
+}
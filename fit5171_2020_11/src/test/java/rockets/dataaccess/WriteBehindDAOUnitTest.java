@@ -0,0 +1,265 @@
+package rockets.dataaccess;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import rockets.model.Launch;
+import rockets.model.LaunchServiceProvider;
+import rockets.model.Rocket;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class WriteBehindDAOUnitTest {
+    private DAO dao;
+    private WriteBehindDAO writeBehindDAO;
+    private Rocket falcon9;
+    private ExecutorService executor;
+
+    @BeforeEach
+    public void setUp() {
+        dao = mock(DAO.class);
+        when(dao.createOrUpdateAll(any())).thenAnswer(invocation -> new ArrayList<>((Collection<?>) invocation.getArgument(0)));
+        // flushed by hand unless a test says otherwise
+        writeBehindDAO = new WriteBehindDAO(dao, 10, 20, 1, TimeUnit.HOURS);
+        falcon9 = new Rocket("Falcon 9", "USA", new LaunchServiceProvider("SpaceX", 2002, "USA"));
+        executor = Executors.newSingleThreadExecutor();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdownNow();
+        writeBehindDAO.close();
+    }
+
+    private Launch launch(int day, int price) {
+        Launch launch = new Launch();
+        launch.setLaunchDate(LocalDate.of(2020, 1, day));
+        launch.setLaunchVehicle(falcon9);
+        launch.setLaunchServiceProvider(falcon9.getManufacturer());
+        launch.setOrbit("LEO");
+        launch.setPrice(BigDecimal.valueOf(price));
+        return launch;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<List<Launch>> flushedBatches(int times) {
+        ArgumentCaptor<Collection<Launch>> batches = ArgumentCaptor.forClass(Collection.class);
+        verify(dao, times(times)).createOrUpdateAll(batches.capture());
+        List<List<Launch>> result = new ArrayList<>();
+        for (Collection<Launch> batch : batches.getAllValues()) {
+            result.add(new ArrayList<>(batch));
+        }
+        return result;
+    }
+
+    @Test
+    public void shouldCoalesceRepeatedWritesToTheSameLaunch() {
+        Launch first = launch(1, 100);
+        Launch revised = launch(1, 120);
+        revised.setLaunchOutcome(Launch.LaunchOutcome.FAILED);
+        Launch other = launch(2, 200);
+        writeBehindDAO.createOrUpdate(first);
+        writeBehindDAO.createOrUpdate(other);
+        writeBehindDAO.createOrUpdate(revised);
+        assertEquals(2, writeBehindDAO.getPendingCount());
+        verify(dao, never()).createOrUpdate(any());
+
+        writeBehindDAO.flush();
+        List<Launch> batch = flushedBatches(1).get(0);
+        assertEquals(2, batch.size());
+        assertSame(revised, batch.get(0));
+        assertSame(other, batch.get(1));
+        assertEquals(0, writeBehindDAO.getPendingCount());
+    }
+
+    @Test
+    public void shouldCoalesceWritesByIdWhenTheLaunchesHaveOne() {
+        Launch first = launch(1, 100);
+        first.setId(7L);
+        Launch twin = launch(1, 100);
+        twin.setId(8L);
+        Launch revised = launch(2, 120);
+        revised.setId(7L);
+        Launch unsaved = launch(1, 100);
+        writeBehindDAO.createOrUpdate(first);
+        writeBehindDAO.createOrUpdate(twin);
+        writeBehindDAO.createOrUpdate(revised);
+        writeBehindDAO.createOrUpdate(unsaved);
+        assertEquals(3, writeBehindDAO.getPendingCount());
+
+        Launch deleted = launch(1, 100);
+        deleted.setId(8L);
+        writeBehindDAO.delete(deleted);
+        verify(dao).delete(deleted);
+        List<Launch> batch = flushedBatches(1).get(0);
+        assertEquals(2, batch.size());
+        assertSame(revised, batch.get(0));
+        assertSame(unsaved, batch.get(1));
+    }
+
+    @Test
+    public void shouldFlushInBatchesOnceABatchIsFull() {
+        for (int day = 1; day <= 10; day++) {
+            writeBehindDAO.createOrUpdate(launch(day, 100));
+        }
+        verify(dao, timeout(5000)).createOrUpdateAll(any());
+        assertEquals(10, flushedBatches(1).get(0).size());
+    }
+
+    @Test
+    public void shouldFlushAtTheInterval() {
+        writeBehindDAO.close();
+        writeBehindDAO = new WriteBehindDAO(dao, 10, 20, 50, TimeUnit.MILLISECONDS);
+        Launch launch = launch(1, 100);
+        writeBehindDAO.createOrUpdate(launch);
+        verify(dao, timeout(5000)).createOrUpdateAll(Collections.singletonList(launch));
+    }
+
+    @Test
+    public void shouldSeeBufferedWritesWhenReading() {
+        Launch stored = launch(1, 100);
+        stored.setId(1L);
+        Launch untouched = launch(2, 200);
+        untouched.setId(2L);
+        when(dao.loadAll(Launch.class)).thenReturn(Arrays.asList(stored, untouched));
+        when(dao.load(Launch.class, 1L)).thenReturn(stored);
+
+        Launch revised = launch(1, 150);
+        revised.setId(1L);
+        Launch added = launch(3, 300);
+        writeBehindDAO.createOrUpdate(revised);
+        writeBehindDAO.createOrUpdate(added);
+
+        assertSame(revised, writeBehindDAO.load(Launch.class, 1L));
+        assertEquals(Arrays.asList(revised, untouched, added), new ArrayList<>(writeBehindDAO.loadAll(Launch.class)));
+        assertTrue(writeBehindDAO.loadAll(Rocket.class).isEmpty());
+        verify(dao, never()).load(Launch.class, 1L);
+    }
+
+    @Test
+    public void shouldFlushBeforeStreamsAndProjections() {
+        Launch launch = launch(1, 100);
+        writeBehindDAO.createOrUpdate(launch);
+        writeBehindDAO.loadProjection(Launch.class, "price");
+        verify(dao).createOrUpdateAll(Collections.singletonList(launch));
+    }
+
+    @Test
+    public void shouldDropTheBufferedWriteOfADeletedEntity() {
+        Launch launch = launch(1, 100);
+        writeBehindDAO.createOrUpdate(launch);
+        writeBehindDAO.createOrUpdate(launch(2, 100));
+        writeBehindDAO.delete(launch(1, 100));
+        verify(dao).delete(launch);
+        assertEquals(1, flushedBatches(1).get(0).size());
+    }
+
+    @Test
+    public void shouldFlushOnCloseAndRejectLaterWrites() {
+        Launch launch = launch(1, 100);
+        writeBehindDAO.createOrUpdate(launch);
+        writeBehindDAO.close();
+        verify(dao).createOrUpdateAll(Collections.singletonList(launch));
+        assertThrows(IllegalStateException.class, () -> writeBehindDAO.createOrUpdate(launch(2, 100)));
+    }
+
+    @Test
+    public void shouldMakeWritersWaitWhenTheBufferIsFull() throws Exception {
+        writeBehindDAO.close();
+        writeBehindDAO = new WriteBehindDAO(dao, 2, 2, 1, TimeUnit.HOURS);
+        CountDownLatch flushing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            flushing.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return new ArrayList<>((Collection<?>) invocation.getArgument(0));
+        }).when(dao).createOrUpdateAll(any());
+        writeBehindDAO.createOrUpdate(launch(1, 100));
+        writeBehindDAO.createOrUpdate(launch(2, 100));
+        assertTrue(flushing.await(5, TimeUnit.SECONDS));
+        writeBehindDAO.createOrUpdate(launch(3, 100));
+        writeBehindDAO.createOrUpdate(launch(4, 100));
+        // a revision of a buffered launch takes no room
+        writeBehindDAO.createOrUpdate(launch(4, 150));
+
+        Future<?> waiting = executor.submit(() -> writeBehindDAO.createOrUpdate(launch(5, 100)));
+        assertThrows(TimeoutException.class, () -> waiting.get(200, TimeUnit.MILLISECONDS));
+        release.countDown();
+        waiting.get(5, TimeUnit.SECONDS);
+        writeBehindDAO.flush();
+        int written = 0;
+        for (List<Launch> batch : flushedBatches(3)) {
+            written += batch.size();
+        }
+        assertEquals(5, written);
+    }
+
+    @Test
+    public void shouldBufferAFailedFlushAgain() {
+        Launch first = launch(1, 100);
+        writeBehindDAO.createOrUpdate(first);
+        doThrow(new IllegalStateException("down"))
+                .doAnswer(invocation -> new ArrayList<>((Collection<?>) invocation.getArgument(0)))
+                .when(dao).createOrUpdateAll(any());
+        assertThrows(IllegalStateException.class, () -> writeBehindDAO.flush());
+        assertEquals(1, writeBehindDAO.getPendingCount());
+
+        Launch second = launch(2, 100);
+        writeBehindDAO.createOrUpdate(second);
+        writeBehindDAO.flush();
+        assertEquals(Arrays.asList(first, second), flushedBatches(2).get(1));
+    }
+
+    @Test
+    public void shouldLeaveRetriesOfAFailedFlushToTheInterval() throws Exception {
+        writeBehindDAO.close();
+        writeBehindDAO = new WriteBehindDAO(dao, 2, 2, 1, TimeUnit.HOURS);
+        doThrow(new IllegalStateException("down")).when(dao).createOrUpdateAll(any());
+        writeBehindDAO.createOrUpdate(launch(1, 100));
+        writeBehindDAO.createOrUpdate(launch(2, 100));
+        verify(dao, timeout(5000).times(1)).createOrUpdateAll(any());
+
+        Future<?> waiting = executor.submit(() -> writeBehindDAO.createOrUpdate(launch(3, 100)));
+        assertThrows(TimeoutException.class, () -> waiting.get(200, TimeUnit.MILLISECONDS));
+        verify(dao, times(1)).createOrUpdateAll(any());
+
+        doAnswer(invocation -> new ArrayList<>((Collection<?>) invocation.getArgument(0))).when(dao).createOrUpdateAll(any());
+        writeBehindDAO.flush();
+        waiting.get(5, TimeUnit.SECONDS);
+        assertEquals(1, writeBehindDAO.getPendingCount());
+    }
+
+    @Test
+    public void shouldBufferAgainOnlyTheBatchesAFailedFlushDidNotWrite() {
+        List<Launch> launches = new ArrayList<>();
+        for (int day = 1; day <= 9; day++) {
+            launches.add(launch(day, 100));
+        }
+        writeBehindDAO.close();
+        writeBehindDAO = new WriteBehindDAO(dao, 4, 20, 1, TimeUnit.HOURS);
+        doAnswer(invocation -> new ArrayList<>((Collection<?>) invocation.getArgument(0)))
+                .doThrow(new IllegalStateException("down"))
+                .doAnswer(invocation -> new ArrayList<>((Collection<?>) invocation.getArgument(0)))
+                .when(dao).createOrUpdateAll(any());
+        // held back until all are buffered, the background flush writes the first batch and fails on the second
+        synchronized (writeBehindDAO) {
+            launches.forEach(writeBehindDAO::createOrUpdate);
+        }
+        verify(dao, timeout(5000).times(2)).createOrUpdateAll(any());
+
+        writeBehindDAO.flush();
+        List<List<Launch>> batches = flushedBatches(4);
+        assertEquals(launches.subList(0, 4), batches.get(0));
+        assertEquals(launches.subList(4, 8), batches.get(2));
+        assertEquals(launches.subList(8, 9), batches.get(3));
+        assertEquals(0, writeBehindDAO.getPendingCount());
+    }
+}
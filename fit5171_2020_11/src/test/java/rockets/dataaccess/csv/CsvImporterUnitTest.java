@@ -0,0 +1,250 @@
+package rockets.dataaccess.csv;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import rockets.dataaccess.DAO;
+import rockets.dataaccess.EntitySink;
+import rockets.dataaccess.memory.InMemoryDAO;
+import rockets.model.Entity;
+import rockets.model.Launch;
+import rockets.model.LaunchServiceProvider;
+import rockets.model.Rocket;
+
+import java.io.Reader;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class CsvImporterUnitTest {
+    private static final String PROVIDERS = "name,yearFounded,country,headquarters\n" +
+            "SpaceX,2002,USA,Hawthorne\n" +
+            "Rocket Lab,2006,USA,\n";
+
+    private static final String ROCKETS = "name,country,manufacturer,massToLEO\n" +
+            "Falcon 9,USA,SpaceX,22800\n" +
+            "Electron,USA,Rocket Lab,\n";
+
+    private static final String LAUNCH_HEADER = "launchDate,rocket,provider,launchSite,orbit,function,price,launchOutcome\n";
+
+    private InMemoryDAO dao;
+    private CsvImporter importer;
+
+    @BeforeEach
+    public void setUp() {
+        dao = new InMemoryDAO();
+        importer = new CsvImporter(dao, 2, 10, 2, 100);
+    }
+
+    private void importReferences() {
+        importer.importProviders(new StringReader(PROVIDERS));
+        importer.importRockets(new StringReader(ROCKETS));
+    }
+
+    @Test
+    public void shouldImportProvidersRocketsAndLaunchesReferringToThem() {
+        ImportReport providers = importer.importProviders(new StringReader(PROVIDERS));
+        ImportReport rockets = importer.importRockets(new StringReader(ROCKETS));
+        ImportReport launches = importer.importLaunches(new StringReader(LAUNCH_HEADER +
+                "2020-05-30,Falcon 9,,LC-39A,LEO,Crew,62.5,successful\n" +
+                "2019-06-29,Electron,Rocket Lab,Mahia,SSO,,,\n"));
+
+        assertEquals(2, providers.getEntitiesWritten());
+        assertEquals(2, rockets.getEntitiesWritten());
+        assertEquals(2, launches.getRowsAccepted());
+        assertTrue(launches.isFinished());
+        List<Launch> saved = new ArrayList<>(dao.loadAll(Launch.class));
+        assertEquals(2, saved.size());
+        Launch crew = saved.get(0);
+        assertEquals(LocalDate.of(2020, 5, 30), crew.getLaunchDate());
+        assertEquals("Falcon 9", crew.getLaunchVehicle().getName());
+        assertEquals("22800", crew.getLaunchVehicle().getMassToLEO());
+        assertEquals("SpaceX", crew.getLaunchServiceProvider().getName());
+        assertEquals("Hawthorne", crew.getLaunchServiceProvider().getHeadquarters());
+        assertEquals(new BigDecimal("62.5"), crew.getPrice());
+        assertEquals(Launch.LaunchOutcome.SUCCESSFUL, crew.getLaunchOutcome());
+        assertNull(saved.get(1).getPrice());
+        // the references are the entities imported, not copies
+        assertEquals(2, dao.loadAll(Rocket.class).size());
+        assertEquals(2, dao.loadAll(LaunchServiceProvider.class).size());
+    }
+
+    @Test
+    public void shouldWriteToASinkThatCannotBeRead() {
+        List<Entity> written = Collections.synchronizedList(new ArrayList<>());
+        EntitySink sink = new EntitySink() {
+            @Override
+            public <T extends Entity> T createOrUpdate(T entity) {
+                written.add(entity);
+                return entity;
+            }
+        };
+        importer = new CsvImporter(sink, 2, 10, 2, 100);
+        importReferences();
+        ImportReport launches = importer.importLaunches(new StringReader(LAUNCH_HEADER +
+                "2020-05-30,Falcon 9,,LC-39A,LEO,Crew,62.5,successful\n"));
+
+        assertEquals(1, launches.getRowsAccepted());
+        assertEquals(5, written.size());
+        Launch crew = (Launch) written.get(4);
+        assertSame(written.get(2), crew.getLaunchVehicle());
+        assertSame(written.get(0), crew.getLaunchServiceProvider());
+    }
+
+    @Test
+    public void shouldReportRejectedRowsAndImportTheRest() {
+        importReferences();
+        ImportReport report = importer.importLaunches(new StringReader(LAUNCH_HEADER +
+                "2020-05-30,Falcon 9,,LC-39A,LEO,,,\n" +
+                "2020-13-01,Falcon 9,,LC-39A,LEO,,,\n" +
+                "2020-06-01,Ariane 5,,Kourou,GTO,,,\n" +
+                "2020-06-02,Falcon 9,,LC-39A,LEO,,-1,\n" +
+                "2020-06-03,Falcon 9,,,LEO,,,\n" +
+                "2020-06-04,Falcon 9,,LC-39A,LEO,,,EXPLODED\n" +
+                "2020-06-05,Falcon 9,,LC-39A,GTO,,,\n"));
+
+        assertEquals(7, report.getRowsRead());
+        assertEquals(2, report.getRowsAccepted());
+        assertEquals(5, report.getRowsRejected());
+        assertEquals(2, dao.loadAll(Launch.class).size());
+        List<ImportReport.Rejection> rejections = report.getRejections();
+        assertEquals(Arrays.asList(2L, 3L, 4L, 5L, 6L), Arrays.asList(rejections.stream().map(ImportReport.Rejection::getRow).toArray()));
+        assertTrue(rejections.get(1).getReason().contains("unknown rocket Ariane 5"));
+        assertTrue(rejections.get(2).getReason().contains("price cannot be negative"));
+        assertTrue(rejections.get(3).getReason().contains("launchSite is missing"));
+    }
+
+    @Test
+    public void shouldKeepOnlyTheFirstRejectionsButCountThemAll() {
+        importer = new CsvImporter(dao, 2, 10, 2, 1);
+        ImportReport report = importer.importLaunches(new StringReader(LAUNCH_HEADER +
+                "2020-05-30,Falcon 9,,LC-39A,LEO,,,\n" +
+                "2020-05-31,Falcon 9,,LC-39A,LEO,,,\n"));
+        assertEquals(2, report.getRowsRejected());
+        assertEquals(1, report.getRejections().size());
+    }
+
+    @Test
+    public void shouldRejectFileWithoutRequiredColumn() {
+        assertThrows(IllegalArgumentException.class,
+                () -> importer.importProviders(new StringReader("name,country\nSpaceX,USA\n")));
+    }
+
+    @Test
+    public void shouldStreamALargeFileInBatches() {
+        importReferences();
+        DAO counting = spy(dao);
+        importer = new CsvImporter(counting, 4, 1000, 2, 10);
+        importer.loadReferences(counting);
+        int rows = 50_000;
+        ImportReport report = importer.importLaunches(new GeneratedCsv(LAUNCH_HEADER, rows,
+                row -> LocalDate.of(2000, 1, 1).plusDays(row) + ",Falcon 9,,LC-39A,LEO,," + (row % 100) + ",FAILED\n"));
+
+        assertEquals(rows, report.getRowsAccepted(), () -> report.getRejections().toString());
+        assertEquals(rows, report.getEntitiesWritten());
+        assertEquals(rows, dao.loadAll(Launch.class).size());
+        verify(counting, times(rows / 1000)).createOrUpdateAll(any());
+        assertTrue(report.getRowsPerSecond() > 0);
+        // in file order, as the rows were read
+        List<Launch> launches = new ArrayList<>(dao.loadAll(Launch.class));
+        assertEquals(LocalDate.of(2000, 1, 1), launches.get(0).getLaunchDate());
+        assertEquals(LocalDate.of(2000, 1, 1).plusDays(rows - 1), launches.get(rows - 1).getLaunchDate());
+    }
+
+    @Test
+    public void shouldStopReadingWhileTheDAOIsBehind() throws Exception {
+        importReferences();
+        CountDownLatch release = new CountDownLatch(1);
+        DAO slow = mockWithReferences();
+        when(slow.createOrUpdateAll(any())).thenAnswer(invocation -> {
+            release.await(10, TimeUnit.SECONDS);
+            return new ArrayList<>((Collection<?>) invocation.getArgument(0));
+        });
+        CsvImporter slowImporter = new CsvImporter(slow, 1, 10, 1, 10);
+        slowImporter.loadReferences(slow);
+        int rows = 100_000;
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<ImportReport> importing = executor.submit(() -> slowImporter.importLaunches(new GeneratedCsv(LAUNCH_HEADER, rows,
+                    row -> "2020-01-01,Falcon 9,,LC-39A,LEO,,,\n")));
+            long read = -1;
+            // until reading has stalled
+            while (null == slowImporter.getProgress() || read != slowImporter.getProgress().getRowsRead()) {
+                read = null == slowImporter.getProgress() ? -1 : slowImporter.getProgress().getRowsRead();
+                Thread.sleep(200);
+            }
+            assertTrue(read < 5_000, () -> "read " + slowImporter.getProgress().getRowsRead() + " rows ahead of the DAO");
+            assertFalse(importing.isDone());
+            release.countDown();
+            assertEquals(rows, importing.get(30, TimeUnit.SECONDS).getEntitiesWritten());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void shouldStopWhenWritingFails() {
+        importReferences();
+        DAO failing = mockWithReferences();
+        when(failing.createOrUpdateAll(any())).thenThrow(new IllegalStateException("down"));
+        CsvImporter failingImporter = new CsvImporter(failing, 1, 10, 1, 10);
+        failingImporter.loadReferences(failing);
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> failingImporter.importLaunches(
+                new GeneratedCsv(LAUNCH_HEADER, 100_000, row -> "2020-01-01,Falcon 9,,LC-39A,LEO,,,\n")));
+        assertEquals("down", e.getCause().getMessage());
+        assertTrue(failingImporter.getProgress().getRowsRead() < 100_000);
+        assertTrue(failingImporter.getProgress().isFinished());
+    }
+
+    // A DAO that reads the providers and rockets imported into the in-memory DAO
+    @SuppressWarnings("unchecked")
+    private DAO mockWithReferences() {
+        DAO mock = mock(DAO.class);
+        when(mock.loadAll(any())).thenAnswer(invocation -> dao.loadAll(invocation.getArgument(0)));
+        return mock;
+    }
+
+    // A CSV file made up row by row as it is read, so it is never in memory as a whole
+    private static final class GeneratedCsv extends Reader {
+        private final IntFunction<String> rowAt;
+
+        private final int rows;
+
+        private int next;
+
+        private String current;
+
+        private int position;
+
+        private GeneratedCsv(String header, int rows, IntFunction<String> rowAt) {
+            this.rowAt = rowAt;
+            this.rows = rows;
+            this.current = header;
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) {
+            if (position == current.length()) {
+                if (next == rows) {
+                    return -1;
+                }
+                current = rowAt.apply(next++);
+                position = 0;
+            }
+            int count = Math.min(length, current.length() - position);
+            current.getChars(position, position + count, buffer, offset);
+            position += count;
+            return count;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
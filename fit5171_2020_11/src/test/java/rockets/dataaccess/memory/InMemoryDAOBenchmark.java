@@ -0,0 +1,80 @@
+package rockets.dataaccess.memory;
+
+import org.neo4j.harness.ServerControls;
+import org.neo4j.harness.TestServerBuilders;
+import org.neo4j.ogm.drivers.embedded.driver.EmbeddedDriver;
+import org.neo4j.ogm.session.Session;
+import org.neo4j.ogm.session.SessionFactory;
+import rockets.dataaccess.DAO;
+import rockets.dataaccess.neo4j.Neo4jDAO;
+import rockets.mining.SyntheticLaunches;
+import rockets.model.Launch;
+import rockets.model.Rocket;
+import rockets.model.User;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Compares the in-memory DAO with the Neo4j DAO on an embedded database: saving launches
+ * in one batch, loading them all, loading rockets by id and upserting rockets found by
+ * their natural key. Run the main method with the test classpath.
+ * Arguments: [launches] [rounds].
+ */
+public class InMemoryDAOBenchmark {
+    public static void main(String[] args) {
+        int launchCount = args.length > 0 ? Integer.parseInt(args[0]) : 2_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        ServerControls server = TestServerBuilders.newInProcessBuilder().newServer();
+        SessionFactory sessionFactory = new SessionFactory(new EmbeddedDriver(server.graph()), User.class.getPackage().getName());
+        Session session = sessionFactory.openSession();
+
+        for (int round = 0; round < rounds; round++) {
+            session.purgeDatabase();
+            session.clear();
+            run("neo4j", new Neo4jDAO(session), launchCount);
+            run("in-memory", new InMemoryDAO(), launchCount);
+        }
+        sessionFactory.close();
+        server.close();
+    }
+
+    private static void run(String name, DAO dao, int launchCount) {
+        SyntheticLaunches data = new SyntheticLaunches(launchCount, 200, 20, 1);
+        List<Launch> launches = data.getLaunches();
+        // the synthetic ids are not ids of the store
+        for (Launch launch : launches) {
+            launch.setId(null);
+        }
+        measure(name, "createOrUpdateAll", () -> dao.createOrUpdateAll(launches).size());
+        measure(name, "loadAll", () -> dao.loadAll(Launch.class).size());
+        List<Long> rocketIds = new ArrayList<>();
+        for (Rocket rocket : data.getRockets()) {
+            // rockets without launches were not saved
+            if (null != rocket.getId()) {
+                rocketIds.add(rocket.getId());
+            }
+        }
+        measure(name, "load rocket", () -> {
+            int found = 0;
+            for (Long id : rocketIds) {
+                found += null == dao.load(Rocket.class, id) ? 0 : 1;
+            }
+            return found;
+        });
+        measure(name, "upsert rocket", () -> {
+            for (Rocket rocket : data.getRockets()) {
+                dao.createOrUpdate(new Rocket(rocket.getName(), rocket.getCountry(), rocket.getManufacturer()));
+            }
+            return data.getRockets().size();
+        });
+    }
+
+    private static void measure(String dao, String operation, Supplier<Integer> run) {
+        long start = System.nanoTime();
+        int count = run.get();
+        double millis = (System.nanoTime() - start) / 1e6;
+        System.out.printf("%-10s %-18s %6d entities %10.2f ms%n", dao, operation, count, millis);
+    }
+}
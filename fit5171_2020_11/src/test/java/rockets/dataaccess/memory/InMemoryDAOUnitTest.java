@@ -0,0 +1,99 @@
+package rockets.dataaccess.memory;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import rockets.dataaccess.AbstractDAOUnitTest;
+import rockets.model.*;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InMemoryDAOUnitTest extends AbstractDAOUnitTest<InMemoryDAO> {
+    @BeforeEach
+    public void createDAO() {
+        dao = new InMemoryDAO();
+    }
+
+    @Test
+    public void shouldSaveEachReferredEntityOnce() {
+        Launch l = new Launch();
+        l.setLaunchDate(LocalDate.of(2016, 6, 1));
+        l.setLaunchVehicle(rocket);
+        l.setLaunchServiceProvider(longMarch);
+        longMarch.getRockets().add(rocket);
+        dao.createOrUpdate(l);
+
+        assertNotNull(l.getId());
+        assertSame(rocket, dao.load(Rocket.class, rocket.getId()));
+        assertSame(longMarch, dao.load(LaunchServiceProvider.class, longMarch.getId()));
+        assertEquals(1, dao.loadAll(Rocket.class).size());
+        assertEquals(1, dao.loadAll(LaunchServiceProvider.class).size());
+    }
+
+    @Test
+    public void shouldHandOutIdsAcrossClasses() {
+        dao.createOrUpdate(rocket);
+        dao.createOrUpdate(user);
+        Set<Long> ids = new HashSet<>(Arrays.asList(rocket.getId(), longMarch.getId(), user.getId()));
+        assertEquals(3, ids.size());
+        assertNull(dao.load(User.class, rocket.getId()));
+    }
+
+    @Test
+    public void shouldReadWhileWriting() throws Exception {
+        int writers = 4;
+        int rocketsPerWriter = 500;
+        ExecutorService executor = Executors.newFixedThreadPool(writers + 2);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> results = new ArrayList<>();
+            for (int w = 0; w < writers; w++) {
+                int writer = w;
+                results.add(executor.submit(() -> {
+                    start.await();
+                    LaunchServiceProvider lsp = new LaunchServiceProvider("LSP " + writer, 1950, "USA");
+                    for (int i = 0; i < rocketsPerWriter; i++) {
+                        dao.createOrUpdate(new Rocket("Rocket " + writer + "-" + i, "USA", lsp));
+                    }
+                    return null;
+                }));
+            }
+            for (int r = 0; r < 2; r++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    int seen = 0;
+                    while (seen < writers * rocketsPerWriter) {
+                        Collection<Rocket> rockets = dao.loadAll(Rocket.class);
+                        assertTrue(rockets.size() >= seen);
+                        seen = rockets.size();
+                        for (Rocket r1 : rockets) {
+                            assertSame(r1, dao.load(Rocket.class, r1.getId()));
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> result : results) {
+                result.get(1, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(writers * rocketsPerWriter, dao.loadAll(Rocket.class).size());
+        assertEquals(writers, dao.loadAll(LaunchServiceProvider.class).size());
+    }
+
+    @Test
+    public void shouldForgetEverythingOnClear() {
+        dao.createOrUpdate(rocket);
+        dao.clear();
+        assertTrue(dao.loadAll(Rocket.class).isEmpty());
+        Rocket sameRocket = new Rocket("ShenZhou5", "China", longMarch);
+        dao.createOrUpdate(sameRocket);
+        assertEquals(1, dao.loadAll(Rocket.class).size());
+    }
+}
@@ -0,0 +1,191 @@
+package rockets.dataaccess.neo4j;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.factory.GraphDatabaseFactory;
+import org.neo4j.io.fs.FileUtils;
+import org.neo4j.ogm.drivers.embedded.driver.EmbeddedDriver;
+import org.neo4j.ogm.session.Session;
+import org.neo4j.ogm.session.SessionFactory;
+import org.neo4j.tooling.ImportTool;
+import rockets.dataaccess.DAO;
+import rockets.dataaccess.memory.InMemoryDAO;
+import rockets.model.Launch;
+import rockets.model.LaunchServiceProvider;
+import rockets.model.Rocket;
+import rockets.model.User;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AdminImportDAOUnitTest {
+    private File directory;
+
+    private LaunchServiceProvider spacex;
+
+    private Rocket falcon9;
+
+    private Rocket falconHeavy;
+
+    private List<Launch> launches;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("admin-import").toFile();
+        spacex = new LaunchServiceProvider("SpaceX", 2002, "USA");
+        spacex.setHeadquarters("Hawthorne");
+        falcon9 = new Rocket("Falcon9", "USA", spacex);
+        falcon9.setMassToLEO("22800");
+        falconHeavy = new Rocket("Falcon Heavy", "USA", spacex);
+        spacex.setRockets(new HashSet<>(Arrays.asList(falcon9, falconHeavy)));
+        launches = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Launch launch = new Launch();
+            launch.setLaunchDate(LocalDate.of(2018 + i, 2, 6));
+            launch.setLaunchVehicle(i % 2 == 0 ? falcon9 : falconHeavy);
+            launch.setLaunchServiceProvider(spacex);
+            launch.setLaunchSite("KSC LC-39A");
+            launch.setOrbit(i < 3 ? "LEO" : "GTO");
+            launch.setPrice(new BigDecimal("62.5"));
+            launch.setLaunchOutcome(i == 1 ? Launch.LaunchOutcome.FAILED : Launch.LaunchOutcome.SUCCESSFUL);
+            launches.add(launch);
+        }
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        FileUtils.deleteRecursively(directory);
+    }
+
+    @Test
+    public void shouldImportTheGraphNeo4jDAOWrites() throws IOException {
+        User user = new User();
+        user.setEmail("ada@example.com");
+        user.setFirstName("Ada");
+        GraphDatabaseService saved = new GraphDatabaseFactory().newEmbeddedDatabase(new File(directory, "saved"));
+        SessionFactory savedSessions = new SessionFactory(new EmbeddedDriver(saved), Launch.class.getPackage().getName());
+        Session session = savedSessions.openSession();
+        try {
+            new Neo4jDAO(session).createOrUpdateAll(launches);
+            new Neo4jDAO(session).createOrUpdate(user);
+
+            AdminImportDAO importFiles = new AdminImportDAO(new File(directory, "files"));
+            importFiles.createOrUpdateAll(launches);
+            importFiles.createOrUpdate(user);
+            importFiles.close();
+            GraphDatabaseService imported = importInto(new File(directory, "imported"), importFiles);
+            try {
+                assertEquals(describe(saved), describe(imported));
+            } finally {
+                imported.shutdown();
+            }
+        } finally {
+            savedSessions.close();
+            saved.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldFindNoDifferenceWithTheImportedDatabase() throws IOException {
+        AdminImportDAO importFiles = new AdminImportDAO(new File(directory, "files"));
+        importFiles.createOrUpdateAll(launches);
+        importFiles.close();
+        GraphDatabaseService imported = importInto(new File(directory, "imported"), importFiles);
+        SessionFactory sessionFactory = new SessionFactory(new EmbeddedDriver(imported), Launch.class.getPackage().getName());
+        try {
+            assertEquals(Collections.emptyList(), importFiles.verify(new Neo4jDAO(sessionFactory.openSession())));
+        } finally {
+            sessionFactory.close();
+            imported.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldReportWhatIsMissingOrNotWritten() {
+        AdminImportDAO importFiles = new AdminImportDAO(directory);
+        importFiles.createOrUpdateAll(launches);
+        importFiles.close();
+        DAO store = new InMemoryDAO();
+        LaunchServiceProvider provider = new LaunchServiceProvider("SpaceX", 2002, "USA");
+        store.createOrUpdate(new Rocket("Falcon9", "USA", provider));
+        store.createOrUpdate(new Rocket("Starship", "USA", provider));
+
+        List<String> differences = importFiles.verify(store);
+        assertTrue(differences.contains("4 Launch nodes written, 0 imported"), differences.toString());
+        assertTrue(differences.contains("Rocket [Falcon Heavy, USA] written but not imported"), differences.toString());
+        assertTrue(differences.contains("Rocket [Starship, USA] imported but not written"), differences.toString());
+        assertTrue(differences.contains("4 LAUNCH_VEHICLE relationships written, 0 imported"), differences.toString());
+    }
+
+    @Test
+    public void shouldWriteEntitiesWithANaturalKeyOnce() throws IOException {
+        AdminImportDAO importFiles = new AdminImportDAO(directory);
+        importFiles.createOrUpdate(new LaunchServiceProvider("SpaceX", 2002, "USA"));
+        importFiles.createOrUpdate(falcon9);
+        importFiles.createOrUpdateAll(launches);
+        importFiles.createOrUpdate(spacex);
+        importFiles.close();
+
+        Map<String, Long> nodes = new HashMap<>();
+        nodes.put("LaunchServiceProvider", 1L);
+        nodes.put("Rocket", 2L);
+        nodes.put("Launch", 4L);
+        assertEquals(nodes, importFiles.getNodeCounts());
+        Map<String, Long> relationships = new HashMap<>();
+        relationships.put("MANUFACTURER", 2L);
+        relationships.put("ROCKETS", 2L);
+        relationships.put("LAUNCH_VEHICLE", 4L);
+        relationships.put("LAUNCH_SERVICE_PROVIDER", 4L);
+        assertEquals(relationships, importFiles.getRelationshipCounts());
+        List<String> rows = Files.readAllLines(new File(directory, "LaunchServiceProvider.csv").toPath());
+        assertEquals(Arrays.asList(":ID,country:string,headquarters:string,name:string,wikilink:string,yearFounded:long,:LABEL",
+                "0,USA,,SpaceX,,2002,LaunchServiceProvider"), rows);
+    }
+
+    @Test
+    public void shouldExportAnotherDAO() {
+        DAO source = new InMemoryDAO();
+        source.createOrUpdateAll(launches);
+        AdminImportDAO importFiles = new AdminImportDAO(directory);
+        importFiles.exportAll(source, 2);
+        importFiles.close();
+
+        assertEquals(Long.valueOf(4), importFiles.getNodeCounts().get("Launch"));
+        assertEquals(Long.valueOf(2), importFiles.getNodeCounts().get("Rocket"));
+        assertEquals(Collections.emptyList(), importFiles.verify(source));
+    }
+
+    @Test
+    public void shouldRejectWritesOnceClosed() {
+        AdminImportDAO importFiles = new AdminImportDAO(directory);
+        importFiles.close();
+        assertThrows(IllegalStateException.class, () -> importFiles.createOrUpdate(falcon9));
+    }
+
+    private static GraphDatabaseService importInto(File store, AdminImportDAO importFiles) throws IOException {
+        List<String> arguments = new ArrayList<>(importFiles.getImportArguments());
+        arguments.add("--into=" + store.getAbsolutePath());
+        ImportTool.main(arguments.toArray(new String[0]), true);
+        return new GraphDatabaseFactory().newEmbeddedDatabase(store);
+    }
+
+    // The labels, properties and relationships of every node, in an order independent of the node ids
+    private static List<String> describe(GraphDatabaseService database) {
+        List<String> nodes = new ArrayList<>();
+        String cypher = "MATCH (n) OPTIONAL MATCH (n)-[r]->(m) "
+                + "WITH n, r, m ORDER BY type(r), m.name, m.launchDate "
+                + "RETURN labels(n) AS labels, properties(n) AS properties, collect([type(r), labels(m), m.name]) AS related";
+        database.execute(cypher).forEachRemaining(row -> nodes.add(
+                row.get("labels") + " " + new TreeMap<>((Map<?, ?>) row.get("properties")) + " " + row.get("related")));
+        Collections.sort(nodes);
+        return nodes;
+    }
+}
@@ -0,0 +1,48 @@
+package rockets.dataaccess.neo4j;
+
+import org.junit.jupiter.api.Test;
+import rockets.model.Rocket;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NaturalKeyCacheUnitTest {
+    private static List<Object> key(String name) {
+        return Arrays.asList(Rocket.class, name, "USA");
+    }
+
+    @Test
+    public void shouldDropLeastRecentlyUsedKeyBeyondCapacity() {
+        NaturalKeyCache cache = new NaturalKeyCache(2);
+        cache.remember(1L, key("Atlas V"));
+        cache.remember(2L, key("Delta IV"));
+        assertEquals(Long.valueOf(1), cache.idOf(key("Atlas V")));
+        cache.remember(3L, key("Falcon 9"));
+
+        assertEquals(2, cache.size());
+        assertEquals(Long.valueOf(1), cache.idOf(key("Atlas V")));
+        assertNull(cache.idOf(key("Delta IV")));
+        assertEquals(Long.valueOf(3), cache.idOf(key("Falcon 9")));
+    }
+
+    @Test
+    public void shouldKeepOneNodePerKey() {
+        NaturalKeyCache cache = new NaturalKeyCache(2);
+        cache.remember(1L, key("Atlas V"));
+        cache.remember(2L, key("Atlas V"));
+        // node 1 no longer has the key, so forgetting it leaves node 2's
+        cache.forget(1L);
+        assertEquals(Long.valueOf(2), cache.idOf(key("Atlas V")));
+
+        cache.remember(2L, key("Atlas V Heavy"));
+        assertNull(cache.idOf(key("Atlas V")));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void shouldRejectNonPositiveCapacity() {
+        assertThrows(IllegalArgumentException.class, () -> new NaturalKeyCache(0));
+    }
+}
@@ -0,0 +1,71 @@
+package rockets.dataaccess.neo4j;
+
+import org.neo4j.harness.ServerControls;
+import org.neo4j.harness.TestServerBuilders;
+import org.neo4j.ogm.drivers.embedded.driver.EmbeddedDriver;
+import org.neo4j.ogm.session.Session;
+import org.neo4j.ogm.session.SessionFactory;
+import rockets.mining.SyntheticLaunches;
+import rockets.model.Launch;
+import rockets.model.User;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Measures launch import throughput into the embedded database: one transaction per
+ * launch through createOrUpdate, then createOrUpdateAll with batches of 1, 100, 1000
+ * and 10000. Run the main method with the test classpath. Arguments: [launches].
+ */
+public class Neo4jDAOBatchBenchmark {
+    private static final int[] BATCH_SIZES = {1, 100, 1000, 10000};
+
+    public static void main(String[] args) {
+        int launchCount = args.length > 0 ? Integer.parseInt(args[0]) : 2_000;
+        ServerControls server = TestServerBuilders.newInProcessBuilder().newServer();
+        SessionFactory sessionFactory = new SessionFactory(new EmbeddedDriver(server.graph()), User.class.getPackage().getName());
+        List<Launch> launches = new SyntheticLaunches(launchCount, 200, 20, 1).getLaunches();
+
+        Session session = sessionFactory.openSession();
+        // the synthetic ids are not node ids
+        reset(session, launches);
+        // warm up the database and the mapping metadata
+        new Neo4jDAO(session).createOrUpdateAll(launches.subList(0, Math.min(1000, launchCount)));
+        reset(session, launches);
+
+        long start = System.nanoTime();
+        Neo4jDAO dao = new Neo4jDAO(session);
+        for (Launch launch : launches) {
+            dao.createOrUpdate(launch);
+        }
+        report("createOrUpdate", launchCount, start, session);
+        reset(session, launches);
+
+        for (int batchSize : BATCH_SIZES) {
+            start = System.nanoTime();
+            new Neo4jDAO(session, batchSize).createOrUpdateAll(launches);
+            report("createOrUpdateAll batch=" + batchSize, launchCount, start, session);
+            reset(session, launches);
+        }
+        sessionFactory.close();
+        server.close();
+    }
+
+    private static void report(String name, int launchCount, long start, Session session) {
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long stored = ((Number) session.query("MATCH (l:Launch) RETURN count(l) AS launches", Collections.emptyMap())
+                .queryResults().iterator().next().get("launches")).longValue();
+        System.out.printf("%-30s %8.0f launches/s (%.2f s, %d stored)%n", name, launchCount / seconds, seconds, stored);
+    }
+
+    // empties the database and forgets the ids, so the same launches are created again
+    private static void reset(Session session, List<Launch> launches) {
+        session.purgeDatabase();
+        session.clear();
+        for (Launch launch : launches) {
+            launch.setId(null);
+            launch.getLaunchVehicle().setId(null);
+            launch.getLaunchServiceProvider().setId(null);
+        }
+    }
+}
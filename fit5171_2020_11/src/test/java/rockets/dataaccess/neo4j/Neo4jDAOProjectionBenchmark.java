@@ -0,0 +1,61 @@
+package rockets.dataaccess.neo4j;
+
+import org.neo4j.harness.ServerControls;
+import org.neo4j.harness.TestServerBuilders;
+import org.neo4j.ogm.drivers.embedded.driver.EmbeddedDriver;
+import org.neo4j.ogm.session.Session;
+import org.neo4j.ogm.session.SessionFactory;
+import rockets.mining.SyntheticLaunches;
+import rockets.model.Launch;
+import rockets.model.User;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Compares loading whole launches with loading the three fields the revenue ranking needs,
+ * by time and by bytes allocated on the calling thread, which in the embedded database
+ * includes the query itself. Run the main method with the test classpath.
+ * Arguments: [launches] [rounds].
+ */
+public class Neo4jDAOProjectionBenchmark {
+    public static void main(String[] args) {
+        int launchCount = args.length > 0 ? Integer.parseInt(args[0]) : 2_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        ServerControls server = TestServerBuilders.newInProcessBuilder().newServer();
+        SessionFactory sessionFactory = new SessionFactory(new EmbeddedDriver(server.graph()), User.class.getPackage().getName());
+        Session session = sessionFactory.openSession();
+        Neo4jDAO dao = new Neo4jDAO(session);
+        List<Launch> launches = new SyntheticLaunches(launchCount, 200, 20, 1).getLaunches();
+        // the synthetic ids are not node ids
+        for (Launch launch : launches) {
+            launch.setId(null);
+        }
+        dao.createOrUpdateAll(launches);
+
+        for (int round = 0; round < rounds; round++) {
+            measure("loadAll", () -> {
+                session.clear();
+                return dao.loadAll(Launch.class).size();
+            });
+            measure("loadProjection", () -> {
+                session.clear();
+                return dao.loadProjection(Launch.class, "launchDate", "price", "launchServiceProvider.id").size();
+            });
+        }
+        sessionFactory.close();
+        server.close();
+    }
+
+    private static void measure(String name, Supplier<Integer> load) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        long allocatedBefore = threads.getThreadAllocatedBytes(thread);
+        long start = System.nanoTime();
+        int rows = load.get();
+        double millis = (System.nanoTime() - start) / 1e6;
+        double megabytes = (threads.getThreadAllocatedBytes(thread) - allocatedBefore) / 1e6;
+        System.out.printf("%-15s %6d rows %9.1f ms %9.1f MB allocated%n", name, rows, millis, megabytes);
+    }
+}
@@ -1,33 +1,33 @@
 package rockets.dataaccess.neo4j;
 
-import com.google.common.collect.Sets;
 import org.junit.jupiter.api.*;
 import org.neo4j.graphdb.GraphDatabaseService;
 import org.neo4j.harness.ServerControls;
 import org.neo4j.harness.TestServerBuilders;
 import org.neo4j.ogm.drivers.embedded.driver.EmbeddedDriver;
+import org.mockito.Mockito;
+import org.neo4j.ogm.cypher.Filters;
 import org.neo4j.ogm.session.Session;
 import org.neo4j.ogm.session.SessionFactory;
+import org.neo4j.ogm.transaction.Transaction;
+import rockets.dataaccess.AbstractDAOUnitTest;
 import rockets.dataaccess.DAO;
 import rockets.model.*;
 
+import java.math.BigDecimal;
 import java.time.LocalDate;
-import java.util.Collection;
-import java.util.Set;
+import java.util.*;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
 
 @TestInstance(TestInstance.Lifecycle.PER_CLASS)
-public class Neo4jDAOUnitTest {
-    private DAO dao;
+public class Neo4jDAOUnitTest extends AbstractDAOUnitTest<Neo4jDAO> {
     private Session session;
     private SessionFactory sessionFactory;
 
-    private LaunchServiceProvider longMarch;
-    private LaunchServiceProvider spacex;
-    private Rocket rocket;
-    private Launch launch;
-    private User user;
     @BeforeAll
     public void initializeNeo4j() {
         ServerControls embeddedDatabaseServer = TestServerBuilders.newInProcessBuilder().newServer();
@@ -38,197 +38,162 @@ public class Neo4jDAOUnitTest {
         dao = new Neo4jDAO(session);
     }
 
-    @BeforeEach
-    public void setup() {
-        longMarch = new LaunchServiceProvider("LongMarch", 1970, "China");
-        spacex = new LaunchServiceProvider("SpaceX", 2002, "USA");
-        rocket = new Rocket("ShenZhou5", "China", longMarch);
-        launch = new Launch();
-        launch.setLaunchVehicle(rocket);
-        user = new User();
-    }
-
     @Test
     public void shouldCreateNeo4jDAOSuccessfully() {
         assertNotNull(dao);
     }
 
-
-    @Test
-    public void shouldCreateARocketSuccessfully() {
-        rocket.setWikilink("https://en.wikipedia.org/wiki/Shenzhou_5");
-        Rocket graphRocket = dao.createOrUpdate(rocket);
-        assertNotNull(graphRocket.getId());
-        assertEquals(rocket, graphRocket);
-        assertNotNull(graphRocket.getManufacturer().getId());
-        assertEquals(rocket.getWikilink(), graphRocket.getWikilink());
-        assertEquals(rocket.getManufacturer(), graphRocket.getManufacturer());
-    }
-
     @Test
-    public void shouldUpdateRocketAttributeSuccessfully() {
-        rocket.setWikilink("https://en.wikipedia.org/wiki/Falcon_9");
-
-        Rocket graphRocket = dao.createOrUpdate(rocket);
-        assertNotNull(graphRocket.getId());
-        assertEquals(rocket, graphRocket);
-
-        String newLink = "http://adifferentlink.com";
-        rocket.setWikilink(newLink);
-        dao.createOrUpdate(rocket);
-        graphRocket = dao.load(Rocket.class, rocket.getId());
-        assertEquals(newLink, graphRocket.getWikilink());
-    }
-
-    @Test
-    public void shouldNotSaveTwoSameRockets() {
-        assertNull(spacex.getId());
-
-        Rocket rocket1 = new Rocket("CN1", "CN", spacex);
-        Rocket rocket2 = new Rocket("CN1", "CN", spacex);
-        assertEquals(rocket1, rocket2);
-        dao.createOrUpdate(rocket1);
-        assertNotNull(spacex.getId());
-        Collection<Rocket> rockets = dao.loadAll(Rocket.class);
-        assertEquals(1, rockets.size());
-        Collection<LaunchServiceProvider> manufacturers = dao.loadAll(LaunchServiceProvider.class);
-        assertEquals(1, manufacturers.size());
-        dao.createOrUpdate(rocket2);
-        manufacturers = dao.loadAll(LaunchServiceProvider.class);
-        assertEquals(1, manufacturers.size());
-        rockets = dao.loadAll(Rocket.class);
-        assertEquals(1, rockets.size());
+    public void shouldCreateAllInBatchesOfGivenSize() {
+        DAO batchDao = new Neo4jDAO(session, 2);
+        List<Rocket> rockets = Arrays.asList(
+                new Rocket("ShenZhou5", "China", longMarch),
+                new Rocket("Falcon9", "USA", spacex),
+                new Rocket("Falcon Heavy", "USA", spacex));
+        List<Rocket> saved = batchDao.createOrUpdateAll(rockets);
+        assertEquals(rockets, saved);
+        for (Rocket r : saved) {
+            assertNotNull(r.getId());
+        }
+        assertEquals(3, dao.loadAll(Rocket.class).size());
+        assertEquals(2, dao.loadAll(LaunchServiceProvider.class).size());
     }
 
     @Test
-    public void shouldLoadAllRockets() {
-        Set<Rocket> rockets = Sets.newHashSet(
-                new Rocket("ShenZhou5", "China", longMarch),
-                new Rocket("Falcon9", "USA", spacex)
-        );
-
-        for (Rocket r : rockets) {
-            dao.createOrUpdate(r);
+    public void shouldWriteSameGraphAsSavingOneByOne() {
+        List<Launch> launches = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Launch l = new Launch();
+            l.setLaunchDate(LocalDate.of(2016 + i, 6, 1));
+            l.setLaunchVehicle(i % 2 == 0 ? rocket : new Rocket("Falcon9", "USA", spacex));
+            l.setLaunchServiceProvider(l.getLaunchVehicle().getManufacturer());
+            l.setLaunchSite("VAFB");
+            l.setPrice(new BigDecimal("62.5"));
+            launches.add(l);
+        }
+        for (Launch l : launches) {
+            dao.createOrUpdate(l);
         }
+        Map<String, Long> oneByOne = countNodesPerLabel();
+        session.purgeDatabase();
+        session.clear();
 
-        Collection<Rocket> loadedRockets = dao.loadAll(Rocket.class);
-        assertEquals(rockets.size(), loadedRockets.size());
-        for (Rocket r : rockets) {
-            assertTrue(loadedRockets.contains(r));
+        for (Launch l : launches) {
+            l.setId(null);
+            l.getLaunchVehicle().setId(null);
+            l.getLaunchServiceProvider().setId(null);
+        }
+        new Neo4jDAO(session, 2).createOrUpdateAll(launches);
+        assertEquals(oneByOne, countNodesPerLabel());
+        for (Launch l : launches) {
+            assertNotNull(l.getId());
         }
     }
 
     @Test
-    public void shouldCreateALaunchSuccessfully() {
-        Launch launch = new Launch();
-        launch.setLaunchDate(LocalDate.of(2016, 6, 1));
-        launch.setLaunchVehicle(rocket);
-        launch.setLaunchSite("VAFB");
-        launch.setOrbit("LEO");
-        dao.createOrUpdate(launch);
-
-        Collection<Launch> launches = dao.loadAll(Launch.class);
-        assertFalse(launches.isEmpty());
-        assertTrue(launches.contains(launch));
+    public void shouldRejectNonPositiveBatchSize() {
+        assertThrows(IllegalArgumentException.class, () -> new Neo4jDAO(session, 0));
     }
 
-
     @Test
-    public void shouldUpdateLaunchAttributesSuccessfully() {
-        Launch launch = new Launch();
-        launch.setLaunchDate(LocalDate.of(2016, 6, 1));
-        launch.setLaunchVehicle(rocket);
-        launch.setLaunchSite("VAFB");
-        launch.setOrbit("LEO");
-        dao.createOrUpdate(launch);
-
-        Collection<Launch> launches = dao.loadAll(Launch.class);
-
-        Launch loadedLaunch = launches.iterator().next();
-        assertNull(loadedLaunch.getFunction());
-
-        launch.setFunction("experimental");
-        dao.createOrUpdate(launch);
-        launches = dao.loadAll(Launch.class);
-        assertEquals(1, launches.size());
-        loadedLaunch = launches.iterator().next();
-        assertEquals("experimental", loadedLaunch.getFunction());
+    public void shouldIndexNaturalKeysOnConstruction() {
+        Set<String> indexes = new HashSet<>();
+        for (Map<String, Object> row : session.query("CALL db.indexes()", Collections.emptyMap())) {
+            indexes.add((String) row.get("description"));
+        }
+        assertTrue(indexes.contains("INDEX ON :Rocket(name, country)"));
+        assertTrue(indexes.contains("INDEX ON :LaunchServiceProvider(name, yearFounded, country)"));
+        assertTrue(indexes.contains("INDEX ON :User(email)"));
+        assertTrue(indexes.contains("INDEX ON :Launch(launchDate)"));
     }
 
     @Test
-    public void shouldDeleteRocketWithoutDeleteLSP() {
-        dao.createOrUpdate(rocket);
-        assertNotNull(rocket.getId());
-        assertNotNull(rocket.getManufacturer().getId());
-        assertFalse(dao.loadAll(Rocket.class).isEmpty());
-        assertFalse(dao.loadAll(LaunchServiceProvider.class).isEmpty());
-        dao.delete(rocket);
-        assertTrue(dao.loadAll(Rocket.class).isEmpty());
-        assertFalse(dao.loadAll(LaunchServiceProvider.class).isEmpty());
+    public void shouldNotLookUpKeysItHasSavedBefore() {
+        Session spy = Mockito.spy(session);
+        DAO cachingDao = new Neo4jDAO(spy);
+        cachingDao.createOrUpdate(rocket);
+        Rocket sameRocket = new Rocket("ShenZhou5", "China", longMarch);
+        sameRocket.setWikilink("https://en.wikipedia.org/wiki/Shenzhou_5");
+        cachingDao.createOrUpdate(sameRocket);
+
+        assertEquals(rocket.getId(), sameRocket.getId());
+        verify(spy, times(1)).loadAll(eq(Rocket.class), any(Filters.class));
+        assertEquals(1, dao.loadAll(Rocket.class).size());
     }
 
-    //be able to delete launch without deleting rocket
     @Test
-    public void shouldDeleteLaunchWithoutDeleteRocket(){
-        dao.createOrUpdate(launch);
-        assertNotNull(launch.getId());
-        assertNotNull(launch.getLaunchVehicle().getId());
-        assertFalse(dao.loadAll(Launch.class).isEmpty());
-        assertFalse(dao.loadAll(Rocket.class).isEmpty());
-        dao.delete(launch);
-        assertTrue(dao.loadAll(Launch.class).isEmpty());
-        assertFalse(dao.loadAll(Rocket.class).isEmpty());
+    public void shouldRollBackAndCloseTheTransactionOfAFailedSave() {
+        Session failing = mock(Session.class);
+        Transaction tx = mock(Transaction.class);
+        when(failing.beginTransaction()).thenReturn(tx);
+        doThrow(new IllegalStateException("save failed")).when(failing).save(rocket);
+        DAO failingDao = new Neo4jDAO(failing);
 
+        assertThrows(IllegalStateException.class, () -> failingDao.createOrUpdate(rocket));
+        verify(tx, never()).commit();
+        verify(tx).rollback();
+        verify(tx).close();
     }
 
+    @Test
+    public void shouldNotLookUpKeysItHasLoadedBefore() {
+        Transaction tx = session.beginTransaction();
+        session.save(rocket);
+        tx.commit();
+        Session spy = Mockito.spy(session);
+        DAO cachingDao = new Neo4jDAO(spy);
+        cachingDao.loadAll(Rocket.class);
+        Rocket sameRocket = new Rocket("ShenZhou5", "China", longMarch);
+        cachingDao.createOrUpdate(sameRocket);
 
+        assertEquals(rocket.getId(), sameRocket.getId());
+        verify(spy, never()).loadAll(eq(Rocket.class), any(Filters.class));
+    }
 
-    //be able to delete the rocket
     @Test
-    public void shouldDeleteRocket(){
-        dao.createOrUpdate(rocket);
-        assertNotNull(rocket.getId());
-        assertFalse(dao.loadAll(Rocket.class).isEmpty());
-        dao.delete(rocket);
-        assertTrue(dao.loadAll(Rocket.class).isEmpty());
+    public void shouldNotLookUpLaunchesWithoutId() {
+        Session spy = Mockito.spy(session);
+        DAO cachingDao = new Neo4jDAO(spy);
+        cachingDao.createOrUpdate(launch);
+
+        assertNotNull(launch.getId());
+        verify(spy, never()).loadAll(eq(Launch.class), any(Filters.class));
     }
 
-    //be able to delete the user
     @Test
-    public void shouldDeleteUser(){
-        User user = new User();
-        dao.createOrUpdate(user);
-        assertNotNull(user.getId());
-        assertFalse(dao.loadAll(User.class).isEmpty());
-        dao.delete(user);
-        assertTrue(dao.loadAll(User.class).isEmpty());
+    public void shouldClearSessionBeforeEachPage() {
+        dao.createOrUpdateAll(Arrays.asList(rocket, new Rocket("Falcon9", "USA", spacex), new Rocket("Falcon Heavy", "USA", spacex)));
+        Session spy = Mockito.spy(session);
+        Iterator<Rocket> rockets = new Neo4jDAO(spy).stream(Rocket.class, 2).iterator();
+
+        rockets.next();
+        verify(spy, times(1)).clear();
+        rockets.next();
+        rockets.next();
+        assertFalse(rockets.hasNext());
+        verify(spy, times(2)).clear();
     }
 
-    //be able to delete the Launch
     @Test
-    public void shouldDeleteLaunch()
-    {
-        dao.createOrUpdate(launch);
-        assertNotNull(launch.getId());
-        assertFalse( dao.loadAll(Launch.class).isEmpty());
-        dao.delete(launch);
-        assertTrue( dao.loadAll(Launch.class).isEmpty());
+    public void shouldRejectFieldsThatCannotBeProjected() {
+        assertThrows(IllegalArgumentException.class, () -> dao.loadProjection(Launch.class, "payload"));
+        assertThrows(IllegalArgumentException.class, () -> dao.loadProjection(Launch.class, "launchVehicle.manufacturer.name"));
+        assertThrows(IllegalArgumentException.class, () -> dao.loadProjection(LaunchServiceProvider.class, "rockets.name"));
     }
 
-    //be able to delete the LaunchServiceProvider
-    @Test
-    public void shouldDeleteLSP()
-    {
-        dao.createOrUpdate(spacex);
-        assertNotNull(spacex.getId());
-        assertFalse( dao.loadAll(LaunchServiceProvider.class).isEmpty());
-        dao.delete(spacex);
-        assertTrue( dao.loadAll(LaunchServiceProvider.class).isEmpty());
+    private Map<String, Long> countNodesPerLabel() {
+        Map<String, Long> counts = new HashMap<>();
+        for (Map<String, Object> row : session.query("MATCH (n) RETURN head(labels(n)) AS label, count(n) AS nodes",
+                Collections.emptyMap())) {
+            counts.put((String) row.get("label"), ((Number) row.get("nodes")).longValue());
+        }
+        return counts;
     }
 
     @AfterEach
     public void tearDown() {
         session.purgeDatabase();
+        dao.clearCache();
     }
 
     @AfterAll
@@ -0,0 +1,68 @@
+package rockets.dataaccess.neo4j;
+
+import org.neo4j.harness.ServerControls;
+import org.neo4j.harness.TestServerBuilders;
+import org.neo4j.ogm.drivers.embedded.driver.EmbeddedDriver;
+import org.neo4j.ogm.session.Session;
+import org.neo4j.ogm.session.SessionFactory;
+import rockets.model.User;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Measures createOrUpdate latency as the graph grows: users are added in bulk up to each
+ * size, then existing users are upserted by email, first by a new DAO that has to look
+ * them up, then again by the same DAO, which has cached their ids. Run the main method
+ * with the test classpath. Arguments: [largest graph size] [upserts per size].
+ */
+public class Neo4jDAOUpsertBenchmark {
+    private static final String CREATE_USERS =
+            "UNWIND range($from, $to - 1) AS i CREATE (:User {email: 'user' + i + '@example.com'})";
+
+    public static void main(String[] args) {
+        int largest = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int upserts = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+        ServerControls server = TestServerBuilders.newInProcessBuilder().newServer();
+        SessionFactory sessionFactory = new SessionFactory(new EmbeddedDriver(server.graph()), User.class.getPackage().getName());
+
+        int size = 0;
+        for (int target = 1_000; target <= largest; target *= 10) {
+            Session session = sessionFactory.openSession();
+            for (int from = size; from < target; from += 10_000) {
+                Map<String, Object> range = new HashMap<>();
+                range.put("from", from);
+                range.put("to", Math.min(target, from + 10_000));
+                session.query(CREATE_USERS, range);
+            }
+            size = target;
+
+            List<User> users = new ArrayList<>();
+            for (int i = 0; i < upserts; i++) {
+                User user = new User();
+                user.setEmail("user" + (long) i * size / upserts + "@example.com");
+                users.add(user);
+            }
+            Neo4jDAO dao = new Neo4jDAO(session);
+            long lookedUp = time(dao, users);
+            long cached = time(dao, users);
+            System.out.printf("%,10d nodes: %6.2f ms/upsert with lookup, %6.2f ms/upsert cached%n",
+                    size, lookedUp / 1e6 / upserts, cached / 1e6 / upserts);
+            session.clear();
+        }
+        sessionFactory.close();
+        server.close();
+    }
+
+    private static long time(Neo4jDAO dao, List<User> users) {
+        long start = System.nanoTime();
+        for (User user : users) {
+            user.setId(null);
+            user.setFirstName("First");
+            dao.createOrUpdate(user);
+        }
+        return System.nanoTime() - start;
+    }
+}
@@ -0,0 +1,218 @@
+package rockets.dataaccess.neo4j;
+
+import org.junit.jupiter.api.*;
+import org.neo4j.harness.ServerControls;
+import org.neo4j.harness.TestServerBuilders;
+import org.neo4j.ogm.drivers.embedded.driver.EmbeddedDriver;
+import org.neo4j.ogm.session.Session;
+import org.neo4j.ogm.session.SessionFactory;
+import rockets.model.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class PooledNeo4jDAOUnitTest {
+    private ServerControls server;
+    private SessionFactory sessionFactory;
+    private Session session;
+    private PooledNeo4jDAO dao;
+    private ExecutorService executor;
+
+    @BeforeAll
+    public void initializeNeo4j() {
+        server = TestServerBuilders.newInProcessBuilder().newServer();
+        sessionFactory = new SessionFactory(new EmbeddedDriver(server.graph()), User.class.getPackage().getName());
+        session = sessionFactory.openSession();
+    }
+
+    @BeforeEach
+    public void setup() {
+        dao = new PooledNeo4jDAO(sessionFactory, 4);
+        executor = Executors.newFixedThreadPool(8);
+    }
+
+    @Test
+    public void shouldServeConcurrentWritersAndReaders() throws Exception {
+        int writers = 6;
+        int launchesPerWriter = 30;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> results = new ArrayList<>();
+        for (int w = 0; w < writers; w++) {
+            int writer = w;
+            results.add(executor.submit(() -> {
+                start.await();
+                // each writer has providers and rockets of its own, so no two transactions wait for each other's locks
+                LaunchServiceProvider lsp = new LaunchServiceProvider("LSP " + writer, 1950 + writer, "USA");
+                Rocket rocket = new Rocket("Rocket " + writer, "USA", lsp);
+                List<Launch> launches = new ArrayList<>();
+                for (int i = 0; i < launchesPerWriter; i++) {
+                    Launch launch = launch(rocket, LocalDate.of(2000 + writer, 1, 1).plusDays(i));
+                    if (i % 2 == 0) {
+                        dao.createOrUpdate(launch);
+                    } else {
+                        launches.add(launch);
+                    }
+                }
+                dao.createOrUpdateAll(launches);
+                return null;
+            }));
+        }
+        for (int r = 0; r < 2; r++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < 20; i++) {
+                    for (Launch launch : dao.loadAll(Launch.class)) {
+                        assertNotNull(launch.getLaunchDate());
+                    }
+                    dao.loadProjection(Launch.class, "launchDate", "launchVehicle.name");
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> result : results) {
+            result.get(2, TimeUnit.MINUTES);
+        }
+
+        assertEquals(writers * launchesPerWriter, dao.loadAll(Launch.class).size());
+        assertEquals(writers, dao.loadAll(Rocket.class).size());
+        assertEquals(writers, dao.loadAll(LaunchServiceProvider.class).size());
+        Map<String, Long> launchesPerRocket = dao.loadProjection(Launch.class, "launchVehicle.name").stream()
+                .collect(Collectors.groupingBy(row -> (String) row[0], Collectors.counting()));
+        assertEquals(writers, launchesPerRocket.size());
+        assertTrue(launchesPerRocket.values().stream().allMatch(count -> count == launchesPerWriter));
+        assertTrue(dao.getOpenSessions() <= 4);
+    }
+
+    @Test
+    public void shouldClearSessionsBetweenCalls() {
+        Rocket rocket = dao.createOrUpdate(new Rocket("Falcon 9", "USA", new LaunchServiceProvider("SpaceX", 2002, "USA")));
+        Rocket first = dao.load(Rocket.class, rocket.getId());
+        Rocket second = dao.load(Rocket.class, rocket.getId());
+        assertEquals(first, second);
+        assertNotSame(first, second);
+        boolean sameInUnit = dao.inSession(unit -> unit.load(Rocket.class, rocket.getId()) == unit.load(Rocket.class, rocket.getId()));
+        assertTrue(sameInUnit);
+    }
+
+    @Test
+    public void shouldWaitForASessionWhenAllAreInUse() throws Exception {
+        dao = new PooledNeo4jDAO(sessionFactory, 1);
+        CountDownLatch inUse = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<?> holder = executor.submit(() -> dao.inSession(unit -> {
+            inUse.countDown();
+            try {
+                return release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        }));
+        assertTrue(inUse.await(10, TimeUnit.SECONDS));
+        Future<Collection<Rocket>> waiting = executor.submit(() -> dao.loadAll(Rocket.class));
+        assertThrows(TimeoutException.class, () -> waiting.get(200, TimeUnit.MILLISECONDS));
+        release.countDown();
+        holder.get(10, TimeUnit.SECONDS);
+        assertTrue(waiting.get(10, TimeUnit.SECONDS).isEmpty());
+        assertEquals(1, dao.getOpenSessions());
+    }
+
+    @Test
+    public void shouldReuseTheSessionOfTheCallingThread() throws Exception {
+        dao = new PooledNeo4jDAO(sessionFactory, 1);
+        Future<Integer> nested = executor.submit(() -> dao.inSession(unit -> dao.loadAll(Rocket.class).size()));
+        assertEquals(0, nested.get(10, TimeUnit.SECONDS).intValue());
+    }
+
+    @Test
+    public void shouldReturnTheSessionOfAStreamReadToTheEnd() throws Exception {
+        dao = new PooledNeo4jDAO(sessionFactory, 1);
+        LaunchServiceProvider lsp = new LaunchServiceProvider("SpaceX", 2002, "USA");
+        Rocket rocket = new Rocket("Falcon 9", "USA", lsp);
+        for (int i = 0; i < 5; i++) {
+            dao.createOrUpdate(launch(rocket, LocalDate.of(2019, 1, 1).plusDays(i)));
+        }
+        assertEquals(5, dao.stream(Launch.class, 2).count());
+        assertEquals(5, executor.submit(() -> dao.loadAll(Launch.class).size()).get(10, TimeUnit.SECONDS).intValue());
+
+        try (Stream<Launch> launches = dao.stream(Launch.class, 2)) {
+            assertTrue(launches.findFirst().isPresent());
+        }
+        assertEquals(1, executor.submit(() -> dao.loadAll(Rocket.class).size()).get(10, TimeUnit.SECONDS).intValue());
+    }
+
+    @Test
+    public void shouldNotHoldSessionsForStreamsLeftUnread() throws Exception {
+        dao = new PooledNeo4jDAO(sessionFactory, 1);
+        LaunchServiceProvider lsp = new LaunchServiceProvider("SpaceX", 2002, "USA");
+        Rocket rocket = new Rocket("Falcon 9", "USA", lsp);
+        for (int i = 0; i < 5; i++) {
+            dao.createOrUpdate(launch(rocket, LocalDate.of(2019, 1, 1).plusDays(i)));
+        }
+        // none of these streams is closed, nor read to the end
+        for (int i = 0; i < 3; i++) {
+            assertTrue(dao.stream(Launch.class, 2).findFirst().isPresent());
+            assertEquals(3, dao.stream(Launch.class, 2).limit(3).count());
+            assertTrue(dao.stream(Launch.class, 2).anyMatch(launch -> launch.getLaunchDate().getDayOfMonth() == 2));
+        }
+        Iterator<Launch> unread = dao.stream(Launch.class, 2).iterator();
+        assertTrue(unread.hasNext());
+        assertThrows(IllegalStateException.class, () -> dao.stream(Launch.class, 2).forEach(launch -> {
+            throw new IllegalStateException("stop");
+        }));
+        assertEquals(5, executor.submit(() -> dao.loadAll(Launch.class).size()).get(10, TimeUnit.SECONDS).intValue());
+
+        // a stream opened in a unit of work can be read after it, on another session
+        Stream<Launch> launches = dao.inSession(work -> work.stream(Launch.class, 2));
+        assertEquals(5, executor.submit(() -> launches.count()).get(10, TimeUnit.SECONDS).intValue());
+    }
+
+    @Test
+    public void shouldCreateTheIndexesOnAPooledSession() {
+        SessionFactory counting = spy(sessionFactory);
+        PooledNeo4jDAO single = new PooledNeo4jDAO(counting, 1);
+        single.createOrUpdate(new Rocket("Rocket", "USA", new LaunchServiceProvider("LSP", 1950, "USA")));
+        assertEquals(1, single.loadAll(Rocket.class).size());
+
+        verify(counting, times(1)).openSession();
+    }
+
+    @Test
+    public void shouldRejectNonPositivePoolSize() {
+        assertThrows(IllegalArgumentException.class, () -> new PooledNeo4jDAO(sessionFactory, 0));
+    }
+
+    private static Launch launch(Rocket rocket, LocalDate launchDate) {
+        Launch launch = new Launch();
+        launch.setLaunchDate(launchDate);
+        launch.setLaunchVehicle(rocket);
+        launch.setLaunchServiceProvider(rocket.getManufacturer());
+        launch.setLaunchSite("VAFB");
+        launch.setOrbit("LEO");
+        launch.setPrice(BigDecimal.valueOf(1000));
+        launch.setLaunchOutcome(Launch.LaunchOutcome.SUCCESSFUL);
+        return launch;
+    }
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdownNow();
+        session.purgeDatabase();
+        dao.clearCache();
+    }
+
+    @AfterAll
+    public void closeNeo4jSession() {
+        session.clear();
+        sessionFactory.close();
+        server.close();
+    }
+}
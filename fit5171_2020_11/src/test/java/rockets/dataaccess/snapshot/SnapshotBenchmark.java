@@ -0,0 +1,68 @@
+package rockets.dataaccess.snapshot;
+
+import org.neo4j.harness.ServerControls;
+import org.neo4j.harness.TestServerBuilders;
+import org.neo4j.ogm.drivers.embedded.driver.EmbeddedDriver;
+import org.neo4j.ogm.session.SessionFactory;
+import rockets.dataaccess.DAO;
+import rockets.dataaccess.neo4j.Neo4jDAO;
+import rockets.mining.SyntheticLaunches;
+import rockets.model.Launch;
+import rockets.model.LaunchServiceProvider;
+import rockets.model.Rocket;
+import rockets.model.User;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Compares restarting from a snapshot with loading all entities from Neo4j through a new
+ * session, on an embedded database. Run the main method with the test classpath.
+ * Arguments: [launches] [rounds].
+ */
+public class SnapshotBenchmark {
+    public static void main(String[] args) throws IOException {
+        int launchCount = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        ServerControls server = TestServerBuilders.newInProcessBuilder().newServer();
+        SessionFactory sessionFactory = new SessionFactory(new EmbeddedDriver(server.graph()), User.class.getPackage().getName());
+        List<Launch> launches = new SyntheticLaunches(launchCount, 200, 20, 1).getLaunches();
+        // the synthetic ids are not ids of the store
+        for (Launch launch : launches) {
+            launch.setId(null);
+        }
+        new Neo4jDAO(sessionFactory.openSession()).createOrUpdateAll(launches);
+
+        File file = File.createTempFile("launches", ".snapshot");
+        try {
+            measure("write snapshot", () -> {
+                SnapshotWriter.write(new Neo4jDAO(sessionFactory.openSession()), file, Neo4jDAO.DEFAULT_BATCH_SIZE);
+                return launchCount;
+            });
+            System.out.printf("snapshot of %d launches: %d bytes, %.1f bytes per launch%n",
+                    launchCount, file.length(), (double) file.length() / launchCount);
+            for (int round = 0; round < rounds; round++) {
+                measure("loadAll cold start", () -> {
+                    DAO dao = new Neo4jDAO(sessionFactory.openSession());
+                    dao.loadAll(LaunchServiceProvider.class);
+                    dao.loadAll(Rocket.class);
+                    return dao.loadAll(Launch.class).size();
+                });
+                measure("read snapshot", () -> SnapshotReader.read(file).getLaunches().size());
+            }
+        } finally {
+            file.delete();
+            sessionFactory.close();
+            server.close();
+        }
+    }
+
+    private static void measure(String operation, Supplier<Integer> run) {
+        long start = System.nanoTime();
+        int count = run.get();
+        double millis = (System.nanoTime() - start) / 1e6;
+        System.out.printf("%-20s %7d launches %10.2f ms%n", operation, count, millis);
+    }
+}
@@ -0,0 +1,161 @@
+package rockets.dataaccess.snapshot;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import rockets.dataaccess.DAO;
+import rockets.dataaccess.memory.InMemoryDAO;
+import rockets.mining.SyntheticLaunches;
+import rockets.model.Launch;
+import rockets.model.LaunchServiceProvider;
+import rockets.model.Rocket;
+import rockets.model.User;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collection;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SnapshotReaderUnitTest {
+    private File file;
+
+    private SyntheticLaunches data;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        file = File.createTempFile("launches", ".snapshot");
+        data = new SyntheticLaunches(500, 20, 5, 7);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    public void shouldRebuildTheLaunchesWithAllTheirFields() {
+        Launch launch = data.getLaunches().get(0);
+        launch.setFunction("Resupply");
+        launch.setWikilink("https://en.wikipedia.org/wiki/CRS-20");
+        launch.setPrice(new BigDecimal("-0.125"));
+        Rocket rocket = launch.getLaunchVehicle();
+        rocket.setMassToLEO("22800");
+        rocket.getManufacturer().setHeadquarters("Hawthorne");
+        rocket.getManufacturer().getRockets().add(rocket);
+        try (SnapshotWriter writer = new SnapshotWriter(newOutputStream())) {
+            data.getLaunches().forEach(writer::write);
+        }
+
+        Snapshot snapshot = SnapshotReader.read(file);
+        assertEquals(describe(data.getLaunches()), describe(snapshot.getLaunches()));
+        Launch read = snapshot.getLaunches().get(0);
+        assertEquals(new BigDecimal("-0.125"), read.getPrice());
+        assertEquals("22800", read.getLaunchVehicle().getMassToLEO());
+        assertEquals("Hawthorne", read.getLaunchServiceProvider().getHeadquarters());
+        assertEquals(Arrays.asList(read.getLaunchVehicle()), Arrays.asList(read.getLaunchServiceProvider().getRockets().toArray()));
+    }
+
+    @Test
+    public void shouldShareTheEntitiesLaunchesReferTo() {
+        try (SnapshotWriter writer = new SnapshotWriter(newOutputStream())) {
+            data.getLaunches().forEach(writer::write);
+            data.getRockets().forEach(writer::write);
+        }
+
+        Snapshot snapshot = SnapshotReader.read(file);
+        assertEquals(data.getRockets().size(), snapshot.getRockets().size());
+        assertEquals(data.getLaunchServiceProviders().size(), snapshot.getLaunchServiceProviders().size());
+        for (Launch launch : snapshot.getLaunches()) {
+            assertSame(launch.getLaunchVehicle().getManufacturer(), launch.getLaunchServiceProvider());
+            assertTrue(snapshot.getRockets().stream().anyMatch(rocket -> rocket == launch.getLaunchVehicle()));
+        }
+    }
+
+    @Test
+    public void shouldWriteEachStringOnce() {
+        try (SnapshotWriter writer = new SnapshotWriter(newOutputStream())) {
+            data.getLaunches().forEach(writer::write);
+        }
+
+        // an id, flags, date, two references, four string numbers and a price: under 20 bytes, with the strings written once
+        assertTrue(file.length() < 20 * data.getLaunches().size(), file.length() + " bytes");
+    }
+
+    @Test
+    public void shouldWriteUsersWithoutTheirPasswords() {
+        User user = new User();
+        user.setId(42L);
+        user.setFirstName("Ada");
+        user.setEmail("ada@example.com");
+        user.setPassword("Secret123");
+        try (SnapshotWriter writer = new SnapshotWriter(newOutputStream())) {
+            writer.write(user);
+        }
+
+        User read = SnapshotReader.read(file).getUsers().get(0);
+        assertEquals(Long.valueOf(42), read.getId());
+        assertEquals("Ada", read.getFirstName());
+        assertEquals("ada@example.com", read.getEmail());
+        assertNull(read.getPassword());
+    }
+
+    @Test
+    public void shouldCopyOneDAOToAnother() {
+        DAO source = new InMemoryDAO();
+        source.createOrUpdateAll(data.getLaunches());
+        SnapshotWriter.write(source, file, 64);
+
+        DAO copy = new InMemoryDAO();
+        SnapshotReader.read(file).loadInto(copy);
+        assertEquals(describe(source.loadAll(Launch.class)), describe(copy.loadAll(Launch.class)));
+        assertEquals(source.loadAll(Rocket.class).size(), copy.loadAll(Rocket.class).size());
+        assertEquals(source.loadAll(LaunchServiceProvider.class).size(), copy.loadAll(LaunchServiceProvider.class).size());
+    }
+
+    @Test
+    public void shouldRejectOtherFilesAndIncompleteSnapshots() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (SnapshotWriter writer = new SnapshotWriter(bytes)) {
+            data.getLaunches().forEach(writer::write);
+        }
+        byte[] snapshot = bytes.toByteArray();
+
+        assertThrows(IllegalArgumentException.class, () -> SnapshotReader.read(ByteBuffer.wrap("launchDate,rocket".getBytes())));
+        byte[] newer = snapshot.clone();
+        newer[4] = 2;
+        assertThrows(IllegalArgumentException.class, () -> SnapshotReader.read(ByteBuffer.wrap(newer)));
+        assertThrows(IllegalStateException.class, () -> SnapshotReader.read(ByteBuffer.wrap(snapshot, 0, snapshot.length / 2)));
+        assertEquals(data.getLaunches().size(), SnapshotReader.read(ByteBuffer.wrap(snapshot)).getLaunches().size());
+    }
+
+    private OutputStream newOutputStream() {
+        try {
+            return Files.newOutputStream(file.toPath());
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String describe(Collection<Launch> launches) {
+        StringBuilder description = new StringBuilder();
+        for (Launch launch : launches) {
+            description.append(launch.getLaunchDate()).append(' ')
+                    .append(launch.getLaunchVehicle().getName()).append(' ')
+                    .append(launch.getLaunchServiceProvider().getName()).append(' ')
+                    .append(launch.getLaunchSite()).append(' ')
+                    .append(launch.getOrbit()).append(' ')
+                    .append(launch.getFunction()).append(' ')
+                    .append(launch.getPrice()).append(' ')
+                    .append(launch.getLaunchOutcome()).append(' ')
+                    .append(launch.getWikilink()).append('\n');
+        }
+        return description.toString();
+    }
+}
@@ -0,0 +1,91 @@
+package rockets.metrics;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HistogramUnitTest {
+    @ParameterizedTest
+    @ValueSource(longs = {0, 1, 127, 128, 129, 1000, 65_535, 1_000_000_007L, Long.MAX_VALUE - 1, Long.MAX_VALUE})
+    public void shouldKeepValuesToWithinAHundredthOfThemselves(long value) {
+        int bucket = Histogram.bucketOf(value);
+        long highest = Histogram.highestValueIn(bucket);
+        assertTrue(highest >= value);
+        assertTrue(highest - value <= value / 64, () -> value + " in bucket up to " + highest);
+        assertTrue(bucket < Histogram.BUCKETS);
+        if (bucket > 0) {
+            assertTrue(Histogram.highestValueIn(bucket - 1) < value);
+        }
+    }
+
+    @Test
+    public void shouldReportPercentilesOfRecordedValues() {
+        Histogram histogram = new Histogram();
+        for (int value = 1; value <= 10_000; value++) {
+            histogram.record(value);
+        }
+        Histogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(10_000, snapshot.getCount());
+        assertEquals(1, snapshot.getMin());
+        assertEquals(10_000, snapshot.getMax());
+        assertEquals(5000.5, snapshot.getMean(), 1e-9);
+        assertEquals(1, snapshot.getValueAtPercentile(0));
+        assertEquals(5000, snapshot.getValueAtPercentile(50), 5000 / 64);
+        assertEquals(9900, snapshot.getValueAtPercentile(99), 9900 / 64);
+        assertEquals(10_000, snapshot.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void shouldStartFromNothingAfterReset() {
+        Histogram histogram = new Histogram();
+        histogram.record(5);
+        assertEquals(1, histogram.snapshotAndReset().getCount());
+        Histogram.Snapshot empty = histogram.snapshot();
+        assertEquals(0, empty.getCount());
+        assertEquals(0, empty.getMax());
+        assertEquals(0, empty.getValueAtPercentile(99));
+        histogram.record(3);
+        assertEquals(3, histogram.snapshot().getMin());
+    }
+
+    @Test
+    public void shouldRejectNegativeValues() {
+        assertThrows(IllegalArgumentException.class, () -> new Histogram().record(-1));
+        assertThrows(IllegalArgumentException.class, () -> new Histogram().snapshot().getValueAtPercentile(101));
+    }
+
+    @Test
+    public void shouldCountEveryValueRecordedConcurrentlyOnce() throws Exception {
+        Histogram histogram = new Histogram();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> writers = new ArrayList<>();
+            for (int thread = 0; thread < 4; thread++) {
+                writers.add(executor.submit(() -> {
+                    for (int value = 0; value < 100_000; value++) {
+                        histogram.record(value % 1000);
+                    }
+                }));
+            }
+            long counted = 0;
+            for (Future<?> writer : writers) {
+                while (!writer.isDone()) {
+                    counted += histogram.snapshotAndReset().getCount();
+                }
+                writer.get();
+            }
+            counted += histogram.snapshotAndReset().getCount();
+            assertEquals(400_000, counted);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
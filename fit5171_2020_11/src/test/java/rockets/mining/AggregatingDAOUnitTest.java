@@ -0,0 +1,90 @@
+package rockets.mining;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import rockets.dataaccess.DAO;
+import rockets.model.Launch;
+import rockets.model.LaunchServiceProvider;
+import rockets.model.Rocket;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class AggregatingDAOUnitTest {
+    private DAO dao;
+    private LaunchAggregates aggregates;
+    private AggregatingDAO aggregatingDAO;
+    private Rocket rocket;
+    private Launch launch;
+
+    @BeforeEach
+    public void setUp() {
+        dao = mock(DAO.class);
+        // the wrapped DAO assigns an id on save, as Neo4jDAO does
+        when(dao.createOrUpdate(any())).thenAnswer(invocation -> {
+            Launch saved = invocation.getArgument(0);
+            saved.setId(1L);
+            return saved;
+        });
+        aggregates = new LaunchAggregates();
+        aggregatingDAO = new AggregatingDAO(dao, aggregates);
+
+        LaunchServiceProvider spacex = new LaunchServiceProvider("SpaceX", 2002, "USA");
+        rocket = new Rocket("Falcon 9", "USA", spacex);
+        launch = new Launch();
+        launch.setLaunchVehicle(rocket);
+        launch.setLaunchServiceProvider(spacex);
+        launch.setLaunchDate(LocalDate.of(2018, 2, 6));
+        launch.setOrbit("LEO");
+        launch.setPrice(new BigDecimal(90));
+        launch.setLaunchOutcome(Launch.LaunchOutcome.SUCCESSFUL);
+    }
+
+    @Test
+    public void shouldUpdateAggregatesOnWrites() {
+        aggregatingDAO.createOrUpdate(launch);
+        aggregatingDAO.createOrUpdate(launch);
+        verify(dao, times(2)).createOrUpdate(launch);
+        assertEquals(1, aggregates.getLaunchCount(rocket));
+
+        aggregatingDAO.delete(launch);
+        verify(dao).delete(launch);
+        assertEquals(0, aggregates.getLaunchCount(rocket));
+    }
+
+    @Test
+    public void shouldUpdateAggregatesOnBatchWrites() {
+        Rocket other = new Rocket("Atlas V", "USA", launch.getLaunchServiceProvider());
+        when(dao.createOrUpdateAll(any())).thenAnswer(invocation -> new ArrayList<>(invocation.getArgument(0)));
+        aggregatingDAO.createOrUpdateAll(Arrays.asList(launch, other));
+        verify(dao).createOrUpdateAll(Arrays.asList(launch, other));
+        assertEquals(1, aggregates.getLaunchCount(rocket));
+        assertEquals(0, aggregates.getLaunchCount(other));
+    }
+
+    @Test
+    public void shouldFeedMinerWithoutRescanning() {
+        aggregatingDAO.createOrUpdate(launch);
+        RocketMiner miner = new RocketMiner(dao, aggregates);
+        assertEquals(Collections.singletonList(rocket), miner.mostLaunchedRockets(3));
+        assertEquals("USA", miner.dominantCountry("LEO"));
+        assertEquals(Collections.singletonList(launch.getLaunchServiceProvider()),
+                miner.highestRevenueLaunchServiceProviders(3, 2018));
+        verify(dao, never()).loadAll(any());
+    }
+
+    @Test
+    public void shouldPassReadsThrough() {
+        when(dao.load(Rocket.class, 3L)).thenReturn(rocket);
+        assertSame(rocket, aggregatingDAO.load(Rocket.class, 3L));
+        aggregatingDAO.loadAll(Rocket.class);
+        verify(dao).loadAll(Rocket.class);
+    }
+}
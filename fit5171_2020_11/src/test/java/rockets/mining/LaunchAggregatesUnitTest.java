@@ -0,0 +1,138 @@
+package rockets.mining;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import rockets.model.Launch;
+import rockets.model.LaunchServiceProvider;
+import rockets.model.Rocket;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.NoSuchElementException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LaunchAggregatesUnitTest {
+    private LaunchServiceProvider ula;
+    private LaunchServiceProvider spacex;
+    private Rocket atlas;
+    private Rocket falcon;
+    private LaunchAggregates aggregates;
+    private long nextId;
+
+    @BeforeEach
+    public void setUp() {
+        ula = new LaunchServiceProvider("ULA", 1990, "USA");
+        spacex = new LaunchServiceProvider("SpaceX", 2002, "USA");
+        atlas = new Rocket("Atlas V", "USA", ula);
+        falcon = new Rocket("Falcon 9", "Europe", spacex);
+        aggregates = new LaunchAggregates();
+        nextId = 1;
+    }
+
+    private Launch launch(Rocket rocket, int year, int price, Launch.LaunchOutcome outcome) {
+        Launch launch = new Launch();
+        launch.setId(nextId++);
+        launch.setLaunchVehicle(rocket);
+        launch.setLaunchServiceProvider(rocket.getManufacturer());
+        launch.setLaunchDate(LocalDate.of(year, 1, 1));
+        launch.setOrbit("LEO");
+        launch.setPrice(new BigDecimal(price));
+        launch.setLaunchOutcome(outcome);
+        return launch;
+    }
+
+    @Test
+    public void shouldCountSavedLaunches() {
+        aggregates.onSaved(launch(atlas, 2017, 10, Launch.LaunchOutcome.SUCCESSFUL));
+        aggregates.onSaved(launch(falcon, 2017, 5, Launch.LaunchOutcome.FAILED));
+        aggregates.onSaved(launch(falcon, 2018, 7, Launch.LaunchOutcome.SUCCESSFUL));
+
+        assertEquals(Arrays.asList(falcon, atlas), aggregates.mostLaunchedRockets(2));
+        assertEquals(Arrays.asList(ula, spacex), aggregates.mostReliableLaunchServiceProviders(2));
+        assertEquals(Arrays.asList(ula, spacex), aggregates.highestRevenueLaunchServiceProviders(2, 2017));
+        assertEquals(Collections.singletonList(spacex), aggregates.highestRevenueLaunchServiceProviders(2, 2018));
+        assertEquals("Europe", aggregates.dominantCountry("LEO"));
+        assertEquals(2, aggregates.getLaunchCount("LEO", "Europe"));
+    }
+
+    @Test
+    public void shouldRetractOldContributionWhenLaunchIsUpdated() {
+        Launch launch = launch(falcon, 2017, 5, Launch.LaunchOutcome.FAILED);
+        aggregates.onSaved(launch);
+        aggregates.onSaved(launch(atlas, 2017, 8, Launch.LaunchOutcome.FAILED));
+        assertEquals(Collections.singletonList(ula), aggregates.highestRevenueLaunchServiceProviders(1, 2017));
+
+        launch.setPrice(new BigDecimal(9));
+        launch.setLaunchOutcome(Launch.LaunchOutcome.SUCCESSFUL);
+        aggregates.onSaved(launch);
+
+        assertEquals(new BigDecimal(9), aggregates.getRevenue(2017, spacex));
+        assertEquals(1, aggregates.getLaunchCount(falcon));
+        assertEquals(Collections.singletonList(spacex), aggregates.highestRevenueLaunchServiceProviders(1, 2017));
+        assertEquals(Collections.singletonList(spacex), aggregates.mostReliableLaunchServiceProviders(1));
+    }
+
+    @Test
+    public void shouldMoveLaunchBetweenYearsWhenDateIsUpdated() {
+        Launch launch = launch(falcon, 2017, 5, Launch.LaunchOutcome.FAILED);
+        aggregates.onSaved(launch);
+        launch.setLaunchDate(LocalDate.of(2019, 3, 1));
+        aggregates.onSaved(launch);
+
+        assertTrue(aggregates.highestRevenueLaunchServiceProviders(1, 2017).isEmpty());
+        assertEquals(Collections.singletonList(spacex), aggregates.highestRevenueLaunchServiceProviders(1, 2019));
+    }
+
+    @Test
+    public void shouldRetractDeletedLaunch() {
+        Launch launch = launch(falcon, 2017, 5, Launch.LaunchOutcome.FAILED);
+        aggregates.onSaved(launch);
+        aggregates.onDeleted(launch);
+
+        assertTrue(aggregates.mostLaunchedRockets(1).isEmpty());
+        assertTrue(aggregates.mostReliableLaunchServiceProviders(1).isEmpty());
+        assertEquals(BigDecimal.ZERO, aggregates.getRevenue(2017, spacex));
+        assertThrows(NoSuchElementException.class, () -> aggregates.dominantCountry("LEO"));
+    }
+
+    @Test
+    public void shouldIgnoreDeleteOfUnknownLaunch() {
+        aggregates.onSaved(launch(falcon, 2017, 5, Launch.LaunchOutcome.FAILED));
+        aggregates.onDeleted(launch(falcon, 2017, 5, Launch.LaunchOutcome.FAILED));
+        assertEquals(1, aggregates.getLaunchCount(falcon));
+    }
+
+    @Test
+    public void shouldDropRocketsAndProvidersNoLaunchRefersTo() {
+        Launch launch = launch(falcon, 2017, 5, Launch.LaunchOutcome.FAILED);
+        aggregates.onSaved(launch);
+        aggregates.onDeleted(launch);
+
+        LaunchServiceProvider reloadedSpacex = new LaunchServiceProvider("SpaceX", 2002, "USA");
+        Rocket reloadedFalcon = new Rocket("Falcon 9", "Europe", reloadedSpacex);
+        aggregates.onSaved(launch(reloadedFalcon, 2017, 5, Launch.LaunchOutcome.FAILED));
+        assertSame(reloadedFalcon, aggregates.mostLaunchedRockets(1).get(0));
+        assertSame(reloadedSpacex, aggregates.mostReliableLaunchServiceProviders(1).get(0));
+    }
+
+    @Test
+    public void shouldBreakRevenueTiesOverYearsByTheEarliestYear() {
+        // 2016 comes before 2015 in a hash map of years
+        aggregates.onSaved(launch(atlas, 2016, 5, Launch.LaunchOutcome.SUCCESSFUL));
+        aggregates.onSaved(launch(falcon, 2015, 5, Launch.LaunchOutcome.SUCCESSFUL));
+
+        assertEquals(Arrays.asList(spacex, ula), aggregates.highestRevenueLaunchServiceProviders(2, 2015, 2016));
+    }
+
+    @Test
+    public void shouldBuildFromExistingLaunches() {
+        LaunchAggregates built = LaunchAggregates.of(Arrays.asList(
+                launch(atlas, 2017, 10, Launch.LaunchOutcome.SUCCESSFUL),
+                launch(atlas, 2017, 10, Launch.LaunchOutcome.SUCCESSFUL)));
+        assertEquals(2, built.getLaunchCount(atlas));
+        assertEquals(new BigDecimal(20), built.getRevenue(2017, ula));
+    }
+}
@@ -0,0 +1,175 @@
+package rockets.mining;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import rockets.dataaccess.DAO;
+import rockets.model.Launch;
+import rockets.model.LaunchServiceProvider;
+import rockets.model.Rocket;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class LaunchColumnsUnitTest {
+    private SyntheticLaunches data;
+    private RocketMiner miner;
+    private LaunchAggregates aggregates;
+    private LaunchColumns columns;
+
+    @BeforeAll
+    public void setUp() {
+        data = new SyntheticLaunches(20_000, 100, 8, 3);
+        DAO dao = mock(DAO.class);
+        when(dao.loadAll(Launch.class)).thenReturn(data.getLaunches());
+        miner = new RocketMiner(dao);
+        aggregates = LaunchAggregates.of(data.getLaunches());
+        columns = LaunchColumns.load(dao);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 1, 10, 100, 150})
+    public void shouldRankLikeRocketMiner(int k) {
+        assertEquals(miner.mostLaunchedRockets(k), columns.mostLaunchedRockets(k));
+        assertSameLaunches(miner.mostRecentLaunches(k), columns.mostRecentLaunches(k));
+        assertSameLaunches(miner.mostExpensiveLaunches(k), columns.mostExpensiveLaunches(k));
+        assertEquals(miner.highestRevenueLaunchServiceProviders(k, 2001), columns.highestRevenueLaunchServiceProviders(k, 2001));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 1, 3, 8})
+    public void shouldRankProvidersByOwnSuccessRatioLikeAggregates(int k) {
+        assertEquals(aggregates.mostReliableLaunchServiceProviders(k), columns.mostReliableLaunchServiceProviders(k));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"LEO", "GTO", "HEO"})
+    public void shouldFindDominantCountryLikeAggregates(String orbit) {
+        assertEquals(aggregates.dominantCountry(orbit), columns.dominantCountry(orbit));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 1, 10, 100})
+    public void shouldAnswerMinerQueriesFromColumns(int k) {
+        DAO dao = mock(DAO.class);
+        RocketMiner columnar = new RocketMiner(dao, columns);
+        assertEquals(miner.mostLaunchedRockets(k), columnar.mostLaunchedRockets(k));
+        assertSameLaunches(miner.mostExpensiveLaunches(k), columnar.mostExpensiveLaunches(k));
+        assertSameLaunches(miner.mostRecentLaunches(k), columnar.mostRecentLaunches(k));
+        assertEquals(miner.highestRevenueLaunchServiceProviders(k, 2001), columnar.highestRevenueLaunchServiceProviders(k, 2001));
+        assertEquals(aggregates.mostReliableLaunchServiceProviders(k), columnar.mostReliableLaunchServiceProviders(k));
+        assertEquals(aggregates.dominantCountry("LEO"), columnar.dominantCountry("LEO"));
+        // the columns already hold the launches, so no snapshot is loaded
+        verify(dao, never()).loadAll(Launch.class);
+    }
+
+    @Test
+    public void shouldCopyTheLaunchesIntoNewColumnsOnRefresh() {
+        DAO dao = mock(DAO.class);
+        RocketMiner columnar = new RocketMiner(dao, new LaunchColumns(data.getLaunches().subList(0, 10)));
+        assertEquals(10, columnar.mostRecentLaunches(100).size());
+
+        when(dao.loadAll(Launch.class)).thenReturn(data.getLaunches().subList(0, 20));
+        columnar.refresh();
+        assertEquals(20, columnar.mostRecentLaunches(100).size());
+    }
+
+    @Test
+    public void shouldEncodeColumns() {
+        LaunchServiceProvider spacex = new LaunchServiceProvider("SpaceX", 2002, "USA");
+        Rocket falcon = new Rocket("Falcon 9", "USA", spacex);
+        Launch launch = new Launch();
+        launch.setLaunchVehicle(falcon);
+        launch.setLaunchServiceProvider(spacex);
+        launch.setLaunchDate(LocalDate.of(1970, 1, 2));
+        launch.setLaunchSite("KSC");
+        launch.setPrice(new BigDecimal("62.005"));
+        launch.setLaunchOutcome(Launch.LaunchOutcome.SUCCESSFUL);
+        Launch incomplete = new Launch();
+
+        LaunchColumns encoded = new LaunchColumns(Arrays.asList(launch, incomplete));
+        assertEquals(2, encoded.size());
+        assertEquals(1, encoded.getEpochDay(0));
+        assertEquals(3, encoded.getPriceScale());
+        assertEquals(62005, encoded.getUnscaledPrice(0));
+        assertTrue(encoded.isSuccessful(0));
+        assertFalse(encoded.isSuccessful(1));
+        assertEquals(falcon, encoded.getRocket(encoded.getRocketId(0)));
+        assertEquals(spacex, encoded.getLaunchServiceProvider(encoded.getLspId(0)));
+        assertEquals("KSC", encoded.getLaunchSite(encoded.getLaunchSiteId(0)));
+        assertEquals("USA", encoded.getCountry(encoded.getCountryId(0)));
+        assertEquals(LaunchColumns.MISSING, encoded.getOrbitId(0));
+        assertEquals(LaunchColumns.MISSING, encoded.getRocketId(1));
+        assertEquals(Collections.singletonList(launch), encoded.mostRecentLaunches(5));
+        assertThrows(NoSuchElementException.class, () -> encoded.dominantCountry("LEO"));
+    }
+
+    @Test
+    public void shouldRankPricesAtTheirFullScale() {
+        LaunchServiceProvider spacex = new LaunchServiceProvider("SpaceX", 2002, "USA");
+        LaunchServiceProvider ula = new LaunchServiceProvider("ULA", 1990, "USA");
+        // equal once rounded to cents
+        Launch cheaper = launchOf(spacex, "10.004");
+        Launch dearer = launchOf(ula, "10.005");
+        LaunchColumns encoded = new LaunchColumns(Arrays.asList(cheaper, dearer));
+
+        assertEquals(Arrays.asList(dearer, cheaper), encoded.mostExpensiveLaunches(2));
+        assertEquals(Arrays.asList(ula, spacex), encoded.highestRevenueLaunchServiceProviders(2, 2020));
+    }
+
+    @Test
+    public void shouldRankPricesTooLargeToAddUpAsLongs() {
+        LaunchServiceProvider spacex = new LaunchServiceProvider("SpaceX", 2002, "USA");
+        LaunchServiceProvider ula = new LaunchServiceProvider("ULA", 1990, "USA");
+        LaunchServiceProvider esa = new LaunchServiceProvider("ESA", 1975, "Europe");
+        Launch fine = launchOf(esa, "1.0000000000001");
+        Launch cheaper = launchOf(spacex, "5000000000");
+        Launch dearer = launchOf(ula, "7000000000");
+        Launch again = launchOf(spacex, "5000000000");
+        LaunchColumns encoded = new LaunchColumns(Arrays.asList(fine, cheaper, dearer, again));
+
+        assertEquals(LaunchColumns.MISSING, encoded.getPriceScale());
+        assertEquals(Arrays.asList(dearer, cheaper, again, fine), encoded.mostExpensiveLaunches(4));
+        assertEquals(Arrays.asList(spacex, ula, esa), encoded.highestRevenueLaunchServiceProviders(3, 2020));
+    }
+
+    @Test
+    public void shouldKeepDatesBeyondTheRangeOfAnInt() {
+        Launch far = new Launch();
+        far.setLaunchDate(LocalDate.of(9_999_999, 1, 1));
+        Launch near = new Launch();
+        near.setLaunchDate(LocalDate.of(2020, 1, 1));
+        LaunchColumns encoded = new LaunchColumns(Arrays.asList(near, far));
+
+        assertEquals(far.getLaunchDate().toEpochDay(), encoded.getEpochDay(1));
+        assertEquals(Arrays.asList(far, near), encoded.mostRecentLaunches(2));
+    }
+
+    private static Launch launchOf(LaunchServiceProvider lsp, String price) {
+        Launch launch = new Launch();
+        launch.setLaunchServiceProvider(lsp);
+        launch.setLaunchDate(LocalDate.of(2020, 1, 1));
+        launch.setPrice(new BigDecimal(price));
+        return launch;
+    }
+
+    @Test
+    public void shouldRejectNegativeK() {
+        assertThrows(IllegalArgumentException.class, () -> columns.mostLaunchedRockets(-1));
+    }
+
+    private static void assertSameLaunches(List<Launch> expected, List<Launch> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertSame(expected.get(i), actual.get(i));
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package rockets.mining;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import rockets.dataaccess.DAO;
+import rockets.model.Launch;
+import rockets.model.LaunchServiceProvider;
+import rockets.model.Rocket;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class LaunchSnapshotUnitTest {
+    private LaunchServiceProvider ula;
+    private LaunchServiceProvider spacex;
+    private Rocket atlas;
+    private Rocket falcon;
+    private List<Launch> launches;
+
+    @BeforeEach
+    public void setUp() {
+        ula = new LaunchServiceProvider("ULA", 1990, "USA");
+        spacex = new LaunchServiceProvider("SpaceX", 2002, "USA");
+        atlas = new Rocket("Atlas V", "USA", ula);
+        falcon = new Rocket("Falcon 9", "USA", spacex);
+        launches = Arrays.asList(
+                launch(falcon, LocalDate.of(2017, 1, 1), "LEO"),
+                launch(atlas, LocalDate.of(2017, 2, 1), "GTO"),
+                launch(falcon, LocalDate.of(2018, 3, 1), "LEO")
+        );
+    }
+
+    private static Launch launch(Rocket rocket, LocalDate date, String orbit) {
+        Launch launch = new Launch();
+        launch.setLaunchVehicle(rocket);
+        launch.setLaunchServiceProvider(rocket.getManufacturer());
+        launch.setLaunchDate(date);
+        launch.setOrbit(orbit);
+        launch.setPrice(BigDecimal.ONE);
+        launch.setLaunchOutcome(Launch.LaunchOutcome.SUCCESSFUL);
+        return launch;
+    }
+
+    @Test
+    public void shouldGroupLaunchesInOrderOfFirstAppearance() {
+        LaunchSnapshot snapshot = new LaunchSnapshot(1, launches, Arrays.asList(ula, spacex));
+        assertEquals(Arrays.asList(falcon, atlas), new ArrayList<>(snapshot.getLaunchesByRocket().keySet()));
+        assertEquals(Arrays.asList(spacex, ula), new ArrayList<>(snapshot.getLaunchesByLsp().keySet()));
+        assertEquals(Arrays.asList("LEO", "GTO"), new ArrayList<>(snapshot.getLaunchesByOrbit().keySet()));
+        assertEquals(Arrays.asList(2017, 2018), new ArrayList<>(snapshot.getLaunchesByYear().keySet()));
+        assertEquals(Arrays.asList(launches.get(0), launches.get(2)), snapshot.getLaunchesByRocket().get(falcon));
+        assertEquals(2, snapshot.getLaunchesInYear(2017).size());
+        assertTrue(snapshot.getLaunchesInYear(1999).isEmpty());
+        assertTrue(snapshot.getLaunchesInOrbit("MEO").isEmpty());
+    }
+
+    @Test
+    public void shouldKeepLaunchesWithMissingFieldsOutOfGroups() {
+        Launch incomplete = new Launch();
+        incomplete.setLaunchVehicle(atlas);
+        LaunchSnapshot snapshot = new LaunchSnapshot(1, Collections.singletonList(incomplete), Collections.emptyList());
+        assertEquals(1, snapshot.getLaunches().size());
+        assertEquals(1, snapshot.getLaunchesByRocket().size());
+        assertTrue(snapshot.getLaunchesByOrbit().isEmpty());
+        assertTrue(snapshot.getLaunchesByYear().isEmpty());
+    }
+
+    @Test
+    public void shouldNotBeModifiable() {
+        LaunchSnapshot snapshot = new LaunchSnapshot(1, launches, Collections.emptyList());
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.getLaunches().clear());
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.getLaunchesByRocket().get(falcon).clear());
+    }
+
+    @Test
+    public void shouldLoadFromDaoWithOneScanPerEntityClass() {
+        DAO dao = mock(DAO.class);
+        when(dao.loadAll(Launch.class)).thenReturn(launches);
+        when(dao.loadAll(LaunchServiceProvider.class)).thenReturn(Arrays.asList(ula, spacex));
+        LaunchSnapshot snapshot = LaunchSnapshot.load(dao, 7);
+        assertEquals(7, snapshot.getVersion());
+        assertEquals(launches, snapshot.getLaunches());
+        verify(dao, times(1)).loadAll(Launch.class);
+        verify(dao, times(1)).loadAll(LaunchServiceProvider.class);
+        verifyNoMoreInteractions(dao);
+    }
+}
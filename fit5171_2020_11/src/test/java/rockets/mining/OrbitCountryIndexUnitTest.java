@@ -0,0 +1,91 @@
+package rockets.mining;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import rockets.model.Launch;
+import rockets.model.LaunchServiceProvider;
+import rockets.model.Rocket;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OrbitCountryIndexUnitTest {
+    private LaunchServiceProvider ula;
+    private LaunchServiceProvider esa;
+    private Rocket atlas;
+    private Rocket ariane;
+
+    @BeforeEach
+    public void setUp() {
+        ula = new LaunchServiceProvider("ULA", 1990, "USA");
+        esa = new LaunchServiceProvider("ESA", 1975, "Europe");
+        atlas = new Rocket("Atlas V", "USA", ula);
+        ariane = new Rocket("Ariane 5", "Europe", esa);
+    }
+
+    @Test
+    public void shouldReturnCountryWithMostLaunchesNotFirstSeen() {
+        OrbitCountryIndex index = new OrbitCountryIndex(Arrays.asList(
+                launch(atlas, "LEO"), launch(ariane, "LEO"), launch(ariane, "LEO"), launch(atlas, "GTO")));
+        assertEquals("Europe", index.dominantCountry("LEO"));
+        assertEquals("USA", index.dominantCountry("GTO"));
+        assertEquals(2, index.getLaunchCount("LEO", "Europe"));
+        assertEquals(0, index.getLaunchCount("GTO", "Europe"));
+        assertEquals(new HashSet<>(Arrays.asList("LEO", "GTO")), index.getOrbits());
+    }
+
+    @Test
+    public void shouldBreakTiesByFirstLaunchToOrbit() {
+        OrbitCountryIndex index = new OrbitCountryIndex(Arrays.asList(
+                launch(ariane, "LEO"), launch(atlas, "LEO"), launch(atlas, "LEO"), launch(ariane, "LEO")));
+        assertEquals("Europe", index.dominantCountry("LEO"));
+    }
+
+    @Test
+    public void shouldThrowWhenNoLaunchInOrbit() {
+        OrbitCountryIndex index = new OrbitCountryIndex(Collections.singletonList(launch(atlas, "LEO")));
+        assertThrows(NoSuchElementException.class, () -> index.dominantCountry("MEO"));
+    }
+
+    @Test
+    public void shouldSkipLaunchesWithoutOrbitOrVehicle() {
+        Launch withoutOrbit = new Launch();
+        withoutOrbit.setLaunchVehicle(atlas);
+        Launch withoutVehicle = new Launch();
+        withoutVehicle.setOrbit("LEO");
+        OrbitCountryIndex index = new OrbitCountryIndex(Arrays.asList(withoutOrbit, withoutVehicle));
+        assertTrue(index.getOrbits().isEmpty());
+    }
+
+    @Test
+    public void shouldAnswerOrbitsInGivenOrderLeavingOutThoseWithoutLaunches() {
+        OrbitCountryIndex index = new OrbitCountryIndex(Arrays.asList(
+                launch(atlas, "LEO"), launch(ariane, "GTO")));
+        Map<String, String> countries = index.dominantCountries(Arrays.asList("GTO", "MEO", "LEO"));
+        assertEquals(Arrays.asList("GTO", "LEO"), new ArrayList<>(countries.keySet()));
+        assertEquals("Europe", countries.get("GTO"));
+        assertEquals("USA", countries.get("LEO"));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 7, 11})
+    public void shouldAgreeWithAggregates(int seed) {
+        SyntheticLaunches data = new SyntheticLaunches(5_000, 50, 8, seed);
+        OrbitCountryIndex index = new OrbitCountryIndex(data.getLaunches());
+        LaunchAggregates aggregates = LaunchAggregates.of(data.getLaunches());
+        List<String> orbits = Arrays.asList("LEO", "GTO", "SSO", "MEO", "HEO");
+        assertEquals(aggregates.dominantCountries(orbits), index.dominantCountries(orbits));
+        for (String orbit : orbits) {
+            assertEquals(aggregates.dominantCountry(orbit), index.dominantCountry(orbit));
+        }
+    }
+
+    private static Launch launch(Rocket rocket, String orbit) {
+        Launch launch = new Launch();
+        launch.setLaunchVehicle(rocket);
+        launch.setOrbit(orbit);
+        return launch;
+    }
+}
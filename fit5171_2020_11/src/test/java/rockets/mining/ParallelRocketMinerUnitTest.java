@@ -0,0 +1,115 @@
+package rockets.mining;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import rockets.dataaccess.DAO;
+import rockets.model.Launch;
+import rockets.model.LaunchServiceProvider;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class ParallelRocketMinerUnitTest {
+    private SyntheticLaunches data;
+    private ForkJoinPool pool;
+    private RocketMiner sequential;
+    private RocketMiner parallel;
+
+    @BeforeAll
+    public void setUp() {
+        data = new SyntheticLaunches(50_000, 200, 12, 7);
+        DAO dao = mock(DAO.class);
+        when(dao.loadAll(Launch.class)).thenReturn(data.getLaunches());
+        when(dao.loadAll(LaunchServiceProvider.class)).thenReturn(data.getLaunchServiceProviders());
+        pool = new ForkJoinPool(4);
+        sequential = new RocketMiner(dao);
+        parallel = new RocketMiner(dao, pool);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 1, 10, 200, 300})
+    public void shouldReturnSameMostLaunchedRockets(int k) {
+        assertEquals(sequential.mostLaunchedRockets(k), parallel.mostLaunchedRockets(k));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 1, 5, 12})
+    public void shouldReturnSameMostReliableLaunchServiceProviders(int k) {
+        assertEquals(sequential.mostReliableLaunchServiceProviders(k), parallel.mostReliableLaunchServiceProviders(k));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 1, 10, 1000})
+    public void shouldReturnSameLaunchesIncludingTieOrder(int k) {
+        // prices and dates repeat a lot, so these only match if ties keep encounter order
+        assertIterableSame(sequential.mostExpensiveLaunches(k), parallel.mostExpensiveLaunches(k));
+        assertIterableSame(sequential.mostRecentLaunches(k), parallel.mostRecentLaunches(k));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"LEO", "GTO", "SSO"})
+    public void shouldReturnSameDominantCountry(String orbit) {
+        assertEquals(sequential.dominantCountry(orbit), parallel.dominantCountry(orbit));
+    }
+
+    @Test
+    public void shouldReturnSameDominantCountries() {
+        List<String> orbits = Arrays.asList("LEO", "GTO", "SSO", "MEO", "HEO");
+        assertEquals(sequential.dominantCountries(orbits), parallel.dominantCountries(orbits));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1990, 2005, 2019})
+    public void shouldReturnSameHighestRevenueLaunchServiceProviders(int year) {
+        assertEquals(sequential.highestRevenueLaunchServiceProviders(5, year),
+                parallel.highestRevenueLaunchServiceProviders(5, year));
+    }
+
+    @Test
+    public void shouldGroupSnapshotLikeSequentialScan() {
+        LaunchSnapshot expected = sequential.getSnapshot();
+        LaunchSnapshot actual = parallel.getSnapshot();
+        assertEquals(new ArrayList<>(expected.getLaunchesByRocket().keySet()),
+                new ArrayList<>(actual.getLaunchesByRocket().keySet()));
+        assertEquals(expected.getLaunchesByRocket(), actual.getLaunchesByRocket());
+        assertEquals(expected.getLaunchesByLsp(), actual.getLaunchesByLsp());
+        assertEquals(expected.getLaunchesByOrbit(), actual.getLaunchesByOrbit());
+        assertEquals(expected.getLaunchesByYear(), actual.getLaunchesByYear());
+    }
+
+    @Test
+    public void shouldRejectNonPositiveParallelism() {
+        assertThrows(IllegalArgumentException.class, () -> new RocketMiner(mock(DAO.class), 0));
+    }
+
+    @Test
+    public void shouldShutDownOnlyThePoolItCreated() {
+        DAO dao = mock(DAO.class);
+        RocketMiner owning = new RocketMiner(dao, 2);
+        owning.close();
+        assertThrows(RejectedExecutionException.class, () -> owning.mostLaunchedRockets(1));
+
+        new RocketMiner(dao, pool).close();
+        assertFalse(pool.isShutdown());
+    }
+
+    private static void assertIterableSame(List<Launch> expected, List<Launch> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertSame(expected.get(i), actual.get(i));
+        }
+    }
+
+    @AfterAll
+    public void tearDown() {
+        pool.shutdown();
+    }
+}
@@ -0,0 +1,103 @@
+package rockets.mining;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import rockets.model.Launch;
+import rockets.model.LaunchServiceProvider;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReliabilityTrackerUnitTest {
+    private LaunchServiceProvider ula;
+    private LaunchServiceProvider spacex;
+
+    @BeforeEach
+    public void setUp() {
+        ula = new LaunchServiceProvider("ULA", 1990, "USA");
+        spacex = new LaunchServiceProvider("SpaceX", 2002, "USA");
+    }
+
+    @Test
+    public void shouldKeepOnlyLastLaunchesOfEachProvider() {
+        ReliabilityTracker tracker = ReliabilityTracker.overLastLaunches(3);
+        for (boolean successful : new boolean[]{false, false, true, true, true}) {
+            tracker.record(launch(ula, 2017, successful));
+        }
+        tracker.record(launch(spacex, 2017, false));
+        assertEquals(3, tracker.getSuccessful(ula));
+        assertEquals(3, tracker.getTotal(ula));
+        assertEquals(0, tracker.getSuccessful(spacex));
+        assertEquals(1, tracker.getTotal(spacex));
+
+        tracker.record(launch(ula, 2018, false));
+        assertEquals(2, tracker.getSuccessful(ula));
+        assertEquals(3, tracker.getTotal(ula));
+    }
+
+    @Test
+    public void shouldRetractYearsLeavingTheWindow() {
+        ReliabilityTracker tracker = ReliabilityTracker.overLastYears(2);
+        tracker.recordAll(Arrays.asList(
+                launch(ula, 2015, false), launch(ula, 2016, true), launch(spacex, 2016, true), launch(ula, 2017, true)));
+        assertEquals(2, tracker.getTotal(ula));
+        assertEquals(2, tracker.getSuccessful(ula));
+        assertEquals(1, tracker.getTotal(spacex));
+
+        // late launches are counted while their year is in the window, and ignored after
+        tracker.record(launch(ula, 2016, false));
+        tracker.record(launch(ula, 2015, true));
+        assertEquals(3, tracker.getTotal(ula));
+
+        tracker.record(launch(spacex, 2020, true));
+        assertEquals(0, tracker.getTotal(ula));
+        assertEquals(1, tracker.getTotal(spacex));
+        assertEquals(Collections.singletonList(spacex), tracker.mostReliableLaunchServiceProviders(2, 1));
+    }
+
+    @Test
+    public void shouldRankLongRecordAboveShortPerfectOne() {
+        ReliabilityTracker tracker = ReliabilityTracker.overLastLaunches(100);
+        tracker.record(launch(spacex, 2017, true));
+        for (int i = 0; i < 50; i++) {
+            tracker.record(launch(ula, 2017, i != 0));
+        }
+        assertEquals(Arrays.asList(ula, spacex), tracker.mostReliableLaunchServiceProviders(2, 1));
+        assertEquals(Collections.singletonList(ula), tracker.mostReliableLaunchServiceProviders(2, 2));
+        assertTrue(tracker.getLowerBound(ula) > tracker.getLowerBound(spacex));
+    }
+
+    @Test
+    public void shouldKeepFirstLaunchedProviderFirstOnEqualScores() {
+        ReliabilityTracker tracker = ReliabilityTracker.overLastLaunches(10);
+        tracker.record(launch(spacex, 2017, true));
+        tracker.record(launch(ula, 2017, true));
+        assertEquals(Arrays.asList(spacex, ula), tracker.mostReliableLaunchServiceProviders(2, 1));
+    }
+
+    @ParameterizedTest
+    @CsvSource({"0,0,0", "5,10,0.2366", "10,10,0.7225", "0,10,0", "81,100,0.7222"})
+    public void shouldComputeWilsonLowerBound(int successful, int total, double expected) {
+        assertEquals(expected, ReliabilityTracker.wilsonLowerBound(successful, total, ReliabilityTracker.DEFAULT_Z), 1e-4);
+    }
+
+    @Test
+    public void shouldRejectInvalidWindows() {
+        assertThrows(IllegalArgumentException.class, () -> ReliabilityTracker.overLastLaunches(0));
+        assertThrows(IllegalArgumentException.class, () -> ReliabilityTracker.overLastYears(-1));
+        assertThrows(IllegalArgumentException.class, () -> ReliabilityTracker.overLastYears(1).withZ(0));
+        assertThrows(IllegalArgumentException.class, () -> ReliabilityTracker.overLastYears(1).mostReliableLaunchServiceProviders(1, 0));
+    }
+
+    private static Launch launch(LaunchServiceProvider lsp, int year, boolean successful) {
+        Launch launch = new Launch();
+        launch.setLaunchServiceProvider(lsp);
+        launch.setLaunchDate(LocalDate.of(year, 6, 1));
+        launch.setLaunchOutcome(successful ? Launch.LaunchOutcome.SUCCESSFUL : Launch.LaunchOutcome.FAILED);
+        return launch;
+    }
+}
@@ -0,0 +1,102 @@
+package rockets.mining;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+import rockets.dataaccess.DAO;
+import rockets.model.Launch;
+import rockets.model.LaunchServiceProvider;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class RevenueCubeUnitTest {
+    private SyntheticLaunches data;
+    private RocketMiner miner;
+    private LaunchAggregates aggregates;
+    private RevenueCube cube;
+
+    @BeforeAll
+    public void setUp() {
+        data = new SyntheticLaunches(20_000, 100, 12, 5);
+        DAO dao = mock(DAO.class);
+        when(dao.loadAll(Launch.class)).thenReturn(data.getLaunches());
+        miner = new RocketMiner(dao);
+        aggregates = LaunchAggregates.of(data.getLaunches());
+        cube = new RevenueCube(data.getLaunches());
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1989, 1990, 2001, 2019, 2020})
+    public void shouldRankSingleYearLikeLinearScan(int year) {
+        for (int k : new int[]{0, 1, 5, 12, 20}) {
+            assertEquals(RocketMiner.getSortedLspByRevenue(RocketMiner.getRevenuePerLspInYear(data.getLaunches(), year), k),
+                    cube.highestRevenueLaunchServiceProviders(k, year, year));
+        }
+    }
+
+    @ParameterizedTest
+    @CsvSource({"1990,2019", "1995,2004", "2010,2010", "1980,1992", "2018,2040", "1900,1950"})
+    public void shouldSumRevenueOverYears(int fromYear, int toYear) {
+        for (LaunchServiceProvider lsp : data.getLaunchServiceProviders()) {
+            BigDecimal expected = BigDecimal.ZERO;
+            for (Launch launch : data.getLaunches()) {
+                int year = launch.getLaunchDate().getYear();
+                if (lsp.equals(launch.getLaunchServiceProvider()) && year >= fromYear && year <= toYear) {
+                    expected = expected.add(launch.getPrice());
+                }
+            }
+            assertEquals(0, expected.compareTo(cube.getRevenue(lsp, fromYear, toYear)));
+        }
+    }
+
+    @ParameterizedTest
+    @CsvSource({"1990,2019", "1995,2004", "2018,2040", "1900,1950"})
+    public void shouldRankRangeLikeAggregates(int fromYear, int toYear) {
+        assertEquals(aggregates.highestRevenueLaunchServiceProviders(5, fromYear, toYear),
+                cube.highestRevenueLaunchServiceProviders(5, fromYear, toYear));
+        assertEquals(cube.highestRevenueLaunchServiceProviders(5, fromYear, toYear),
+                miner.highestRevenueLaunchServiceProviders(5, fromYear, toYear));
+    }
+
+    @Test
+    public void shouldBreakTiesByFirstLaunchInRange() {
+        LaunchServiceProvider ula = new LaunchServiceProvider("ULA", 1990, "USA");
+        LaunchServiceProvider spacex = new LaunchServiceProvider("SpaceX", 2002, "USA");
+        RevenueCube tied = new RevenueCube(Arrays.asList(
+                launch(ula, 2015, "10"), launch(spacex, 2016, "10"), launch(ula, 2017, "5"), launch(spacex, 2017, "5")));
+        assertEquals(Arrays.asList(ula, spacex), tied.highestRevenueLaunchServiceProviders(2, 2015, 2017));
+        assertEquals(Arrays.asList(spacex, ula), tied.highestRevenueLaunchServiceProviders(2, 2016, 2017));
+        assertEquals(Collections.singletonList(spacex), tied.highestRevenueLaunchServiceProviders(2, 2016, 2016));
+        assertEquals(2015, tied.getMinYear());
+        assertEquals(2017, tied.getMaxYear());
+    }
+
+    @Test
+    public void shouldRejectInvalidRange() {
+        assertThrows(IllegalArgumentException.class, () -> cube.highestRevenueLaunchServiceProviders(1, 2001, 2000));
+        assertThrows(IllegalArgumentException.class, () -> cube.getRevenue(null, 2001, 2000));
+        assertThrows(IllegalArgumentException.class, () -> cube.highestRevenueLaunchServiceProviders(-1, 2000, 2001));
+    }
+
+    @Test
+    public void shouldBeEmptyWithoutLaunches() {
+        RevenueCube empty = new RevenueCube(Collections.emptyList());
+        assertTrue(empty.highestRevenueLaunchServiceProviders(3, 2000, 2020).isEmpty());
+    }
+
+    private static Launch launch(LaunchServiceProvider lsp, int year, String price) {
+        Launch launch = new Launch();
+        launch.setLaunchServiceProvider(lsp);
+        launch.setLaunchDate(LocalDate.of(year, 1, 1));
+        launch.setPrice(new BigDecimal(price));
+        return launch;
+    }
+}
@@ -0,0 +1,70 @@
+package rockets.mining;
+
+import rockets.dataaccess.DAO;
+import rockets.model.Launch;
+import rockets.model.LaunchServiceProvider;
+
+import static org.mockito.Mockito.*;
+
+/**
+ * Measures how the miner scales from 1 to N threads on synthetic launches: the time
+ * to build a snapshot, and the time to run all six queries against it.
+ * Run the main method with the test classpath. Arguments: [launches] [max threads] [rounds].
+ */
+public class RocketMinerParallelBenchmark {
+    public static void main(String[] args) {
+        int launchCount = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        int maxThreads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+
+        SyntheticLaunches data = new SyntheticLaunches(launchCount, 1000, 50, 1);
+        DAO dao = mock(DAO.class);
+        when(dao.loadAll(Launch.class)).thenReturn(data.getLaunches());
+        when(dao.loadAll(LaunchServiceProvider.class)).thenReturn(data.getLaunchServiceProviders());
+
+        // more threads than processors only measure the overhead of partitioning
+        int processors = Runtime.getRuntime().availableProcessors();
+        System.out.printf("processors=%d%n", processors);
+        double[] baseline = run(new RocketMiner(dao), rounds);
+        System.out.printf("launches=%d sequential: refresh %.1f ms, queries %.1f ms%n", launchCount, baseline[0], baseline[1]);
+        double[] single = null;
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            try (RocketMiner miner = new RocketMiner(dao, threads)) {
+                double[] millis = run(miner, rounds);
+                if (null == single) {
+                    single = millis;
+                }
+                System.out.printf("threads=%d%s: refresh %.1f ms (%.2fx sequential, %.2fx 1 thread), queries %.1f ms (%.2fx, %.2fx)%n",
+                        threads, threads > processors ? " (oversubscribed)" : "",
+                        millis[0], baseline[0] / millis[0], single[0] / millis[0],
+                        millis[1], baseline[1] / millis[1], single[1] / millis[1]);
+            }
+        }
+    }
+
+    // Average time of a snapshot refresh, and of all six queries against the snapshot
+    private static double[] run(RocketMiner miner, int rounds) {
+        miner.refresh();
+        queries(miner);
+        long refresh = 0;
+        long query = 0;
+        for (int i = 0; i < rounds; i++) {
+            long start = System.nanoTime();
+            miner.refresh();
+            long refreshed = System.nanoTime();
+            queries(miner);
+            refresh += refreshed - start;
+            query += System.nanoTime() - refreshed;
+        }
+        return new double[]{refresh / 1e6 / rounds, query / 1e6 / rounds};
+    }
+
+    private static void queries(RocketMiner miner) {
+        miner.mostLaunchedRockets(10);
+        miner.mostReliableLaunchServiceProviders(10);
+        miner.dominantCountry("LEO");
+        miner.mostExpensiveLaunches(10);
+        miner.highestRevenueLaunchServiceProviders(10, 2005);
+        miner.mostRecentLaunches(10);
+    }
+}
@@ -2,6 +2,7 @@ package rockets.mining;
 
 import com.google.common.collect.Lists;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
 import org.junit.jupiter.params.provider.ValueSource;
@@ -9,17 +10,26 @@ import org.junit.jupiter.params.provider.ValueSource;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import rockets.dataaccess.AsyncDAO;
+import rockets.dataaccess.Criteria;
 import rockets.dataaccess.DAO;
+import rockets.dataaccess.InstrumentedDAO;
 import rockets.dataaccess.neo4j.Neo4jDAO;
+import rockets.metrics.Metrics;
 import rockets.model.*;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.mockito.Mockito.*;
 
 public class RocketMinerUnitTest {
@@ -134,15 +144,36 @@ public class RocketMinerUnitTest {
     {
         when(dao.loadAll(LaunchServiceProvider.class)).thenReturn(lsps);
         when(dao.loadAll(Launch.class)).thenReturn(launches);
-        // Get all Launches sorted by Number of lsps
-        List<LaunchServiceProvider> sortedLaunches = new ArrayList<>(lsps);
+        // SpaceX succeeded in 1 of 1 launches, ULA in 5 of 9, and ESA has no launches to rate
+        List<LaunchServiceProvider> sortedLaunches = Arrays.asList(lsps.get(1), lsps.get(0));
         //use mostReliableLaunchServiceProviders to get all k-most reliable launch record
         List<LaunchServiceProvider> launchServiceProviders = miner.mostReliableLaunchServiceProviders(k);
-        assertEquals(k, launchServiceProviders.size());
-        assertEquals(sortedLaunches.subList(0, k), launchServiceProviders);
+        assertEquals(Math.min(k, 2), launchServiceProviders.size());
+        assertEquals(sortedLaunches.subList(0, Math.min(k, 2)), launchServiceProviders);
     }
 
+    @Test
+    public void shouldRankReliabilityOverWindowByWilsonLowerBound() {
+        when(dao.loadAll(Launch.class)).thenReturn(launches);
+        // over all launches, SpaceX's single success is less certain than ULA's 5 of 9
+        assertEquals(Arrays.asList(lsps.get(0), lsps.get(1)), miner.mostReliableLaunchServiceProvidersOverLastYears(2, 1, 1));
+        assertEquals(Collections.singletonList(lsps.get(0)), miner.mostReliableLaunchServiceProvidersOverLastYears(2, 1, 2));
+        // only 1 of ULA's last 3 launches, in June, November and December, was successful
+        assertEquals(Arrays.asList(lsps.get(1), lsps.get(0)), miner.mostReliableLaunchServiceProvidersOverLastLaunches(2, 3, 1));
+    }
+
+
 
+    @Test
+    public void shouldKeepTheTrackersOfOnlyTheLastWindowsAskedFor() {
+        when(dao.loadAll(Launch.class)).thenReturn(launches);
+        for (int lastYears = 1; lastYears <= 10; lastYears++) {
+            miner.mostReliableLaunchServiceProvidersOverLastYears(2, lastYears, 1);
+            miner.mostReliableLaunchServiceProvidersOverLastLaunches(2, lastYears, 1);
+        }
+        assertEquals(RocketMiner.MAX_RELIABILITY_TRACKERS, miner.getReliabilityTrackerCount());
+        assertEquals(Arrays.asList(lsps.get(1), lsps.get(0)), miner.mostReliableLaunchServiceProvidersOverLastLaunches(2, 3, 1));
+    }
 
     //Dominant The dominant country in an orbit who has launched the most rockets.
     @ParameterizedTest
@@ -160,6 +191,26 @@ public class RocketMinerUnitTest {
         //assertEquals(listLaunches.subList(0, k), country);
     }
 
+    @Test
+    public void shouldReturnCountryWithMostLaunchesToOrbit() {
+        Rocket ariane = new Rocket("Ariane 5", "Europe", lsps.get(2));
+        List<Launch> mixed = new ArrayList<>();
+        for (Rocket rocket : Arrays.asList(ariane, rockets.get(0), rockets.get(1), ariane)) {
+            Launch launch = new Launch();
+            launch.setLaunchVehicle(rocket);
+            launch.setOrbit("LEO");
+            mixed.add(launch);
+        }
+        mixed.get(1).setOrbit("GTO");
+        when(dao.loadAll(Launch.class)).thenReturn(mixed);
+
+        assertEquals("Europe", miner.dominantCountry("LEO"));
+        Map<String, String> countries = miner.dominantCountries(Arrays.asList("GTO", "LEO", "MEO"));
+        assertEquals(Arrays.asList("GTO", "LEO"), new ArrayList<>(countries.keySet()));
+        assertEquals("USA", countries.get("GTO"));
+        assertEquals("Europe", countries.get("LEO"));
+    }
+
     //Exorbitance The top-k most expensive launches.
     @ParameterizedTest
     @ValueSource(ints = {1, 2, 3})
@@ -186,6 +237,117 @@ public class RocketMinerUnitTest {
         assertEquals(sortedLSPs.subList(0, k), loadedLSPs);
     }
 
+    @Test
+    public void shouldScanDaoOnceForAllQueries() {
+        when(dao.loadAll(LaunchServiceProvider.class)).thenReturn(lsps);
+        when(dao.loadAll(Launch.class)).thenReturn(launches);
+        miner.mostLaunchedRockets(1);
+        miner.mostReliableLaunchServiceProviders(1);
+        miner.dominantCountry("LEO");
+        miner.mostExpensiveLaunches(1);
+        miner.highestRevenueLaunchServiceProviders(1, 2017);
+        miner.mostRecentLaunches(1);
+        verify(dao, times(1)).loadAll(Launch.class);
+        verify(dao, times(1)).loadAll(LaunchServiceProvider.class);
+        verify(dao, never()).loadAll(Rocket.class);
+    }
+
+    @Test
+    public void shouldKeepSnapshotUntilRefreshed() {
+        when(dao.loadAll(Launch.class)).thenReturn(launches);
+        LaunchSnapshot snapshot = miner.getSnapshot();
+        assertEquals(1, snapshot.getVersion());
+        assertSame(snapshot, miner.getSnapshot());
+
+        when(dao.loadAll(Launch.class)).thenReturn(launches.subList(0, 1));
+        assertEquals(3, miner.mostRecentLaunches(3).size());
+
+        LaunchSnapshot refreshed = miner.refresh();
+        assertNotSame(snapshot, refreshed);
+        assertEquals(2, refreshed.getVersion());
+        assertEquals(1, miner.mostRecentLaunches(3).size());
+        verify(dao, times(2)).loadAll(Launch.class);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void shouldAnswerFromStreamWithoutLoadingAllLaunches() {
+        long id = 1;
+        for (Launch launch : launches) {
+            launch.setId(id++);
+        }
+        when(dao.loadAll(Launch.class)).thenReturn(launches);
+        when(dao.stream(Launch.class, 3)).thenAnswer(invocation -> launches.stream());
+        when(dao.loadProjection(Launch.class, "id", "price")).thenAnswer(invocation -> launches.stream()
+                .map(launch -> new Object[]{launch.getId(), launch.getPrice()}).collect(Collectors.toList()));
+        when(dao.find(any())).thenAnswer(invocation -> ((Criteria<Launch>) invocation.getArgument(0)).apply(launches));
+        RocketMiner streaming = RocketMiner.streaming(dao, 3);
+
+        assertEquals(miner.mostLaunchedRockets(3), streaming.mostLaunchedRockets(3));
+        assertEquals(miner.mostReliableLaunchServiceProviders(3), streaming.mostReliableLaunchServiceProviders(3));
+        assertEquals(miner.dominantCountry("LEO"), streaming.dominantCountry("LEO"));
+        assertEquals(miner.highestRevenueLaunchServiceProviders(3, 2017), streaming.highestRevenueLaunchServiceProviders(3, 2017));
+        assertEquals(miner.mostRecentLaunches(3), streaming.mostRecentLaunches(3));
+        assertEquals(miner.mostExpensiveLaunches(3), streaming.mostExpensiveLaunches(3));
+        assertEquals(miner.mostLaunchedRockets(2, 0.1).get(0).getItem(), streaming.mostLaunchedRockets(2, 0.1).get(0).getItem());
+        // one scan for the miner over the snapshot
+        verify(dao, times(1)).loadAll(Launch.class);
+        verify(dao, times(1)).loadProjection(Launch.class, "id", "price");
+    }
+
+    @Test
+    public void shouldStreamNewAggregatesOnRefreshWithoutLoadingAllLaunches() {
+        List<Launch> stored = new ArrayList<>(launches);
+        when(dao.stream(Launch.class, 3)).thenAnswer(invocation -> new ArrayList<>(stored).stream());
+        RocketMiner streaming = RocketMiner.streaming(dao, 3);
+        assertEquals(Collections.singletonList(rockets.get(0)), streaming.mostLaunchedRockets(1));
+
+        for (int i = 0; i < 5; i++) {
+            Launch launch = new Launch();
+            launch.setLaunchDate(LocalDate.of(2018, 1, 1 + i));
+            launch.setLaunchVehicle(rockets.get(4));
+            launch.setLaunchServiceProvider(rockets.get(4).getManufacturer());
+            launch.setOrbit("GTO");
+            launch.setPrice(BigDecimal.valueOf(1000));
+            launch.setLaunchOutcome(Launch.LaunchOutcome.SUCCESSFUL);
+            stored.add(launch);
+        }
+        assertEquals(Collections.singletonList(rockets.get(0)), streaming.mostLaunchedRockets(1));
+        streaming.refresh();
+        assertEquals(Collections.singletonList(rockets.get(4)), streaming.mostLaunchedRockets(1));
+        assertEquals("USA", streaming.dominantCountry("GTO"));
+        verify(dao, never()).loadAll(Launch.class);
+    }
+
+    @Test
+    public void shouldLoadLaunchesAndProvidersAtTheSameTimeForAsyncQueries() throws Exception {
+        // each load waits for the other to start, so loading them one after the other times out
+        CyclicBarrier bothLoading = new CyclicBarrier(2);
+        when(dao.loadAll(Launch.class)).thenAnswer(invocation -> {
+            bothLoading.await(5, TimeUnit.SECONDS);
+            return launches;
+        });
+        when(dao.loadAll(LaunchServiceProvider.class)).thenAnswer(invocation -> {
+            bothLoading.await(5, TimeUnit.SECONDS);
+            return lsps;
+        });
+        try (AsyncDAO asyncDao = new AsyncDAO(dao, 2, 2)) {
+            RocketMiner asyncMiner = new RocketMiner(asyncDao);
+            CompletableFuture<List<LaunchServiceProvider>> reliable = asyncMiner.mostReliableLaunchServiceProvidersAsync(3);
+            CompletableFuture<List<Launch>> recent = asyncMiner.mostRecentLaunchesAsync(3);
+            CompletableFuture<String> dominant = asyncMiner.dominantCountryAsync("LEO");
+
+            RocketMiner serialMiner = new RocketMiner(mock(DAO.class, invocation ->
+                    Launch.class.equals(invocation.getArgument(0)) ? launches : lsps));
+            assertEquals(serialMiner.mostReliableLaunchServiceProviders(3), reliable.get(5, TimeUnit.SECONDS));
+            assertEquals(serialMiner.mostRecentLaunches(3), recent.get(5, TimeUnit.SECONDS));
+            assertEquals(serialMiner.dominantCountry("LEO"), dominant.get(5, TimeUnit.SECONDS));
+            assertEquals(1, asyncMiner.getSnapshot().getVersion());
+        }
+        // the three queries shared one load
+        verify(dao, times(1)).loadAll(Launch.class);
+        verify(dao, times(1)).loadAll(LaunchServiceProvider.class);
+    }
 
     public static Map<LaunchServiceProvider, BigDecimal> getRevenuePerLspInYear(Collection<Launch> launches, int year){
         // FILTER LAUNCHES PER YEAR
@@ -238,4 +400,22 @@ public class RocketMinerUnitTest {
         }
         return topRockets;
     }
-}
\ No newline at end of file
+
+    @Test
+    public void shouldRecordEachQueryWithTheLoadsItCauses() {
+        when(dao.loadAll(Launch.class)).thenReturn(launches);
+        Metrics metrics = new Metrics();
+        RocketMiner instrumented = new RocketMiner(new InstrumentedDAO(dao, metrics));
+        instrumented.setMetrics(metrics);
+        instrumented.mostRecentLaunches(3);
+        instrumented.mostRecentLaunches(2);
+        instrumented.dominantCountry("LEO");
+
+        Map<String, Metrics.OperationMetrics.Snapshot> snapshot = metrics.snapshot();
+        assertEquals(2, snapshot.get("mostRecentLaunches(k)").getCalls());
+        assertEquals(3, snapshot.get("mostRecentLaunches(k)").getResultSizes().getMax());
+        assertEquals(1, snapshot.get("dominantCountry(orbit)").getCalls());
+        assertEquals(1, snapshot.get("loadAll:Launch").getCalls());
+        assertEquals(launches.size(), snapshot.get("loadAll:Launch").getResultSizes().getMax());
+    }
+}
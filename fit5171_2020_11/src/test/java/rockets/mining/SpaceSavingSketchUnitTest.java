@@ -0,0 +1,124 @@
+package rockets.mining;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import rockets.dataaccess.DAO;
+import rockets.model.Launch;
+import rockets.model.Rocket;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class SpaceSavingSketchUnitTest {
+    private static final double EPSILON = 0.01;
+
+    private SyntheticLaunches data;
+    private Map<Rocket, Long> exact;
+    private List<Rocket> exactTop;
+    private DAO dao;
+
+    @BeforeAll
+    public void setUp() {
+        data = new SyntheticLaunches(100_000, 1_000, 20, 13);
+        exact = data.getLaunches().stream().collect(Collectors.groupingBy(Launch::getLaunchVehicle, Collectors.counting()));
+        dao = mock(DAO.class);
+        when(dao.loadAll(Launch.class)).thenReturn(data.getLaunches());
+        exactTop = new RocketMiner(dao).mostLaunchedRockets(10);
+    }
+
+    @Test
+    public void shouldCountExactlyWhenAllItemsFit() {
+        SpaceSavingSketch<String> sketch = new SpaceSavingSketch<>(3);
+        for (String item : Arrays.asList("a", "b", "a", "c", "b", "a")) {
+            sketch.offer(item);
+        }
+        List<SpaceSavingSketch.Estimate<String>> top = sketch.top(3);
+        assertEquals(Arrays.asList("a", "b", "c"), top.stream().map(SpaceSavingSketch.Estimate::getItem).collect(Collectors.toList()));
+        assertEquals(Arrays.asList(3L, 2L, 1L), top.stream().map(SpaceSavingSketch.Estimate::getCount).collect(Collectors.toList()));
+        assertEquals(0, sketch.getErrorBound());
+        assertEquals(6, sketch.getTotal());
+    }
+
+    @Test
+    public void shouldReplaceLeastFrequentItemWhenFull() {
+        SpaceSavingSketch<String> sketch = new SpaceSavingSketch<>(2);
+        sketch.offer("a", 5);
+        sketch.offer("b", 2);
+        sketch.offer("c");
+        assertEquals(0, sketch.estimate("b"));
+        assertEquals(3, sketch.estimate("c"));
+        SpaceSavingSketch.Estimate<String> c = sketch.top(2).get(1);
+        assertEquals(2, c.getError());
+        assertEquals(1, c.getLowerBound());
+        assertEquals(3, sketch.getErrorBound());
+    }
+
+    @Test
+    public void shouldBoundErrorsOnSkewedLaunches() {
+        SpaceSavingSketch<Rocket> sketch = RocketMiner.sketchRocketLaunches(data.getLaunches(), EPSILON);
+        assertEquals(100, sketch.getCapacity());
+        assertWithinBounds(sketch);
+    }
+
+    @Test
+    public void shouldKeepBoundsWhenMergingPartitions() {
+        List<Launch> launches = data.getLaunches();
+        int quarter = launches.size() / 4;
+        SpaceSavingSketch<Rocket> merged = RocketMiner.sketchRocketLaunches(launches.subList(0, quarter), EPSILON);
+        for (int i = 1; i < 4; i++) {
+            int to = i == 3 ? launches.size() : (i + 1) * quarter;
+            merged = merged.merge(RocketMiner.sketchRocketLaunches(launches.subList(i * quarter, to), EPSILON));
+        }
+        assertEquals(launches.size(), merged.getTotal());
+        assertWithinBounds(merged);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 4})
+    public void shouldFindMostLaunchedRocketsApproximately(int parallelism) {
+        RocketMiner miner = parallelism == 1 ? new RocketMiner(dao) : new RocketMiner(dao, new ForkJoinPool(parallelism));
+        List<SpaceSavingSketch.Estimate<Rocket>> top = miner.mostLaunchedRockets(10, EPSILON);
+        assertEquals(10, top.size());
+        for (SpaceSavingSketch.Estimate<Rocket> estimate : top) {
+            long count = exact.get(estimate.getItem());
+            assertTrue(estimate.getLowerBound() <= count && count <= estimate.getCount(), estimate.toString());
+        }
+        // the heaviest rockets are far apart on skewed data, so the head of the ranking is exact
+        assertEquals(exactTop.subList(0, 3), top.subList(0, 3).stream().map(SpaceSavingSketch.Estimate::getItem).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void shouldRejectInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new SpaceSavingSketch<String>(0));
+        assertThrows(IllegalArgumentException.class, () -> SpaceSavingSketch.withError(0));
+        assertThrows(IllegalArgumentException.class, () -> new SpaceSavingSketch<String>(2).offer("a", 0));
+        assertThrows(IllegalArgumentException.class, () -> new SpaceSavingSketch<String>(2).merge(new SpaceSavingSketch<>(3)));
+        assertThrows(IllegalArgumentException.class, () -> new SpaceSavingSketch<String>(2).top(-1));
+        assertThrows(NullPointerException.class, () -> new SpaceSavingSketch<String>(2).offer(null));
+    }
+
+    private void assertWithinBounds(SpaceSavingSketch<Rocket> sketch) {
+        long maxError = (long) (EPSILON * sketch.getTotal());
+        assertTrue(sketch.getErrorBound() <= maxError);
+        Set<Rocket> tracked = new HashSet<>();
+        for (SpaceSavingSketch.Estimate<Rocket> estimate : sketch.top(sketch.getCapacity())) {
+            long count = exact.get(estimate.getItem());
+            assertTrue(estimate.getLowerBound() <= count && count <= estimate.getCount(), estimate.toString());
+            assertTrue(estimate.getCount() - count <= maxError);
+            tracked.add(estimate.getItem());
+        }
+        for (Map.Entry<Rocket, Long> entry : exact.entrySet()) {
+            if (entry.getValue() > sketch.getErrorBound()) {
+                assertTrue(tracked.contains(entry.getKey()), entry.getKey() + " seen " + entry.getValue() + " times");
+            }
+        }
+        // every one of the exact top 10 is common enough to be tracked
+        assertTrue(tracked.containsAll(exactTop));
+    }
+}
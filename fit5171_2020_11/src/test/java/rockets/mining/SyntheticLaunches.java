@@ -0,0 +1,83 @@
+package rockets.mining;
+
+import rockets.model.Launch;
+import rockets.model.LaunchServiceProvider;
+import rockets.model.Rocket;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates reproducible launch data for tests and benchmarks. Rockets are picked
+ * with a Zipf-like skew, so a few rockets get most of the launches, and prices and
+ * dates repeat often enough to produce plenty of ties.
+ */
+public class SyntheticLaunches {
+    private static final String[] COUNTRIES = {"USA", "China", "Russia", "Europe", "India", "Japan"};
+
+    private static final String[] ORBITS = {"LEO", "GTO", "SSO", "MEO", "HEO"};
+
+    private final List<LaunchServiceProvider> lsps = new ArrayList<>();
+
+    private final List<Rocket> rockets = new ArrayList<>();
+
+    private final List<Launch> launches = new ArrayList<>();
+
+    public SyntheticLaunches(int launchCount, int rocketCount, int lspCount, long seed) {
+        Random random = new Random(seed);
+        for (int i = 0; i < lspCount; i++) {
+            lsps.add(new LaunchServiceProvider("lsp_" + i, 1950 + i % 70, COUNTRIES[i % COUNTRIES.length]));
+        }
+        for (int i = 0; i < rocketCount; i++) {
+            LaunchServiceProvider lsp = lsps.get(i % lspCount);
+            rockets.add(new Rocket("rocket_" + i, lsp.getCountry(), lsp));
+        }
+        double[] cumulative = zipf(rocketCount);
+        for (int i = 0; i < launchCount; i++) {
+            Rocket rocket = rockets.get(pick(cumulative, random.nextDouble()));
+            Launch launch = new Launch();
+            launch.setId((long) i + 1);
+            launch.setLaunchVehicle(rocket);
+            launch.setLaunchServiceProvider(rocket.getManufacturer());
+            launch.setLaunchDate(LocalDate.of(1990 + random.nextInt(30), 1 + random.nextInt(12), 1 + random.nextInt(28)));
+            launch.setLaunchSite("site_" + random.nextInt(10));
+            launch.setOrbit(ORBITS[random.nextInt(ORBITS.length)]);
+            launch.setPrice(new BigDecimal(random.nextInt(500) * 100_000L).movePointLeft(2));
+            launch.setLaunchOutcome(random.nextInt(10) < 8 ? Launch.LaunchOutcome.SUCCESSFUL : Launch.LaunchOutcome.FAILED);
+            launches.add(launch);
+        }
+    }
+
+    private static double[] zipf(int n) {
+        double[] cumulative = new double[n];
+        double sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += 1.0 / (i + 1);
+            cumulative[i] = sum;
+        }
+        for (int i = 0; i < n; i++) {
+            cumulative[i] /= sum;
+        }
+        return cumulative;
+    }
+
+    private static int pick(double[] cumulative, double p) {
+        int index = java.util.Arrays.binarySearch(cumulative, p);
+        return Math.min(cumulative.length - 1, index >= 0 ? index : -index - 1);
+    }
+
+    public List<LaunchServiceProvider> getLaunchServiceProviders() {
+        return lsps;
+    }
+
+    public List<Rocket> getRockets() {
+        return rockets;
+    }
+
+    public List<Launch> getLaunches() {
+        return launches;
+    }
+}
@@ -0,0 +1,63 @@
+package rockets.mining;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TopKUnitTest {
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 1, 3, 10, 99, 100, 150})
+    public void shouldMatchStableSortWithLimit(int k) {
+        Random random = new Random(42);
+        // few distinct keys so there are plenty of ties
+        List<int[]> items = IntStream.range(0, 100)
+                .mapToObj(i -> new int[]{random.nextInt(7), i})
+                .collect(Collectors.toList());
+        Comparator<int[]> byKeyDescending = (a, b) -> Integer.compare(b[0], a[0]);
+
+        List<int[]> expected = items.stream().sorted(byKeyDescending).limit(k).collect(Collectors.toList());
+        List<int[]> selected = TopK.select(items.iterator(), k, byKeyDescending);
+        assertEquals(expected.size(), selected.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertSame(expected.get(i), selected.get(i));
+        }
+    }
+
+    @Test
+    public void shouldConsumeStreamLazily() {
+        Stream<Integer> infiniteLimited = Stream.iterate(0, i -> i + 1).limit(100_000);
+        assertEquals(Arrays.asList(99_999, 99_998, 99_997),
+                TopK.select(infiniteLimited, 3, Comparator.<Integer>reverseOrder()));
+    }
+
+    @Test
+    public void shouldReturnEverythingWhenKExceedsSize() {
+        assertEquals(Arrays.asList(3, 2, 1),
+                TopK.select(Arrays.asList(1, 3, 2), 5, Comparator.<Integer>reverseOrder()));
+    }
+
+    @Test
+    public void shouldSelectKeysByValueInMapOrderOnTies() {
+        Map<String, Integer> values = new LinkedHashMap<>();
+        values.put("a", 1);
+        values.put("b", 3);
+        values.put("c", 3);
+        values.put("d", 2);
+        assertEquals(Arrays.asList("b", "c", "d"), TopK.selectKeysByValue(values, 3, Comparator.naturalOrder()));
+    }
+
+    @Test
+    public void shouldRejectNegativeK() {
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> TopK.select(Collections.<Integer>emptyList(), -1, Comparator.<Integer>naturalOrder()));
+        assertEquals("k cannot be negative", exception.getMessage());
+    }
+}
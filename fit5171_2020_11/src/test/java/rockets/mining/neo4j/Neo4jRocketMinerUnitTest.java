@@ -0,0 +1,240 @@
+package rockets.mining.neo4j;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.harness.ServerControls;
+import org.neo4j.harness.TestServerBuilders;
+import org.mockito.Mockito;
+import org.neo4j.ogm.drivers.embedded.driver.EmbeddedDriver;
+import org.neo4j.ogm.session.Session;
+import org.neo4j.ogm.session.SessionFactory;
+import rockets.dataaccess.DAO;
+import rockets.dataaccess.neo4j.Neo4jDAO;
+import rockets.metrics.Metrics;
+import rockets.mining.RocketMiner;
+import rockets.model.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class Neo4jRocketMinerUnitTest {
+    private ServerControls embeddedDatabaseServer;
+    private SessionFactory sessionFactory;
+    private Session session;
+    private DAO dao;
+    private RocketMiner inMemoryMiner;
+    private Neo4jRocketMiner miner;
+
+    private List<LaunchServiceProvider> lsps;
+    private List<Rocket> rockets;
+
+    @BeforeAll
+    public void initializeNeo4j() {
+        embeddedDatabaseServer = TestServerBuilders.newInProcessBuilder().newServer();
+        GraphDatabaseService dbService = embeddedDatabaseServer.graph();
+        EmbeddedDriver driver = new EmbeddedDriver(dbService);
+        sessionFactory = new SessionFactory(driver, User.class.getPackage().getName());
+        session = sessionFactory.openSession();
+        dao = new Neo4jDAO(session);
+
+        lsps = Arrays.asList(
+                new LaunchServiceProvider("ULA", 1990, "USA"),
+                new LaunchServiceProvider("SpaceX", 2002, "USA"),
+                new LaunchServiceProvider("ESA", 1975, "Europe")
+        );
+        rockets = Arrays.asList(
+                new Rocket("Atlas V", "USA", lsps.get(0)),
+                new Rocket("Delta IV", "USA", lsps.get(0)),
+                new Rocket("Falcon 9", "USA", lsps.get(1)),
+                new Rocket("Ariane 5", "Europe", lsps.get(2))
+        );
+
+        // index of rocket, year, month, price factor, outcome and orbit of each launch
+        int[] rocketIndex = new int[]{2, 2, 2, 2, 0, 0, 0, 3, 3, 1};
+        int[] years = new int[]{2017, 2017, 2018, 2018, 2017, 2017, 2018, 2017, 2017, 2018};
+        int[] months = new int[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10};
+        int[] priceFactor = new int[]{7, 9, 8, 5, 4, 3, 2, 6, 10, 12};
+        boolean[] successful = new boolean[]{true, true, true, false, true, true, true, false, true, true};
+        String[] orbits = new String[]{"LEO", "LEO", "LEO", "LEO", "GTO", "GTO", "GTO", "GTO", "GTO", "LEO"};
+        for (int i = 0; i < rocketIndex.length; i++) {
+            Rocket rocket = rockets.get(rocketIndex[i]);
+            Launch launch = new Launch();
+            launch.setLaunchDate(LocalDate.of(years[i], months[i], 1));
+            launch.setLaunchVehicle(rocket);
+            launch.setLaunchServiceProvider(rocket.getManufacturer());
+            launch.setLaunchSite("VAFB");
+            launch.setOrbit(orbits[i]);
+            launch.setPrice(new BigDecimal(priceFactor[i] * 1000));
+            launch.setLaunchOutcome(successful[i] ? Launch.LaunchOutcome.SUCCESSFUL : Launch.LaunchOutcome.FAILED);
+            dao.createOrUpdate(launch);
+        }
+    }
+
+    @BeforeEach
+    public void setup() {
+        inMemoryMiner = new RocketMiner(dao);
+        miner = new Neo4jRocketMiner(session);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 1, 2, 3, 4, 10})
+    public void shouldReturnSameMostLaunchedRocketsAsInMemoryMiner(int k) {
+        List<Rocket> loadedRockets = miner.mostLaunchedRockets(k);
+        assertEquals(inMemoryMiner.mostLaunchedRockets(k), loadedRockets);
+        assertEquals(Math.min(k, 4), loadedRockets.size());
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 1, 2, 3, 10})
+    public void shouldReturnSameMostRecentLaunchesAsInMemoryMiner(int k) {
+        assertEquals(inMemoryMiner.mostRecentLaunches(k), miner.mostRecentLaunches(k));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 1, 2, 3, 10})
+    public void shouldReturnSameMostExpensiveLaunchesAsInMemoryMiner(int k) {
+        assertEquals(inMemoryMiner.mostExpensiveLaunches(k), miner.mostExpensiveLaunches(k));
+        // ranked from a projection of the ids and prices
+        assertEquals(inMemoryMiner.mostExpensiveLaunches(k), RocketMiner.streaming(dao, 4).mostExpensiveLaunches(k));
+    }
+
+    @ParameterizedTest
+    @CsvSource({"1,2017", "2,2017", "3,2017", "1,2018", "3,2018", "3,2019"})
+    public void shouldReturnSameHighestRevenueLspsAsInMemoryMiner(int k, int year) {
+        assertEquals(inMemoryMiner.highestRevenueLaunchServiceProviders(k, year),
+                miner.highestRevenueLaunchServiceProviders(k, year));
+    }
+
+    @ParameterizedTest
+    @CsvSource({"3,2017,2018", "2,2016,2017", "3,2018,2030", "3,2019,2020"})
+    public void shouldReturnSameHighestRevenueLspsBetweenYearsAsInMemoryMiner(int k, int fromYear, int toYear) {
+        assertEquals(inMemoryMiner.highestRevenueLaunchServiceProviders(k, fromYear, toYear),
+                miner.highestRevenueLaunchServiceProviders(k, fromYear, toYear));
+    }
+
+    @ParameterizedTest
+    @CsvSource({"LEO,USA", "GTO,USA"})
+    public void shouldReturnDominantCountry(String orbit, String country) {
+        assertEquals(country, miner.dominantCountry(orbit));
+        assertEquals(inMemoryMiner.dominantCountry(orbit), miner.dominantCountry(orbit));
+    }
+
+    @Test
+    public void shouldReturnDominantCountriesOfOrbitsWithLaunches() {
+        List<String> orbits = Arrays.asList("GTO", "MEO", "LEO");
+        Map<String, String> countries = miner.dominantCountries(orbits);
+        assertEquals(inMemoryMiner.dominantCountries(orbits), countries);
+        assertEquals(Arrays.asList("GTO", "LEO"), new ArrayList<>(countries.keySet()));
+    }
+
+    @Test
+    public void shouldThrowWhenNoLaunchInOrbit() {
+        assertThrows(NoSuchElementException.class, () -> miner.dominantCountry("MEO"));
+    }
+
+    @Test
+    public void shouldRankLspsBySuccessRatioOfTheirOwnLaunches() {
+        // ULA 4/4 successful, SpaceX 3/4, ESA 1/2
+        assertEquals(lsps, miner.mostReliableLaunchServiceProviders(3));
+        assertEquals(lsps.subList(0, 1), miner.mostReliableLaunchServiceProviders(1));
+        assertEquals(inMemoryMiner.mostReliableLaunchServiceProviders(3), miner.mostReliableLaunchServiceProviders(3));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 1, 2, 3, 10})
+    public void shouldReturnSameMostReliableLspsAsInMemoryMiner(int k) {
+        assertEquals(inMemoryMiner.mostReliableLaunchServiceProviders(k), miner.mostReliableLaunchServiceProviders(k));
+    }
+
+    @Test
+    public void shouldRankPricesThatAreEqualAsDoublesExactly() {
+        // 2^53 and 2^53 + 1 have the same nearest double; the cheaper launch and provider have the lower ids
+        Launch cheaper = launchOf(rockets.get(2), LocalDate.of(2031, 1, 1), "9007199254740992");
+        Launch dearer = launchOf(rockets.get(3), LocalDate.of(2031, 2, 1), "9007199254740993");
+        dao.createOrUpdate(cheaper);
+        dao.createOrUpdate(dearer);
+        try {
+            assertEquals(Arrays.asList(dearer, cheaper), miner.mostExpensiveLaunches(2));
+            assertEquals(inMemoryMiner.mostExpensiveLaunches(2), miner.mostExpensiveLaunches(2));
+            assertEquals(Arrays.asList(lsps.get(2), lsps.get(1)), miner.highestRevenueLaunchServiceProviders(2, 2031));
+            assertEquals(Arrays.asList(lsps.get(2), lsps.get(1)), miner.highestRevenueLaunchServiceProviders(2, 2030, 2031));
+        } finally {
+            dao.delete(cheaper);
+            dao.delete(dearer);
+        }
+    }
+
+    private static Launch launchOf(Rocket rocket, LocalDate launchDate, String price) {
+        Launch launch = new Launch();
+        launch.setLaunchDate(launchDate);
+        launch.setLaunchVehicle(rocket);
+        launch.setLaunchServiceProvider(rocket.getManufacturer());
+        launch.setLaunchSite("VAFB");
+        launch.setOrbit("LEO");
+        launch.setPrice(new BigDecimal(price));
+        launch.setLaunchOutcome(Launch.LaunchOutcome.SUCCESSFUL);
+        return launch;
+    }
+
+    @Test
+    public void shouldAnswerAsyncQueriesWithoutLoadingAllLaunches() throws Exception {
+        Session spy = Mockito.spy(session);
+        Neo4jRocketMiner asyncMiner = new Neo4jRocketMiner(spy);
+
+        assertEquals(miner.mostLaunchedRockets(2), asyncMiner.mostLaunchedRocketsAsync(2).get(5, TimeUnit.SECONDS));
+        assertEquals(miner.mostReliableLaunchServiceProviders(2), asyncMiner.mostReliableLaunchServiceProvidersAsync(2).get(5, TimeUnit.SECONDS));
+        assertEquals(miner.mostRecentLaunches(2), asyncMiner.mostRecentLaunchesAsync(2).get(5, TimeUnit.SECONDS));
+        assertEquals(miner.dominantCountry("LEO"), asyncMiner.dominantCountryAsync("LEO").get(5, TimeUnit.SECONDS));
+        assertEquals(miner.mostExpensiveLaunches(2), asyncMiner.mostExpensiveLaunchesAsync(2).get(5, TimeUnit.SECONDS));
+        assertEquals(miner.highestRevenueLaunchServiceProviders(2, 2017),
+                asyncMiner.highestRevenueLaunchServiceProvidersAsync(2, 2017).get(5, TimeUnit.SECONDS));
+        assertThrows(ExecutionException.class, () -> asyncMiner.dominantCountryAsync("MEO").get(5, TimeUnit.SECONDS));
+        verify(spy, never()).loadAll(Launch.class);
+    }
+
+    @Test
+    public void shouldRecordEachQueryInTheMetrics() throws Exception {
+        Metrics metrics = new Metrics();
+        Neo4jRocketMiner instrumented = new Neo4jRocketMiner(session);
+        instrumented.setMetrics(metrics);
+        instrumented.mostRecentLaunches(3);
+        instrumented.mostRecentLaunchesAsync(2).get(5, TimeUnit.SECONDS);
+        instrumented.highestRevenueLaunchServiceProviders(2, 2017);
+        assertThrows(NoSuchElementException.class, () -> instrumented.dominantCountry("MEO"));
+
+        Map<String, Metrics.OperationMetrics.Snapshot> snapshot = metrics.snapshot();
+        assertEquals(2, snapshot.get("mostRecentLaunches(k)").getCalls());
+        assertEquals(3, snapshot.get("mostRecentLaunches(k)").getResultSizes().getMax());
+        assertEquals(1, snapshot.get("highestRevenueLaunchServiceProviders(k, year)").getCalls());
+        assertEquals(1, snapshot.get("dominantCountry(orbit)").getFailures());
+    }
+
+    @Test
+    public void shouldRejectNegativeK() {
+        assertThrows(IllegalArgumentException.class, () -> miner.mostLaunchedRockets(-1));
+    }
+
+    @AfterAll
+    public void closeNeo4jSession() {
+        session.purgeDatabase();
+        session.clear();
+        sessionFactory.close();
+        embeddedDatabaseServer.close();
+    }
+}